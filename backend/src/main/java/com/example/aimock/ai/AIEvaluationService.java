@@ -1,5 +1,7 @@
 package com.example.aimock.ai;
 
+import com.example.aimock.ai.routing.ChatBackendRouter;
+import com.example.aimock.exception.AiBusyException;
 import com.example.aimock.messages.MessageRepository;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.session.InterviewSession;
@@ -7,7 +9,6 @@ import com.example.aimock.session.dto.EvaluationResult;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -19,14 +20,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AIEvaluationService {
 
-    private final ChatClient chatClient;
+    private final ChatBackendRouter chatBackendRouter;
     private final MessageRepository messageRepository;
     private final ObjectMapper objectMapper;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
-    public AIEvaluationService(ChatClient.Builder chatClientBuilder, MessageRepository messageRepository, ObjectMapper objectMapper) {
-        this.chatClient = chatClientBuilder.build();
+    public AIEvaluationService(ChatBackendRouter chatBackendRouter, MessageRepository messageRepository, ObjectMapper objectMapper,
+                               AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.chatBackendRouter = chatBackendRouter;
         this.messageRepository = messageRepository;
         this.objectMapper = objectMapper;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     public EvaluationResult evaluateInterview(InterviewSession session) {
@@ -75,14 +79,17 @@ public class AIEvaluationService {
                 );
 
         try {
-            String response = chatClient
+            String response = concurrencyLimiter.call(() -> chatBackendRouter.call(chatClient -> chatClient
                     .prompt()
                     .system(systemPrompt)
                     .user(userPrompt)
                     .call()
-                    .content();
+                    .content()));
 
             return parseEvaluationResponse(response);
+        } catch (AiBusyException e) {
+            // Not an evaluation result: the caller must not persist it, the user can retry
+            throw e;
         } catch (Exception e) {
             log.error("Failed to evaluate interview", e);
             return EvaluationResult.builder()
@@ -1,28 +1,51 @@
 package com.example.aimock.ai;
 
 import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.ai.prompt.HistoryWindowSelector;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.exception.AiBusyException;
 import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.dto.HistoryMessage;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.messages.model.MessageRole;
 import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.messages.model.StreamingContent;
+import com.example.aimock.session.ConversationCache;
+import com.example.aimock.session.ConversationCache.SessionSnapshot;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.InterviewSessionRepository;
+import com.example.aimock.websocket.DeltaCoalescer;
 import com.example.aimock.websocket.SessionTopicPublisher;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Processes AI messages with short transaction boundaries.
  * Uses TransactionTemplate to avoid holding DB connections during AI streaming.
+ *
+ * Two execution modes are available:
+ * <ul>
+ *   <li>{@link #processMessage} - blocking; the caller's thread is held until the stream completes</li>
+ *   <li>{@link #processMessageReactive} - non-blocking; only the short DB phases run on the bounded
+ *       {@code aiBlockingScheduler}, the stream itself never parks a thread</li>
+ * </ul>
  */
 @Service
 @Slf4j
@@ -32,54 +55,119 @@ public class AIMessageProcessor {
     private final MessageRepository messageRepository;
     private final InterviewSessionRepository sessionRepository;
     private final SessionTopicPublisher topicPublisher;
+    private final DeltaCoalescer deltaCoalescer;
+    private final TokenCounter tokenCounter;
+    private final HistoryWindowSelector historyWindowSelector;
+    private final ConversationSummarizer conversationSummarizer;
+    private final ConversationCache conversationCache;
+    private final StreamCheckpointer streamCheckpointer;
     private final Timer aiResponseTimer;
     private final Timer aiTimeToFirstToken;
+    private final Timer aiLongSessionTtftSummarized;
+    private final Timer aiLongSessionTtftFull;
     private final Counter aiProcessingSuccess;
     private final Counter aiProcessingFailure;
     private final TransactionTemplate transactionTemplate;
+    private final Scheduler aiBlockingScheduler;
+    private final AtomicInteger aiActiveStreamsGauge;
+    private final StreamingContent.SizeHint responseSize = new StreamingContent.SizeHint();
 
     @Value("${app.ai.streaming.enabled:true}")
     private boolean streamingEnabled;
 
+    @Value("${app.ai.reactive.enabled:false}")
+    private boolean reactiveEnabled;
+
     // Create TransactionTemplate from PlatformTransactionManager (auto-configured by Spring Boot)
     public AIMessageProcessor(AIChatService aiChatService, MessageRepository messageRepository,
                              InterviewSessionRepository sessionRepository, SessionTopicPublisher topicPublisher,
-                             Timer aiResponseTimer, Timer aiTimeToFirstToken, Counter aiProcessingSuccess,
-                             Counter aiProcessingFailure, PlatformTransactionManager transactionManager) {
+                             DeltaCoalescer deltaCoalescer, TokenCounter tokenCounter,
+                             HistoryWindowSelector historyWindowSelector,
+                             ConversationSummarizer conversationSummarizer, ConversationCache conversationCache,
+                             StreamCheckpointer streamCheckpointer, Timer aiResponseTimer, Timer aiTimeToFirstToken,
+                             Timer aiLongSessionTtftSummarized, Timer aiLongSessionTtftFull, Counter aiProcessingSuccess,
+                             Counter aiProcessingFailure, PlatformTransactionManager transactionManager,
+                             Scheduler aiBlockingScheduler, AtomicInteger aiActiveStreamsGauge) {
         this.aiChatService = aiChatService;
         this.messageRepository = messageRepository;
         this.sessionRepository = sessionRepository;
         this.topicPublisher = topicPublisher;
+        this.deltaCoalescer = deltaCoalescer;
+        this.tokenCounter = tokenCounter;
+        this.historyWindowSelector = historyWindowSelector;
+        this.conversationSummarizer = conversationSummarizer;
+        this.conversationCache = conversationCache;
+        this.streamCheckpointer = streamCheckpointer;
         this.aiResponseTimer = aiResponseTimer;
         this.aiTimeToFirstToken = aiTimeToFirstToken;
+        this.aiLongSessionTtftSummarized = aiLongSessionTtftSummarized;
+        this.aiLongSessionTtftFull = aiLongSessionTtftFull;
         this.aiProcessingSuccess = aiProcessingSuccess;
         this.aiProcessingFailure = aiProcessingFailure;
         this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.aiBlockingScheduler = aiBlockingScheduler;
+        this.aiActiveStreamsGauge = aiActiveStreamsGauge;
+    }
+
+    public boolean isReactiveEnabled() {
+        return reactiveEnabled;
     }
 
     public AIProcessingResult processMessage(
             UUID interviewerMessageId,
             UUID sessionId,
             String userContent) {
+        // A redelivered queue message looks like a first delivery, so a STREAMING turn may be resumed
+        return processMessage(interviewerMessageId, sessionId, userContent, true, true);
+    }
+
+    /**
+     * Like {@link #processMessage(UUID, UUID, String)} for a job that knows its attempts. Only a PENDING turn
+     * is started, or a STREAMING one if {@code retry} (an earlier attempt left it so); a turn that already
+     * finished, or is being streamed by another run, is left alone and SUCCESS is returned.
+     *
+     * Unless {@code lastAttempt} a failure before the first token reached the client returns RETRY instead
+     * of failing the turn: it is left STREAMING with nothing published but the empty marker, so the caller
+     * can run it again later. A failure after the first token always fails the turn, since running it again
+     * would stream a second reply into it.
+     */
+    public AIProcessingResult processMessage(
+            UUID interviewerMessageId,
+            UUID sessionId,
+            String userContent,
+            boolean retry,
+            boolean lastAttempt) {
         
         log.info("Processing AI message: interviewerMessageId={}, sessionId={}", 
                 interviewerMessageId, sessionId);
 
+        AtomicBoolean firstTokenSent = new AtomicBoolean(false);
         try {
             // Phase 1: Short transaction - mark as STREAMING
-            StreamingContext ctx = prepareForStreaming(interviewerMessageId, sessionId);
+            StreamingContext ctx = prepareForStreaming(interviewerMessageId, sessionId, retry);
+            if (ctx == null) {
+                return alreadyHandled(interviewerMessageId, sessionId);
+            }
             
             // Phase 2: NO TRANSACTION - stream tokens (can take seconds/minutes)
-            String aiResponse = streamAiResponse(ctx, userContent);
+            String aiResponse = streamAiResponse(ctx, userContent, firstTokenSent);
+            // Not retried from here on either: saving publishes ai_complete
+            firstTokenSent.set(true);
             
             // Phase 3: Short transaction - save final result
-            saveSuccessResult(interviewerMessageId, sessionId, aiResponse);
-            
-            aiProcessingSuccess.increment();
+            if (saveSuccessResult(interviewerMessageId, sessionId, aiResponse)) {
+                aiProcessingSuccess.increment();
+            }
             return new AIProcessingResult(interviewerMessageId, sessionId, aiResponse, 
                     AIProcessingResult.Status.SUCCESS, null);
 
         } catch (Exception e) {
+            if (!lastAttempt && !firstTokenSent.get()) {
+                log.warn("AI message failed before its first token, to be retried: interviewerMessageId={}: {}",
+                        interviewerMessageId, e.toString());
+                return new AIProcessingResult(interviewerMessageId, sessionId, null,
+                        AIProcessingResult.Status.RETRY, e.toString());
+            }
             log.error("Failed to process AI message: interviewerMessageId={}", interviewerMessageId, e);
             aiProcessingFailure.increment();
             markAsFailed(interviewerMessageId, sessionId, e.getMessage());
@@ -88,7 +176,81 @@ public class AIMessageProcessor {
         }
     }
 
-    private StreamingContext prepareForStreaming(UUID interviewerMessageId, UUID sessionId) {
+    private AIProcessingResult alreadyHandled(UUID interviewerMessageId, UUID sessionId) {
+        log.info("AI message already finished or being streamed, skipping: interviewerMessageId={}",
+                interviewerMessageId);
+        return new AIProcessingResult(interviewerMessageId, sessionId, null, AIProcessingResult.Status.SUCCESS, null);
+    }
+
+    /**
+     * Non-blocking variant of {@link #processMessage}: prepare, stream, persist and publish as one chain.
+     * Produces the same SUCCESS/FAILED results and records the same timers; nothing runs until subscribed.
+     */
+    public Mono<AIProcessingResult> processMessageReactive(
+            UUID interviewerMessageId,
+            UUID sessionId,
+            String userContent) {
+
+        return Mono.fromCallable(() -> {
+                    log.info("Processing AI message (reactive): interviewerMessageId={}, sessionId={}",
+                            interviewerMessageId, sessionId);
+                    // Phase 1: Short transaction - mark as STREAMING
+                    return prepareForStreaming(interviewerMessageId, sessionId, false);
+                })
+                .subscribeOn(aiBlockingScheduler)
+                // Phase 2: NO TRANSACTION, NO THREAD - tokens are pushed by the HTTP client
+                .flatMap(ctx -> streamAiResponseReactive(ctx, userContent))
+                // Phase 3: Short transaction - save final result
+                .publishOn(aiBlockingScheduler)
+                .map(aiResponse -> {
+                    if (saveSuccessResult(interviewerMessageId, sessionId, aiResponse)) {
+                        aiProcessingSuccess.increment();
+                    }
+                    return new AIProcessingResult(interviewerMessageId, sessionId, aiResponse,
+                            AIProcessingResult.Status.SUCCESS, null);
+                })
+                // Nothing was prepared: the turn had already been started or finished
+                .switchIfEmpty(Mono.fromSupplier(() -> alreadyHandled(interviewerMessageId, sessionId)))
+                .onErrorResume(e -> Mono.fromCallable(() -> {
+                    log.error("Failed to process AI message: interviewerMessageId={}", interviewerMessageId, e);
+                    aiProcessingFailure.increment();
+                    markAsFailed(interviewerMessageId, sessionId, e.getMessage());
+                    return new AIProcessingResult(interviewerMessageId, sessionId, null,
+                            AIProcessingResult.Status.FAILED, e.getMessage());
+                }).subscribeOn(aiBlockingScheduler));
+    }
+
+    /**
+     * Fails a turn that was never started because there was no capacity to run or queue it: the
+     * placeholder is marked FAILED and {@code ai_failed} is published with the busy message.
+     */
+    public AIProcessingResult rejectMessage(UUID interviewerMessageId, UUID sessionId) {
+        String error = new AiBusyException().getMessage();
+        log.warn("Rejected AI message: interviewerMessageId={}, sessionId={}", interviewerMessageId, sessionId);
+        aiProcessingFailure.increment();
+        markAsFailed(interviewerMessageId, sessionId, error);
+        return new AIProcessingResult(interviewerMessageId, sessionId, null,
+                AIProcessingResult.Status.FAILED, error);
+    }
+
+    /**
+     * Fails a turn whose job was given up on, unless it already finished: a PENDING or STREAMING placeholder
+     * is marked FAILED and {@code ai_failed} is published with the error. Returns whether it was failed.
+     */
+    public boolean failUnfinished(UUID interviewerMessageId, UUID sessionId, String error) {
+        boolean failed = markAsFailed(interviewerMessageId, sessionId, error);
+        if (failed) {
+            aiProcessingFailure.increment();
+        }
+        return failed;
+    }
+
+    /**
+     * Starts the turn and returns what it is streamed from, or null if it must not run: only a PENDING
+     * placeholder is started, or a STREAMING one if {@code retry}. A run of a turn that already finished, or
+     * that another run is streaming, would stream a second reply into it.
+     */
+    private StreamingContext prepareForStreaming(UUID interviewerMessageId, UUID sessionId, boolean retry) {
         return transactionTemplate.execute(status -> {
             Message placeholder = messageRepository.findById(interviewerMessageId)
                     .orElseThrow(() -> new RuntimeException("Placeholder not found: " + interviewerMessageId));
@@ -96,101 +258,227 @@ public class AIMessageProcessor {
             if (placeholder.getRole() != MessageRole.INTERVIEWER) {
                 throw new RuntimeException("Not an INTERVIEWER placeholder: " + interviewerMessageId);
             }
+            List<MessageStatus> startable = retry
+                    ? List.of(MessageStatus.PENDING, MessageStatus.STREAMING)
+                    : List.of(MessageStatus.PENDING);
+            if (!startable.contains(placeholder.getMessageStatus())) {
+                return null;
+            }
 
-            InterviewSession session = sessionRepository.findById(sessionId)
-                    .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+            SessionSnapshot session = conversationCache.session(sessionId)
+                    .orElseGet(() -> loadSession(sessionId));
 
-            List<Message> history = messageRepository.findBySessionIdOrderBySeqAsc(sessionId);
+            // With a rolling summary, only the turns after it are sent verbatim
+            String summary = conversationSummarizer.isEnabled() ? session.conversationSummary() : null;
+            long summarizedThrough = summary != null && session.summarizedThroughSeq() != null
+                    ? session.summarizedThroughSeq() : 0L;
+            // The triggering user message (placeholder seq - 1) is sent separately as the latest message
+            List<HistoryMessage> history = loadHistory(sessionId, summarizedThrough, placeholder.getSeq() - 1);
+            boolean longSession = summary != null || conversationSummarizer.isLongSession(placeholder.getSeq().intValue());
 
-            placeholder.setMessageStatus(MessageStatus.STREAMING);
-            messageRepository.save(placeholder);
+            // Conditional, so of two runs that both read it PENDING only one starts it
+            if (messageRepository.startStreaming(interviewerMessageId, startable) == 0) {
+                return null;
+            }
             topicPublisher.aiDelta(sessionId, interviewerMessageId, "");
 
-            return new StreamingContext(sessionId, interviewerMessageId, session.getInterviewType(),
-                    session.getExperienceYears() != null ? session.getExperienceYears() : 2,
-                    session.getJobDescription(), history);
+            return new StreamingContext(sessionId, interviewerMessageId, session.interviewType(),
+                    session.experienceYears(), session.jobDescription(), history, summary, longSession);
         });
     }
 
-    private void saveSuccessResult(UUID interviewerMessageId, UUID sessionId, String aiResponse) {
-        transactionTemplate.executeWithoutResult(status -> {
+    private SessionSnapshot loadSession(UUID sessionId) {
+        InterviewSession session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        conversationCache.sessionLoaded(session);
+        return SessionSnapshot.of(session);
+    }
+
+    /**
+     * Newest history messages with afterSeq < seq < beforeSeq, oldest-first, from the conversation cache or
+     * a keyset read of read-only projections. Messages without a cached token count are counted once and
+     * written back.
+     */
+    private List<HistoryMessage> loadHistory(UUID sessionId, long afterSeq, long beforeSeq) {
+        int limit = historyWindowSelector.maxMessages();
+        Optional<List<HistoryMessage>> cached = conversationCache.history(sessionId, afterSeq, beforeSeq, limit);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        List<HistoryMessage> newestFirst = messageRepository.findRecentHistory(
+                sessionId, afterSeq, beforeSeq, PageRequest.of(0, limit));
+        List<HistoryMessage> history = new ArrayList<>(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            HistoryMessage message = newestFirst.get(i);
+            if (message.tokenCount() == null) {
+                int tokens = tokenCounter.count(message.content());
+                messageRepository.updateTokenCount(message.id(), tokens);
+                message = message.withTokenCount(tokens);
+            }
+            history.add(message);
+        }
+        conversationCache.historyLoaded(sessionId, afterSeq, beforeSeq, limit, history);
+        return history;
+    }
+
+    /**
+     * Saves the reply and publishes ai_complete, unless the turn is no longer STREAMING because another run
+     * finished it first. Returns whether it was saved.
+     */
+    private boolean saveSuccessResult(UUID interviewerMessageId, UUID sessionId, String aiResponse) {
+        int tokenCount = tokenCounter.count(aiResponse);
+        boolean saved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (messageRepository.completeStreaming(interviewerMessageId, aiResponse, tokenCount) == 0) {
+                log.warn("AI message finished by another run, dropping this reply: interviewerMessageId={}",
+                        interviewerMessageId);
+                return false;
+            }
             Message msg = messageRepository.findById(interviewerMessageId)
                     .orElseThrow(() -> new RuntimeException("Message not found: " + interviewerMessageId));
-            msg.setContent(aiResponse);
-            msg.setMessageStatus(MessageStatus.COMPLETED);
-            messageRepository.save(msg);
+            conversationCache.messageCompleted(sessionId, new HistoryMessage(
+                    msg.getId(), msg.getSeq(), msg.getRole(), aiResponse, tokenCount));
             topicPublisher.aiComplete(sessionId, interviewerMessageId, aiResponse);
             log.info("Saved the response={}", aiResponse);
-        });
+            return true;
+        }));
+        if (saved) {
+            // Fold older turns into the rolling summary off the response path
+            conversationSummarizer.summarizeInBackground(sessionId);
+        }
+        return saved;
     }
 
-    private void markAsFailed(UUID interviewerMessageId, UUID sessionId, String errorMessage) {
-        transactionTemplate.executeWithoutResult(status -> {
+    /**
+     * Marks a PENDING or STREAMING turn FAILED and publishes ai_failed. A turn that already finished is left
+     * alone, so a late failure never follows its ai_complete. Returns whether it was failed.
+     */
+    private boolean markAsFailed(UUID interviewerMessageId, UUID sessionId, String errorMessage) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
             try {
-                Message msg = messageRepository.findById(interviewerMessageId).orElse(null);
-                if (msg != null) {
-                    msg.setMessageStatus(MessageStatus.FAILED);
-                    messageRepository.save(msg);
+                if (messageRepository.failUnfinished(interviewerMessageId) == 0) {
+                    return false;
                 }
+                messageRepository.findById(interviewerMessageId)
+                        .ifPresent(msg -> conversationCache.messageFailed(sessionId, msg.getSeq()));
                 topicPublisher.aiFailed(sessionId, interviewerMessageId, errorMessage);
+                return true;
             } catch (Exception e) {
                 log.error("Failed to mark message as failed: interviewerMessageId={}", interviewerMessageId, e);
+                return false;
             }
-        });
+        }));
     }
 
-    private String streamAiResponse(StreamingContext ctx, String userContent) throws Exception {
+    private String streamAiResponse(StreamingContext ctx, String userContent, AtomicBoolean firstTokenSent)
+            throws Exception {
         return aiResponseTimer.recordCallable(() -> {
             if (streamingEnabled) {
-                return streamWithTokens(ctx, userContent);
+                return streamWithTokens(ctx, userContent, firstTokenSent);
             } else {
                 return generateNonStreaming(ctx, userContent);
             }
         });
     }
 
-    private String streamWithTokens(StreamingContext ctx, String userContent) {
-        StringBuilder sb = new StringBuilder();
+    private String streamWithTokens(StreamingContext ctx, String userContent, AtomicBoolean firstTokenSent) {
+        StreamingContent content = responseSize.newContent();
         
         // Measure TTFT from just before OpenAI API call (excludes DB queries and prompt building)
         long aiCallStartTime = System.currentTimeMillis();
         Flux<String> flux = aiChatService.streamResponse(ctx.interviewType(), ctx.history(),
-                userContent, ctx.experienceYears(), ctx.jobDescription());
-
-        final boolean[] firstTokenSent = {false};
-        flux.doOnNext(delta -> {
-            if (delta == null || delta.isEmpty()) return;
-            if (!firstTokenSent[0]) {
-                // Record TTFT: time from OpenAI API call to first token
-                long ttft = System.currentTimeMillis() - aiCallStartTime;
-                aiTimeToFirstToken.record(ttft, java.util.concurrent.TimeUnit.MILLISECONDS);
-                firstTokenSent[0] = true;
-                log.debug("TTFT: {}ms for sessionId={}", ttft, ctx.sessionId());
-            }
-            sb.append(delta);
-            topicPublisher.aiDelta(ctx.sessionId(), ctx.interviewerMessageId(), delta);
-        }).blockLast();
-        return sb.toString();
+                userContent, ctx.experienceYears(), ctx.jobDescription(), ctx.conversationSummary());
+
+        DeltaCoalescer.DeltaStream deltas = deltaCoalescer.open(ctx.sessionId(), ctx.interviewerMessageId());
+        StreamCheckpointer.Checkpoints checkpoints = streamCheckpointer.open(ctx.interviewerMessageId());
+        aiActiveStreamsGauge.incrementAndGet();
+        try {
+            flux.doOnNext(delta -> onDelta(ctx, delta, content, deltas, checkpoints, aiCallStartTime, firstTokenSent))
+                    .blockLast();
+        } finally {
+            // Flush the tail before ai_complete/ai_failed is published
+            deltas.complete();
+            checkpoints.complete(content.length());
+            aiActiveStreamsGauge.decrementAndGet();
+        }
+        // Materialized once, after the last delta
+        return content.toString();
+    }
+
+    private Mono<String> streamAiResponseReactive(StreamingContext ctx, String userContent) {
+        if (!streamingEnabled) {
+            // Nothing to stream: the blocking call is offloaded so it still never runs on the caller
+            return Mono.fromCallable(() -> aiResponseTimer.recordCallable(() -> generateNonStreaming(ctx, userContent)))
+                    .subscribeOn(aiBlockingScheduler);
+        }
+
+        return Mono.defer(() -> {
+            StreamingContent content = responseSize.newContent();
+            long startNanos = System.nanoTime();
+            // Measure TTFT from just before OpenAI API call (excludes DB queries and prompt building)
+            long aiCallStartTime = System.currentTimeMillis();
+            AtomicBoolean firstTokenSent = new AtomicBoolean(false);
+            DeltaCoalescer.DeltaStream deltas = deltaCoalescer.open(ctx.sessionId(), ctx.interviewerMessageId());
+            StreamCheckpointer.Checkpoints checkpoints = streamCheckpointer.open(ctx.interviewerMessageId());
+
+            return aiChatService.streamResponse(ctx.interviewType(), ctx.history(),
+                            userContent, ctx.experienceYears(), ctx.jobDescription(), ctx.conversationSummary())
+                    .doOnSubscribe(subscription -> aiActiveStreamsGauge.incrementAndGet())
+                    .doOnNext(delta -> onDelta(ctx, delta, content, deltas, checkpoints, aiCallStartTime, firstTokenSent))
+                    // Flush the tail before ai_complete/ai_failed is published downstream
+                    .doOnTerminate(deltas::complete)
+                    .doFinally(signal -> {
+                        // Terminate already did it unless the turn was cancelled; complete() is idempotent
+                        deltas.complete();
+                        checkpoints.complete(content.length());
+                        aiActiveStreamsGauge.decrementAndGet();
+                        aiResponseTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    })
+                    .then(Mono.fromSupplier(content::toString));
+        });
+    }
+
+    private void onDelta(StreamingContext ctx, String delta, StreamingContent content, DeltaCoalescer.DeltaStream deltas,
+                         StreamCheckpointer.Checkpoints checkpoints, long aiCallStartTime, AtomicBoolean firstTokenSent) {
+        if (delta == null || delta.isEmpty()) return;
+        if (firstTokenSent.compareAndSet(false, true)) {
+            // Record TTFT: time from OpenAI API call to first token
+            long ttft = System.currentTimeMillis() - aiCallStartTime;
+            recordTtft(ctx, ttft);
+            log.debug("TTFT: {}ms for sessionId={}", ttft, ctx.sessionId());
+        }
+        content.append(delta);
+        deltas.append(delta);
+        checkpoints.onDelta(content);
     }
 
     private String generateNonStreaming(StreamingContext ctx, String userContent) {
         // Measure TTFT from just before OpenAI API call
         long aiCallStartTime = System.currentTimeMillis();
         String response = aiChatService.generateResponse(ctx.interviewType(), ctx.history(),
-                userContent, ctx.experienceYears(), ctx.jobDescription());
+                userContent, ctx.experienceYears(), ctx.jobDescription(), ctx.conversationSummary());
         // For non-streaming, TTFT = total response time
         long ttft = System.currentTimeMillis() - aiCallStartTime;
-        aiTimeToFirstToken.record(ttft, java.util.concurrent.TimeUnit.MILLISECONDS);
+        recordTtft(ctx, ttft);
         log.debug("TTFT (non-streaming): {}ms for sessionId={}", ttft, ctx.sessionId());
         return response;
     }
 
+    private void recordTtft(StreamingContext ctx, long ttftMillis) {
+        aiTimeToFirstToken.record(ttftMillis, TimeUnit.MILLISECONDS);
+        if (ctx.longSession()) {
+            (ctx.conversationSummary() != null ? aiLongSessionTtftSummarized : aiLongSessionTtftFull)
+                    .record(ttftMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
     public record StreamingContext(
             UUID sessionId,
             UUID interviewerMessageId,
             String interviewType,
             int experienceYears,
             String jobDescription,
-            List<Message> history
+            List<HistoryMessage> history,
+            String conversationSummary,
+            boolean longSession
     ) {}
 }
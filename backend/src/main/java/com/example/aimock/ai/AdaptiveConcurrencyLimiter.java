@@ -0,0 +1,333 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.exception.AiBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * AIMD bulkhead around calls to the chat model.
+ *
+ * At most {@code limit} calls are in flight; the next {@code max-queue} wait up to {@code max-wait} in
+ * FIFO order and anything beyond that is shed with {@link AiBusyException}. The limit adapts to what the
+ * provider currently sustains:
+ * <ul>
+ *   <li>a call that succeeds while the limit is in use raises it by {@code 1 / limit} (about +1 per
+ *       round of calls)</li>
+ *   <li>a call that fails (429s, 5xx, timeouts) or whose first token took longer than
+ *       {@code latency-threshold} multiplies it by {@code backoff-ratio}; for a blocking call the time
+ *       to its whole response counts as its first token</li>
+ *   <li>cancelled calls leave it unchanged</li>
+ * </ul>
+ * The limit stays within {@code [min-limit, max-limit]}.
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final LongSupplier ticker;
+    private final Timer aiLimiterQueueWait;
+    private final Counter aiLimiterRejectedQueueFull;
+    private final Counter aiLimiterRejectedTimeout;
+    private final AtomicInteger aiLimiterLimitGauge;
+    private final AtomicInteger aiLimiterInflightGauge;
+    private final AtomicInteger aiLimiterQueuedGauge;
+
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inflight;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(@Value("${app.ai.limiter.enabled:true}") boolean enabled,
+                                      @Value("${app.ai.limiter.initial-limit:20}") int initialLimit,
+                                      @Value("${app.ai.limiter.min-limit:2}") int minLimit,
+                                      @Value("${app.ai.limiter.max-limit:100}") int maxLimit,
+                                      @Value("${app.ai.limiter.backoff-ratio:0.9}") double backoffRatio,
+                                      @Value("${app.ai.limiter.latency-threshold:PT10S}") Duration latencyThreshold,
+                                      @Value("${app.ai.limiter.max-queue:50}") int maxQueue,
+                                      @Value("${app.ai.limiter.max-wait:PT5S}") Duration maxWait,
+                                      Timer aiLimiterQueueWait,
+                                      Counter aiLimiterRejectedQueueFull, Counter aiLimiterRejectedTimeout,
+                                      AtomicInteger aiLimiterLimitGauge, AtomicInteger aiLimiterInflightGauge,
+                                      AtomicInteger aiLimiterQueuedGauge) {
+        this(enabled, initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold, maxQueue, maxWait,
+                System::nanoTime, aiLimiterQueueWait, aiLimiterRejectedQueueFull, aiLimiterRejectedTimeout,
+                aiLimiterLimitGauge, aiLimiterInflightGauge, aiLimiterQueuedGauge);
+    }
+
+    AdaptiveConcurrencyLimiter(boolean enabled, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                               Duration latencyThreshold, int maxQueue, Duration maxWait, LongSupplier ticker,
+                               Timer aiLimiterQueueWait,
+                               Counter aiLimiterRejectedQueueFull, Counter aiLimiterRejectedTimeout,
+                               AtomicInteger aiLimiterLimitGauge, AtomicInteger aiLimiterInflightGauge,
+                               AtomicInteger aiLimiterQueuedGauge) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.ticker = ticker;
+        this.aiLimiterQueueWait = aiLimiterQueueWait;
+        this.aiLimiterRejectedQueueFull = aiLimiterRejectedQueueFull;
+        this.aiLimiterRejectedTimeout = aiLimiterRejectedTimeout;
+        this.aiLimiterLimitGauge = aiLimiterLimitGauge;
+        this.aiLimiterInflightGauge = aiLimiterInflightGauge;
+        this.aiLimiterQueuedGauge = aiLimiterQueuedGauge;
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        aiLimiterLimitGauge.set((int) limit);
+    }
+
+    /**
+     * Runs the stream under a permit. The call is only made once a permit is granted; the permit is
+     * released when the stream terminates or is cancelled.
+     */
+    public <T> Flux<T> stream(Supplier<Flux<T>> call) {
+        return underPermit(Mono.fromFuture(this::acquire), call);
+    }
+
+    /**
+     * Like {@link #stream}, but only if a permit is free right now: nothing is queued, and without a free
+     * permit the stream completes empty. For extra calls such as hedges, which must not add to the queue.
+     */
+    public <T> Flux<T> tryStream(Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            Permit permit = tryAcquire();
+            return permit == null ? Flux.empty() : underPermit(Mono.just(permit), call);
+        });
+    }
+
+    private <T> Flux<T> underPermit(Mono<Permit> permits, Supplier<Flux<T>> call) {
+        return Flux.usingWhen(
+                permits,
+                permit -> call.get().doOnNext(item -> permit.firstResponse()),
+                permit -> Mono.fromRunnable(permit::succeeded),
+                (permit, error) -> Mono.fromRunnable(permit::failed),
+                permit -> Mono.fromRunnable(permit::cancelled));
+    }
+
+    /**
+     * Runs a blocking call under a permit, waiting on the calling thread for one if needed.
+     */
+    public <T> T call(Supplier<T> call) {
+        Permit permit = acquireBlocking();
+        try {
+            T result = call.get();
+            // The whole response arrives at once, so it is also the first response
+            permit.firstResponse();
+            permit.succeeded();
+            return result;
+        } catch (RuntimeException e) {
+            permit.failed();
+            throw e;
+        }
+    }
+
+    /**
+     * A permit if one is free and nobody is queued, otherwise null.
+     */
+    private Permit tryAcquire() {
+        if (!enabled) {
+            return new Permit(ticker.getAsLong(), 0);
+        }
+        synchronized (this) {
+            return takeFree();
+        }
+    }
+
+    private Permit takeFree() {
+        if (waiters.isEmpty() && inflight < (int) limit) {
+            inflight++;
+            aiLimiterInflightGauge.set(inflight);
+            return new Permit(ticker.getAsLong(), inflight);
+        }
+        return null;
+    }
+
+    public CompletableFuture<Permit> acquire() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(new Permit(ticker.getAsLong(), 0));
+        }
+        Waiter waiter;
+        synchronized (this) {
+            Permit free = takeFree();
+            if (free != null) {
+                return CompletableFuture.completedFuture(free);
+            }
+            if (waiters.size() >= maxQueue) {
+                aiLimiterRejectedQueueFull.increment();
+                return CompletableFuture.failedFuture(new AiBusyException());
+            }
+            waiter = new Waiter(ticker.getAsLong());
+            waiters.addLast(waiter);
+            aiLimiterQueuedGauge.set(waiters.size());
+        }
+        // Timed out or cancelled while queued: give up the place in line
+        waiter.future.whenComplete((permit, error) -> {
+            if (error != null) {
+                synchronized (this) {
+                    waiters.remove(waiter);
+                    aiLimiterQueuedGauge.set(waiters.size());
+                }
+            }
+        });
+        CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            // Leave the queue first, so a release cannot grant this waiter while it is being shed
+            synchronized (this) {
+                if (waiter.future.isDone() || !waiters.remove(waiter)) {
+                    return;
+                }
+                aiLimiterQueuedGauge.set(waiters.size());
+            }
+            aiLimiterRejectedTimeout.increment();
+            aiLimiterQueueWait.record(ticker.getAsLong() - waiter.queuedAt, TimeUnit.NANOSECONDS);
+            waiter.future.completeExceptionally(new AiBusyException());
+        });
+        return waiter.future;
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inflight() {
+        return inflight;
+    }
+
+    private Permit acquireBlocking() {
+        try {
+            return acquire().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiBusyException();
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new AiBusyException();
+        }
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        if (!enabled) return;
+        List<Waiter> granted = new ArrayList<>();
+        List<Integer> grantedInflight = new ArrayList<>();
+        synchronized (this) {
+            inflight--;
+            adjust(permit, outcome);
+            while (!waiters.isEmpty() && inflight < (int) limit) {
+                granted.add(waiters.pollFirst());
+                grantedInflight.add(++inflight);
+            }
+            aiLimiterLimitGauge.set((int) limit);
+            aiLimiterInflightGauge.set(inflight);
+            aiLimiterQueuedGauge.set(waiters.size());
+        }
+        for (int i = 0; i < granted.size(); i++) {
+            Waiter waiter = granted.get(i);
+            long now = ticker.getAsLong();
+            Permit next = new Permit(now, grantedInflight.get(i));
+            if (waiter.future.complete(next)) {
+                aiLimiterQueueWait.record(now - waiter.queuedAt, TimeUnit.NANOSECONDS);
+            } else {
+                // Cancelled between being dequeued and granted; hand the slot on
+                release(next, Outcome.CANCELLED);
+            }
+        }
+    }
+
+    private void adjust(Permit permit, Outcome outcome) {
+        boolean slow = permit.firstResponseNanos > latencyThresholdNanos;
+        if (outcome == Outcome.FAILED || (outcome == Outcome.SUCCEEDED && slow)) {
+            double previous = limit;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            if ((int) previous != (int) limit) {
+                log.info("AI concurrency limit decreased: {} -> {} ({})", (int) previous, (int) limit,
+                        slow ? "slow first token" : "failed call");
+            }
+        } else if (outcome == Outcome.SUCCEEDED && permit.inflightAtGrant >= limit / 2) {
+            // Only grow while the limit is actually in use, so an idle node does not drift to max-limit
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private enum Outcome { SUCCEEDED, FAILED, CANCELLED }
+
+    private static final class Waiter {
+        private final long queuedAt;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(long queuedAt) {
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * One slot in the bulkhead. Released exactly once, by whichever outcome is reported first.
+     */
+    public final class Permit {
+
+        private final long grantedAt;
+        private final int inflightAtGrant;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long firstResponseNanos = -1;
+
+        private Permit(long grantedAt, int inflightAtGrant) {
+            this.grantedAt = grantedAt;
+            this.inflightAtGrant = inflightAtGrant;
+        }
+
+        /**
+         * Marks the first streamed item, or a blocking call's response; how long it took feeds the limit.
+         */
+        public void firstResponse() {
+            if (firstResponseNanos < 0) {
+                firstResponseNanos = ticker.getAsLong() - grantedAt;
+            }
+        }
+
+        public void succeeded() {
+            releaseOnce(Outcome.SUCCEEDED);
+        }
+
+        public void failed() {
+            releaseOnce(Outcome.FAILED);
+        }
+
+        public void cancelled() {
+            releaseOnce(Outcome.CANCELLED);
+        }
+
+        private void releaseOnce(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                release(this, outcome);
+            }
+        }
+    }
+}
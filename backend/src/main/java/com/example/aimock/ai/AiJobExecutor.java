@@ -0,0 +1,121 @@
+package com.example.aimock.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded pool for blocking AI turns when SQS is disabled.
+ *
+ * At most {@code threads} jobs run at once and the next {@code queue-capacity} wait in FIFO order; a job
+ * submitted beyond that is not run and its {@code onRejected} callback is invoked on the submitting
+ * thread instead. Submission never blocks, so the inbound WebSocket thread returns as soon as the job is
+ * queued. With {@code virtual-threads=true} the pool's workers are virtual threads; {@code threads} still
+ * caps how many run at once. Either way workers are reused across jobs (idle ones retire after 60 s), so a
+ * job must not leave ThreadLocal or MDC state behind.
+ */
+@Component
+@Slf4j
+public class AiJobExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final LongSupplier ticker;
+    private final Timer aiJobQueueWait;
+    private final Counter aiJobsRejected;
+    private final AtomicInteger aiJobsQueuedGauge;
+    private final AtomicInteger aiJobsActiveGauge;
+
+    @Autowired
+    public AiJobExecutor(@Value("${app.ai.executor.threads:32}") int threads,
+                         @Value("${app.ai.executor.queue-capacity:500}") int queueCapacity,
+                         @Value("${app.ai.executor.virtual-threads:false}") boolean virtualThreads,
+                         Timer aiJobQueueWait, Counter aiJobsRejected,
+                         AtomicInteger aiJobsQueuedGauge, AtomicInteger aiJobsActiveGauge) {
+        this(threads, queueCapacity, virtualThreads, System::nanoTime, aiJobQueueWait, aiJobsRejected,
+                aiJobsQueuedGauge, aiJobsActiveGauge);
+    }
+
+    AiJobExecutor(int threads, int queueCapacity, boolean virtualThreads, LongSupplier ticker,
+                  Timer aiJobQueueWait, Counter aiJobsRejected,
+                  AtomicInteger aiJobsQueuedGauge, AtomicInteger aiJobsActiveGauge) {
+        int poolSize = Math.max(1, threads);
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("ai-job-", 0).factory()
+                : Thread.ofPlatform().name("ai-job-", 0).daemon(true).factory();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.ticker = ticker;
+        this.aiJobQueueWait = aiJobQueueWait;
+        this.aiJobsRejected = aiJobsRejected;
+        this.aiJobsQueuedGauge = aiJobsQueuedGauge;
+        this.aiJobsActiveGauge = aiJobsActiveGauge;
+        log.info("Configuring AI job executor: threads={}, queueCapacity={}, virtualThreads={}",
+                poolSize, queueCapacity, virtualThreads);
+    }
+
+    /**
+     * Queues the job, or runs {@code onRejected} on the calling thread when the pool and its queue are full
+     * or shutting down. Exceptions thrown by the job are logged and do not reach the caller.
+     */
+    public void execute(Runnable job, Runnable onRejected) {
+        long submittedAt = ticker.getAsLong();
+        aiJobsQueuedGauge.incrementAndGet();
+        try {
+            executor.execute(() -> run(job, submittedAt));
+        } catch (RejectedExecutionException e) {
+            aiJobsQueuedGauge.decrementAndGet();
+            aiJobsRejected.increment();
+            log.warn("AI job rejected: active={}, queued={}", executor.getActiveCount(), executor.getQueue().size());
+            onRejected.run();
+        }
+    }
+
+    private void run(Runnable job, long submittedAt) {
+        aiJobsQueuedGauge.decrementAndGet();
+        aiJobsActiveGauge.incrementAndGet();
+        aiJobQueueWait.record(ticker.getAsLong() - submittedAt, TimeUnit.NANOSECONDS);
+        try {
+            job.run();
+        } catch (RuntimeException e) {
+            log.error("AI job failed", e);
+        } finally {
+            aiJobsActiveGauge.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops taking jobs and gives running ones up to {@code timeout} to finish.
+     */
+    boolean shutdown(Duration timeout) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (!shutdown(Duration.ofSeconds(30))) {
+                log.warn("AI jobs still running at shutdown: {}", executor.getActiveCount());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
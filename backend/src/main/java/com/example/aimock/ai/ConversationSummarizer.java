@@ -0,0 +1,179 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.model.MessageRole;
+import com.example.aimock.session.ConversationCache;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a rolling summary of long interviews so per-turn prompt size stays roughly constant.
+ *
+ * Once more than {@code trigger-messages} completed messages follow the last summarized one, all but
+ * the newest {@code keep-recent-messages} are folded into {@link InterviewSession#getConversationSummary()}.
+ * Runs in the background after each AI response; the next turn sends summary + recent turns.
+ */
+@Service
+@Slf4j
+public class ConversationSummarizer {
+
+    static final String SYSTEM_PROMPT = """
+            You maintain a running summary of a mock job interview for the interviewer.
+            Merge the new turns into the existing summary. Keep:
+            - topics and questions already covered (so they are not repeated)
+            - the candidate's key answers, claims and demonstrated strengths/gaps
+            - follow-ups the interviewer said they would come back to
+            Write concise bullet points, at most 250 words, in third person. Return only the summary.
+            """;
+
+    private final AIChatService aiChatService;
+    private final MessageRepository messageRepository;
+    private final InterviewSessionRepository sessionRepository;
+    private final ConversationCache conversationCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler aiSummaryScheduler;
+    private final Timer aiSummaryDuration;
+    private final Counter aiSummaryUpdates;
+    private final boolean enabled;
+    private final int triggerMessages;
+    private final int keepRecentMessages;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ConversationSummarizer(AIChatService aiChatService,
+                                  MessageRepository messageRepository,
+                                  InterviewSessionRepository sessionRepository,
+                                  ConversationCache conversationCache,
+                                  PlatformTransactionManager transactionManager,
+                                  Scheduler aiSummaryScheduler,
+                                  Timer aiSummaryDuration,
+                                  Counter aiSummaryUpdates,
+                                  @Value("${app.ai.summary.enabled:true}") boolean enabled,
+                                  @Value("${app.ai.summary.trigger-messages:16}") int triggerMessages,
+                                  @Value("${app.ai.summary.keep-recent-messages:8}") int keepRecentMessages) {
+        this.aiChatService = aiChatService;
+        this.messageRepository = messageRepository;
+        this.sessionRepository = sessionRepository;
+        this.conversationCache = conversationCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.aiSummaryScheduler = aiSummaryScheduler;
+        this.aiSummaryDuration = aiSummaryDuration;
+        this.aiSummaryUpdates = aiSummaryUpdates;
+        this.enabled = enabled;
+        this.triggerMessages = triggerMessages;
+        this.keepRecentMessages = Math.min(keepRecentMessages, triggerMessages);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A session counts as long once its raw history exceeds the summarization trigger.
+     */
+    public boolean isLongSession(int historyMessages) {
+        return historyMessages > triggerMessages;
+    }
+
+    /**
+     * Schedules a summary update on the summary scheduler. At most one update per session runs at a time;
+     * failures (including a full summary queue or a shed model call) are logged and retried implicitly
+     * after the next turn.
+     */
+    public void summarizeInBackground(UUID sessionId) {
+        if (!enabled || !inFlight.add(sessionId)) {
+            return;
+        }
+        try {
+            aiSummaryScheduler.schedule(() -> {
+                try {
+                    summarizeIfNeeded(sessionId);
+                } catch (Exception e) {
+                    log.warn("Conversation summary update failed: sessionId={}", sessionId, e);
+                } finally {
+                    inFlight.remove(sessionId);
+                }
+            });
+        } catch (Exception e) {
+            inFlight.remove(sessionId);
+            log.warn("Could not schedule conversation summary: sessionId={}", sessionId, e);
+        }
+    }
+
+    /**
+     * Folds older turns into the session summary if enough unsummarized messages have accumulated.
+     *
+     * @return true if a new summary was stored
+     */
+    boolean summarizeIfNeeded(UUID sessionId) throws Exception {
+        InterviewSession session = sessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return false;
+        }
+        long summarizedThrough = session.getSummarizedThroughSeq() != null ? session.getSummarizedThroughSeq() : 0L;
+        List<Message> pending = messageRepository.findBySessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, summarizedThrough)
+                .stream()
+                .filter(ConversationSummarizer::isSummarizable)
+                .toList();
+        if (pending.size() <= triggerMessages) {
+            return false;
+        }
+
+        List<Message> toFold = pending.subList(0, pending.size() - keepRecentMessages);
+        long foldThrough = toFold.get(toFold.size() - 1).getSeq();
+        String userPrompt = buildUserPrompt(session.getConversationSummary(), toFold);
+
+        String summary = aiSummaryDuration.recordCallable(() -> aiChatService.complete(SYSTEM_PROMPT, userPrompt));
+        if (summary == null || summary.isBlank()) {
+            log.warn("Empty conversation summary returned: sessionId={}", sessionId);
+            return false;
+        }
+
+        String storedSummary = summary.trim();
+        Integer updated = transactionTemplate.execute(status ->
+                sessionRepository.updateConversationSummary(sessionId, storedSummary, foldThrough, summarizedThrough));
+        if (updated == null || updated == 0) {
+            log.debug("Conversation summary superseded: sessionId={}", sessionId);
+            return false;
+        }
+        conversationCache.summaryUpdated(sessionId, storedSummary, foldThrough);
+        aiSummaryUpdates.increment();
+        log.info("Updated conversation summary: sessionId={}, foldedMessages={}, summarizedThroughSeq={}",
+                sessionId, toFold.size(), foldThrough);
+        return true;
+    }
+
+    private static boolean isSummarizable(Message message) {
+        return (message.getRole() == MessageRole.USER || message.getRole() == MessageRole.INTERVIEWER)
+                && message.isCompleted()
+                && message.getContent() != null
+                && !message.getContent().isBlank();
+    }
+
+    private static String buildUserPrompt(String previousSummary, List<Message> turns) {
+        String transcript = turns.stream()
+                .map(m -> (m.getRole() == MessageRole.USER ? "Candidate" : "Interviewer") + ": " + m.getContent())
+                .collect(Collectors.joining("\n\n"));
+        return """
+                Existing summary:
+                %s
+
+                New turns:
+                %s
+                """.formatted(previousSummary == null || previousSummary.isBlank() ? "(none)" : previousSummary, transcript);
+    }
+}
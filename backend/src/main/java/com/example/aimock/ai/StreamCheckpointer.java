@@ -0,0 +1,140 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.model.StreamingContent;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persists the partial content of a streaming interviewer message at intervals, so a reload during
+ * the stream shows what has been generated so far and a crashed node leaves the partial reply behind.
+ *
+ * Checkpoint rules per response:
+ * <ul>
+ *   <li>a checkpoint is due once {@code min-chars} new characters have arrived, or {@code interval-ms}
+ *       after the previous one if anything new arrived at all</li>
+ *   <li>the write runs in its own short transaction on {@code aiBlockingScheduler}; the token path
+ *       only compares counters and copies the buffer when a checkpoint is due</li>
+ *   <li>at most one write per message is in flight (due checkpoints are skipped meanwhile) and at most
+ *       {@code max-writes} are made per response, bounding DB writes regardless of response length</li>
+ *   <li>the UPDATE only applies while the message is STREAMING, so a late checkpoint never overwrites
+ *       the final content</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class StreamCheckpointer {
+
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler aiBlockingScheduler;
+    private final DistributionSummary aiCheckpointWrites;
+    private final DistributionSummary aiCheckpointWriteAmplification;
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final int minChars;
+    private final int maxWrites;
+
+    public StreamCheckpointer(MessageRepository messageRepository,
+                              PlatformTransactionManager transactionManager,
+                              Scheduler aiBlockingScheduler,
+                              DistributionSummary aiCheckpointWrites,
+                              DistributionSummary aiCheckpointWriteAmplification,
+                              @Value("${app.ai.checkpoint.enabled:true}") boolean enabled,
+                              @Value("${app.ai.checkpoint.interval-ms:1000}") long intervalMs,
+                              @Value("${app.ai.checkpoint.min-chars:512}") int minChars,
+                              @Value("${app.ai.checkpoint.max-writes:20}") int maxWrites) {
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.aiBlockingScheduler = aiBlockingScheduler;
+        this.aiCheckpointWrites = aiCheckpointWrites;
+        this.aiCheckpointWriteAmplification = aiCheckpointWriteAmplification;
+        this.enabled = enabled;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.minChars = minChars;
+        this.maxWrites = maxWrites;
+    }
+
+    public Checkpoints open(UUID interviewerMessageId) {
+        return new Checkpoints(interviewerMessageId);
+    }
+
+    /**
+     * Checkpoint state for a single streaming interviewer message. {@link #onDelta} is called on the
+     * stream's thread (one delta at a time); writes complete on the scheduler.
+     */
+    public final class Checkpoints {
+
+        private final UUID interviewerMessageId;
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private long lastCheckpointAt = System.nanoTime();
+        private int lastCheckpointLength;
+        private int writes;
+        private long charsWritten;
+        private volatile boolean completed;
+
+        private Checkpoints(UUID interviewerMessageId) {
+            this.interviewerMessageId = interviewerMessageId;
+        }
+
+        public void onDelta(StreamingContent content) {
+            if (!enabled || completed || writes >= maxWrites) return;
+            int length = content.length();
+            int fresh = length - lastCheckpointLength;
+            if (fresh <= 0) return;
+            long now = System.nanoTime();
+            if (fresh < minChars && now - lastCheckpointAt < intervalNanos) return;
+            if (!writing.compareAndSet(false, true)) return;
+
+            String partial = content.snapshot();
+            lastCheckpointAt = now;
+            lastCheckpointLength = length;
+            writes++;
+            charsWritten += length;
+            try {
+                aiBlockingScheduler.schedule(() -> write(partial));
+            } catch (Exception e) {
+                writing.set(false);
+                log.debug("Checkpoint not scheduled: interviewerMessageId={}", interviewerMessageId, e);
+            }
+        }
+
+        /**
+         * Stops checkpointing and records the response's checkpoint writes and write amplification
+         * (characters written to the message, checkpoints plus the final save, per final character).
+         */
+        public void complete(int finalLength) {
+            if (completed) return;
+            completed = true;
+            if (!enabled) return;
+            aiCheckpointWrites.record(writes);
+            if (finalLength > 0) {
+                aiCheckpointWriteAmplification.record((double) (charsWritten + finalLength) / finalLength);
+            }
+        }
+
+        public int writes() {
+            return writes;
+        }
+
+        private void write(String partial) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        messageRepository.updateStreamingContent(interviewerMessageId, partial));
+            } catch (Exception e) {
+                log.warn("Failed to checkpoint streaming content: interviewerMessageId={}", interviewerMessageId, e);
+            } finally {
+                writing.set(false);
+            }
+        }
+    }
+}
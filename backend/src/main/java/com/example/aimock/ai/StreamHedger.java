@@ -0,0 +1,168 @@
+package com.example.aimock.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedges streamed chat calls whose first token is late (opt-in, {@code app.ai.hedging.enabled}).
+ *
+ * If the primary stream has not produced anything after the live p95 of {@code ai.time_to_first_token}
+ * (clamped to {@code [min-delay, max-delay]}, {@code default-delay} until {@code min-samples} were seen),
+ * a second call is started; {@code AIChatService} sends it to the next backend in the route, and only if
+ * the concurrency limiter has a permit free. Whichever stream yields first is kept and the other is
+ * cancelled. A hedge that fails before its first item, or never starts, is ignored; the primary carries on.
+ *
+ * Hedges are paid from a budget that grows by {@code max-ratio} per call, so they never exceed that
+ * fraction of calls beyond a small burst.
+ */
+@Component
+@Slf4j
+public class StreamHedger {
+
+    private static final double MAX_BURST = 10;
+    private static final long THRESHOLD_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final long defaultDelayMillis;
+    private final long minSamples;
+    private final double maxRatio;
+    private final Timer aiTimeToFirstToken;
+    private final Counter aiHedgesFired;
+    private final Counter aiHedgesWon;
+    private final Scheduler timer;
+    private final LongSupplier ticker;
+
+    private double budget = MAX_BURST;
+    private long thresholdMillis;
+    private long thresholdComputedAt;
+    private boolean thresholdComputed;
+
+    @Autowired
+    public StreamHedger(@Value("${app.ai.hedging.enabled:false}") boolean enabled,
+                        @Value("${app.ai.hedging.min-delay:PT0.3S}") Duration minDelay,
+                        @Value("${app.ai.hedging.max-delay:PT10S}") Duration maxDelay,
+                        @Value("${app.ai.hedging.default-delay:PT3S}") Duration defaultDelay,
+                        @Value("${app.ai.hedging.min-samples:50}") long minSamples,
+                        @Value("${app.ai.hedging.max-ratio:0.05}") double maxRatio,
+                        Timer aiTimeToFirstToken, Counter aiHedgesFired, Counter aiHedgesWon) {
+        this(enabled, minDelay, maxDelay, defaultDelay, minSamples, maxRatio, aiTimeToFirstToken,
+                aiHedgesFired, aiHedgesWon, Schedulers.parallel(), System::nanoTime);
+    }
+
+    StreamHedger(boolean enabled, Duration minDelay, Duration maxDelay, Duration defaultDelay, long minSamples,
+                 double maxRatio, Timer aiTimeToFirstToken, Counter aiHedgesFired, Counter aiHedgesWon,
+                 Scheduler timer, LongSupplier ticker) {
+        this.enabled = enabled;
+        this.minDelayMillis = minDelay.toMillis();
+        this.maxDelayMillis = Math.max(minDelayMillis, maxDelay.toMillis());
+        this.defaultDelayMillis = defaultDelay.toMillis();
+        this.minSamples = minSamples;
+        this.maxRatio = maxRatio;
+        this.aiTimeToFirstToken = aiTimeToFirstToken;
+        this.aiHedgesFired = aiHedgesFired;
+        this.aiHedgesWon = aiHedgesWon;
+        this.timer = timer;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Subscribes to {@code call} once, and a second time if the first item is later than the hedge delay.
+     * Each subscription must start an independent call.
+     */
+    public <T> Flux<T> hedge(Supplier<Flux<T>> call) {
+        return hedge(Flux.defer(call), Flux.defer(call));
+    }
+
+    /**
+     * Subscribes to {@code primary}, and to {@code hedge} if the primary's first item is later than the hedge
+     * delay. The delay runs from the subscription to {@code primary}, so a primary that waits for a
+     * concurrency permit should do so before it is handed in. A hedge that completes empty is ignored.
+     */
+    public <T> Flux<T> hedge(Flux<T> primary, Flux<T> hedge) {
+        if (!enabled) {
+            return primary;
+        }
+        return Flux.defer(() -> {
+            deposit();
+            Duration delay = Duration.ofMillis(delayMillis());
+            AtomicBoolean hedgeStarted = new AtomicBoolean();
+
+            Flux<T> second = Mono.delay(delay, timer)
+                    .filter(tick -> tryWithdraw())
+                    .flatMapMany(tick -> {
+                        aiHedgesFired.increment();
+                        log.debug("First token later than {}ms, hedging the stream", delay.toMillis());
+                        return hedge
+                                .doOnNext(item -> {
+                                    if (hedgeStarted.compareAndSet(false, true)) {
+                                        aiHedgesWon.increment();
+                                    }
+                                })
+                                // Until it yields, a failed or empty hedge must not end the primary
+                                .onErrorResume(e -> hedgeStarted.get() ? Flux.error(e) : Flux.never())
+                                .switchIfEmpty(Flux.never());
+                    })
+                    .switchIfEmpty(Flux.never());
+
+            // First signal wins: primary items, errors or completion cancel the pending hedge, and the
+            // hedge's first item cancels the primary
+            return Flux.firstWithSignal(primary, second);
+        });
+    }
+
+    /**
+     * Hedge delay: live p95 TTFT clamped to [min-delay, max-delay]. Recomputed at most once a second.
+     */
+    synchronized long delayMillis() {
+        long now = ticker.getAsLong();
+        if (thresholdComputed && now - thresholdComputedAt < THRESHOLD_REFRESH_NANOS) {
+            return thresholdMillis;
+        }
+        thresholdMillis = p95Millis();
+        thresholdComputedAt = now;
+        thresholdComputed = true;
+        return thresholdMillis;
+    }
+
+    private long p95Millis() {
+        if (aiTimeToFirstToken.count() < minSamples) {
+            return defaultDelayMillis;
+        }
+        for (ValueAtPercentile percentile : aiTimeToFirstToken.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                long p95 = (long) percentile.value(TimeUnit.MILLISECONDS);
+                return Math.clamp(p95, minDelayMillis, maxDelayMillis);
+            }
+        }
+        return defaultDelayMillis;
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(MAX_BURST, budget + maxRatio);
+    }
+
+    private synchronized boolean tryWithdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.aimock.ai.cassette;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * One recorded chat stream: every chunk as the model sent it, with the time since the previous chunk
+ * (for the first chunk, since the call started). A chunk with null {@code text} is the usage-only
+ * chunk that ends an OpenAI stream.
+ *
+ * Cassettes are keyed by {@link #promptHash(List)}; the prompt itself is not stored.
+ */
+public record Cassette(String promptHash, Instant recordedAt, List<Chunk> chunks, Integer promptTokens,
+                       Integer completionTokens) {
+
+    public record Chunk(long delayMicros, String text) {
+    }
+
+    /**
+     * SHA-256 over the role and text of each prompt message, system prompt included.
+     */
+    public static String promptHash(List<Message> messages) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        for (Message message : messages) {
+            digest.update(message.getMessageType().getValue().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            String text = message.getText();
+            digest.update((text == null ? "" : text).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.aimock.ai.cassette;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Replays recorded chat streams (profile {@code cassette-ai}; see {@code application-cassette-ai.properties}).
+ *
+ * Cassettes are loaded once from {@code app.ai.cassette.dir} (as written by {@link CassetteRecorder}).
+ * A prompt is answered with the cassettes recorded for the same prompt hash, in turn. Chunks keep their
+ * original boundaries; the recorded gaps between them are multiplied by {@code time-scale} (1 is real
+ * time, 0 replays without waiting). A prompt that was never recorded fails when {@code strict}, and
+ * otherwise gets a cassette picked by its hash, so load tests with fresh conversations still see
+ * recorded chunking. Blocking {@link #call(Prompt)} returns the joined replay after the same wait.
+ */
+@Component
+@Profile("cassette-ai")
+@Slf4j
+public class CassetteChatModel implements ChatModel {
+
+    private final Map<String, List<Cassette>> byPrompt;
+    private final List<Cassette> all;
+    private final double timeScale;
+    private final boolean strict;
+    private final Scheduler timer;
+    private final AtomicLong replays = new AtomicLong();
+
+    @Autowired
+    public CassetteChatModel(@Value("${app.ai.cassette.dir:cassettes}") Path directory,
+                             @Value("${app.ai.cassette.time-scale:1.0}") double timeScale,
+                             @Value("${app.ai.cassette.strict:false}") boolean strict,
+                             ObjectMapper objectMapper) {
+        this(load(directory, objectMapper), timeScale, strict, Schedulers.parallel());
+        log.info("Replaying {} cassettes for {} prompts from {} (time scale {}, strict={})",
+                all.size(), byPrompt.size(), directory.toAbsolutePath(), timeScale, strict);
+    }
+
+    CassetteChatModel(List<Cassette> cassettes, double timeScale, boolean strict, Scheduler timer) {
+        if (cassettes.isEmpty()) {
+            throw new IllegalStateException("No cassettes to replay");
+        }
+        Map<String, List<Cassette>> byPrompt = new HashMap<>();
+        for (Cassette cassette : cassettes) {
+            byPrompt.computeIfAbsent(cassette.promptHash(), hash -> new ArrayList<>()).add(cassette);
+        }
+        this.byPrompt = byPrompt;
+        this.all = List.copyOf(cassettes);
+        this.timeScale = timeScale;
+        this.strict = strict;
+        this.timer = timer;
+    }
+
+    private static List<Cassette> load(Path directory, ObjectMapper objectMapper) {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalStateException("Cassette directory " + directory.toAbsolutePath() + " does not exist");
+        }
+        List<Cassette> cassettes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".jsonl")).sorted().toList()) {
+                for (String line : Files.readAllLines(file)) {
+                    if (!line.isBlank()) {
+                        cassettes.add(objectMapper.readValue(line, Cassette.class));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load cassettes from " + directory, e);
+        }
+        return cassettes;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<ChatResponse> chunks = stream(prompt).collectList().block();
+        StringBuilder content = new StringBuilder();
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder().build();
+        for (ChatResponse chunk : chunks) {
+            if (chunk.getResult() != null) {
+                content.append(chunk.getResult().getOutput().getText());
+            } else {
+                metadata = chunk.getMetadata();
+            }
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content.toString()))), metadata);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Cassette cassette = select(Cassette.promptHash(prompt.getInstructions()));
+            return Flux.fromIterable(cassette.chunks()).concatMap(chunk -> {
+                ChatResponse response = toResponse(cassette, chunk);
+                long delayMicros = Math.round(chunk.delayMicros() * timeScale);
+                return delayMicros > 0
+                        ? Mono.delay(Duration.ofNanos(delayMicros * 1000), timer).thenReturn(response)
+                        : Mono.just(response);
+            });
+        });
+    }
+
+    Cassette select(String promptHash) {
+        List<Cassette> takes = byPrompt.get(promptHash);
+        if (takes != null) {
+            return takes.get((int) Math.floorMod(replays.getAndIncrement(), (long) takes.size()));
+        }
+        if (strict) {
+            throw new NonTransientAiException("No cassette recorded for prompt " + promptHash);
+        }
+        return all.get(Math.floorMod(promptHash.hashCode(), all.size()));
+    }
+
+    private static ChatResponse toResponse(Cassette cassette, Cassette.Chunk chunk) {
+        if (chunk.text() != null) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(chunk.text()))));
+        }
+        DefaultUsage usage = new DefaultUsage(cassette.promptTokens(), cassette.completionTokens());
+        return ChatResponse.builder()
+                .generations(List.of())
+                .metadata(ChatResponseMetadata.builder().usage(usage).build())
+                .build();
+    }
+}
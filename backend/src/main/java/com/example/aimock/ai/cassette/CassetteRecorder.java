@@ -0,0 +1,121 @@
+package com.example.aimock.ai.cassette;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Records completed chat streams as {@link Cassette}s for {@link CassetteChatModel} to replay
+ * ({@code app.ai.cassette.record}, off by default).
+ *
+ * Each cassette is appended as one JSON line to {@code <dir>/<prompt hash>.jsonl}, off the stream's
+ * thread. Streams that fail or are cancelled are not recorded. Cassettes hold the model's replies, so
+ * recording belongs on test and staging environments.
+ */
+@Component
+@Slf4j
+public class CassetteRecorder {
+
+    private final boolean enabled;
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Scheduler writer;
+    private final LongSupplier ticker;
+
+    @Autowired
+    public CassetteRecorder(@Value("${app.ai.cassette.record:false}") boolean enabled,
+                            @Value("${app.ai.cassette.dir:cassettes}") Path directory,
+                            ObjectMapper objectMapper) {
+        this(enabled, directory, objectMapper, Schedulers.boundedElastic(), System::nanoTime);
+    }
+
+    CassetteRecorder(boolean enabled, Path directory, ObjectMapper objectMapper, Scheduler writer, LongSupplier ticker) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.writer = writer;
+        this.ticker = ticker;
+        if (enabled) {
+            log.info("Recording chat streams to {}", directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Passes {@code stream} through, recording its chunks and timing when recording is on.
+     *
+     * @param prompt the messages sent, system prompt first, as the chat model sees them
+     */
+    public Flux<ChatResponse> record(List<Message> prompt, Flux<ChatResponse> stream) {
+        if (!enabled) {
+            return stream;
+        }
+        return Flux.defer(() -> {
+            List<Cassette.Chunk> chunks = new ArrayList<>();
+            Usage[] usage = new Usage[1];
+            long[] last = {ticker.getAsLong()};
+            return stream
+                    .doOnNext(response -> {
+                        long now = ticker.getAsLong();
+                        chunks.add(new Cassette.Chunk((now - last[0]) / 1000, textOf(response)));
+                        last[0] = now;
+                        if (response.getMetadata() != null && response.getMetadata().getUsage() != null
+                                && response.getMetadata().getUsage().getPromptTokens() != null
+                                && response.getMetadata().getUsage().getPromptTokens() > 0) {
+                            usage[0] = response.getMetadata().getUsage();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        Cassette cassette = new Cassette(Cassette.promptHash(prompt), Instant.now(), List.copyOf(chunks),
+                                usage[0] != null ? usage[0].getPromptTokens() : null,
+                                usage[0] != null ? usage[0].getCompletionTokens() : null);
+                        writer.schedule(() -> write(cassette));
+                    });
+        });
+    }
+
+    private void write(Cassette cassette) {
+        try {
+            String line = objectMapper.writeValueAsString(cassette) + "\n";
+            Files.createDirectories(directory);
+            // One append at a time, so concurrent recordings of the same prompt never interleave lines
+            synchronized (this) {
+                Files.writeString(directory.resolve(cassette.promptHash() + ".jsonl"), line,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            log.debug("Recorded cassette {} ({} chunks)", cassette.promptHash(), cassette.chunks().size());
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize cassette {}", cassette.promptHash(), e);
+        } catch (IOException e) {
+            log.warn("Failed to write cassette {} to {}", cassette.promptHash(), directory, e);
+        }
+    }
+
+    /**
+     * Chunk text; null for chunks without a generation (the usage chunk).
+     */
+    private static String textOf(ChatResponse response) {
+        if (response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        String text = response.getResult().getOutput().getText();
+        return text == null ? "" : text;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.aimock.ai.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Configuration for the reactive AI processing pipeline.
+ *
+ * The streaming itself runs on the HTTP client's event loop; only the short blocking
+ * DB phases (prepare, persist, mark failed) are hopped onto this bounded scheduler,
+ * so a turn no longer pins a platform thread for the whole generation.
+ */
+@Configuration
+@Slf4j
+public class AIProcessingConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler aiBlockingScheduler(
+            @Value("${app.ai.reactive.blocking-threads:16}") int blockingThreads,
+            @Value("${app.ai.reactive.queue-capacity:10000}") int queueCapacity) {
+
+        log.info("Configuring AI blocking scheduler: threads={}, queueCapacity={}", blockingThreads, queueCapacity);
+        return Schedulers.newBoundedElastic(blockingThreads, queueCapacity, "ai-blocking");
+    }
+
+    /**
+     * Conversation summaries block on a model call for seconds, so they get their own small pool
+     * instead of competing with the short DB phases on {@code aiBlockingScheduler}. A summary beyond
+     * threads + queue is skipped; the next response schedules it again.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler aiSummaryScheduler(
+            @Value("${app.ai.summary.threads:2}") int summaryThreads,
+            @Value("${app.ai.summary.queue-capacity:100}") int queueCapacity) {
+
+        log.info("Configuring AI summary scheduler: threads={}, queueCapacity={}", summaryThreads, queueCapacity);
+        return Schedulers.newBoundedElastic(summaryThreads, queueCapacity, "ai-summary");
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.aimock.ai.config;
+
+import com.example.aimock.ai.routing.ChatBackend;
+import com.example.aimock.ai.routing.ChatBackendRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chat backends for {@link ChatBackendRouter}.
+ *
+ * The auto-configured chat model is always the first backend ({@code app.ai.routing.default-backend}).
+ * Additional OpenAI-compatible backends are listed in {@code app.ai.routing.backends=name,...} and each
+ * configured under {@code app.ai.routing.backend.<name>.}: {@code model} (required), {@code base-url}
+ * and {@code api-key} (both default to the {@code spring.ai.openai} values). They inherit every other
+ * chat option (temperature, stream usage) from the default model.
+ *
+ * Limitation: the prompt is built before a backend is picked, so one history window serves every backend.
+ * {@code HistoryWindowSelector} sizes it to the smallest {@code app.ai.history.token-budgets} entry among
+ * {@link #backendModels}; a backend with a larger context (say gpt-4o next to a local llama3.1) gets no more
+ * history than the smallest one. Other per-model settings, such as the tokenizer used to count the window,
+ * still follow the default model.
+ */
+@Configuration
+@Slf4j
+public class ChatRoutingConfig {
+
+    @Bean
+    public ChatBackendRouter chatBackendRouter(
+            ChatClient.Builder chatClientBuilder,
+            ObjectProvider<OpenAiChatModel> openAiChatModel,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${app.ai.routing.default-backend:openai}") String defaultBackend,
+            @Value("${app.ai.routing.backends:}") String additionalBackends,
+            @Value("${app.ai.routing.failure-threshold:3}") int failureThreshold,
+            @Value("${app.ai.routing.cooldown:PT30S}") Duration cooldown,
+            @Value("${app.ai.routing.error-penalty:4}") double errorPenalty) {
+
+        List<ChatBackend> backends = new ArrayList<>();
+        backends.add(new ChatBackend(defaultBackend, chatClientBuilder.build(), meterRegistry));
+        for (String entry : additionalBackends.split(",")) {
+            String name = entry.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            OpenAiChatModel base = openAiChatModel.getIfAvailable();
+            if (base == null) {
+                throw new IllegalStateException("app.ai.routing.backends needs the OpenAI chat model to derive " + name + " from");
+            }
+            backends.add(new ChatBackend(name, ChatClient.builder(openAiCompatible(base, name, environment)).build(),
+                    meterRegistry));
+        }
+
+        ChatBackendRouter router = new ChatBackendRouter(backends, failureThreshold, cooldown, errorPenalty);
+        log.info("Chat backends: {} (failover after {} consecutive failures, {} cooldown)",
+                router.backendNames(), failureThreshold, cooldown);
+        return router;
+    }
+
+    /**
+     * The default model followed by the model of each backend in {@code app.ai.routing.backends}.
+     */
+    public static List<String> backendModels(Environment environment) {
+        List<String> models = new ArrayList<>();
+        models.add(environment.getProperty("spring.ai.openai.chat.options.model", "gpt-4o-mini"));
+        for (String entry : environment.getProperty("app.ai.routing.backends", "").split(",")) {
+            String name = entry.trim();
+            if (!name.isEmpty()) {
+                models.add(environment.getRequiredProperty("app.ai.routing.backend." + name + ".model"));
+            }
+        }
+        return models;
+    }
+
+    private static OpenAiChatModel openAiCompatible(OpenAiChatModel base, String name, Environment environment) {
+        String prefix = "app.ai.routing.backend." + name + ".";
+        String baseUrl = environment.getProperty(prefix + "base-url",
+                environment.getProperty("spring.ai.openai.base-url", "https://api.openai.com"));
+        String apiKey = environment.getProperty(prefix + "api-key",
+                environment.getProperty("spring.ai.openai.api-key", "unused"));
+
+        OpenAiChatOptions options = OpenAiChatOptions.fromOptions((OpenAiChatOptions) base.getDefaultOptions());
+        options.setModel(environment.getRequiredProperty(prefix + "model"));
+
+        return base.mutate()
+                .openAiApi(OpenAiApi.builder().baseUrl(baseUrl).apiKey(apiKey).build())
+                .defaultOptions(options)
+                .build();
+    }
+}
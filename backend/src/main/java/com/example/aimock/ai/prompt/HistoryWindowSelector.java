@@ -0,0 +1,124 @@
+package com.example.aimock.ai.prompt;
+
+import com.example.aimock.ai.config.ChatRoutingConfig;
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.MessageRole;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the slice of conversation history that fits the model's prompt token budget.
+ *
+ * The system prompt and the latest user message are always sent; the remaining budget is filled
+ * with history newest-first until the next message would not fit or {@code max-messages} is reached.
+ * The window is always a contiguous suffix of the conversation, returned oldest-first.
+ *
+ * Budgets are configured per model ({@code app.ai.history.token-budgets=gpt-4o-mini:8000,...});
+ * models without an entry use {@code app.ai.history.default-token-budget}. The window is picked before
+ * {@code ChatBackendRouter} chooses a backend, so it uses the smallest budget among the default model and
+ * every routed backend's model: each prompt fits whichever backend ends up serving it.
+ */
+@Component
+@Slf4j
+public class HistoryWindowSelector {
+
+    private final TokenCounter tokenCounter;
+    private final int tokenBudget;
+    private final int maxMessages;
+
+    @Autowired
+    public HistoryWindowSelector(TokenCounter tokenCounter, Environment environment,
+                                 @Value("${app.ai.history.token-budgets:}") String tokenBudgets,
+                                 @Value("${app.ai.history.default-token-budget:6000}") int defaultTokenBudget,
+                                 @Value("${app.ai.history.max-messages:20}") int maxMessages) {
+        this(tokenCounter, ChatRoutingConfig.backendModels(environment), tokenBudgets, defaultTokenBudget, maxMessages);
+    }
+
+    /**
+     * @param models every model a prompt may be sent to; the smallest budget among them applies
+     */
+    public HistoryWindowSelector(TokenCounter tokenCounter, List<String> models, String tokenBudgets,
+                                 int defaultTokenBudget, int maxMessages) {
+        Map<String, Integer> budgets = parseBudgets(tokenBudgets);
+        this.tokenCounter = tokenCounter;
+        this.tokenBudget = models.stream()
+                .mapToInt(model -> budgets.getOrDefault(model, defaultTokenBudget))
+                .min()
+                .orElse(defaultTokenBudget);
+        this.maxMessages = maxMessages;
+        log.info("Prompt token budget for models {}: {} tokens, at most {} history messages",
+                models, tokenBudget, maxMessages);
+    }
+
+    /**
+     * @param systemPromptTokens token count of the system prompt, as cached by {@link SystemPromptAssembler}
+     */
+    public Window select(int systemPromptTokens, List<HistoryMessage> history, String latestUserMessage) {
+        int used = TokenCounter.REPLY_PRIMING_TOKENS
+                + TokenCounter.TOKENS_PER_MESSAGE + systemPromptTokens
+                + TokenCounter.TOKENS_PER_MESSAGE + tokenCounter.count(latestUserMessage);
+
+        List<HistoryMessage> selected = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0 && selected.size() < maxMessages; i--) {
+            HistoryMessage message = history.get(i);
+            if (!isConversational(message)) {
+                continue;
+            }
+            int cost = TokenCounter.TOKENS_PER_MESSAGE + tokenCounter.count(message);
+            if (used + cost > tokenBudget) {
+                break;
+            }
+            used += cost;
+            selected.add(message);
+        }
+        Collections.reverse(selected);
+        return new Window(selected, used);
+    }
+
+    int tokenBudget() {
+        return tokenBudget;
+    }
+
+    /**
+     * Upper bound on history messages per prompt; callers can limit their history query to it.
+     */
+    public int maxMessages() {
+        return maxMessages;
+    }
+
+    private static boolean isConversational(HistoryMessage message) {
+        return (message.role() == MessageRole.USER || message.role() == MessageRole.INTERVIEWER)
+                && message.content() != null
+                && !message.content().isBlank();
+    }
+
+    private static Map<String, Integer> parseBudgets(String tokenBudgets) {
+        Map<String, Integer> budgets = new HashMap<>();
+        if (tokenBudgets == null || tokenBudgets.isBlank()) {
+            return budgets;
+        }
+        for (String entry : tokenBudgets.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid app.ai.history.token-budgets entry: " + entry);
+            }
+            budgets.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return budgets;
+    }
+
+    /**
+     * History to send (oldest-first) and the locally estimated prompt size, including the
+     * system prompt, the latest user message and chat-format overhead.
+     */
+    public record Window(List<HistoryMessage> messages, int estimatedPromptTokens) {}
+}
@@ -0,0 +1,55 @@
+package com.example.aimock.ai.prompt;
+
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts tokens locally with the same BPE encoding the configured chat model uses
+ * (o200k_base for gpt-4o / gpt-4o-mini), so prompt sizes can be budgeted before the call.
+ *
+ * Per-message counts are persisted in {@code messages.token_count} (see AIMessageProcessor), so every
+ * message is tokenized once rather than on every turn.
+ */
+@Component
+@Slf4j
+public class TokenCounter {
+
+    /**
+     * Chat-format framing per message (role + separators), as documented for OpenAI chat models.
+     */
+    public static final int TOKENS_PER_MESSAGE = 3;
+
+    /**
+     * Every reply is primed with {@code <|start|>assistant<|message|>}.
+     */
+    public static final int REPLY_PRIMING_TOKENS = 3;
+
+    private final Encoding encoding;
+
+    public TokenCounter(@Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}") String model) {
+        EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+        this.encoding = registry.getEncodingForModel(model)
+                .orElseGet(() -> {
+                    log.warn("No tokenizer registered for model {}; falling back to o200k_base", model);
+                    return registry.getEncoding(EncodingType.O200K_BASE);
+                });
+        log.info("Token counter using {} encoding for model {}", encoding.getName(), model);
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokens(text);
+    }
+
+    /**
+     * Content tokens of a history message, using its cached count when present.
+     */
+    public int count(HistoryMessage message) {
+        return message.tokenCount() != null ? message.tokenCount() : count(message.content());
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.aimock.ai.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One chat model endpoint the router can send calls to, with its rolling health.
+ *
+ * Health is an exponentially weighted TTFT and error rate. {@code failure-threshold} consecutive
+ * failures open the backend for {@code cooldown}; after that it gets one probe call before competing
+ * on score again.
+ */
+public final class ChatBackend {
+
+    private static final double ALPHA = 0.2;
+
+    private final String name;
+    private final ChatClient chatClient;
+    private final Timer ttft;
+    private final Counter routed;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter failovers;
+
+    private double ewmaTtftMillis;
+    private boolean ttftSampled;
+    private double ewmaErrorRate;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean open;
+    private boolean probeDue;
+    private boolean probing;
+
+    public ChatBackend(String name, ChatClient chatClient, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.chatClient = chatClient;
+        this.ttft = Timer.builder("ai.backend.time_to_first_token")
+                .description("Time to first streamed item per chat backend")
+                .tag("backend", name)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.routed = Counter.builder("ai.backend.routed")
+                .description("Calls routed to a chat backend (first choice or failover)")
+                .tag("backend", name)
+                .register(meterRegistry);
+        this.succeeded = calls(meterRegistry, name, "success");
+        this.failed = calls(meterRegistry, name, "error");
+        this.failovers = Counter.builder("ai.backend.failovers")
+                .description("Calls moved to another backend after this one failed before its first item")
+                .tag("backend", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.backend.ttft.ewma", this, ChatBackend::ewmaTtftMillis)
+                .description("Rolling time to first item per chat backend, as used for routing")
+                .tag("backend", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("ai.backend.error_rate", this, ChatBackend::ewmaErrorRate)
+                .description("Rolling error rate per chat backend, as used for routing")
+                .tag("backend", name)
+                .register(meterRegistry);
+    }
+
+    private static Counter calls(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("ai.backend.calls")
+                .description("Chat backend calls by outcome")
+                .tags("backend", name, "outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    ChatClient chatClient() {
+        return chatClient;
+    }
+
+    /**
+     * EWMA TTFT weighted up by the recent error rate. A backend without a TTFT sample is scored at
+     * {@code ttftPrior} instead, so one that has only failed ranks behind the ones that answer.
+     */
+    synchronized double score(double errorPenalty, double ttftPrior) {
+        return (ttftSampled ? ewmaTtftMillis : ttftPrior) * (1 + errorPenalty * ewmaErrorRate);
+    }
+
+    synchronized boolean ttftSampled() {
+        return ttftSampled;
+    }
+
+    synchronized double ewmaTtftMillis() {
+        return ewmaTtftMillis;
+    }
+
+    private synchronized double ewmaErrorRate() {
+        return ewmaErrorRate;
+    }
+
+    /**
+     * Whether the backend may take calls at {@code now}. An expired cooldown flags one probe.
+     */
+    synchronized boolean available(long now) {
+        if (open && now - openUntil >= 0) {
+            open = false;
+            probeDue = true;
+        }
+        return !open;
+    }
+
+    synchronized boolean takeProbe() {
+        boolean due = probeDue;
+        probeDue = false;
+        probing |= due;
+        return due;
+    }
+
+    synchronized long openUntil() {
+        return openUntil;
+    }
+
+    void routed() {
+        routed.increment();
+    }
+
+    void failedOver() {
+        failovers.increment();
+    }
+
+    synchronized void firstItem(long ttftNanos) {
+        ttft.record(ttftNanos, TimeUnit.NANOSECONDS);
+        double millis = ttftNanos / 1_000_000.0;
+        ewmaTtftMillis = ttftSampled ? ewmaTtftMillis + ALPHA * (millis - ewmaTtftMillis) : millis;
+        ttftSampled = true;
+    }
+
+    synchronized void succeeded() {
+        succeeded.increment();
+        consecutiveFailures = 0;
+        // A successful probe closes the backend for good; otherwise the old error rate would keep it unpicked
+        ewmaErrorRate = probing ? 0 : ewmaErrorRate + ALPHA * (0 - ewmaErrorRate);
+        probing = false;
+    }
+
+    synchronized void failed(long now, int failureThreshold, long cooldownNanos) {
+        failed.increment();
+        probing = false;
+        ewmaErrorRate += ALPHA * (1 - ewmaErrorRate);
+        if (++consecutiveFailures >= failureThreshold) {
+            open = true;
+            openUntil = now + cooldownNanos;
+            consecutiveFailures = 0;
+        }
+    }
+}
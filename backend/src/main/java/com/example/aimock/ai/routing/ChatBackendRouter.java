@@ -0,0 +1,168 @@
+package com.example.aimock.ai.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Routes chat calls across the configured {@link ChatBackend}s.
+ *
+ * Each call goes to the healthiest available backend: lowest rolling TTFT, weighted up by its recent
+ * error rate. A backend with no TTFT yet counts as average, so one that fails every call before its first
+ * item drops behind the others after its first failure. A backend whose cooldown just expired gets the
+ * next call as a probe. If the chosen backend fails before producing anything, the call moves on to the
+ * next backend in that order; once a stream
+ * has emitted, an error is passed through, since a second model cannot continue the same reply. Backends
+ * that are all cooling down are still tried, soonest-to-recover first, so calls never fail for lack of
+ * a backend.
+ */
+@Slf4j
+public class ChatBackendRouter {
+
+    private final List<ChatBackend> backends;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+    private final double errorPenalty;
+    private final LongSupplier ticker;
+
+    public ChatBackendRouter(List<ChatBackend> backends, int failureThreshold, Duration cooldown, double errorPenalty) {
+        this(backends, failureThreshold, cooldown, errorPenalty, System::nanoTime);
+    }
+
+    ChatBackendRouter(List<ChatBackend> backends, int failureThreshold, Duration cooldown, double errorPenalty,
+                      LongSupplier ticker) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one chat backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = cooldown.toNanos();
+        this.errorPenalty = errorPenalty;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Streams from the best backend, failing over while nothing has been emitted yet.
+     */
+    public <T> Flux<T> stream(Function<ChatClient, Flux<T>> call) {
+        return Flux.defer(() -> attempt(call, route(), 0));
+    }
+
+    /**
+     * A stream and a hedge for it over one route, computed when the first of them is subscribed: the
+     * primary starts at the best backend and the hedge at the next one, so a hedge of a stalled backend
+     * lands elsewhere. Each fails over along the rest of the route, like {@link #stream}.
+     */
+    public <T> Hedged<T> hedged(Function<ChatClient, Flux<T>> call) {
+        AtomicReference<List<ChatBackend>> order = new AtomicReference<>();
+        Supplier<List<ChatBackend>> routeOnce = () -> order.updateAndGet(planned -> planned != null ? planned : route());
+        return new Hedged<>(
+                Flux.defer(() -> attempt(call, routeOnce.get(), 0)),
+                Flux.defer(() -> {
+                    List<ChatBackend> primaryOrder = routeOnce.get();
+                    List<ChatBackend> hedgeOrder = new ArrayList<>(primaryOrder.subList(1, primaryOrder.size()));
+                    hedgeOrder.add(primaryOrder.getFirst());
+                    return attempt(call, hedgeOrder, 0);
+                }));
+    }
+
+    public record Hedged<T>(Flux<T> primary, Flux<T> hedge) {
+    }
+
+    /**
+     * Blocking call on the best backend, failing over on any exception.
+     */
+    public <T> T call(Function<ChatClient, T> call) {
+        List<ChatBackend> order = route();
+        for (int i = 0; ; i++) {
+            ChatBackend backend = order.get(i);
+            backend.routed();
+            try {
+                T result = call.apply(backend.chatClient());
+                backend.succeeded();
+                return result;
+            } catch (RuntimeException e) {
+                backend.failed(ticker.getAsLong(), failureThreshold, cooldownNanos);
+                if (i + 1 >= order.size()) {
+                    throw e;
+                }
+                failOver(backend, order.get(i + 1), e);
+            }
+        }
+    }
+
+    public List<String> backendNames() {
+        return backends.stream().map(ChatBackend::name).toList();
+    }
+
+    private <T> Flux<T> attempt(Function<ChatClient, Flux<T>> call, List<ChatBackend> order, int index) {
+        ChatBackend backend = order.get(index);
+        backend.routed();
+        long startedAt = ticker.getAsLong();
+        AtomicBoolean emitted = new AtomicBoolean();
+
+        return Flux.defer(() -> call.apply(backend.chatClient()))
+                .doOnNext(item -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        backend.firstItem(ticker.getAsLong() - startedAt);
+                    }
+                })
+                .doOnComplete(backend::succeeded)
+                .onErrorResume(e -> {
+                    backend.failed(ticker.getAsLong(), failureThreshold, cooldownNanos);
+                    if (emitted.get() || index + 1 >= order.size()) {
+                        return Flux.error(e);
+                    }
+                    failOver(backend, order.get(index + 1), e);
+                    return attempt(call, order, index + 1);
+                });
+    }
+
+    private void failOver(ChatBackend from, ChatBackend to, Throwable cause) {
+        from.failedOver();
+        log.warn("Chat backend {} failed, failing over to {}: {}", from.name(), to.name(), cause.toString());
+    }
+
+    /**
+     * Backends in the order a new call should try them.
+     */
+    List<ChatBackend> route() {
+        long now = ticker.getAsLong();
+        List<ChatBackend> available = new ArrayList<>(backends.size());
+        List<ChatBackend> cooling = new ArrayList<>();
+        for (ChatBackend backend : backends) {
+            (backend.available(now) ? available : cooling).add(backend);
+        }
+        // Unsampled backends are scored at the mean TTFT of the sampled ones and win ties, so each is tried
+        double ttftPrior = backends.stream().filter(ChatBackend::ttftSampled)
+                .mapToDouble(ChatBackend::ewmaTtftMillis).average().orElse(0);
+        Map<ChatBackend, Double> scores = new IdentityHashMap<>();
+        Map<ChatBackend, Boolean> sampled = new IdentityHashMap<>();
+        for (ChatBackend backend : available) {
+            scores.put(backend, backend.score(errorPenalty, ttftPrior));
+            sampled.put(backend, backend.ttftSampled());
+        }
+        available.sort(Comparator.<ChatBackend>comparingDouble(scores::get).thenComparing(sampled::get));
+        for (int i = 0; i < available.size(); i++) {
+            if (available.get(i).takeProbe()) {
+                available.addFirst(available.remove(i));
+                break;
+            }
+        }
+        cooling.sort(Comparator.comparingLong(ChatBackend::openUntil));
+        available.addAll(cooling);
+        return available;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.aimock.ai.stub;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthetic chat model for offline load tests and CI (profile {@code stub-ai}; see
+ * {@code application-stub-ai.properties}). No network calls are made.
+ *
+ * Every reply is planned up front from {@code seed}, the prompt text and a call counter, so a given
+ * sequence of calls is reproducible:
+ * <ul>
+ *   <li>time to first token is log-normal with the configured {@code ttft-median} and {@code ttft-p99}</li>
+ *   <li>tokens follow every {@code inter-token-delay}, {@code min-tokens} to {@code max-tokens} of them</li>
+ *   <li>with probability {@code error-rate} the stream fails with a {@link TransientAiException} at a
+ *       random point, possibly before the first token; with {@code timeout-rate} it stays silent for
+ *       {@code timeout} and then fails</li>
+ * </ul>
+ * Streams end with a usage-only chunk, as OpenAI does with stream usage enabled. Prompts asking for the
+ * evaluation JSON get a synthetic evaluation, so the evaluation flow works too. All waiting happens on
+ * Reactor timers; only {@link #call(Prompt)} blocks its caller.
+ */
+@Component
+@Profile("stub-ai")
+@Slf4j
+public class StubChatModel implements ChatModel {
+
+    private static final double Z_99 = 2.3263;
+    private static final String[] WORDS = {
+            "Let's", "talk", "about", "how", "you", "would", "design", "the", "service", "for", "scale",
+            "and", "what", "trade-offs", "matter", "most", "when", "latency", "is", "tight.", "Walk", "me",
+            "through", "your", "approach", "to", "caching,", "consistency", "and", "failure", "handling."
+    };
+
+    private final long seed;
+    private final long ttftMedianNanos;
+    private final double ttftSigma;
+    private final Duration interTokenDelay;
+    private final int minTokens;
+    private final int maxTokens;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final Duration timeout;
+    private final Scheduler timer;
+    private final AtomicLong calls = new AtomicLong();
+
+    @Autowired
+    public StubChatModel(@Value("${app.ai.stub.seed:42}") long seed,
+                         @Value("${app.ai.stub.ttft-median:PT0.4S}") Duration ttftMedian,
+                         @Value("${app.ai.stub.ttft-p99:PT2S}") Duration ttftP99,
+                         @Value("${app.ai.stub.inter-token-delay:PT0.015S}") Duration interTokenDelay,
+                         @Value("${app.ai.stub.min-tokens:40}") int minTokens,
+                         @Value("${app.ai.stub.max-tokens:250}") int maxTokens,
+                         @Value("${app.ai.stub.error-rate:0}") double errorRate,
+                         @Value("${app.ai.stub.timeout-rate:0}") double timeoutRate,
+                         @Value("${app.ai.stub.timeout:PT60S}") Duration timeout) {
+        this(seed, ttftMedian, ttftP99, interTokenDelay, minTokens, maxTokens, errorRate, timeoutRate, timeout,
+                Schedulers.parallel());
+    }
+
+    StubChatModel(long seed, Duration ttftMedian, Duration ttftP99, Duration interTokenDelay, int minTokens,
+                  int maxTokens, double errorRate, double timeoutRate, Duration timeout, Scheduler timer) {
+        this.seed = seed;
+        this.ttftMedianNanos = ttftMedian.toNanos();
+        this.ttftSigma = ttftP99.compareTo(ttftMedian) > 0
+                ? Math.log((double) ttftP99.toNanos() / ttftMedian.toNanos()) / Z_99
+                : 0;
+        this.interTokenDelay = interTokenDelay;
+        this.minTokens = Math.max(1, minTokens);
+        this.maxTokens = Math.max(this.minTokens, maxTokens);
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeout = timeout;
+        this.timer = timer;
+        log.info("Stub chat model active: ttft median={} p99={}, {} per token, {}-{} tokens, error rate={}, timeout rate={}",
+                ttftMedian, ttftP99, interTokenDelay, this.minTokens, this.maxTokens, errorRate, timeoutRate);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Plan plan = plan(prompt);
+        sleep(plan.timesOut() ? timeout : plan.ttft().plus(interTokenDelay.multipliedBy(plan.tokens().size() - 1)));
+        if (plan.failsAt() >= 0 || plan.timesOut()) {
+            throw plan.failure();
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(String.join("", plan.tokens())))),
+                usage(plan));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Plan plan = plan(prompt);
+            if (plan.timesOut()) {
+                return Mono.delay(timeout, timer).flatMapMany(tick -> Flux.error(plan.failure()));
+            }
+            int emitted = plan.failsAt() >= 0 ? plan.failsAt() : plan.tokens().size();
+            Flux<ChatResponse> tokens = Mono.delay(plan.ttft(), timer)
+                    .thenMany(Flux.interval(Duration.ZERO, interTokenDelay, timer).take(emitted))
+                    .map(i -> new ChatResponse(List.of(new Generation(new AssistantMessage(plan.tokens().get(i.intValue()))))));
+            if (plan.failsAt() >= 0) {
+                return tokens.concatWith(Mono.error(plan.failure()));
+            }
+            return tokens.concatWithValues(ChatResponse.builder().generations(List.of()).metadata(usage(plan)).build());
+        });
+    }
+
+    Plan plan(Prompt prompt) {
+        String text = prompt.getContents();
+        SplittableRandom random = new SplittableRandom(seed ^ text.hashCode() ^ (calls.getAndIncrement() * 0x9E3779B97F4A7C15L));
+        long ttftNanos = (long) (ttftMedianNanos * Math.exp(ttftSigma * random.nextGaussian()));
+        boolean timesOut = random.nextDouble() < timeoutRate;
+        boolean fails = !timesOut && random.nextDouble() < errorRate;
+
+        List<String> tokens = text.contains("\"overallScore\"")
+                ? evaluation(random)
+                : words(random, minTokens + random.nextInt(maxTokens - minTokens + 1));
+        int failsAt = fails ? random.nextInt(tokens.size()) : -1;
+        return new Plan(Duration.ofNanos(ttftNanos), tokens, failsAt, timesOut, Math.max(1, text.length() / 4));
+    }
+
+    private static List<String> words(SplittableRandom random, int count) {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            tokens[i] = i == 0 ? word : " " + word;
+        }
+        return List.of(tokens);
+    }
+
+    private static List<String> evaluation(SplittableRandom random) {
+        int knowledge = 40 + random.nextInt(60);
+        int communication = 40 + random.nextInt(60);
+        int problemSolving = 40 + random.nextInt(60);
+        int technicalDepth = 40 + random.nextInt(60);
+        double overall = (knowledge + communication + problemSolving + technicalDepth) / 40.0;
+        String json = String.format(Locale.ROOT, """
+                {"overallScore": %.1f, "knowledge": %d, "communication": %d, "problemSolving": %d, \
+                "technicalDepth": %d, "feedback": "Synthetic evaluation from the stub chat model.", \
+                "strengths": "Structured answers", "areasForImprovement": "More depth on trade-offs"}""",
+                overall, knowledge, communication, problemSolving, technicalDepth);
+        // Roughly token-sized pieces, like a real stream
+        String[] pieces = new String[(json.length() + 3) / 4];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = json.substring(i * 4, Math.min(json.length(), i * 4 + 4));
+        }
+        return List.of(pieces);
+    }
+
+    private static ChatResponseMetadata usage(Plan plan) {
+        return ChatResponseMetadata.builder().usage(new DefaultUsage(plan.promptTokens(), plan.tokens().size())).build();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientAiException("Stub chat model interrupted");
+        }
+    }
+
+    /**
+     * What one call will do: when it starts streaming, what it says, and whether and where it fails.
+     */
+    record Plan(Duration ttft, List<String> tokens, int failsAt, boolean timesOut, int promptTokens) {
+
+        TransientAiException failure() {
+            return timesOut
+                    ? new TransientAiException("Stub chat model: injected timeout")
+                    : new TransientAiException("Stub chat model: injected 429 Too Many Requests");
+        }
+    }
+}
@@ -77,7 +77,8 @@ public class User {
     private String tier = "FREE";
 
     /**
-     * Total messages sent by user (USER role messages only, not AI responses)
+     * Total messages sent by user (USER role messages only, not AI responses).
+     * Only changed by {@link com.example.aimock.quota.MessageQuotaService}.
      */
     @Column(name = "message_count", nullable = false)
     @Builder.Default
@@ -103,11 +104,4 @@ public class User {
     public int getRemainingMessages() {
         return Math.max(0, messageLimit - messageCount);
     }
-
-    /**
-     * Increment message count (call after sending a message)
-     */
-    public void incrementMessageCount() {
-        this.messageCount++;
-    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.example.aimock.auth.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,4 +12,22 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsername(String username);
+
+    /**
+     * Counts one more message for the user if they are under their limit, and returns how many they have
+     * left. Empty if they are at their limit or do not exist. Concurrent calls queue on the row lock and
+     * re-check the limit, so message_count never passes message_limit.
+     */
+    @Query(value = "UPDATE users SET message_count = message_count + 1, updated_at = now() " +
+                   "WHERE id = :id AND message_count < message_limit " +
+                   "RETURNING message_limit - message_count", nativeQuery = true)
+    Optional<Integer> takeMessage(@Param("id") UUID id);
+
+    /**
+     * Whether the user has used up their messages, as a plain read without a row lock. False for an unknown
+     * user. Only a hint: {@link #takeMessage} is what counts a message.
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM users WHERE id = :id AND message_count >= message_limit)",
+           nativeQuery = true)
+    boolean isAtMessageLimit(@Param("id") UUID id);
 }
@@ -0,0 +1,15 @@
+package com.example.aimock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when an AI call is shed because too many are already in flight.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AiBusyException extends RuntimeException {
+
+    public AiBusyException() {
+        super("The AI interviewer is busy right now. Please try again in a moment.");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.aimock.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Holds one pooled connection in {@code LISTEN <channel>} and runs a callback whenever notifications
+ * arrive; reconnects after {@code pollTimeout} if the connection fails. PostgreSQL only, see
+ * {@link #isPostgres}.
+ */
+@Slf4j
+public class PgNotificationListener {
+
+    private final DataSource dataSource;
+    private final String channel;
+    private final Duration pollTimeout;
+    private final Runnable onNotify;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public PgNotificationListener(DataSource dataSource, String channel, Duration pollTimeout, Runnable onNotify) {
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.onNotify = onNotify;
+    }
+
+    public static boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("Could not determine the database; not listening for notifications", e);
+            return false;
+        }
+    }
+
+    public void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("pg-listen-" + channel).daemon(true).start(this::listenLoop);
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for {} notifications", channel);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null && notifications.length > 0) {
+                        onNotify.run();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("LISTEN {} connection failed; retrying", channel, e);
+                    try {
+                        Thread.sleep(pollTimeout);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.aimock.jobs;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@code ai_jobs} table as a queue. PostgreSQL only.
+ *
+ * A claim leases the oldest due job whose session has no older job left, with {@code FOR UPDATE SKIP LOCKED}
+ * so concurrent workers never wait on each other or take the same row; a session's jobs therefore run one
+ * at a time, in order. The lease is {@code visible_at}: a job whose worker died becomes due again when it
+ * runs out, and a failed job is rescheduled by moving it ahead. Each claim increments {@code attempts},
+ * which also fences settling: a worker whose lease expired and whose job was claimed again cannot delete or
+ * reschedule it. All times are the database's.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pgqueue.enabled", havingValue = "true")
+public class PostgresJobQueue {
+
+    static final String CHANNEL = "ai_jobs";
+
+    private static final String CLAIM = """
+            UPDATE ai_jobs SET attempts = attempts + 1, visible_at = now() + ? * INTERVAL '1 millisecond'
+            WHERE id = (
+                SELECT j.id FROM ai_jobs j
+                WHERE j.visible_at <= now()
+                  AND NOT EXISTS (SELECT 1 FROM ai_jobs e WHERE e.session_id = j.session_id AND e.id < j.id)
+                ORDER BY j.id
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, interviewer_message_id, session_id, user_content, attempts,
+                (EXTRACT(EPOCH FROM now() - created_at) * 1000)::BIGINT AS waited_ms
+            """;
+
+    private static final String DEAD_LETTER = """
+            WITH dead AS (DELETE FROM ai_jobs WHERE id = ? AND attempts = ? RETURNING *)
+            INSERT INTO ai_jobs_dead (id, interviewer_message_id, session_id, user_content, attempts, created_at, last_error)
+            SELECT id, interviewer_message_id, session_id, user_content, attempts, created_at, ? FROM dead
+            """;
+
+    /**
+     * A leased job; {@code waitedMillis} is the time since it was enqueued.
+     */
+    public record ClaimedJob(long id, UUID interviewerMessageId, UUID sessionId, String userContent,
+                             int attempts, long waitedMillis) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresJobQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts a job, in the caller's transaction if there is one; workers are notified on commit.
+     */
+    public void enqueue(UUID interviewerMessageId, UUID sessionId, String userContent) {
+        jdbcTemplate.update("INSERT INTO ai_jobs (interviewer_message_id, session_id, user_content) VALUES (?, ?, ?)",
+                interviewerMessageId, sessionId, userContent);
+    }
+
+    /**
+     * Leases the next job for {@code lease}, or returns null if none is due.
+     */
+    public ClaimedJob claim(Duration lease) {
+        List<ClaimedJob> claimed = jdbcTemplate.query(CLAIM, (rs, rowNum) -> new ClaimedJob(
+                rs.getLong("id"),
+                rs.getObject("interviewer_message_id", UUID.class),
+                rs.getObject("session_id", UUID.class),
+                rs.getString("user_content"),
+                rs.getInt("attempts"),
+                rs.getLong("waited_ms")), lease.toMillis());
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    /**
+     * Deletes a finished job. Returns false if its lease had been lost.
+     */
+    public boolean complete(ClaimedJob job) {
+        return jdbcTemplate.update("DELETE FROM ai_jobs WHERE id = ? AND attempts = ?", job.id(), job.attempts()) == 1;
+    }
+
+    /**
+     * Makes a failed job due again after {@code delay} and records its error. Returns false if its lease
+     * had been lost.
+     */
+    public boolean retry(ClaimedJob job, String error, Duration delay) {
+        return jdbcTemplate.update("""
+                UPDATE ai_jobs SET visible_at = now() + ? * INTERVAL '1 millisecond', last_error = ?
+                WHERE id = ? AND attempts = ?
+                """, delay.toMillis(), error, job.id(), job.attempts()) == 1;
+    }
+
+    /**
+     * Moves a job that ran out of attempts to {@code ai_jobs_dead}. Returns false if its lease had been lost.
+     */
+    public boolean deadLetter(ClaimedJob job, String error) {
+        return jdbcTemplate.update(DEAD_LETTER, job.id(), job.attempts(), error) == 1;
+    }
+
+    /**
+     * Pushes the leases of running jobs out to {@code lease} from now.
+     */
+    public int extendLeases(Collection<Long> ids, Duration lease) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("""
+                UPDATE ai_jobs SET visible_at = now() + ? * INTERVAL '1 millisecond' WHERE id = ANY (?)
+                """, ps -> {
+                    Array array = ps.getConnection().createArrayOf("bigint", ids.toArray());
+                    ps.setLong(1, lease.toMillis());
+                    ps.setArray(2, array);
+                });
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.aimock.jobs;
+
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.jobs.PostgresJobQueue.ClaimedJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs jobs from {@link PostgresJobQueue} on {@code workers} threads through {@link AIMessageProcessor}.
+ *
+ * An idle worker claims as soon as it is woken by {@link #wakeUp} (a job committed on this node) or by
+ * {@code NOTIFY ai_jobs} (any node), and otherwise every {@code poll-interval}. While a job runs its lease
+ * is extended every third of {@code visibility-timeout}.
+ *
+ * A turn that failed before its first token reached the client (the model was busy or unreachable, the
+ * database blipped) is retried: its job is made due again after {@code retry-backoff} times its attempts,
+ * with the error in {@code last_error}. The last attempt is run with {@code lastAttempt}, so the processor
+ * fails the turn instead. A turn that failed later has already been marked FAILED and published as
+ * {@code ai_failed}, and its job is completed like a successful one. A job whose lease ran out before it
+ * was settled (its worker died) is claimed again as one more attempt; one claimed past
+ * {@code max-attempts} is moved to {@code ai_jobs_dead} instead of run, and its turn is failed if it never
+ * finished.
+ *
+ * A job can run more than once (its lease ran out while it was still running, or the outbox relayed it
+ * twice); the processor only starts a PENDING turn, or on a later attempt a STREAMING one, so a turn that
+ * already finished is never streamed again.
+ *
+ * A session's later jobs wait behind a job being retried, to keep its turns in order. The wait is bounded:
+ * at most {@code retry-backoff} times 1 + 2 + ... + (max-attempts - 1) of backoff, plus one
+ * {@code visibility-timeout} for each attempt whose worker died.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.pgqueue.enabled", havingValue = "true")
+public class PostgresJobWorker {
+
+    private final PostgresJobQueue queue;
+    private final AIMessageProcessor aiMessageProcessor;
+    private final DataSource dataSource;
+    private final int workers;
+    private final Duration visibilityTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration pollInterval;
+    private final Timer aiPgQueueStartLatency;
+    private final AtomicInteger aiPgQueueActiveGauge;
+    private final Counter aiPgQueueRetries;
+    private final Counter aiPgQueueDeadLettered;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger idle = new AtomicInteger();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final List<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService leaseExtender;
+    private PgNotificationListener listener;
+    private volatile boolean started;
+
+    public PostgresJobWorker(PostgresJobQueue queue, AIMessageProcessor aiMessageProcessor, DataSource dataSource,
+                             @Value("${app.pgqueue.workers:8}") int workers,
+                             @Value("${app.pgqueue.visibility-timeout:PT1M}") Duration visibilityTimeout,
+                             @Value("${app.pgqueue.max-attempts:5}") int maxAttempts,
+                             @Value("${app.pgqueue.retry-backoff:PT2S}") Duration retryBackoff,
+                             @Value("${app.pgqueue.poll-interval:PT1S}") Duration pollInterval,
+                             Timer aiPgQueueStartLatency, AtomicInteger aiPgQueueActiveGauge,
+                             Counter aiPgQueueRetries, Counter aiPgQueueDeadLettered) {
+        this.queue = queue;
+        this.aiMessageProcessor = aiMessageProcessor;
+        this.dataSource = dataSource;
+        this.workers = Math.max(1, workers);
+        this.visibilityTimeout = visibilityTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.pollInterval = pollInterval;
+        this.aiPgQueueStartLatency = aiPgQueueStartLatency;
+        this.aiPgQueueActiveGauge = aiPgQueueActiveGauge;
+        this.aiPgQueueRetries = aiPgQueueRetries;
+        this.aiPgQueueDeadLettered = aiPgQueueDeadLettered;
+    }
+
+    @PostConstruct
+    public void start() {
+        started = true;
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofPlatform().name("pgqueue-worker-" + i).daemon(true).start(this::workLoop));
+        }
+        long extendMillis = Math.max(1000, visibilityTimeout.toMillis() / 3);
+        leaseExtender = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("pgqueue-lease").daemon(true).factory());
+        leaseExtender.scheduleWithFixedDelay(this::extendLeases, extendMillis, extendMillis, TimeUnit.MILLISECONDS);
+        listener = new PgNotificationListener(dataSource, PostgresJobQueue.CHANNEL, pollInterval, this::wakeUp);
+        listener.start();
+        log.info("Postgres job queue started: workers={}, visibilityTimeout={}, maxAttempts={}, retryBackoff={}",
+                workers, visibilityTimeout, maxAttempts, retryBackoff);
+    }
+
+    /**
+     * Stops claiming. Jobs still running finish; unfinished ones are claimed again once their lease runs out.
+     */
+    @PreDestroy
+    public void stop() {
+        started = false;
+        if (listener != null) {
+            listener.stop();
+        }
+        wakeups.release(threads.size());
+        if (leaseExtender != null) {
+            leaseExtender.shutdownNow();
+        }
+    }
+
+    /**
+     * Wakes idle workers to claim now instead of at the end of their poll interval.
+     */
+    public void wakeUp() {
+        // Permits only pile up while every worker is busy; a few cover the claims they will make next anyway
+        if (wakeups.availablePermits() < workers) {
+            wakeups.release(Math.max(1, idle.get()));
+        }
+    }
+
+    private void workLoop() {
+        while (started) {
+            try {
+                if (!runOnce()) {
+                    idle.incrementAndGet();
+                    try {
+                        wakeups.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    } finally {
+                        idle.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Postgres job worker pass failed", e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims and runs one job. Returns false if none was due.
+     */
+    boolean runOnce() {
+        ClaimedJob job = queue.claim(visibilityTimeout);
+        if (job == null) {
+            return false;
+        }
+        if (job.attempts() == 1) {
+            aiPgQueueStartLatency.record(job.waitedMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            aiPgQueueRetries.increment();
+        }
+        if (job.attempts() > maxAttempts) {
+            deadLetter(job);
+            return true;
+        }
+        running.add(job.id());
+        aiPgQueueActiveGauge.incrementAndGet();
+        try {
+            AIProcessingResult result = aiMessageProcessor.processMessage(
+                    job.interviewerMessageId(), job.sessionId(), job.userContent(),
+                    job.attempts() > 1, job.attempts() >= maxAttempts);
+            if (result.getStatus() == AIProcessingResult.Status.RETRY) {
+                retry(job, result.getErrorMessage());
+                return true;
+            }
+            if (result.getStatus() != AIProcessingResult.Status.SUCCESS) {
+                // Retrying would stream into a turn the client has already been told failed
+                log.warn("AI job {} ended with a failed turn, not retrying: interviewerMessageId={}, error={}",
+                        job.id(), job.interviewerMessageId(), result.getErrorMessage());
+            }
+            if (!queue.complete(job)) {
+                // Harmless: a run of a turn that already finished does nothing
+                log.warn("AI job {} finished after its lease was lost; it may run again", job.id());
+            }
+        } catch (RuntimeException e) {
+            // Left leased: claimed again, as one more attempt, once the lease runs out
+            log.error("AI job {} not settled, retrying after its lease: interviewerMessageId={}",
+                    job.id(), job.interviewerMessageId(), e);
+        } finally {
+            running.remove(job.id());
+            aiPgQueueActiveGauge.decrementAndGet();
+        }
+        return true;
+    }
+
+    private void retry(ClaimedJob job, String error) {
+        Duration delay = retryBackoff.multipliedBy(job.attempts());
+        if (queue.retry(job, error, delay)) {
+            log.warn("AI job {} failed (attempt {}/{}), retrying in {}: interviewerMessageId={}, error={}",
+                    job.id(), job.attempts(), maxAttempts, delay, job.interviewerMessageId(), error);
+        }
+    }
+
+    private void deadLetter(ClaimedJob job) {
+        String error = "Lease ran out on the last of " + maxAttempts + " attempts";
+        if (!queue.deadLetter(job, error)) {
+            return;
+        }
+        aiPgQueueDeadLettered.increment();
+        log.error("AI job {} dead-lettered: interviewerMessageId={}, error={}",
+                job.id(), job.interviewerMessageId(), error);
+        aiMessageProcessor.failUnfinished(job.interviewerMessageId(), job.sessionId(), error);
+    }
+
+    void extendLeases() {
+        List<Long> ids = List.copyOf(running);
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            queue.extendLeases(ids, visibilityTimeout);
+        } catch (RuntimeException e) {
+            log.warn("Could not extend AI job leases", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.messages.dto.MessageCreationResult;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local cache of recent (sessionId, idempotencyKey) to {@link MessageCreationResult} mappings, so a
+ * retried send that lands on the node that took the original is answered without a lock or a query.
+ *
+ * It is only a fast path: a miss (evicted, expired, or first seen on another node) falls through to the
+ * insert, where the unique index on (session_id, idempotency_key) decides. Results are cached once their
+ * transaction commits; entries live at most {@code ttl} and at most {@code max-entries} are kept, oldest
+ * first out.
+ */
+@Component
+@Slf4j
+public class IdempotencyCache {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier ticker;
+    private final Counter messagesIdempotencyCacheHits;
+    private final Counter messagesIdempotencyCacheMisses;
+    private final Counter messagesIdempotencyConflicts;
+
+    // Insertion-ordered, so the head is always the oldest entry (first to expire, first evicted)
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    @Autowired
+    public IdempotencyCache(@Value("${app.idempotency-cache.enabled:true}") boolean enabled,
+                            @Value("${app.idempotency-cache.ttl:PT10M}") Duration ttl,
+                            @Value("${app.idempotency-cache.max-entries:50000}") int maxEntries,
+                            Counter messagesIdempotencyCacheHits, Counter messagesIdempotencyCacheMisses,
+                            Counter messagesIdempotencyConflicts) {
+        this(enabled, ttl, maxEntries, System::nanoTime,
+                messagesIdempotencyCacheHits, messagesIdempotencyCacheMisses, messagesIdempotencyConflicts);
+    }
+
+    IdempotencyCache(boolean enabled, Duration ttl, int maxEntries, LongSupplier ticker,
+                     Counter messagesIdempotencyCacheHits, Counter messagesIdempotencyCacheMisses,
+                     Counter messagesIdempotencyConflicts) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.ticker = ticker;
+        this.messagesIdempotencyCacheHits = messagesIdempotencyCacheHits;
+        this.messagesIdempotencyCacheMisses = messagesIdempotencyCacheMisses;
+        this.messagesIdempotencyConflicts = messagesIdempotencyConflicts;
+        log.info("Idempotency cache {}: ttl={}, maxEntries={}", enabled ? "enabled" : "disabled", ttl, maxEntries);
+    }
+
+    public Optional<MessageCreationResult> lookup(UUID sessionId, String idempotencyKey) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            evictExpired();
+            Entry entry = entries.get(new Key(sessionId, idempotencyKey));
+            (entry != null ? messagesIdempotencyCacheHits : messagesIdempotencyCacheMisses).increment();
+            return entry != null ? Optional.of(entry.result) : Optional.empty();
+        }
+    }
+
+    /**
+     * A send created its messages; cached once the transaction commits.
+     */
+    public void created(UUID sessionId, String idempotencyKey, MessageCreationResult result) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> put(new Key(sessionId, idempotencyKey), result));
+    }
+
+    /**
+     * A send lost to an earlier one with the same key at the unique index. The earlier result is already
+     * committed, so it is cached straight away.
+     */
+    public void duplicate(UUID sessionId, String idempotencyKey, MessageCreationResult existing) {
+        messagesIdempotencyConflicts.increment();
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            put(new Key(sessionId, idempotencyKey), existing);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // ---- internals (callers hold the monitor) ----
+
+    private void put(Key key, MessageCreationResult result) {
+        evictExpired();
+        entries.remove(key);
+        entries.put(key, new Entry(result, ticker.getAsLong() + ttlNanos));
+        while (entries.size() > maxEntries) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void evictExpired() {
+        long now = ticker.getAsLong();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().expiresAt < 0) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private void afterCommit(Runnable write) {
+        Runnable locked = () -> {
+            synchronized (this) {
+                write.run();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    locked.run();
+                }
+            });
+        } else {
+            locked.run();
+        }
+    }
+
+    private record Key(UUID sessionId, String idempotencyKey) {
+    }
+
+    private record Entry(MessageCreationResult result, long expiresAt) {
+    }
+}
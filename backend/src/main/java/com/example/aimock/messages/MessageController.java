@@ -2,7 +2,10 @@ package com.example.aimock.messages;
 
 import com.example.aimock.auth.user.AuthUser;
 import com.example.aimock.authz.SessionAuthorizer;
+import com.example.aimock.exception.ResourceNotFoundException;
 import com.example.aimock.messages.model.Message;
+import com.example.aimock.websocket.DeltaReplayBuffer;
+import com.example.aimock.websocket.dto.StreamReplay;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -22,6 +25,7 @@ public class MessageController {
 
     private final MessageService messageService;
     private final SessionAuthorizer sessionAuthorizer;
+    private final DeltaReplayBuffer deltaReplayBuffer;
 
     @GetMapping("/")
     public ResponseEntity<List<Message>> getMessages(
@@ -34,4 +38,21 @@ public class MessageController {
         List<Message> messages = messageService.getMessages(sessionId, cursorSeq, limit);
         return ResponseEntity.ok(messages);
     }
+
+    /**
+     * Resume a streaming reply after a reconnect: the ai_delta frames after {@code afterFrameSeq}, or the
+     * final content once it finished. 404 when this node has nothing buffered; reload the messages instead.
+     */
+    @GetMapping("/{interviewerMessageId}/stream")
+    public ResponseEntity<StreamReplay> resumeStream(
+            @PathVariable UUID sessionId,
+            @PathVariable UUID interviewerMessageId,
+            @RequestParam(defaultValue = "0") long afterFrameSeq,
+            @AuthenticationPrincipal AuthUser user) {
+
+        sessionAuthorizer.requireOwnerForCurrentUser(sessionId, user);
+        return deltaReplayBuffer.replay(sessionId, interviewerMessageId, afterFrameSeq)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Stream replay", "interviewerMessageId", interviewerMessageId));
+    }
 }
@@ -1,11 +1,16 @@
 package com.example.aimock.messages;
 
+import com.example.aimock.messages.dto.HistoryMessage;
 import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.model.MessageStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,7 +19,87 @@ import java.util.UUID;
 public interface MessageRepository extends JpaRepository<Message, UUID> {
 
     List<Message> findBySessionIdOrderBySeqAsc(UUID sessionId);
+
+    List<Message> findBySessionIdAndSeqGreaterThanOrderBySeqAsc(UUID sessionId, Long seq);
+
+    /**
+     * Keyset window over (session_id, sequence_number): the newest completed, non-empty messages with
+     * afterSeq < seq < beforeSeq, newest first, limited by the page size.
+     * Returns read-only projections, so nothing is added to the persistence context.
+     */
+    @Query("SELECT new com.example.aimock.messages.dto.HistoryMessage(m.id, m.seq, m.role, m.content, m.tokenCount) " +
+           "FROM Message m WHERE m.sessionId = :sessionId AND m.seq > :afterSeq AND m.seq < :beforeSeq " +
+           "AND m.messageStatus = com.example.aimock.messages.model.MessageStatus.COMPLETED " +
+           "AND LENGTH(m.content) > 0 ORDER BY m.seq DESC")
+    List<HistoryMessage> findRecentHistory(
+            @Param("sessionId") UUID sessionId,
+            @Param("afterSeq") long afterSeq,
+            @Param("beforeSeq") long beforeSeq,
+            Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.tokenCount = :tokenCount WHERE m.id = :id")
+    int updateTokenCount(@Param("id") UUID id, @Param("tokenCount") int tokenCount);
+
+    /**
+     * Checkpoints the partial content of a streaming reply; a no-op once the message is no longer STREAMING.
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.content = :content WHERE m.id = :id " +
+           "AND m.messageStatus = com.example.aimock.messages.model.MessageStatus.STREAMING")
+    int updateStreamingContent(@Param("id") UUID id, @Param("content") String content);
+
+    /**
+     * Moves an interviewer placeholder to STREAMING if its status is one of {@code from}. Returns 0 if it was
+     * not, so of two runs of one turn only one starts it.
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.messageStatus = com.example.aimock.messages.model.MessageStatus.STREAMING, " +
+           "m.updatedAt = CURRENT_TIMESTAMP WHERE m.id = :id AND m.messageStatus IN :from")
+    int startStreaming(@Param("id") UUID id, @Param("from") Collection<MessageStatus> from);
+
+    /**
+     * Saves the final reply of a STREAMING message as COMPLETED. Returns 0, and changes nothing, if the
+     * message is no longer STREAMING because another run of the turn already finished it.
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.content = :content, m.tokenCount = :tokenCount, " +
+           "m.messageStatus = com.example.aimock.messages.model.MessageStatus.COMPLETED, " +
+           "m.updatedAt = CURRENT_TIMESTAMP WHERE m.id = :id " +
+           "AND m.messageStatus = com.example.aimock.messages.model.MessageStatus.STREAMING")
+    int completeStreaming(@Param("id") UUID id, @Param("content") String content, @Param("tokenCount") int tokenCount);
+
+    /**
+     * Marks a PENDING or STREAMING message FAILED. Returns 0 if it had already finished.
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.messageStatus = com.example.aimock.messages.model.MessageStatus.FAILED, " +
+           "m.updatedAt = CURRENT_TIMESTAMP WHERE m.id = :id " +
+           "AND m.messageStatus IN (com.example.aimock.messages.model.MessageStatus.PENDING, " +
+           "com.example.aimock.messages.model.MessageStatus.STREAMING)")
+    int failUnfinished(@Param("id") UUID id);
     
+    /**
+     * Inserts a turn in one statement: the user message and, at the next seq, an empty PENDING interviewer
+     * placeholder with the given id. Nothing is inserted if the session already has a message with the user
+     * message's idempotency key; the unique index decides, so concurrent duplicates cannot both get in.
+     * Returns 1 if the turn was inserted, 0 for a duplicate.
+     */
+    @Modifying
+    @Query(value = "WITH user_message AS (" +
+                   "INSERT INTO messages (id, session_id, sequence_number, role, message_status, content, " +
+                   "token_count, idempotency_key, created_at, updated_at) " +
+                   "VALUES (:#{#message.id}, :#{#message.sessionId}, :#{#message.seq}, 'USER', 'COMPLETED', " +
+                   ":#{#message.content}, :#{#message.tokenCount}, CAST(:#{#message.idempotencyKey} AS VARCHAR), " +
+                   "LOCALTIMESTAMP, LOCALTIMESTAMP) " +
+                   "ON CONFLICT (session_id, idempotency_key) WHERE idempotency_key IS NOT NULL DO NOTHING " +
+                   "RETURNING session_id, sequence_number) " +
+                   "INSERT INTO messages (id, session_id, sequence_number, role, message_status, content, " +
+                   "created_at, updated_at) " +
+                   "SELECT :interviewerMessageId, session_id, sequence_number + 1, 'INTERVIEWER', 'PENDING', '', " +
+                   "LOCALTIMESTAMP, LOCALTIMESTAMP FROM user_message", nativeQuery = true)
+    int insertTurn(@Param("message") Message userMessage, @Param("interviewerMessageId") UUID interviewerMessageId);
+
     /**
      * Find a message by session and idempotency key.
      * Used to detect duplicate requests and return the existing message.
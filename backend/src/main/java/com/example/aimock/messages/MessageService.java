@@ -1,12 +1,16 @@
 package com.example.aimock.messages;
 
-import com.example.aimock.auth.user.User;
-import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.ai.prompt.TokenCounter;
 import com.example.aimock.exception.MessageLimitExceededException;
 import com.example.aimock.exception.ResourceNotFoundException;
+import com.example.aimock.messages.dto.HistoryMessage;
 import com.example.aimock.messages.dto.MessageCreationResult;
 import com.example.aimock.messages.events.AiJobRequestedEvent;
 import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.outbox.AiJobOutboxEntry;
+import com.example.aimock.messages.outbox.AiJobOutboxRepository;
+import com.example.aimock.quota.MessageQuotaService;
+import com.example.aimock.session.ConversationCache;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.InterviewSessionRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +19,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,9 +35,13 @@ public class MessageService {
 
     private final MessageRepository messageRepository;
     private final InterviewSessionRepository sessionRepository;
-    private final UserRepository userRepository;
-    private final SQSService sqsService;
+    private final MessageQuotaService messageQuotaService;
     private final ApplicationEventPublisher eventPublisher;
+    private final TokenCounter tokenCounter;
+    private final ConversationCache conversationCache;
+    private final AiJobOutboxRepository outboxRepository;
+    private final SQSService sqsService;
+    private final IdempotencyCache idempotencyCache;
 
     @Transactional(readOnly = true)
     public List<Message> getMessages(UUID sessionId, Long cursorSeq, Integer limit) {
@@ -44,7 +53,11 @@ public class MessageService {
     }
 
     /**
-     * Creates a user message and enqueues AI processing.
+     * Creates a user message and enqueues AI processing. The AI job is written in the same transaction, so it
+     * is queued if and only if the messages are committed: straight into a queue that joins the transaction
+     * ({@link SQSService#joinsTransaction}, the Postgres job queue), otherwise into the outbox.
+     *
+     * @throws MessageLimitExceededException if the user has no messages left
      */
     @Transactional
     public MessageCreationResult createUserMessageAndEnqueue(
@@ -53,73 +66,90 @@ public class MessageService {
             String content,
             String idempotencyKey) {
         
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-        
-        if (!user.hasMessagesRemaining()) {
-            log.warn("Message limit exceeded for user: userId={}, tier={}, count={}, limit={}",
-                    userId, user.getTier(), user.getMessageCount(), user.getMessageLimit());
-            throw new MessageLimitExceededException(
-                    user.getMessageLimit(), 
-                    user.getMessageCount(), 
-                    user.getTier()
-            );
+        // A blank key is no key: stored as null, so it never collides with another blank one
+        String key = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey : null;
+        if (key != null) {
+            Optional<MessageCreationResult> cached = idempotencyCache.lookup(sessionId, key);
+            if (cached.isPresent()) {
+                log.info("Idempotency hit (cache): sessionId={}, idempotencyKey={}", sessionId, key);
+                return cached.get();
+            }
         }
         
-        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
-            Optional<MessageCreationResult> existing = checkIdempotency(sessionId, idempotencyKey);
-            if (existing.isPresent()) {
-                log.info("Idempotency hit (fast path): sessionId={}, idempotencyKey={}", 
-                        sessionId, idempotencyKey);
-                return existing.get();
+        // A user with no messages left is refused before anything is locked or written. A retry of a send that
+        // was accepted, and missed the cache, still gets its result.
+        try {
+            messageQuotaService.checkMessageAvailable(userId);
+        } catch (MessageLimitExceededException e) {
+            Optional<MessageCreationResult> existing = key != null ? checkIdempotency(sessionId, key) : Optional.empty();
+            if (existing.isEmpty()) {
+                throw e;
             }
+            log.info("Idempotency hit (at limit): sessionId={}, idempotencyKey={}", sessionId, key);
+            return existing.get();
         }
-        
+
+        // Counted before the session row is locked, to keep other appends to the session waiting less
+        int userTokens = tokenCounter.count(content);
+
         InterviewSession session = sessionRepository
-            .findByIdAndUserIdForUpdate(sessionId, userId)
+            .allocateSeqs(sessionId, userId, 2)
             .orElseThrow(() -> new ResourceNotFoundException("Session", "id", sessionId));
         
-        log.debug("Acquired lock on session: sessionId={}", sessionId);
-        
-        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
-            Optional<MessageCreationResult> existing = checkIdempotency(sessionId, idempotencyKey);
-            if (existing.isPresent()) {
-                log.info("Idempotency hit (under lock): sessionId={}, idempotencyKey={}", 
-                        sessionId, idempotencyKey);
-                return existing.get();
-            }
-        }
-        
-        long userSeq = session.allocateSeq();
-        long interviewerSeq = session.allocateSeq();
+        long userSeq = session.getNextSeq() - 2;
+        long interviewerSeq = session.getNextSeq() - 1;
         
         log.debug("Allocated sequences: userSeq={}, interviewerSeq={}", userSeq, interviewerSeq);
         
-        Message userMessage = Message.user(content, sessionId, userSeq, idempotencyKey);
-        userMessage = messageRepository.save(userMessage);
-        
-        Message interviewerPlaceholder = Message.interviewer("", sessionId, interviewerSeq);
-        interviewerPlaceholder = messageRepository.save(interviewerPlaceholder);
-        
-        sessionRepository.save(session);
+        Message userMessage = Message.user(content, sessionId, userSeq, key);
+        userMessage.setId(UUID.randomUUID());
+        userMessage.setTokenCount(userTokens);
+        UUID interviewerMessageId = UUID.randomUUID();
+        if (messageRepository.insertTurn(userMessage, interviewerMessageId) == 0) {
+            // An earlier send with this key committed first (its retry missed the cache, e.g. on another
+            // node). The two seqs just reserved stay unused; seqs only need to be increasing, not contiguous.
+            MessageCreationResult existing = checkIdempotency(sessionId, key)
+                    .orElseThrow(() -> new IllegalStateException("Duplicate idempotency key without a message"));
+            idempotencyCache.duplicate(sessionId, key, existing);
+            log.info("Idempotency hit (unique index): sessionId={}, idempotencyKey={}", sessionId, key);
+            return existing;
+        }
         
-        user.incrementMessageCount();
-        userRepository.save(user);
+        // Registered before the AI job event so the cache is updated before processing can start
+        conversationCache.messagesCreated(session, new HistoryMessage(userMessage.getId(), userSeq,
+                userMessage.getRole(), userMessage.getContent(), userMessage.getTokenCount()), interviewerSeq);
+
+        if (sqsService.joinsTransaction()) {
+            // Already complete, and its workers are woken on commit; a failed insert rolls the send back
+            sqsService.enqueueMessageJob(interviewerMessageId, sessionId, content).join();
+        } else {
+            outboxRepository.save(AiJobOutboxEntry.of(interviewerMessageId, sessionId, content,
+                    Instant.now()));
+            // Wakes this node's relay once the transaction commits
+            eventPublisher.publishEvent(new AiJobRequestedEvent(
+                    interviewerMessageId,
+                    sessionId,
+                    content
+            ));
+        }
         
+        // The real take, last, so the users row is locked only until the commit right after it: a user's sends
+        // to other sessions do not wait on this one's session row lock and inserts. A send that passed the
+        // check above but lost the last message to a concurrent one is refused here and rolls all of it back.
+        int remainingMessages = messageQuotaService.takeMessage(userId);
+
         log.info("Created messages: userMessageId={}, interviewerMessageId={}, sessionId={}, remainingMessages={}", 
-                userMessage.getId(), interviewerPlaceholder.getId(), sessionId, user.getRemainingMessages());
+                userMessage.getId(), interviewerMessageId, sessionId, remainingMessages);
         
-        eventPublisher.publishEvent(new AiJobRequestedEvent(
-                interviewerPlaceholder.getId(),
-                sessionId,
-                content
-        ));
-        
-        return new MessageCreationResult(userMessage.getId(), interviewerPlaceholder.getId());
+        MessageCreationResult result = new MessageCreationResult(userMessage.getId(), interviewerMessageId);
+        if (key != null) {
+            idempotencyCache.created(sessionId, key, result);
+        }
+        return result;
     }
     
     /**
-     * Check if a message with this idempotency key already exists.
+     * The result of the earlier send with this idempotency key, if there was one.
      */
     private Optional<MessageCreationResult> checkIdempotency(UUID sessionId, String idempotencyKey) {
         return messageRepository.findBySessionIdAndIdempotencyKey(sessionId, idempotencyKey)
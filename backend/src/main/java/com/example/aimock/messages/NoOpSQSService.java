@@ -1,40 +1,52 @@
 package com.example.aimock.messages;
 
 import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.AiJobExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Primary;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * No-op SQS implementation that processes AI messages directly (synchronously in async thread).
- * Used when SQS is disabled (local development).
+ * No-op SQS implementation that processes AI messages directly on the bounded {@link AiJobExecutor}.
+ * Used when neither SQS nor the Postgres job queue is enabled (local development). The caller returns as
+ * soon as the job is queued; when the executor is full the turn is failed straight away with a busy
+ * ai_failed event.
+ * With app.ai.reactive.enabled=true the job is subscribed to instead, since it holds no thread.
  * 
  * Note: No @Transactional here - AIMessageProcessor manages its own short transactions.
  */
 @Service
 @Primary
-@ConditionalOnProperty(name = "app.sqs.enabled", havingValue = "false", matchIfMissing = true)
+@ConditionalOnExpression("!${app.sqs.enabled:false} and !${app.pgqueue.enabled:false}")
 @Slf4j
 @RequiredArgsConstructor
 public class NoOpSQSService implements SQSService {
 
     private final AIMessageProcessor aiMessageProcessor;
+    private final AiJobExecutor aiJobExecutor;
 
     @Override
-    @Async
-    public void enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent) {
+    public CompletableFuture<Void> enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent) {
         log.info("SQS disabled: processing AI message directly. interviewerMessageId={}, sessionId={}",
                 interviewerMessageId, sessionId);
-        try {
-            aiMessageProcessor.processMessage(interviewerMessageId, sessionId, userContent);
-        } catch (Exception e) {
-            log.error("Error processing AI message directly (SQS disabled): interviewerMessageId={}, sessionId={}",
-                    interviewerMessageId, sessionId, e);
+        if (aiMessageProcessor.isReactiveEnabled()) {
+            // Returns immediately; failures are already mapped to a FAILED result + ai_failed event
+            aiMessageProcessor.processMessageReactive(interviewerMessageId, sessionId, userContent).subscribe();
+            return CompletableFuture.completedFuture(null);
         }
+        aiJobExecutor.execute(() -> {
+            try {
+                aiMessageProcessor.processMessage(interviewerMessageId, sessionId, userContent);
+            } catch (Exception e) {
+                log.error("Error processing AI message directly (SQS disabled): interviewerMessageId={}, sessionId={}",
+                        interviewerMessageId, sessionId, e);
+            }
+        }, () -> aiMessageProcessor.rejectMessage(interviewerMessageId, sessionId));
+        return CompletableFuture.completedFuture(null);
     }
 }
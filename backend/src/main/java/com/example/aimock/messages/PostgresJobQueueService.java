@@ -0,0 +1,58 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.jobs.PostgresJobQueue;
+import com.example.aimock.jobs.PostgresJobWorker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Enqueues AI jobs in the {@code ai_jobs} table for {@link PostgresJobWorker}s on every node
+ * (app.pgqueue.enabled=true, PostgreSQL only). The row is written in the caller's transaction
+ * ({@link #joinsTransaction}), so {@code MessageService} queues each job in the send's own transaction,
+ * with no outbox row, and each job is queued exactly once; this node's workers are woken once it commits,
+ * other nodes' by NOTIFY. Takes precedence over SQS when both are enabled.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.pgqueue.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresJobQueueService implements SQSService {
+
+    private final PostgresJobQueue jobQueue;
+    private final PostgresJobWorker jobWorker;
+
+    @Override
+    public CompletableFuture<Void> enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent) {
+        try {
+            jobQueue.enqueue(interviewerMessageId, sessionId, userContent);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    jobWorker.wakeUp();
+                }
+            });
+        } else {
+            jobWorker.wakeUp();
+        }
+        log.debug("Enqueued AI job in Postgres: interviewerMessageId={}, sessionId={}", interviewerMessageId, sessionId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean joinsTransaction() {
+        return true;
+    }
+}
@@ -1,31 +1,36 @@
 package com.example.aimock.messages;
 
 import com.example.aimock.ai.dto.AIProcessingRequest;
+import com.example.aimock.sqs.SqsBatcher;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Enqueues AI jobs on SQS through {@link SqsBatcher}; the returned future completes once SQS accepted the
+ * message (after the batcher's own retries).
+ */
 @Service
 @ConditionalOnProperty(name = "app.sqs.enabled", havingValue = "true")
 @RequiredArgsConstructor
 @Slf4j
 public class RealSQSService implements SQSService {
 
-    private final SqsClient sqsClient;
+    private final SqsBatcher sqsBatcher;
     private final ObjectMapper objectMapper;
 
     @Value("${app.sqs.queue-url:}")
     private String queueUrl;
 
     @Override
-    public void enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent) {
+    public CompletableFuture<Void> enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent) {
         try {
             // Keep message format compatible with AIProcessingRequest
             String body = objectMapper.writeValueAsString(new AIProcessingRequest(
@@ -37,8 +42,7 @@ public class RealSQSService implements SQSService {
 
             boolean fifo = queueUrl != null && queueUrl.endsWith(".fifo");
 
-            SendMessageRequest.Builder req = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
+            SendMessageBatchRequestEntry.Builder req = SendMessageBatchRequestEntry.builder()
                     .messageBody(body);
 
             // FIFO queues REQUIRE MessageGroupId, and require MessageDeduplicationId unless
@@ -48,12 +52,14 @@ public class RealSQSService implements SQSService {
                         .messageDeduplicationId(interviewerMessageId.toString());
             }
 
-            sqsClient.sendMessage(req.build());
-
-            log.info("Enqueued AI job to SQS: interviewerMessageId={}, sessionId={}, fifo={}",
-                    interviewerMessageId, sessionId, fifo);
+            return sqsBatcher.send(req.build()).whenComplete((ignored, error) -> {
+                if (error == null) {
+                    log.info("Enqueued AI job to SQS: interviewerMessageId={}, sessionId={}, fifo={}",
+                            interviewerMessageId, sessionId, fifo);
+                }
+            });
         } catch (Exception e) {
-            throw new RuntimeException("Failed to enqueue SQS message", e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to enqueue SQS message", e));
         }
     }
 }
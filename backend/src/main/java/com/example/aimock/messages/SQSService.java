@@ -1,8 +1,21 @@
 package com.example.aimock.messages;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface SQSService {
 
-    void enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent);
+    /**
+     * Hands the job to the queue. The future completes once the queue has accepted it, and exceptionally
+     * if it could not be queued, in which case the caller may retry.
+     */
+    CompletableFuture<Void> enqueueMessageJob(UUID interviewerMessageId, UUID sessionId, String userContent);
+
+    /**
+     * Whether {@link #enqueueMessageJob} writes in the caller's transaction, so a job handed over inside one
+     * is queued if and only if that transaction commits, and its future is already complete on return.
+     */
+    default boolean joinsTransaction() {
+        return false;
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.aimock.messages.dto;
+
+import com.example.aimock.messages.model.MessageRole;
+
+import java.util.UUID;
+
+/**
+ * Read-only projection of a message as sent to the model: no persistence context, no timestamps.
+ *
+ * @param tokenCount cached token count, or null if the message has not been counted yet
+ */
+public record HistoryMessage(UUID id, Long seq, MessageRole role, String content, Integer tokenCount) {
+
+    public HistoryMessage withTokenCount(int tokenCount) {
+        return new HistoryMessage(id, seq, role, content, tokenCount);
+    }
+}
@@ -1,28 +1,26 @@
 package com.example.aimock.messages.events;
 
-import com.example.aimock.messages.SQSService;
+import com.example.aimock.messages.outbox.AiJobOutboxRelay;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
 
+/**
+ * The job itself is already in the outbox; this only spares the relay its poll interval.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class AiJobRequestedListener {
 
-    private final SQSService sqsService;
+    private final AiJobOutboxRelay outboxRelay;
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void on(AiJobRequestedEvent event) {
-        log.debug("After-commit enqueue: interviewerMessageId={}, sessionId={}",
+        log.debug("After-commit outbox wake-up: interviewerMessageId={}, sessionId={}",
                 event.interviewerMessageId(), event.sessionId());
-        sqsService.enqueueMessageJob(
-                event.interviewerMessageId(),
-                event.sessionId(),
-                event.userContent()
-        );
+        outboxRelay.wakeUp();
     }
 }
-
@@ -63,6 +63,13 @@ public class Message {
     @Column(name = "content", nullable = false)
     private String content;
 
+    /**
+     * Cached token count of {@link #content} in the chat model's encoding.
+     * Null until counted; reset whenever the content changes.
+     */
+    @Column(name = "token_count")
+    private Integer tokenCount;
+
     @Column(name = "audio_url")
     private String audioUrl;
     
@@ -117,12 +124,12 @@ public class Message {
             .messageStatus(MessageStatus.PENDING)
             .build();
     }
-    public void appendDelta(String delta) {
-        if (delta == null || delta.isEmpty()) {
-            return;
-        }
-        this.content = (this.content == null ? "" : this.content) + delta;
+
+    public void setContent(String content) {
+        this.content = content;
+        this.tokenCount = null;
     }
+
     
     public void markComplete() {
         this.messageStatus = MessageStatus.COMPLETED;
@@ -0,0 +1,92 @@
+package com.example.aimock.messages.model;
+
+/**
+ * Accumulates the streamed deltas of an interviewer message and materializes its content once.
+ *
+ * Deltas are appended to a single buffer (amortized O(1) per delta, unlike re-concatenating the whole
+ * content per token) and {@link #toString()} copies it out once, reusing the result until the next append.
+ * Buffers created from a {@link SizeHint} start at the expected response length, so a typical response
+ * never regrows. Not thread-safe: a stream delivers its deltas one at a time.
+ */
+public final class StreamingContent {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final StringBuilder buffer;
+    private final SizeHint sizeHint;
+    private String materialized;
+
+    public StreamingContent() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    private StreamingContent(int capacity, SizeHint sizeHint) {
+        this.buffer = new StringBuilder(capacity);
+        this.sizeHint = sizeHint;
+    }
+
+    /**
+     * Continues after existing content, e.g. a placeholder that already holds text.
+     */
+    public static StreamingContent after(String existing) {
+        return new StreamingContent().append(existing);
+    }
+
+    public StreamingContent append(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return this;
+        }
+        buffer.append(delta);
+        materialized = null;
+        return this;
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    /**
+     * Copy of the content so far, for intermediate checkpoints; does not count as the materialized result.
+     */
+    public String snapshot() {
+        return buffer.toString();
+    }
+
+    @Override
+    public String toString() {
+        if (materialized == null) {
+            materialized = buffer.toString();
+            if (sizeHint != null) {
+                sizeHint.record(materialized.length());
+            }
+        }
+        return materialized;
+    }
+
+    /**
+     * Running estimate of response length (moving average of materialized lengths) used to presize buffers.
+     */
+    public static final class SizeHint {
+
+        private volatile int expectedChars = DEFAULT_CAPACITY;
+
+        public StreamingContent newContent() {
+            int expected = expectedChars;
+            // Headroom for responses somewhat longer than average
+            return new StreamingContent(expected + expected / 4, this);
+        }
+
+        public int expectedChars() {
+            return expectedChars;
+        }
+
+        void record(int length) {
+            // Racy read-modify-write is fine for an estimate
+            expectedChars = Math.max(16, (expectedChars * 7 + length) / 8);
+        }
+    }
+}
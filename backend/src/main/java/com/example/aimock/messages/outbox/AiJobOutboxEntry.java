@@ -0,0 +1,66 @@
+package com.example.aimock.messages.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An AI job committed together with its placeholder message and not yet handed to {@code SQSService}.
+ * Rows are removed by {@link AiJobOutboxRelay} once the queue has accepted the job.
+ */
+@Entity
+@Table(name = "ai_job_outbox", indexes = {
+    @Index(name = "idx_ai_job_outbox_available", columnList = "available_at, id")
+})
+@NoArgsConstructor
+@Getter
+@Setter
+public class AiJobOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, updatable = false)
+    private Long id;
+
+    @Column(name = "interviewer_message_id", nullable = false)
+    private UUID interviewerMessageId;
+
+    @Column(name = "session_id", nullable = false)
+    private UUID sessionId;
+
+    @Column(name = "user_content", nullable = false)
+    private String userContent;
+
+    /**
+     * Failed hand-offs so far; the row is retried from {@link #availableAt}.
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public static AiJobOutboxEntry of(UUID interviewerMessageId, UUID sessionId, String userContent,
+                                      Instant now) {
+        AiJobOutboxEntry entry = new AiJobOutboxEntry();
+        entry.interviewerMessageId = interviewerMessageId;
+        entry.sessionId = sessionId;
+        entry.userContent = userContent;
+        entry.availableAt = now;
+        entry.createdAt = now;
+        return entry;
+    }
+}
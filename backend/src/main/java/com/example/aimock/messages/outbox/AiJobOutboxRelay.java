@@ -0,0 +1,313 @@
+package com.example.aimock.messages.outbox;
+
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.jobs.PgNotificationListener;
+import com.example.aimock.messages.SQSService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code ai_job_outbox} into {@link SQSService}.
+ *
+ * Each pass claims up to {@code batch-size} due rows in a short transaction: it locks them with
+ * {@code FOR UPDATE SKIP LOCKED} and leases them by moving {@code available_at} twice the
+ * {@code send-timeout} ahead, so no relay picks them up again meanwhile. The jobs are then handed to the
+ * queue with no transaction, connection or row lock held, and a second short transaction settles them:
+ * accepted rows are deleted, a row the queue did not accept is retried after {@code retry-backoff} times its
+ * attempts, and after {@code max-attempts} it is deleted and its turn is failed with {@code ai_failed} once
+ * that transaction has committed. Delivery is at-least-once: a crash after the queue accepted a job but
+ * before the settle commits sends it again when the lease runs out.
+ *
+ * A queue that writes in this database ({@link SQSService#joinsTransaction}, the Postgres job queue) gets
+ * its jobs straight from {@code MessageService}, with no outbox row. Rows written before such a queue was
+ * enabled are handed to it inside the transaction that locks and deletes them, so each job is queued
+ * exactly once. A failed insert rolls the whole pass back and the rows are retried on the next one.
+ *
+ * The relay wakes up when this node commits a job, on {@code NOTIFY ai_job_outbox} from any node
+ * (PostgreSQL only) and otherwise every {@code poll-interval}.
+ */
+@Component
+@Slf4j
+public class AiJobOutboxRelay {
+
+    static final String CHANNEL = "ai_job_outbox";
+
+    private final AiJobOutboxRepository outboxRepository;
+    private final SQSService sqsService;
+    private final AIMessageProcessor aiMessageProcessor;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration sendTimeout;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final boolean listenEnabled;
+    private final Clock clock;
+    private final Timer aiOutboxLag;
+    private final Counter aiOutboxAbandoned;
+    private final AtomicInteger aiOutboxPendingGauge;
+    private final AtomicLong aiOutboxOldestAgeGauge;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Thread> threads = new ArrayList<>();
+    private PgNotificationListener listener;
+    private volatile boolean running;
+
+    @Autowired
+    public AiJobOutboxRelay(AiJobOutboxRepository outboxRepository, SQSService sqsService,
+                            AIMessageProcessor aiMessageProcessor, PlatformTransactionManager transactionManager,
+                            DataSource dataSource,
+                            @Value("${app.ai.outbox.batch-size:50}") int batchSize,
+                            @Value("${app.ai.outbox.poll-interval:PT1S}") Duration pollInterval,
+                            @Value("${app.ai.outbox.send-timeout:PT30S}") Duration sendTimeout,
+                            @Value("${app.ai.outbox.max-attempts:5}") int maxAttempts,
+                            @Value("${app.ai.outbox.retry-backoff:PT2S}") Duration retryBackoff,
+                            @Value("${app.ai.outbox.listen-enabled:true}") boolean listenEnabled,
+                            Timer aiOutboxLag, Counter aiOutboxAbandoned,
+                            AtomicInteger aiOutboxPendingGauge, AtomicLong aiOutboxOldestAgeGauge) {
+        this(outboxRepository, sqsService, aiMessageProcessor, new TransactionTemplate(transactionManager),
+                dataSource, batchSize, pollInterval, sendTimeout, maxAttempts, retryBackoff, listenEnabled,
+                Clock.systemUTC(), aiOutboxLag, aiOutboxAbandoned, aiOutboxPendingGauge,
+                aiOutboxOldestAgeGauge);
+    }
+
+    AiJobOutboxRelay(AiJobOutboxRepository outboxRepository, SQSService sqsService,
+                     AIMessageProcessor aiMessageProcessor, TransactionTemplate transactionTemplate,
+                     DataSource dataSource, int batchSize, Duration pollInterval, Duration sendTimeout,
+                     int maxAttempts, Duration retryBackoff, boolean listenEnabled, Clock clock,
+                     Timer aiOutboxLag, Counter aiOutboxAbandoned,
+                     AtomicInteger aiOutboxPendingGauge, AtomicLong aiOutboxOldestAgeGauge) {
+        this.outboxRepository = outboxRepository;
+        this.sqsService = sqsService;
+        this.aiMessageProcessor = aiMessageProcessor;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSource = dataSource;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollInterval = pollInterval;
+        this.sendTimeout = sendTimeout;
+        this.lease = sendTimeout.multipliedBy(2);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.listenEnabled = listenEnabled;
+        this.clock = clock;
+        this.aiOutboxLag = aiOutboxLag;
+        this.aiOutboxAbandoned = aiOutboxAbandoned;
+        this.aiOutboxPendingGauge = aiOutboxPendingGauge;
+        this.aiOutboxOldestAgeGauge = aiOutboxOldestAgeGauge;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        threads.add(Thread.ofPlatform().name("ai-outbox-relay").daemon(true).start(this::relayLoop));
+        if (listenEnabled && PgNotificationListener.isPostgres(dataSource)) {
+            listener = new PgNotificationListener(dataSource, CHANNEL, pollInterval, this::wakeUp);
+            listener.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.stop();
+        }
+        threads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Makes the relay run a pass now instead of at the end of its poll interval.
+     */
+    public void wakeUp() {
+        wakeups.release();
+    }
+
+    private void relayLoop() {
+        long nextStatsAt = 0;
+        while (running) {
+            try {
+                int relayed = relayBatch();
+                if (System.nanoTime() - nextStatsAt >= 0) {
+                    refreshGauges();
+                    nextStatsAt = System.nanoTime() + pollInterval.toNanos();
+                }
+                if (relayed < batchSize) {
+                    // A full batch means more are probably due; otherwise sleep until woken or the next sweep
+                    wakeups.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("AI job outbox relay pass failed", e);
+                sleepQuietly(pollInterval);
+            }
+        }
+    }
+
+    /**
+     * One pass: claims, hands off and settles up to {@code batch-size} due rows. Returns how many it claimed.
+     */
+    int relayBatch() {
+        if (sqsService.joinsTransaction()) {
+            return relayInTransaction();
+        }
+        List<AiJobOutboxEntry> due = transactionTemplate.execute(status -> claim(Instant.now(clock)));
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>(due.size());
+        for (AiJobOutboxEntry entry : due) {
+            sends.add(handOff(entry));
+        }
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<AiJobOutboxEntry> accepted = new ArrayList<>(due.size());
+        List<AiJobOutboxEntry> refused = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            (await(due.get(i), sends.get(i), deadline) ? accepted : refused).add(due.get(i));
+        }
+
+        List<AiJobOutboxEntry> abandoned = transactionTemplate.execute(status -> settle(accepted, refused));
+        // Only after the settle committed, so a turn still in the outbox is never reported as failed
+        for (AiJobOutboxEntry entry : abandoned == null ? List.<AiJobOutboxEntry>of() : abandoned) {
+            aiOutboxAbandoned.increment();
+            aiMessageProcessor.rejectMessage(entry.getInterviewerMessageId(), entry.getSessionId());
+        }
+        return due.size();
+    }
+
+    private int relayInTransaction() {
+        List<AiJobOutboxEntry> relayed = transactionTemplate.execute(status -> {
+            List<AiJobOutboxEntry> due = outboxRepository.lockDue(Instant.now(clock), batchSize);
+            for (AiJobOutboxEntry entry : due) {
+                // Already complete; a failed insert is rethrown and rolls the pass back
+                sqsService.enqueueMessageJob(entry.getInterviewerMessageId(), entry.getSessionId(),
+                        entry.getUserContent()).join();
+            }
+            if (!due.isEmpty()) {
+                outboxRepository.deleteByIds(ids(due));
+            }
+            return due;
+        });
+        if (relayed == null) {
+            return 0;
+        }
+        Instant now = Instant.now(clock);
+        for (AiJobOutboxEntry entry : relayed) {
+            aiOutboxLag.record(Duration.between(entry.getCreatedAt(), now));
+        }
+        return relayed.size();
+    }
+
+    private List<AiJobOutboxEntry> claim(Instant now) {
+        List<AiJobOutboxEntry> due = outboxRepository.lockDue(now, batchSize);
+        if (!due.isEmpty()) {
+            outboxRepository.lease(ids(due), now.plus(lease));
+        }
+        return due;
+    }
+
+    private CompletableFuture<Void> handOff(AiJobOutboxEntry entry) {
+        try {
+            return sqsService.enqueueMessageJob(entry.getInterviewerMessageId(), entry.getSessionId(),
+                    entry.getUserContent());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for the queue's answer; true if it accepted the job. A refusal or timeout counts an attempt.
+     */
+    private boolean await(AiJobOutboxEntry entry, CompletableFuture<Void> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            aiOutboxLag.record(Duration.between(entry.getCreatedAt(), Instant.now(clock)));
+            return true;
+        } catch (InterruptedException e) {
+            // The claimed rows are retried once their lease runs out
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying AI jobs", e);
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            entry.setAttempts(entry.getAttempts() + 1);
+            log.warn("AI job not queued (attempt {}/{}): interviewerMessageId={}, sessionId={}: {}",
+                    entry.getAttempts(), maxAttempts, entry.getInterviewerMessageId(), entry.getSessionId(),
+                    cause.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Deletes accepted rows and reschedules refused ones; returns the refused rows that ran out of attempts,
+     * which are deleted too.
+     */
+    private List<AiJobOutboxEntry> settle(List<AiJobOutboxEntry> accepted, List<AiJobOutboxEntry> refused) {
+        Instant now = Instant.now(clock);
+        List<Long> done = ids(accepted);
+        List<AiJobOutboxEntry> abandoned = new ArrayList<>();
+        for (AiJobOutboxEntry entry : refused) {
+            if (entry.getAttempts() >= maxAttempts) {
+                done.add(entry.getId());
+                abandoned.add(entry);
+            } else {
+                outboxRepository.reschedule(entry.getId(), entry.getAttempts(),
+                        now.plus(retryBackoff.multipliedBy(entry.getAttempts())));
+            }
+        }
+        if (!done.isEmpty()) {
+            outboxRepository.deleteByIds(done);
+        }
+        return abandoned;
+    }
+
+    private static List<Long> ids(List<AiJobOutboxEntry> entries) {
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (AiJobOutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    void refreshGauges() {
+        aiOutboxPendingGauge.set((int) Math.min(Integer.MAX_VALUE, outboxRepository.count()));
+        Instant oldest = outboxRepository.findOldestCreatedAt();
+        aiOutboxOldestAgeGauge.set(oldest == null ? 0
+                : Math.max(0, Duration.between(oldest, Instant.now(clock)).toMillis()));
+    }
+
+    private void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.aimock.messages.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface AiJobOutboxRepository extends JpaRepository<AiJobOutboxEntry, Long> {
+
+    /**
+     * Locks up to {@code limit} due rows, oldest first. Rows another relay has locked are skipped rather
+     * than waited on, so relays on several nodes drain disjoint batches.
+     */
+    @Query(value = "SELECT * FROM ai_job_outbox WHERE available_at <= :now ORDER BY id LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AiJobOutboxEntry> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Leases claimed rows to one relay: they are not due again, for any relay, before {@code leaseUntil}.
+     */
+    @Modifying
+    @Query("UPDATE AiJobOutboxEntry o SET o.availableAt = :leaseUntil WHERE o.id IN :ids")
+    int lease(@Param("ids") List<Long> ids, @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("UPDATE AiJobOutboxEntry o SET o.attempts = :attempts, o.availableAt = :availableAt WHERE o.id = :id")
+    int reschedule(@Param("id") Long id, @Param("attempts") int attempts,
+                   @Param("availableAt") Instant availableAt);
+
+    @Modifying
+    @Query("DELETE FROM AiJobOutboxEntry o WHERE o.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Query("SELECT MIN(o.createdAt) FROM AiJobOutboxEntry o")
+    Instant findOldestCreatedAt();
+}
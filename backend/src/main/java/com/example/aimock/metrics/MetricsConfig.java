@@ -1,6 +1,8 @@
 package com.example.aimock.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
@@ -8,6 +10,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuration for custom application metrics.
@@ -49,6 +52,57 @@ public class MetricsConfig {
                 .register(meterRegistry);
     }
 
+    /**
+     * Counters for coalesced ai_delta frames; rate() gives frames/sec and bytes/sec,
+     * tokens/frames gives the coalescing ratio
+     */
+    @Bean
+    public Counter websocketDeltaFrames() {
+        return Counter.builder("websocket.delta.frames")
+                .description("Total number of ai_delta frames published")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter websocketDeltaBytes() {
+        return Counter.builder("websocket.delta.bytes")
+                .description("Total ai_delta payload bytes published")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter websocketDeltaTokens() {
+        return Counter.builder("websocket.delta.tokens")
+                .description("Total number of model token chunks fed into the delta coalescer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counters for stream resume requests, tagged by whether the replay buffer could serve them
+     */
+    @Bean
+    public Counter websocketReplayHits() {
+        return websocketReplay("hit");
+    }
+
+    @Bean
+    public Counter websocketReplayTruncated() {
+        return websocketReplay("truncated");
+    }
+
+    @Bean
+    public Counter websocketReplayMisses() {
+        return websocketReplay("miss");
+    }
+
+    private Counter websocketReplay(String result) {
+        return Counter.builder("websocket.replay.requests")
+                .description("Stream resume requests by replay buffer result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
     /**
      * Timer for AI response generation
      */
@@ -72,6 +126,427 @@ public class MetricsConfig {
                 .register(meterRegistry);
     }
 
+    /**
+     * Counters for hedged streams: second calls started after a late first token, and those that won
+     */
+    @Bean
+    public Counter aiHedgesFired() {
+        return Counter.builder("ai.hedges.fired")
+                .description("Hedge calls started because the first token was later than the live p95")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiHedgesWon() {
+        return Counter.builder("ai.hedges.won")
+                .description("Hedge calls that produced a token before the original call")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gauge for AI streams currently in flight on this node
+     */
+    @Bean
+    public AtomicInteger aiActiveStreamsGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.streams.active", gauge);
+        return gauge;
+    }
+
+    /**
+     * Adaptive concurrency limiter around chat model calls: current limit, calls in flight and queued,
+     * time spent queued, and calls shed
+     */
+    @Bean
+    public AtomicInteger aiLimiterLimitGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.limiter.limit", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public AtomicInteger aiLimiterInflightGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.limiter.inflight", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public AtomicInteger aiLimiterQueuedGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.limiter.queued", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public Timer aiLimiterQueueWait() {
+        return Timer.builder("ai.limiter.queue_wait")
+                .description("Time AI calls waited for a concurrency permit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiLimiterRejectedQueueFull() {
+        return aiLimiterRejected("queue_full");
+    }
+
+    @Bean
+    public Counter aiLimiterRejectedTimeout() {
+        return aiLimiterRejected("timeout");
+    }
+
+    private Counter aiLimiterRejected(String reason) {
+        return Counter.builder("ai.limiter.rejected")
+                .description("AI calls shed by the concurrency limiter")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bounded AI job executor (SQS disabled): jobs waiting and running, time spent waiting, and jobs
+     * rejected because the queue was full
+     */
+    @Bean
+    public AtomicInteger aiJobsQueuedGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.jobs.queued", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public AtomicInteger aiJobsActiveGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.jobs.active", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public Timer aiJobQueueWait() {
+        return Timer.builder("ai.jobs.queue_wait")
+                .description("Time AI jobs waited for an executor thread")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiJobsRejected() {
+        return Counter.builder("ai.jobs.rejected")
+                .description("AI jobs rejected because the executor queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * AI job outbox: commit-to-queue lag, rows waiting and the age of the oldest, and jobs given up on
+     */
+    @Bean
+    public Timer aiOutboxLag() {
+        return Timer.builder("ai.outbox.lag")
+                .description("Time from an AI job's commit to the queue accepting it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public AtomicInteger aiOutboxPendingGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.outbox.pending", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public AtomicLong aiOutboxOldestAgeGauge() {
+        AtomicLong gauge = new AtomicLong(0);
+        Gauge.builder("ai.outbox.oldest_age", gauge, AtomicLong::get)
+                .description("Age of the oldest AI job still in the outbox")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return gauge;
+    }
+
+    @Bean
+    public Counter aiOutboxAbandoned() {
+        return Counter.builder("ai.outbox.abandoned")
+                .description("AI jobs failed after the queue refused them max-attempts times")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Postgres job queue: enqueue-to-claim latency of first attempts, jobs running, retries and
+     * dead-lettered jobs
+     */
+    @Bean
+    public Timer aiPgQueueStartLatency() {
+        return Timer.builder("ai.pgqueue.start_latency")
+                .description("Time from an AI job's enqueue to a worker claiming it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public AtomicInteger aiPgQueueActiveGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("ai.pgqueue.active", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public Counter aiPgQueueRetries() {
+        return Counter.builder("ai.pgqueue.retries")
+                .description("AI jobs claimed again after a failed attempt or a lost lease")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiPgQueueDeadLettered() {
+        return Counter.builder("ai.pgqueue.dead_lettered")
+                .description("AI jobs moved to ai_jobs_dead after max-attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * SQS listener: messages received and not yet finished, messages being processed, and visibility
+     * timeout extensions for long streams
+     */
+    @Bean
+    public AtomicInteger sqsMessagesInflightGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("sqs.messages.inflight", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public AtomicInteger sqsMessagesProcessingGauge() {
+        AtomicInteger gauge = new AtomicInteger(0);
+        meterRegistry.gauge("sqs.messages.processing", gauge);
+        return gauge;
+    }
+
+    @Bean
+    public Counter sqsVisibilityExtensions() {
+        return Counter.builder("sqs.visibility.extensions")
+                .description("SQS messages whose visibility timeout was extended while processing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * SQS micro-batching: entries per DeleteMessageBatch/SendMessageBatch call, entries queued again after
+     * a retryable failure, and entries given up on
+     */
+    @Bean
+    public DistributionSummary sqsDeleteBatchSize() {
+        return sqsBatchSize("delete");
+    }
+
+    @Bean
+    public DistributionSummary sqsSendBatchSize() {
+        return sqsBatchSize("send");
+    }
+
+    @Bean
+    public Counter sqsDeleteRetries() {
+        return sqsBatchEntries("sqs.batch.retries", "SQS batch entries queued again after a retryable failure", "delete");
+    }
+
+    @Bean
+    public Counter sqsSendRetries() {
+        return sqsBatchEntries("sqs.batch.retries", "SQS batch entries queued again after a retryable failure", "send");
+    }
+
+    @Bean
+    public Counter sqsDeleteFailures() {
+        return sqsBatchEntries("sqs.batch.failures", "SQS batch entries given up on", "delete");
+    }
+
+    @Bean
+    public Counter sqsSendFailures() {
+        return sqsBatchEntries("sqs.batch.failures", "SQS batch entries given up on", "send");
+    }
+
+    private DistributionSummary sqsBatchSize(String operation) {
+        return DistributionSummary.builder("sqs.batch.size")
+                .description("Entries per SQS batch call")
+                .baseUnit("entries")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter sqsBatchEntries(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counters for system prompt cache lookups
+     */
+    @Bean
+    public Counter aiPromptCacheHits() {
+        return Counter.builder("ai.prompt.cache")
+                .description("System prompt cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiPromptCacheMisses() {
+        return Counter.builder("ai.prompt.cache")
+                .description("System prompt cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Per-session conversation cache: lookups by kind (session metadata, history) and evictions by cause
+     */
+    @Bean
+    public Counter conversationCacheSessionHits() {
+        return conversationCacheLookups("session", "hit");
+    }
+
+    @Bean
+    public Counter conversationCacheSessionMisses() {
+        return conversationCacheLookups("session", "miss");
+    }
+
+    @Bean
+    public Counter conversationCacheHistoryHits() {
+        return conversationCacheLookups("history", "hit");
+    }
+
+    @Bean
+    public Counter conversationCacheHistoryMisses() {
+        return conversationCacheLookups("history", "miss");
+    }
+
+    @Bean
+    public Counter conversationCacheEvictionsExpired() {
+        return conversationCacheEvictions("expired");
+    }
+
+    @Bean
+    public Counter conversationCacheEvictionsSize() {
+        return conversationCacheEvictions("size");
+    }
+
+    private Counter conversationCacheLookups(String lookup, String result) {
+        return Counter.builder("conversation.cache")
+                .description("Conversation cache lookups")
+                .tag("lookup", lookup)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter conversationCacheEvictions(String cause) {
+        return Counter.builder("conversation.cache.evictions")
+                .description("Conversation cache entries evicted")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prompt size per AI call: local BPE estimate before the call vs. provider-reported usage
+     */
+    @Bean
+    public DistributionSummary aiPromptTokensEstimated() {
+        return DistributionSummary.builder("ai.prompt.tokens")
+                .description("Prompt tokens per AI call")
+                .baseUnit("tokens")
+                .tag("source", "estimated")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public DistributionSummary aiPromptTokensActual() {
+        return DistributionSummary.builder("ai.prompt.tokens")
+                .description("Prompt tokens per AI call")
+                .baseUnit("tokens")
+                .tag("source", "actual")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Long sessions with vs. without a rolling summary: prompt size and TTFT per turn
+     */
+    @Bean
+    public DistributionSummary aiLongSessionPromptTokensSummarized() {
+        return longSessionPromptTokens(true);
+    }
+
+    @Bean
+    public DistributionSummary aiLongSessionPromptTokensFull() {
+        return longSessionPromptTokens(false);
+    }
+
+    @Bean
+    public Timer aiLongSessionTtftSummarized() {
+        return longSessionTtft(true);
+    }
+
+    @Bean
+    public Timer aiLongSessionTtftFull() {
+        return longSessionTtft(false);
+    }
+
+    private DistributionSummary longSessionPromptTokens(boolean summarized) {
+        return DistributionSummary.builder("ai.prompt.tokens.long_session")
+                .description("Estimated prompt tokens per turn in long sessions")
+                .baseUnit("tokens")
+                .tag("summarized", String.valueOf(summarized))
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Timer longSessionTtft(boolean summarized) {
+        return Timer.builder("ai.time_to_first_token.long_session")
+                .description("Time to first AI token in long sessions")
+                .tag("summarized", String.valueOf(summarized))
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Background conversation summarization: duration of the summary call and stored updates
+     */
+    @Bean
+    public Timer aiSummaryDuration() {
+        return Timer.builder("ai.summary.duration")
+                .description("Time to produce a rolling conversation summary")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter aiSummaryUpdates() {
+        return Counter.builder("ai.summary.updates")
+                .description("Rolling conversation summaries stored")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Partial-content checkpoints while streaming: writes per response and characters written to the
+     * message (checkpoints + final save) per character of the final reply
+     */
+    @Bean
+    public DistributionSummary aiCheckpointWrites() {
+        return DistributionSummary.builder("ai.checkpoint.writes")
+                .description("Checkpoint writes per streamed response")
+                .baseUnit("writes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public DistributionSummary aiCheckpointWriteAmplification() {
+        return DistributionSummary.builder("ai.checkpoint.write_amplification")
+                .description("Characters written per character of the final streamed response")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
     /**
      * Counter for AI processing success/failure
      */
@@ -99,4 +574,49 @@ public class MetricsConfig {
                 .tag("type", "total")
                 .register(meterRegistry);
     }
+
+    /**
+     * Messages a user has left after each accepted send; the low percentiles show how many
+     * active users are about to hit their limit
+     */
+    @Bean
+    public DistributionSummary messagesQuotaRemaining() {
+        return DistributionSummary.builder("messages.quota.remaining")
+                .description("Messages the sending user has left after an accepted send")
+                .publishPercentiles(0.05, 0.5)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public Counter messagesQuotaExceeded() {
+        return Counter.builder("messages.quota.exceeded")
+                .description("Sends refused because the user reached their message limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends with an idempotency key: answered from the idempotency cache (hit), or not (miss) and then
+     * caught as a duplicate by the unique index (duplicate)
+     */
+    @Bean
+    public Counter messagesIdempotencyCacheHits() {
+        return messagesIdempotency("hit");
+    }
+
+    @Bean
+    public Counter messagesIdempotencyCacheMisses() {
+        return messagesIdempotency("miss");
+    }
+
+    @Bean
+    public Counter messagesIdempotencyConflicts() {
+        return messagesIdempotency("duplicate");
+    }
+
+    private Counter messagesIdempotency(String result) {
+        return Counter.builder("messages.idempotency")
+                .description("Keyed sends by how their idempotency key was resolved")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
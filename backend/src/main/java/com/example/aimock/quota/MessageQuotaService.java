@@ -0,0 +1,69 @@
+package com.example.aimock.quota;
+
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.exception.MessageLimitExceededException;
+import com.example.aimock.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Per-user message quota. A send takes one message with a single conditional UPDATE of the users row
+ * instead of loading the user, checking the limit in Java and saving the whole entity back, so concurrent
+ * sends cannot go past message_limit between the check and the write.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageQuotaService {
+
+    private final UserRepository userRepository;
+    private final DistributionSummary messagesQuotaRemaining;
+    private final Counter messagesQuotaExceeded;
+
+    /**
+     * Takes one message from the user's quota and returns how many they have left. Joins the caller's
+     * transaction, so the message is given back if the send rolls back.
+     *
+     * @throws MessageLimitExceededException if the user has no messages left
+     */
+    @Transactional
+    public int takeMessage(UUID userId) {
+        Optional<Integer> remaining = userRepository.takeMessage(userId);
+        if (remaining.isPresent()) {
+            messagesQuotaRemaining.record(remaining.get());
+            return remaining.get();
+        }
+        throw limitExceeded(userId);
+    }
+
+    /**
+     * Refuses a send early, with a read that takes no lock, if the user has no messages left. It reserves
+     * nothing: {@link #takeMessage} still takes the message and can refuse a send that passed this check.
+     *
+     * @throws MessageLimitExceededException if the user has no messages left
+     */
+    @Transactional(readOnly = true)
+    public void checkMessageAvailable(UUID userId) {
+        if (userRepository.isAtMessageLimit(userId)) {
+            throw limitExceeded(userId);
+        }
+    }
+
+    private MessageLimitExceededException limitExceeded(UUID userId) {
+        // Only a refused send reads the user, for the counts in the error
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        messagesQuotaExceeded.increment();
+        log.warn("Message limit exceeded for user: userId={}, tier={}, count={}, limit={}",
+                userId, user.getTier(), user.getMessageCount(), user.getMessageLimit());
+        return new MessageLimitExceededException(user.getMessageLimit(), user.getMessageCount(), user.getTier());
+    }
+}
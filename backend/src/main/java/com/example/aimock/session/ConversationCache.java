@@ -0,0 +1,375 @@
+package com.example.aimock.session;
+
+import com.example.aimock.messages.dto.HistoryMessage;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local cache of what an AI turn needs to build its prompt: session metadata and the newest
+ * conversational messages of each active session.
+ *
+ * Writes go through after commit: creating a session seeds an entry, creating a message appends the user
+ * message and registers the interviewer placeholder as pending, and completing the reply adds it.
+ * Completing or aborting the session drops the entry. Entries live at most {@code ttl} from creation and
+ * at most {@code max-sessions} are kept, oldest first out.
+ *
+ * History is only served when the entry can prove it is complete for the requested range: every seq in
+ * it was seen on this node and no placeholder in it is still pending. Anything else (messages written by
+ * another node, replies that streamed elsewhere) is a miss and is read from the database.
+ */
+@Component
+@Slf4j
+public class ConversationCache {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxSessions;
+    private final int messagesPerSession;
+    private final LongSupplier ticker;
+    private final Counter conversationCacheSessionHits;
+    private final Counter conversationCacheSessionMisses;
+    private final Counter conversationCacheHistoryHits;
+    private final Counter conversationCacheHistoryMisses;
+    private final Counter conversationCacheEvictionsExpired;
+    private final Counter conversationCacheEvictionsSize;
+
+    // Insertion-ordered, so the head is always the oldest entry (first to expire, first evicted)
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>();
+
+    @Autowired
+    public ConversationCache(@Value("${app.conversation-cache.enabled:true}") boolean enabled,
+                             @Value("${app.conversation-cache.ttl:PT15M}") Duration ttl,
+                             @Value("${app.conversation-cache.max-sessions:10000}") int maxSessions,
+                             @Value("${app.conversation-cache.messages-per-session:40}") int messagesPerSession,
+                             Counter conversationCacheSessionHits, Counter conversationCacheSessionMisses,
+                             Counter conversationCacheHistoryHits, Counter conversationCacheHistoryMisses,
+                             Counter conversationCacheEvictionsExpired, Counter conversationCacheEvictionsSize) {
+        this(enabled, ttl, maxSessions, messagesPerSession, System::nanoTime,
+                conversationCacheSessionHits, conversationCacheSessionMisses,
+                conversationCacheHistoryHits, conversationCacheHistoryMisses,
+                conversationCacheEvictionsExpired, conversationCacheEvictionsSize);
+    }
+
+    ConversationCache(boolean enabled, Duration ttl, int maxSessions, int messagesPerSession, LongSupplier ticker,
+                      Counter conversationCacheSessionHits, Counter conversationCacheSessionMisses,
+                      Counter conversationCacheHistoryHits, Counter conversationCacheHistoryMisses,
+                      Counter conversationCacheEvictionsExpired, Counter conversationCacheEvictionsSize) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSessions = maxSessions;
+        this.messagesPerSession = messagesPerSession;
+        this.ticker = ticker;
+        this.conversationCacheSessionHits = conversationCacheSessionHits;
+        this.conversationCacheSessionMisses = conversationCacheSessionMisses;
+        this.conversationCacheHistoryHits = conversationCacheHistoryHits;
+        this.conversationCacheHistoryMisses = conversationCacheHistoryMisses;
+        this.conversationCacheEvictionsExpired = conversationCacheEvictionsExpired;
+        this.conversationCacheEvictionsSize = conversationCacheEvictionsSize;
+        log.info("Conversation cache {}: ttl={}, maxSessions={}, messagesPerSession={}",
+                enabled ? "enabled" : "disabled", ttl, maxSessions, messagesPerSession);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ---- reads ----
+
+    public Optional<SessionSnapshot> session(UUID sessionId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            Entry entry = live(sessionId);
+            (entry != null ? conversationCacheSessionHits : conversationCacheSessionMisses).increment();
+            return entry != null ? Optional.of(entry.session) : Optional.empty();
+        }
+    }
+
+    /**
+     * The newest {@code limit} conversational messages with afterSeq < seq < beforeSeq, oldest-first,
+     * if this entry is known to hold all of them.
+     */
+    public Optional<List<HistoryMessage>> history(UUID sessionId, long afterSeq, long beforeSeq, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            Entry entry = live(sessionId);
+            List<HistoryMessage> window = entry != null ? entry.window(afterSeq, beforeSeq, limit) : null;
+            (window != null ? conversationCacheHistoryHits : conversationCacheHistoryMisses).increment();
+            return Optional.ofNullable(window);
+        }
+    }
+
+    // ---- write-through ----
+
+    public void sessionCreated(InterviewSession session) {
+        if (!enabled) {
+            return;
+        }
+        UUID sessionId = session.getId();
+        SessionSnapshot snapshot = SessionSnapshot.of(session);
+        long lastSeq = session.getNextSeq() - 1;
+        afterCommit(() -> put(sessionId, new Entry(snapshot, lastSeq, lastSeq, expiry())));
+    }
+
+    /**
+     * Session read from the database after a miss; starts an entry that only covers messages created from now on.
+     */
+    public void sessionLoaded(InterviewSession session) {
+        if (!enabled) {
+            return;
+        }
+        UUID sessionId = session.getId();
+        SessionSnapshot snapshot = SessionSnapshot.of(session);
+        long lastSeq = session.getNextSeq() - 1;
+        afterCommit(() -> {
+            if (live(sessionId) == null) {
+                put(sessionId, new Entry(snapshot, lastSeq, lastSeq, expiry()));
+            }
+        });
+    }
+
+    public void messagesCreated(InterviewSession session, HistoryMessage userMessage, long placeholderSeq) {
+        if (!enabled) {
+            return;
+        }
+        UUID sessionId = session.getId();
+        SessionSnapshot snapshot = SessionSnapshot.of(session);
+        afterCommit(() -> {
+            Entry entry = live(sessionId);
+            if (entry == null || entry.lastSeq != userMessage.seq() - 1) {
+                // New or out of step with the database (another node appended): restart coverage here
+                entry = new Entry(snapshot, userMessage.seq() - 1, userMessage.seq() - 1, expiry());
+                put(sessionId, entry);
+            }
+            entry.add(userMessage, messagesPerSession);
+            entry.pending.add(placeholderSeq);
+            entry.lastSeq = placeholderSeq;
+        });
+    }
+
+    public void messageCompleted(UUID sessionId, HistoryMessage message) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Entry entry = live(sessionId);
+            if (entry == null) {
+                return;
+            }
+            if (message.seq() > entry.lastSeq) {
+                entries.remove(sessionId);
+                return;
+            }
+            entry.pending.remove(message.seq());
+            entry.add(message, messagesPerSession);
+        });
+    }
+
+    public void messageFailed(UUID sessionId, long seq) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Entry entry = live(sessionId);
+            if (entry != null) {
+                entry.pending.remove(seq);
+            }
+        });
+    }
+
+    /**
+     * Merges a database history read (same arguments as {@link #history}) into the entry, when it joins
+     * up with what the entry already covers.
+     */
+    public void historyLoaded(UUID sessionId, long afterSeq, long beforeSeq, int limit, List<HistoryMessage> oldestFirst) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Entry entry = live(sessionId);
+            if (entry == null || entry.coveredAfterSeq >= beforeSeq) {
+                return;
+            }
+            long loadedAfterSeq = oldestFirst.size() < limit ? afterSeq : oldestFirst.get(0).seq() - 1;
+            for (HistoryMessage message : oldestFirst) {
+                entry.pending.remove(message.seq());
+                entry.messages.put(message.seq(), message);
+            }
+            entry.coveredAfterSeq = Math.min(entry.coveredAfterSeq, loadedAfterSeq);
+            entry.trim(messagesPerSession);
+        });
+    }
+
+    public void summaryUpdated(UUID sessionId, String summary, long summarizedThroughSeq) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Entry entry = live(sessionId);
+            if (entry != null) {
+                entry.session = entry.session.withSummary(summary, summarizedThroughSeq);
+            }
+        });
+    }
+
+    public void invalidate(UUID sessionId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> entries.remove(sessionId));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // ---- internals (callers hold the monitor) ----
+
+    private Entry live(UUID sessionId) {
+        evictExpired();
+        return entries.get(sessionId);
+    }
+
+    private void put(UUID sessionId, Entry entry) {
+        entries.remove(sessionId);
+        entries.put(sessionId, entry);
+        while (entries.size() > maxSessions) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            eldest.next();
+            eldest.remove();
+            conversationCacheEvictionsSize.increment();
+        }
+    }
+
+    private void evictExpired() {
+        long now = ticker.getAsLong();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().expiresAt < 0) {
+                break;
+            }
+            it.remove();
+            conversationCacheEvictionsExpired.increment();
+        }
+    }
+
+    private long expiry() {
+        return ticker.getAsLong() + ttlNanos;
+    }
+
+    /**
+     * Applies a write once the surrounding transaction commits, so readers never see rolled-back rows.
+     */
+    private void afterCommit(Runnable write) {
+        Runnable locked = () -> {
+            synchronized (this) {
+                write.run();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    locked.run();
+                }
+            });
+        } else {
+            locked.run();
+        }
+    }
+
+    /**
+     * Session fields the AI prompt is built from.
+     */
+    public record SessionSnapshot(String interviewType, int experienceYears, String jobDescription,
+                                  String conversationSummary, Long summarizedThroughSeq) {
+
+        public static SessionSnapshot of(InterviewSession session) {
+            return new SessionSnapshot(session.getInterviewType(),
+                    session.getExperienceYears() != null ? session.getExperienceYears() : 2,
+                    session.getJobDescription(), session.getConversationSummary(), session.getSummarizedThroughSeq());
+        }
+
+        SessionSnapshot withSummary(String summary, long throughSeq) {
+            if (summarizedThroughSeq != null && summarizedThroughSeq >= throughSeq) {
+                return this;
+            }
+            return new SessionSnapshot(interviewType, experienceYears, jobDescription, summary, throughSeq);
+        }
+    }
+
+    private static final class Entry {
+        private SessionSnapshot session;
+        // Every conversational message with coveredAfterSeq < seq <= lastSeq is in messages, unless pending
+        private long coveredAfterSeq;
+        private long lastSeq;
+        private final TreeMap<Long, HistoryMessage> messages = new TreeMap<>();
+        private final TreeSet<Long> pending = new TreeSet<>();
+        private final long expiresAt;
+
+        private Entry(SessionSnapshot session, long coveredAfterSeq, long lastSeq, long expiresAt) {
+            this.session = session;
+            this.coveredAfterSeq = coveredAfterSeq;
+            this.lastSeq = lastSeq;
+            this.expiresAt = expiresAt;
+        }
+
+        private void add(HistoryMessage message, int capacity) {
+            if (message.seq() > coveredAfterSeq && message.content() != null && !message.content().isBlank()) {
+                messages.put(message.seq(), message);
+                trim(capacity);
+            }
+        }
+
+        private void trim(int capacity) {
+            while (messages.size() > capacity) {
+                coveredAfterSeq = messages.pollFirstEntry().getKey();
+            }
+            pending.headSet(coveredAfterSeq, true).clear();
+        }
+
+        private List<HistoryMessage> window(long afterSeq, long beforeSeq, int limit) {
+            if (beforeSeq - afterSeq <= 1) {
+                return List.of();
+            }
+            if (beforeSeq - 1 > lastSeq || !pending.subSet(afterSeq, false, beforeSeq, false).isEmpty()) {
+                return null;
+            }
+            NavigableMap<Long, HistoryMessage> range = messages.subMap(afterSeq, false, beforeSeq, false);
+            List<HistoryMessage> newestFirst = new ArrayList<>(Math.min(limit, range.size()));
+            for (Map.Entry<Long, HistoryMessage> e : range.descendingMap().entrySet()) {
+                if (newestFirst.size() == limit) {
+                    break;
+                }
+                newestFirst.add(e.getValue());
+            }
+            if (coveredAfterSeq > afterSeq && newestFirst.size() < limit) {
+                return null;
+            }
+            Collections.reverse(newestFirst);
+            return newestFirst;
+        }
+    }
+}
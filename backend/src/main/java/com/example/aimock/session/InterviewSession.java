@@ -69,6 +69,16 @@ public class InterviewSession {
     @Column(name = "job_description", columnDefinition = "TEXT")
     private String jobDescription;
 
+    /**
+     * Rolling summary of the conversation up to {@link #summarizedThroughSeq}; maintained in the
+     * background by ConversationSummarizer and sent in place of the turns it covers.
+     */
+    @Column(name = "conversation_summary", columnDefinition = "TEXT")
+    private String conversationSummary;
+
+    @Column(name = "summarized_through_seq")
+    private Long summarizedThroughSeq;
+
     @Column(name = "evaluation_score")
     private java.math.BigDecimal evaluationScore;
 
@@ -97,8 +107,4 @@ public class InterviewSession {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
-
-    public long allocateSeq() {
-        return nextSeq++;
-    }
 }
\ No newline at end of file
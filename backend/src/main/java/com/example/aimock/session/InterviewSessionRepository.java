@@ -1,9 +1,8 @@
 package com.example.aimock.session;
 
-import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,11 +19,18 @@ public interface InterviewSessionRepository extends JpaRepository<InterviewSessi
     Optional<InterviewSession> findByIdAndUserId(UUID id, UUID userId);
     void deleteByIdAndUserId(UUID id, UUID userId);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT s FROM InterviewSession s WHERE s.id = :id AND s.userId = :userId")
-    Optional<InterviewSession> findByIdAndUserIdForUpdate(
+    /**
+     * Reserves the next {@code count} message seqs of the user's session in one statement and returns the
+     * session as updated: the reserved seqs are {@code nextSeq - count} to {@code nextSeq - 1}. Empty if the
+     * session does not exist or belongs to someone else. The row stays locked until the transaction ends,
+     * so appends to one session commit in seq order.
+     */
+    @Query(value = "UPDATE interview_sessions SET next_seq = next_seq + :count, updated_at = now() " +
+                   "WHERE id = :id AND user_id = :userId RETURNING *", nativeQuery = true)
+    Optional<InterviewSession> allocateSeqs(
             @Param("id") UUID id,
-            @Param("userId") UUID userId);
+            @Param("userId") UUID userId,
+            @Param("count") int count);
 
     @Query("SELECT s FROM InterviewSession s WHERE s.userId = :userId AND s.createdAt < :cursor ORDER BY s.createdAt DESC")
     List<InterviewSession> findByUserIdWithCursor(
@@ -39,4 +45,17 @@ public interface InterviewSessionRepository extends JpaRepository<InterviewSessi
 
     @Query("SELECT COUNT(s) FROM InterviewSession s WHERE s.userId = :userId")
     int countByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Stores a new rolling summary only if nobody advanced it since it was read
+     * (compare-and-set on summarizedThroughSeq, 0 meaning "no summary yet").
+     */
+    @Modifying
+    @Query("UPDATE InterviewSession s SET s.conversationSummary = :summary, s.summarizedThroughSeq = :throughSeq " +
+           "WHERE s.id = :id AND COALESCE(s.summarizedThroughSeq, 0) = :expectedThroughSeq")
+    int updateConversationSummary(
+            @Param("id") UUID id,
+            @Param("summary") String summary,
+            @Param("throughSeq") long throughSeq,
+            @Param("expectedThroughSeq") long expectedThroughSeq);
 }
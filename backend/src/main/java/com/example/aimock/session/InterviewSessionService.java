@@ -31,6 +31,7 @@ public class InterviewSessionService {
 
     private final InterviewSessionRepository interviewSessionRepository;
     private final UserRepository userRepository;
+    private final ConversationCache conversationCache;
 
     @Transactional
     public InterviewSession createInterviewSession(CreateInterviewSessionRequest request) {
@@ -52,7 +53,9 @@ public class InterviewSessionService {
                 .build();
 
         try {
-            return interviewSessionRepository.save(interviewSession);
+            InterviewSession saved = interviewSessionRepository.save(interviewSession);
+            conversationCache.sessionCreated(saved);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             log.error("Database constraint violation while creating interview session", e);
             throw new ValidationException(
@@ -78,6 +81,7 @@ public class InterviewSessionService {
         
         session.setStatus(Status.COMPLETED);
         session.setEndedAt(LocalDateTime.now());
+        conversationCache.invalidate(sessionId);
         
         return interviewSessionRepository.save(session);
     }
@@ -93,6 +97,7 @@ public class InterviewSessionService {
 
         session.setStatus(Status.ABORTED);
         session.setEndedAt(LocalDateTime.now());
+        conversationCache.invalidate(sessionId);
 
         return interviewSessionRepository.save(session);
     }
@@ -0,0 +1,259 @@
+package com.example.aimock.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects entries for an SQS batch API and sends them at most ten at a time.
+ *
+ * A batch goes out as soon as ten entries are waiting, or {@code flushWindow} after the first of them
+ * arrived. The batch calls run on {@code sender}; {@code timer} only fires flush windows and retries, so a
+ * slow call never holds up another batch's window. Entries SQS reports as failed through no fault of the
+ * sender (throttling, internal errors) and entries of a batch call that threw are queued again after
+ * {@code retryBackoff}, doubled per attempt, up to {@code maxAttempts} sends in total; entries rejected as
+ * the sender's fault fail straight away.
+ *
+ * Entries with a group (FIFO message groups) are sent one at a time per group, in the order they were
+ * added: the next entry of a group is only queued once the previous one was accepted or gave up, so a
+ * retried entry is never overtaken by a later one of its group.
+ */
+@Slf4j
+class MicroBatcher<T> {
+
+    static final int MAX_BATCH = 10;
+
+    // Caps the backoff at retryBackoff * 2^10
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    /**
+     * Sends one batch keyed by entry id and returns the entries that failed.
+     */
+    interface BatchCall<T> {
+        List<BatchResultErrorEntry> send(Map<String, T> entries);
+    }
+
+    private static final class Pending<T> {
+        final T entry;
+        final String group;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        int attempts;
+
+        Pending(T entry, String group) {
+            this.entry = entry;
+            this.group = group;
+        }
+    }
+
+    private final String operation;
+    private final BatchCall<T> call;
+    private final Function<T, String> groupOf;
+    private final ScheduledExecutorService timer;
+    private final Executor sender;
+    private final long flushWindowNanos;
+    private final long retryBackoffNanos;
+    private final int maxAttempts;
+    private final DistributionSummary batchSize;
+    private final Counter retries;
+    private final Counter failures;
+
+    private List<Pending<T>> buffer = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // Per group, the entry in flight (head) and the ones waiting behind it
+    private final Map<String, ArrayDeque<Pending<T>>> groups = new HashMap<>();
+    // Entries waiting out their retry backoff
+    private final Set<Pending<T>> backingOff = new HashSet<>();
+    // Set by flushNow: from then on everything is sent by the flushing thread, without windows or backoff
+    private boolean closing;
+
+    MicroBatcher(String operation, BatchCall<T> call, Function<T, String> groupOf,
+                 ScheduledExecutorService timer, Executor sender, Duration flushWindow, Duration retryBackoff,
+                 int maxAttempts, DistributionSummary batchSize, Counter retries, Counter failures) {
+        this.operation = operation;
+        this.call = call;
+        this.groupOf = groupOf;
+        this.timer = timer;
+        this.sender = sender;
+        this.flushWindowNanos = flushWindow.toNanos();
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.batchSize = batchSize;
+        this.retries = retries;
+        this.failures = failures;
+    }
+
+    /**
+     * Queues the entry; the future completes once SQS accepted it, or exceptionally once it gave up.
+     */
+    CompletableFuture<Void> add(T entry) {
+        Pending<T> pending = new Pending<>(entry, groupOf.apply(entry));
+        if (pending.group != null) {
+            synchronized (this) {
+                ArrayDeque<Pending<T>> group = groups.computeIfAbsent(pending.group, g -> new ArrayDeque<>());
+                group.addLast(pending);
+                if (group.size() > 1) {
+                    // Queued once the group's earlier entries are done
+                    return pending.result;
+                }
+            }
+        }
+        enqueue(pending);
+        return pending.result;
+    }
+
+    /**
+     * Sends everything queued on the calling thread, including entries waiting to be retried and entries
+     * still held back behind their group. Later retries are sent by the caller of the next flushNow.
+     */
+    void flushNow() {
+        synchronized (this) {
+            closing = true;
+            buffer.addAll(backingOff);
+            backingOff.clear();
+        }
+        List<Pending<T>> batch;
+        while (!(batch = take()).isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void enqueue(Pending<T> pending) {
+        List<Pending<T>> full = null;
+        synchronized (this) {
+            buffer.add(pending);
+            if (closing) {
+                return;
+            }
+            if (buffer.size() >= MAX_BATCH) {
+                full = takeLocked();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = timer.schedule(this::flushScheduled, flushWindowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            List<Pending<T>> batch = full;
+            sender.execute(() -> send(batch));
+        }
+    }
+
+    private void flushScheduled() {
+        List<Pending<T>> batch = take();
+        if (!batch.isEmpty()) {
+            sender.execute(() -> send(batch));
+        }
+    }
+
+    private synchronized List<Pending<T>> take() {
+        return takeLocked();
+    }
+
+    private List<Pending<T>> takeLocked() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<Pending<T>> batch = buffer;
+        buffer = new ArrayList<>();
+        return batch;
+    }
+
+    private void send(List<Pending<T>> batch) {
+        Map<String, Pending<T>> byId = new LinkedHashMap<>();
+        Map<String, T> entries = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String id = Integer.toString(i);
+            byId.put(id, batch.get(i));
+            entries.put(id, batch.get(i).entry);
+        }
+        batchSize.record(batch.size());
+
+        List<BatchResultErrorEntry> failed;
+        try {
+            failed = call.send(entries);
+        } catch (RuntimeException e) {
+            log.warn("SQS {} batch of {} failed", operation, batch.size(), e);
+            batch.forEach(pending -> retryOrFail(pending, false, e.getMessage()));
+            return;
+        }
+        for (BatchResultErrorEntry error : failed) {
+            Pending<T> pending = byId.remove(error.id());
+            if (pending != null) {
+                retryOrFail(pending, Boolean.TRUE.equals(error.senderFault()), error.code() + ": " + error.message());
+            }
+        }
+        byId.values().forEach(pending -> {
+            pending.result.complete(null);
+            done(pending);
+        });
+    }
+
+    private void retryOrFail(Pending<T> pending, boolean senderFault, String reason) {
+        pending.attempts++;
+        if (!senderFault && pending.attempts < maxAttempts) {
+            retries.increment();
+            retryLater(pending);
+            return;
+        }
+        failures.increment();
+        log.error("SQS {} entry failed after {} attempt(s): {}", operation, pending.attempts, reason);
+        pending.result.completeExceptionally(new IllegalStateException("SQS " + operation + " failed: " + reason));
+        done(pending);
+    }
+
+    private void retryLater(Pending<T> pending) {
+        long backoffNanos = retryBackoffNanos << Math.min(pending.attempts - 1, MAX_BACKOFF_SHIFT);
+        synchronized (this) {
+            if (!closing) {
+                backingOff.add(pending);
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        if (!backingOff.remove(pending)) {
+                            return;  // already taken by flushNow
+                        }
+                    }
+                    enqueue(pending);
+                }, backoffNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+        enqueue(pending);
+    }
+
+    /**
+     * Releases the next entry of the finished entry's group, if any.
+     */
+    private void done(Pending<T> pending) {
+        if (pending.group == null) {
+            return;
+        }
+        Pending<T> next;
+        synchronized (this) {
+            ArrayDeque<Pending<T>> group = groups.get(pending.group);
+            group.pollFirst();
+            next = group.peekFirst();
+            if (next == null) {
+                groups.remove(pending.group);
+            }
+        }
+        if (next != null) {
+            enqueue(next);
+        }
+    }
+}
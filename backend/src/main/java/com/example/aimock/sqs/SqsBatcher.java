@@ -0,0 +1,129 @@
+package com.example.aimock.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batches deletes and sends against the AI job queue with {@code DeleteMessageBatch} and
+ * {@code SendMessageBatch}; see {@link MicroBatcher} for when batches go out and which entries are retried.
+ * Callers never block on SQS. The batch calls run on {@code sender-threads} threads of their own; one timer
+ * thread fires flush windows and retry backoffs. Sends keep each FIFO message group in order.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.sqs.enabled", havingValue = "true")
+public class SqsBatcher {
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService sender;
+    private final MicroBatcher<String> deletes;
+    private final MicroBatcher<SendMessageBatchRequestEntry> sends;
+
+    @Autowired
+    public SqsBatcher(SqsClient sqsClient,
+                      @Value("${app.sqs.queue-url}") String queueUrl,
+                      @Value("${app.sqs.batch.flush-window:PT0.01S}") Duration flushWindow,
+                      @Value("${app.sqs.batch.retry-backoff:PT0.1S}") Duration retryBackoff,
+                      @Value("${app.sqs.batch.max-attempts:3}") int maxAttempts,
+                      @Value("${app.sqs.batch.sender-threads:4}") int senderThreads,
+                      DistributionSummary sqsDeleteBatchSize, DistributionSummary sqsSendBatchSize,
+                      Counter sqsDeleteRetries, Counter sqsSendRetries,
+                      Counter sqsDeleteFailures, Counter sqsSendFailures) {
+        this(sqsClient, queueUrl, flushWindow, retryBackoff, maxAttempts,
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("sqs-batch-timer").daemon(true).factory()),
+                Executors.newFixedThreadPool(Math.max(1, senderThreads),
+                        Thread.ofPlatform().name("sqs-batch-send-", 0).daemon(true).factory()),
+                sqsDeleteBatchSize, sqsSendBatchSize, sqsDeleteRetries, sqsSendRetries,
+                sqsDeleteFailures, sqsSendFailures);
+    }
+
+    SqsBatcher(SqsClient sqsClient, String queueUrl, Duration flushWindow, Duration retryBackoff, int maxAttempts,
+               ScheduledExecutorService timer, ExecutorService sender,
+               DistributionSummary sqsDeleteBatchSize, DistributionSummary sqsSendBatchSize,
+               Counter sqsDeleteRetries, Counter sqsSendRetries,
+               Counter sqsDeleteFailures, Counter sqsSendFailures) {
+        this.timer = timer;
+        this.sender = sender;
+        this.deletes = new MicroBatcher<>("delete", entries -> sqsClient.deleteMessageBatch(
+                DeleteMessageBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(entries.entrySet().stream()
+                                .map(e -> DeleteMessageBatchRequestEntry.builder()
+                                        .id(e.getKey())
+                                        .receiptHandle(e.getValue())
+                                        .build())
+                                .toList())
+                        .build()).failed(),
+                receiptHandle -> null,
+                timer, sender, flushWindow, retryBackoff, maxAttempts,
+                sqsDeleteBatchSize, sqsDeleteRetries, sqsDeleteFailures);
+        this.sends = new MicroBatcher<>("send", entries -> sqsClient.sendMessageBatch(
+                SendMessageBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(entries.entrySet().stream()
+                                .map(e -> e.getValue().toBuilder().id(e.getKey()).build())
+                                .toList())
+                        .build()).failed(),
+                SendMessageBatchRequestEntry::messageGroupId,
+                timer, sender, flushWindow, retryBackoff, maxAttempts,
+                sqsSendBatchSize, sqsSendRetries, sqsSendFailures);
+    }
+
+    /**
+     * Acknowledges a processed message.
+     */
+    public CompletableFuture<Void> delete(String receiptHandle) {
+        return deletes.add(receiptHandle);
+    }
+
+    /**
+     * Enqueues a message; the entry's id is assigned when its batch is sent.
+     */
+    public CompletableFuture<Void> send(SendMessageBatchRequestEntry entry) {
+        return sends.add(entry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+        // Batches still in flight may queue retries; send those on this thread too
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        timer.shutdownNow();
+    }
+
+    private void flushAll() {
+        for (MicroBatcher<?> batcher : List.of(sends, deletes)) {
+            try {
+                batcher.flushNow();
+            } catch (RuntimeException e) {
+                log.warn("Could not flush SQS batches at shutdown", e);
+            }
+        }
+    }
+}
@@ -2,100 +2,327 @@ package com.example.aimock.sqs;
 
 import com.example.aimock.ai.consumer.SQSMessageConsumer;
 import com.example.aimock.ai.dto.AIProcessingResult;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
+/**
+ * Long-polls the AI job queue and processes messages in parallel.
+ *
+ * <ul>
+ *   <li>{@code pollers} loops long-poll concurrently; each only asks for as many messages as there is
+ *       room for under {@code max-in-flight}, so nothing sits received-but-idle while its visibility
+ *       timeout runs down</li>
+ *   <li>received messages run on {@code concurrency} worker threads. Messages of one FIFO message group
+ *       (the session id) run one after another in receive order; SQS itself holds back the rest of a
+ *       group while any of its messages are in flight, so order also holds across pollers</li>
+ *   <li>while a message is processing its visibility timeout is pushed out by
+ *       {@code visibility-timeout-seconds} whenever less than half of it is left, up to
+ *       {@code max-processing-time} after receipt, after which SQS may redeliver it</li>
+ * </ul>
+ */
 @Component
-@EnableScheduling
-@RequiredArgsConstructor
 @Slf4j
 @ConditionalOnProperty(name = "app.sqs.enabled", havingValue = "true")
 public class SqsPollingListener {
 
+    private static final int MAX_BATCH = 10;
+
     private final SqsClient sqsClient;
     private final SQSMessageConsumer consumer;
+    private final SqsBatcher sqsBatcher;
+    private final String queueUrl;
+    private final int maxMessages;
+    private final int waitTimeSeconds;
+    private final int visibilityTimeoutSeconds;
+    private final long pollIntervalMs;
+    private final int pollers;
+    private final int maxInFlight;
+    private final long maxProcessingNanos;
+    private final LongSupplier ticker;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService visibilityExtender;
+    private final Semaphore inFlightPermits;
+    private final AtomicInteger sqsMessagesInflightGauge;
+    private final AtomicInteger sqsMessagesProcessingGauge;
+    private final Counter sqsVisibilityExtensions;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> groupTails = new HashMap<>();
+    private final List<Thread> pollerThreads = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean credsErrorLogged = false;
 
-    @Value("${app.sqs.queue-url}")
-    private String queueUrl;
+    /**
+     * A received message that has not finished processing yet.
+     */
+    private static final class InFlight {
+        final Message message;
+        final long receivedAt;
+        volatile long visibleAt;
 
-    @Value("${app.sqs.max-messages:10}")
-    private int maxMessages;
+        InFlight(Message message, long receivedAt, long visibleAt) {
+            this.message = message;
+            this.receivedAt = receivedAt;
+            this.visibleAt = visibleAt;
+        }
+    }
 
-    @Value("${app.sqs.wait-time-seconds:20}")
-    private int waitTimeSeconds;
+    @Autowired
+    public SqsPollingListener(SqsClient sqsClient, SQSMessageConsumer consumer, SqsBatcher sqsBatcher,
+                              @Value("${app.sqs.queue-url}") String queueUrl,
+                              @Value("${app.sqs.max-messages:10}") int maxMessages,
+                              @Value("${app.sqs.wait-time-seconds:20}") int waitTimeSeconds,
+                              @Value("${app.sqs.visibility-timeout-seconds:60}") int visibilityTimeoutSeconds,
+                              @Value("${app.sqs.poll-interval-ms:100}") long pollIntervalMs,
+                              @Value("${app.sqs.pollers:2}") int pollers,
+                              @Value("${app.sqs.concurrency:10}") int concurrency,
+                              @Value("${app.sqs.max-in-flight:20}") int maxInFlight,
+                              @Value("${app.sqs.max-processing-time:PT15M}") Duration maxProcessingTime,
+                              AtomicInteger sqsMessagesInflightGauge, AtomicInteger sqsMessagesProcessingGauge,
+                              Counter sqsVisibilityExtensions) {
+        this(sqsClient, consumer, sqsBatcher, queueUrl, maxMessages, waitTimeSeconds, visibilityTimeoutSeconds, pollIntervalMs,
+                pollers, maxInFlight, maxProcessingTime, System::nanoTime,
+                Executors.newFixedThreadPool(Math.max(1, concurrency),
+                        Thread.ofPlatform().name("sqs-worker-", 0).daemon(true).factory()),
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("sqs-visibility").daemon(true).factory()),
+                sqsMessagesInflightGauge, sqsMessagesProcessingGauge, sqsVisibilityExtensions);
+    }
 
-    @Value("${app.sqs.visibility-timeout-seconds:60}")
-    private int visibilityTimeoutSeconds;
+    SqsPollingListener(SqsClient sqsClient, SQSMessageConsumer consumer, SqsBatcher sqsBatcher, String queueUrl,
+                       int maxMessages, int waitTimeSeconds, int visibilityTimeoutSeconds, long pollIntervalMs,
+                       int pollers, int maxInFlight, Duration maxProcessingTime, LongSupplier ticker,
+                       ExecutorService workers, ScheduledExecutorService visibilityExtender,
+                       AtomicInteger sqsMessagesInflightGauge, AtomicInteger sqsMessagesProcessingGauge,
+                       Counter sqsVisibilityExtensions) {
+        this.sqsClient = sqsClient;
+        this.consumer = consumer;
+        this.sqsBatcher = sqsBatcher;
+        this.queueUrl = queueUrl;
+        this.maxMessages = Math.clamp(maxMessages, 1, MAX_BATCH);
+        this.waitTimeSeconds = waitTimeSeconds;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        this.pollIntervalMs = pollIntervalMs;
+        this.pollers = Math.max(1, pollers);
+        this.maxProcessingNanos = maxProcessingTime.toNanos();
+        this.ticker = ticker;
+        this.workers = workers;
+        this.visibilityExtender = visibilityExtender;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlightPermits = new Semaphore(this.maxInFlight, true);
+        this.sqsMessagesInflightGauge = sqsMessagesInflightGauge;
+        this.sqsMessagesProcessingGauge = sqsMessagesProcessingGauge;
+        this.sqsVisibilityExtensions = sqsVisibilityExtensions;
+    }
 
-    private volatile boolean credsErrorLogged = false;
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < pollers; i++) {
+            pollerThreads.add(Thread.ofPlatform().name("sqs-poller-" + i).daemon(true).start(this::pollLoop));
+        }
+        long checkSeconds = Math.max(1, visibilityTimeoutSeconds / 4);
+        visibilityExtender.scheduleWithFixedDelay(this::extendVisibility, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+        log.info("SQS listener started: pollers={}, maxInFlight={}, visibilityTimeout={}s",
+                pollers, maxInFlight, visibilityTimeoutSeconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        pollerThreads.forEach(Thread::interrupt);
+        visibilityExtender.shutdownNow();
+        // Unfinished messages are not deleted and come back once their visibility timeout runs out
+        workers.shutdownNow();
+    }
+
+    /**
+     * Runs {@link #poll()} until stopped, waiting {@code poll-interval-ms} after each poll.
+     */
+    private void pollLoop() {
+        while (running) {
+            try {
+                poll();
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("SQS poll failed", e);
+            }
+        }
+    }
 
     /**
-     * Polls SQS for messages with minimal latency.
-     * 
-     * Uses fixedDelay (not fixedRate) to avoid overlapping polls:
-     * - fixedDelay: Waits X ms AFTER completion, then starts next poll
-     * - With 100ms delay, worst case latency is ~100ms between polls
-     * - Long polling (waitTimeSeconds=20) means messages arrive immediately
-     *   if available in queue
-     * 
+     * Waits for room under {@code max-in-flight}, long-polls for up to that many messages and hands them
+     * to the workers. Returns the number of messages received.
+     *
      * Latency breakdown:
      * - Best case: Message in queue → 0ms (returned immediately by long poll)
-     * - Worst case: Message arrives right after poll completes → ~100ms wait
+     * - Worst case: Message arrives right after poll completes → ~poll-interval-ms wait
      */
-    @Scheduled(fixedDelayString = "${app.sqs.poll-interval-ms:100}")
-    public void poll() {
-        ReceiveMessageRequest req = ReceiveMessageRequest.builder()
-                .queueUrl(queueUrl)
-                .maxNumberOfMessages(maxMessages)
-                .waitTimeSeconds(waitTimeSeconds)
-                .visibilityTimeout(visibilityTimeoutSeconds)
-                .build();
-
-        List<Message> messages;
+    int poll() throws InterruptedException {
+        inFlightPermits.acquire();
+        int permits = 1 + drainPermits(maxMessages - 1);
+        int received = 0;
         try {
-            messages = sqsClient.receiveMessage(req).messages();
-        } catch (SdkClientException e) {
-            if (!credsErrorLogged) {
-                credsErrorLogged = true;
-                log.error("SQS polling failed. Most likely missing AWS credentials in the container. " +
-                                "Set AWS_ACCESS_KEY_ID/AWS_SECRET_ACCESS_KEY (and optionally AWS_SESSION_TOKEN), " +
-                                "or disable SQS with app.sqs.enabled=false.",
-                        e);
+            ReceiveMessageRequest req = ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .maxNumberOfMessages(permits)
+                    .waitTimeSeconds(waitTimeSeconds)
+                    .visibilityTimeout(visibilityTimeoutSeconds)
+                    .messageSystemAttributeNames(MessageSystemAttributeName.MESSAGE_GROUP_ID)
+                    .build();
+
+            List<Message> messages;
+            try {
+                messages = sqsClient.receiveMessage(req).messages();
+            } catch (SdkClientException e) {
+                if (!credsErrorLogged) {
+                    credsErrorLogged = true;
+                    log.error("SQS polling failed. Most likely missing AWS credentials in the container. " +
+                                    "Set AWS_ACCESS_KEY_ID/AWS_SECRET_ACCESS_KEY (and optionally AWS_SESSION_TOKEN), " +
+                                    "or disable SQS with app.sqs.enabled=false.",
+                            e);
+                }
+                return 0;
             }
+            if (messages == null || messages.isEmpty()) return 0;
+
+            long now = ticker.getAsLong();
+            for (Message m : messages) {
+                dispatch(m, now);
+                received++;
+            }
+            return received;
+        } finally {
+            inFlightPermits.release(permits - received);
+        }
+    }
+
+    private int drainPermits(int max) {
+        int taken = 0;
+        while (taken < max && inFlightPermits.tryAcquire()) {
+            taken++;
+        }
+        return taken;
+    }
+
+    private void dispatch(Message m, long receivedAt) {
+        InFlight job = new InFlight(m, receivedAt, receivedAt + TimeUnit.SECONDS.toNanos(visibilityTimeoutSeconds));
+        inFlight.put(m.messageId(), job);
+        sqsMessagesInflightGauge.incrementAndGet();
+
+        String group = m.attributes().get(MessageSystemAttributeName.MESSAGE_GROUP_ID);
+        if (group == null) {
+            workers.execute(() -> process(job));
             return;
         }
-        if (messages == null || messages.isEmpty()) return;
+        synchronized (groupTails) {
+            CompletableFuture<Void> tail = groupTails.get(group);
+            CompletableFuture<Void> next = tail == null
+                    ? CompletableFuture.runAsync(() -> process(job), workers)
+                    : tail.thenRunAsync(() -> process(job), workers);
+            groupTails.put(group, next);
+            next.whenComplete((ignored, error) -> {
+                synchronized (groupTails) {
+                    groupTails.remove(group, next);
+                }
+            });
+        }
+    }
 
-        for (Message m : messages) {
+    private void process(InFlight job) {
+        Message m = job.message;
+        sqsMessagesProcessingGauge.incrementAndGet();
+        try {
+            AIProcessingResult result = consumer.processMessage(m.body());
+            if (result.getStatus() == AIProcessingResult.Status.SUCCESS) {
+                // Batched; a delete that fails for good only means the message is delivered again
+                sqsBatcher.delete(m.receiptHandle());
+                log.debug("Queued delete of SQS message id={} after SUCCESS", m.messageId());
+            } else {
+                // Let SQS redrive policy / retries handle it
+                log.warn("Not deleting SQS message id={} (status={})", m.messageId(), result.getStatus());
+            }
+        } catch (Exception e) {
+            // Do not delete so SQS can retry / eventually dead-letter
+            log.error("Error processing SQS message id={}. Not deleting.", m.messageId(), e);
+        } finally {
+            inFlight.remove(m.messageId());
+            sqsMessagesProcessingGauge.decrementAndGet();
+            sqsMessagesInflightGauge.decrementAndGet();
+            inFlightPermits.release();
+        }
+    }
+
+    /**
+     * Pushes out the visibility timeout of every in-flight message with less than half of it left,
+     * in batches of ten.
+     */
+    void extendVisibility() {
+        long now = ticker.getAsLong();
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(visibilityTimeoutSeconds);
+        List<InFlight> due = new ArrayList<>();
+        for (InFlight job : inFlight.values()) {
+            if (job.visibleAt - now < timeoutNanos / 2 && now - job.receivedAt < maxProcessingNanos) {
+                due.add(job);
+            }
+        }
+        for (int from = 0; from < due.size(); from += MAX_BATCH) {
+            List<InFlight> batch = due.subList(from, Math.min(due.size(), from + MAX_BATCH));
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (InFlight job : batch) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(job.message.messageId())
+                        .receiptHandle(job.message.receiptHandle())
+                        .visibilityTimeout(visibilityTimeoutSeconds)
+                        .build());
+            }
             try {
-                AIProcessingResult result = consumer.processMessage(m.body());
-                if (result.getStatus() == AIProcessingResult.Status.SUCCESS) {
-                    sqsClient.deleteMessage(DeleteMessageRequest.builder()
-                            .queueUrl(queueUrl)
-                            .receiptHandle(m.receiptHandle())
-                            .build());
-                    log.debug("Deleted SQS message id={} after SUCCESS", m.messageId());
-                } else {
-                    // Let SQS redrive policy / retries handle it
-                    log.warn("Not deleting SQS message id={} (status={})", m.messageId(), result.getStatus());
+                List<BatchResultErrorEntry> failed = sqsClient.changeMessageVisibilityBatch(
+                        ChangeMessageVisibilityBatchRequest.builder().queueUrl(queueUrl).entries(entries).build())
+                        .failed();
+                for (InFlight job : batch) {
+                    if (failed.stream().noneMatch(f -> f.id().equals(job.message.messageId()))) {
+                        job.visibleAt = now + timeoutNanos;
+                        sqsVisibilityExtensions.increment();
+                    }
                 }
-            } catch (Exception e) {
-                // Do not delete so SQS can retry / eventually dead-letter
-                log.error("Error processing SQS message id={}. Not deleting.", m.messageId(), e);
+                failed.forEach(f -> log.warn("Could not extend visibility of SQS message id={}: {} {}",
+                        f.id(), f.code(), f.message()));
+            } catch (RuntimeException e) {
+                log.warn("Could not extend visibility of {} SQS messages", batch.size(), e);
             }
         }
     }
 }
-
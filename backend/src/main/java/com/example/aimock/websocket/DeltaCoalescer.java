@@ -0,0 +1,180 @@
+package com.example.aimock.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces token deltas into fewer ai_delta frames before they reach {@link SessionTopicPublisher}.
+ *
+ * Flush rules per interviewer message:
+ * <ul>
+ *   <li>the first token is flushed immediately (TTFT is unaffected)</li>
+ *   <li>buffered text is flushed once it reaches {@code max-chars}, or {@code flush-interval-ms}
+ *       after the first buffered token, whichever comes first</li>
+ *   <li>the interval is enforced by a timer, and also by the next token if it arrives after the interval,
+ *       so a busy stream does not wait on a late timer</li>
+ *   <li>{@link DeltaStream#complete()} flushes the remainder synchronously, before ai_complete is sent</li>
+ * </ul>
+ * Every frame carries a per-message {@code frameSeq} starting at 1. Timer flushes run on a scheduler with
+ * one thread per core, shared by all streams on the node.
+ */
+@Component
+@Slf4j
+public class DeltaCoalescer {
+
+    private final SessionTopicPublisher topicPublisher;
+    private final Counter websocketDeltaFrames;
+    private final Counter websocketDeltaBytes;
+    private final Counter websocketDeltaTokens;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int maxChars;
+    private final ScheduledExecutorService flushScheduler;
+
+    public DeltaCoalescer(SessionTopicPublisher topicPublisher,
+                          Counter websocketDeltaFrames,
+                          Counter websocketDeltaBytes,
+                          Counter websocketDeltaTokens,
+                          @Value("${app.websocket.delta.coalescing-enabled:true}") boolean enabled,
+                          @Value("${app.websocket.delta.flush-interval-ms:50}") long flushIntervalMs,
+                          @Value("${app.websocket.delta.max-chars:256}") int maxChars) {
+        this.topicPublisher = topicPublisher;
+        this.websocketDeltaFrames = websocketDeltaFrames;
+        this.websocketDeltaBytes = websocketDeltaBytes;
+        this.websocketDeltaTokens = websocketDeltaTokens;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxChars = maxChars;
+        AtomicInteger threads = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread t = new Thread(r, "delta-coalescer-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // Most timers are cancelled by a size or completion flush; drop them from the queue right away
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.flushScheduler = scheduler;
+    }
+
+    public DeltaStream open(UUID sessionId, UUID interviewerMessageId) {
+        return new DeltaStream(sessionId, interviewerMessageId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+    }
+
+    /**
+     * Bytes {@code text} takes in UTF-8, without encoding it. An unpaired surrogate counts as the one-byte
+     * replacement {@code String.getBytes} would write.
+     */
+    static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Buffer for a single streaming interviewer message. Thread-safe: tokens arrive on the
+     * stream's thread while time-window flushes run on a coalescer thread.
+     */
+    public final class DeltaStream {
+
+        private final UUID sessionId;
+        private final UUID interviewerMessageId;
+        private final StringBuilder buffer = new StringBuilder();
+        private long nextFrameSeq = 1;
+        private long bufferedSince;
+        private boolean firstTokenFlushed;
+        private boolean closed;
+        private ScheduledFuture<?> pendingFlush;
+
+        private DeltaStream(UUID sessionId, UUID interviewerMessageId) {
+            this.sessionId = sessionId;
+            this.interviewerMessageId = interviewerMessageId;
+        }
+
+        public synchronized void append(String delta) {
+            if (closed || delta == null || delta.isEmpty()) return;
+            websocketDeltaTokens.increment();
+            long now = System.nanoTime();
+            if (buffer.isEmpty()) {
+                bufferedSince = now;
+            }
+            buffer.append(delta);
+
+            if (!enabled || !firstTokenFlushed || buffer.length() >= maxChars
+                    || now - bufferedSince >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMs)) {
+                firstTokenFlushed = true;
+                flush();
+            } else if (pendingFlush == null) {
+                pendingFlush = flushScheduler.schedule(this::flushFromTimer, flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Flushes whatever is buffered and stops accepting deltas. Idempotent.
+         */
+        public synchronized void complete() {
+            if (closed) return;
+            flush();
+            closed = true;
+        }
+
+        public synchronized long framesSent() {
+            return nextFrameSeq - 1;
+        }
+
+        private synchronized void flushFromTimer() {
+            pendingFlush = null;
+            if (!closed) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            if (buffer.isEmpty()) return;
+
+            String frame = buffer.toString();
+            buffer.setLength(0);
+            try {
+                topicPublisher.aiDelta(sessionId, interviewerMessageId, frame, nextFrameSeq++);
+                websocketDeltaFrames.increment();
+                websocketDeltaBytes.increment(utf8Length(frame));
+            } catch (Exception e) {
+                log.warn("Failed to publish delta frame: interviewerMessageId={}", interviewerMessageId, e);
+            }
+        }
+    }
+}
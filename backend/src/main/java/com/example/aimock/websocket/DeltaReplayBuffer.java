@@ -0,0 +1,211 @@
+package com.example.aimock.websocket;
+
+import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.websocket.dto.StreamReplay;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local ring buffer of the newest ai_delta frames per streaming interviewer message, so a client
+ * that reconnects mid-stream can catch up from the last {@code frameSeq} it saw without reading the
+ * database.
+ *
+ * Each message keeps at most {@code max-frames-per-message} frames and {@code max-chars-per-message}
+ * characters, oldest dropped first. Completion or failure replaces the frames with the final content or
+ * error, which stays replayable for {@code retain-after-complete} and is then evicted. At most
+ * {@code max-messages} are buffered, oldest first out.
+ *
+ * A miss (unknown message, evicted, or streamed on another node) means the client should fall back to
+ * the messages endpoint, which returns the last checkpointed content.
+ */
+@Component
+public class DeltaReplayBuffer {
+
+    private final boolean enabled;
+    private final int maxFramesPerMessage;
+    private final int maxCharsPerMessage;
+    private final int maxMessages;
+    private final long retainAfterCompleteNanos;
+    private final LongSupplier ticker;
+    private final Counter websocketReplayHits;
+    private final Counter websocketReplayTruncated;
+    private final Counter websocketReplayMisses;
+
+    // Insertion-ordered, so the head is always the oldest stream (first evicted when over capacity)
+    private final LinkedHashMap<UUID, Replay> replays = new LinkedHashMap<>();
+    // Finished streams in completion order, so expired ones are always at the head
+    private final ArrayDeque<Replay> finished = new ArrayDeque<>();
+
+    @Autowired
+    public DeltaReplayBuffer(@Value("${app.websocket.replay.enabled:true}") boolean enabled,
+                             @Value("${app.websocket.replay.max-frames-per-message:512}") int maxFramesPerMessage,
+                             @Value("${app.websocket.replay.max-chars-per-message:32768}") int maxCharsPerMessage,
+                             @Value("${app.websocket.replay.max-messages:2000}") int maxMessages,
+                             @Value("${app.websocket.replay.retain-after-complete:PT30S}") Duration retainAfterComplete,
+                             Counter websocketReplayHits, Counter websocketReplayTruncated,
+                             Counter websocketReplayMisses) {
+        this(enabled, maxFramesPerMessage, maxCharsPerMessage, maxMessages, retainAfterComplete, System::nanoTime,
+                websocketReplayHits, websocketReplayTruncated, websocketReplayMisses);
+    }
+
+    DeltaReplayBuffer(boolean enabled, int maxFramesPerMessage, int maxCharsPerMessage, int maxMessages,
+                      Duration retainAfterComplete, LongSupplier ticker,
+                      Counter websocketReplayHits, Counter websocketReplayTruncated, Counter websocketReplayMisses) {
+        this.enabled = enabled;
+        this.maxFramesPerMessage = maxFramesPerMessage;
+        this.maxCharsPerMessage = maxCharsPerMessage;
+        this.maxMessages = maxMessages;
+        this.retainAfterCompleteNanos = retainAfterComplete.toNanos();
+        this.ticker = ticker;
+        this.websocketReplayHits = websocketReplayHits;
+        this.websocketReplayTruncated = websocketReplayTruncated;
+        this.websocketReplayMisses = websocketReplayMisses;
+    }
+
+    public synchronized void frame(UUID sessionId, UUID interviewerMessageId, long frameSeq, String delta) {
+        if (!enabled) return;
+        evictExpired();
+        Replay replay = replays.get(interviewerMessageId);
+        if (replay == null) {
+            replay = new Replay(sessionId, interviewerMessageId);
+            replays.put(interviewerMessageId, replay);
+            evictOverCapacity();
+        }
+        replay.append(frameSeq, delta);
+    }
+
+    public synchronized void completed(UUID sessionId, UUID interviewerMessageId, String content) {
+        finish(sessionId, interviewerMessageId, MessageStatus.COMPLETED, content, null);
+    }
+
+    public synchronized void failed(UUID sessionId, UUID interviewerMessageId, String error) {
+        finish(sessionId, interviewerMessageId, MessageStatus.FAILED, null, error);
+    }
+
+    /**
+     * Frames of the message after {@code afterFrameSeq}, or its final state once finished. Empty when this
+     * node has nothing buffered for it.
+     */
+    public synchronized Optional<StreamReplay> replay(UUID sessionId, UUID interviewerMessageId, long afterFrameSeq) {
+        if (!enabled) return Optional.empty();
+        evictExpired();
+        Replay replay = replays.get(interviewerMessageId);
+        if (replay == null || !replay.sessionId.equals(sessionId)) {
+            websocketReplayMisses.increment();
+            return Optional.empty();
+        }
+        StreamReplay result = replay.after(afterFrameSeq);
+        (result.truncated() ? websocketReplayTruncated : websocketReplayHits).increment();
+        return Optional.of(result);
+    }
+
+    synchronized int size() {
+        return replays.size();
+    }
+
+    private void finish(UUID sessionId, UUID interviewerMessageId, MessageStatus status, String content, String error) {
+        if (!enabled) return;
+        evictExpired();
+        Replay replay = replays.get(interviewerMessageId);
+        if (replay == null) {
+            // Failed before the first frame; still worth answering a resume with the final state
+            replay = new Replay(sessionId, interviewerMessageId);
+            replays.put(interviewerMessageId, replay);
+            evictOverCapacity();
+        } else if (replay.status != MessageStatus.STREAMING) {
+            return;
+        }
+        replay.finish(status, content, error, ticker.getAsLong());
+        finished.addLast(replay);
+    }
+
+    private void evictExpired() {
+        long now = ticker.getAsLong();
+        while (!finished.isEmpty() && now - finished.peekFirst().finishedAt >= retainAfterCompleteNanos) {
+            Replay expired = finished.pollFirst();
+            replays.remove(expired.interviewerMessageId, expired);
+        }
+    }
+
+    private void evictOverCapacity() {
+        Iterator<Replay> oldest = replays.values().iterator();
+        while (replays.size() > maxMessages && oldest.hasNext()) {
+            Replay evicted = oldest.next();
+            oldest.remove();
+            if (evicted.status != MessageStatus.STREAMING) {
+                finished.remove(evicted);
+            }
+        }
+    }
+
+    private final class Replay {
+
+        private final UUID sessionId;
+        private final UUID interviewerMessageId;
+        private final ArrayDeque<StreamReplay.Frame> frames = new ArrayDeque<>();
+        private int chars;
+        private long lastFrameSeq;
+        private long droppedThroughSeq;
+        private MessageStatus status = MessageStatus.STREAMING;
+        private String content;
+        private String error;
+        private long finishedAt;
+
+        private Replay(UUID sessionId, UUID interviewerMessageId) {
+            this.sessionId = sessionId;
+            this.interviewerMessageId = interviewerMessageId;
+        }
+
+        private void append(long frameSeq, String delta) {
+            if (status != MessageStatus.STREAMING || frameSeq <= lastFrameSeq) return;
+            if (lastFrameSeq == 0) {
+                // First frame this buffer has seen; earlier ones (before an eviction mid-stream) are missing
+                droppedThroughSeq = frameSeq - 1;
+            }
+            frames.addLast(new StreamReplay.Frame(frameSeq, delta));
+            chars += delta.length();
+            lastFrameSeq = frameSeq;
+            // Always keep the newest frame, even when it alone is over the character cap
+            while (frames.size() > 1 && (frames.size() > maxFramesPerMessage || chars > maxCharsPerMessage)) {
+                StreamReplay.Frame dropped = frames.pollFirst();
+                chars -= dropped.delta().length();
+                droppedThroughSeq = dropped.frameSeq();
+            }
+        }
+
+        private void finish(MessageStatus status, String content, String error, long finishedAt) {
+            this.status = status;
+            this.content = content;
+            this.error = error;
+            this.finishedAt = finishedAt;
+            frames.clear();
+            chars = 0;
+        }
+
+        private StreamReplay after(long afterFrameSeq) {
+            if (status != MessageStatus.STREAMING) {
+                return new StreamReplay(interviewerMessageId, status, lastFrameSeq, false, List.of(), content, error);
+            }
+            List<StreamReplay.Frame> missed = new ArrayList<>();
+            for (StreamReplay.Frame frame : frames) {
+                if (frame.frameSeq() > afterFrameSeq) {
+                    missed.add(frame);
+                }
+            }
+            return new StreamReplay(interviewerMessageId, status, lastFrameSeq, afterFrameSeq < droppedThroughSeq,
+                    missed, null, null);
+        }
+    }
+}
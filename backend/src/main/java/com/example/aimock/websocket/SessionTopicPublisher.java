@@ -14,6 +14,7 @@ public class SessionTopicPublisher {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final Counter websocketMessagesSent;
+    private final DeltaReplayBuffer deltaReplayBuffer;
 
     public void publish(SessionTopicEvent event) {
         String topic = "/topic/session/" + event.sessionId();
@@ -30,11 +31,19 @@ public class SessionTopicPublisher {
         publish(SessionTopicEvent.aiDelta(sessionId, interviewerMessageId, delta));
     }
 
+    public void aiDelta(UUID sessionId, UUID interviewerMessageId, String delta, long frameSeq) {
+        // Buffered before sending, so a client resuming from this frame never misses it
+        deltaReplayBuffer.frame(sessionId, interviewerMessageId, frameSeq, delta);
+        publish(SessionTopicEvent.aiDelta(sessionId, interviewerMessageId, delta, frameSeq));
+    }
+
     public void aiComplete(UUID sessionId, UUID interviewerMessageId, String content) {
+        deltaReplayBuffer.completed(sessionId, interviewerMessageId, content);
         publish(SessionTopicEvent.aiComplete(sessionId, interviewerMessageId, content));
     }
 
     public void aiFailed(UUID sessionId, UUID interviewerMessageId, String error) {
+        deltaReplayBuffer.failed(sessionId, interviewerMessageId, error);
         publish(SessionTopicEvent.aiFailed(sessionId, interviewerMessageId, error));
     }
 
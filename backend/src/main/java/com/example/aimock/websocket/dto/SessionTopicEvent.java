@@ -16,28 +16,34 @@ public record SessionTopicEvent(
         // Message limit fields
         Integer messageLimit,
         Integer messageCount,
-        String tier
+        String tier,
+        // Per-message frame sequence for ai_delta (null for other event types)
+        Long frameSeq
 ) {
     public static SessionTopicEvent accepted(UUID sessionId, UUID userMessageId, UUID interviewerMessageId) {
-        return new SessionTopicEvent("accepted", sessionId, userMessageId, interviewerMessageId, null, null, null, null, null, null, null);
+        return new SessionTopicEvent("accepted", sessionId, userMessageId, interviewerMessageId, null, null, null, null, null, null, null, null);
     }
 
     public static SessionTopicEvent aiDelta(UUID sessionId, UUID interviewerMessageId, String delta) {
-        return new SessionTopicEvent("ai_delta", sessionId, null, interviewerMessageId, delta, null, MessageStatus.STREAMING, null, null, null, null);
+        return aiDelta(sessionId, interviewerMessageId, delta, null);
+    }
+
+    public static SessionTopicEvent aiDelta(UUID sessionId, UUID interviewerMessageId, String delta, Long frameSeq) {
+        return new SessionTopicEvent("ai_delta", sessionId, null, interviewerMessageId, delta, null, MessageStatus.STREAMING, null, null, null, null, frameSeq);
     }
 
     public static SessionTopicEvent aiComplete(UUID sessionId, UUID interviewerMessageId, String content) {
-        return new SessionTopicEvent("ai_complete", sessionId, null, interviewerMessageId, null, content, MessageStatus.COMPLETED, null, null, null, null);
+        return new SessionTopicEvent("ai_complete", sessionId, null, interviewerMessageId, null, content, MessageStatus.COMPLETED, null, null, null, null, null);
     }
 
     public static SessionTopicEvent aiFailed(UUID sessionId, UUID interviewerMessageId, String error) {
-        return new SessionTopicEvent("ai_failed", sessionId, null, interviewerMessageId, null, null, MessageStatus.FAILED, error, null, null, null);
+        return new SessionTopicEvent("ai_failed", sessionId, null, interviewerMessageId, null, null, MessageStatus.FAILED, error, null, null, null, null);
     }
 
     public static SessionTopicEvent messageLimitExceeded(UUID sessionId, int messageLimit, int messageCount, String tier) {
         return new SessionTopicEvent("message_limit_exceeded", sessionId, null, null, null, null, null, 
                 String.format("Message limit exceeded. You have used %d of %d messages on the %s tier.", messageCount, messageLimit, tier),
-                messageLimit, messageCount, tier);
+                messageLimit, messageCount, tier, null);
     }
 }
 
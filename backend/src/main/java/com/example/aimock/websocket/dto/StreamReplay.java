@@ -0,0 +1,27 @@
+package com.example.aimock.websocket.dto;
+
+import com.example.aimock.messages.model.MessageStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What a reconnecting client missed of one interviewer message since {@code afterFrameSeq}.
+ *
+ * While streaming, {@code frames} holds the buffered ai_delta frames after the offset. Once the message
+ * completed or failed, {@code frames} is empty and {@code content} / {@code error} carry the final state,
+ * exactly as the ai_complete / ai_failed event would have. {@code truncated} means frames the client needs
+ * were already dropped from the buffer; it should reload the message instead of appending.
+ */
+public record StreamReplay(
+        UUID interviewerMessageId,
+        MessageStatus messageStatus,
+        long lastFrameSeq,
+        boolean truncated,
+        List<Frame> frames,
+        String content,
+        String error
+) {
+    public record Frame(long frameSeq, String delta) {
+    }
+}
@@ -0,0 +1,4 @@
+-- Cache of each message's token count (chat model encoding), filled on first use
+ALTER TABLE messages ADD COLUMN token_count INTEGER;
+
+COMMENT ON COLUMN messages.token_count IS 'Token count of content in the chat model encoding; NULL until counted';
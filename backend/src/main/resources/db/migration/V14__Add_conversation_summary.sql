@@ -0,0 +1,6 @@
+-- Rolling conversation summary, folded in the background once a session gets long
+ALTER TABLE interview_sessions ADD COLUMN conversation_summary TEXT;
+ALTER TABLE interview_sessions ADD COLUMN summarized_through_seq BIGINT;
+
+COMMENT ON COLUMN interview_sessions.conversation_summary IS 'Summary of all turns up to summarized_through_seq';
+COMMENT ON COLUMN interview_sessions.summarized_through_seq IS 'Sequence number of the last message folded into conversation_summary';
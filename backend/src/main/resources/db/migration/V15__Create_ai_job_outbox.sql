@@ -0,0 +1,28 @@
+-- Transactional outbox: AI jobs are written with the messages they belong to and relayed to the queue
+CREATE TABLE ai_job_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    interviewer_message_id UUID NOT NULL,
+    session_id UUID NOT NULL,
+    user_content TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_ai_job_outbox_available ON ai_job_outbox(available_at, id);
+
+-- Wake relays blocked in LISTEN ai_job_outbox; delivered when the inserting transaction commits
+CREATE OR REPLACE FUNCTION notify_ai_job_outbox()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('ai_job_outbox', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ai_job_outbox_notify
+    AFTER INSERT ON ai_job_outbox
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_ai_job_outbox();
+
+COMMENT ON TABLE ai_job_outbox IS 'AI jobs committed with their placeholder message and not yet handed to the job queue';
@@ -0,0 +1,44 @@
+-- Postgres-backed AI job queue (app.pgqueue.enabled): an alternative to SQS for single-database deployments
+CREATE TABLE ai_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    interviewer_message_id UUID NOT NULL,
+    session_id UUID NOT NULL,
+    user_content TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    visible_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp(),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp(),
+    last_error TEXT
+);
+
+-- Claim scans due jobs in id order; the per-session check looks for an older job of the same session
+CREATE INDEX idx_ai_jobs_visible ON ai_jobs(visible_at, id);
+CREATE INDEX idx_ai_jobs_session ON ai_jobs(session_id, id);
+
+-- Jobs that failed max-attempts times; requeue with INSERT INTO ai_jobs ... SELECT ... FROM ai_jobs_dead
+CREATE TABLE ai_jobs_dead (
+    id BIGINT PRIMARY KEY,
+    interviewer_message_id UUID NOT NULL,
+    session_id UUID NOT NULL,
+    user_content TEXT NOT NULL,
+    attempts INTEGER NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL,
+    failed_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp(),
+    last_error TEXT
+);
+
+-- Wake workers blocked in LISTEN ai_jobs; delivered when the inserting transaction commits
+CREATE OR REPLACE FUNCTION notify_ai_jobs()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('ai_jobs', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ai_jobs_notify
+    AFTER INSERT ON ai_jobs
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_ai_jobs();
+
+COMMENT ON TABLE ai_jobs IS 'AI jobs waiting for or leased by a worker; visible_at is the lease expiry while one runs';
+COMMENT ON TABLE ai_jobs_dead IS 'AI jobs that failed max-attempts times';
@@ -0,0 +1,15 @@
+-- One convention for the job queue tables: TIMESTAMPTZ columns that default to now().
+-- The outbox columns held the JVM's local time. The type change reads existing values in the session time
+-- zone, which the JDBC driver sets to the JVM's, so they keep the instant they were written at.
+ALTER TABLE ai_job_outbox
+    ALTER COLUMN available_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN available_at SET DEFAULT now(),
+    ALTER COLUMN created_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN created_at SET DEFAULT now();
+
+ALTER TABLE ai_jobs
+    ALTER COLUMN visible_at SET DEFAULT now(),
+    ALTER COLUMN created_at SET DEFAULT now();
+
+ALTER TABLE ai_jobs_dead
+    ALTER COLUMN failed_at SET DEFAULT now();
@@ -0,0 +1,55 @@
+package com.example.aimock;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * One PostgreSQL server per test JVM, run from the binaries in the embedded-postgres jar, so tests of
+ * native SQL run on every build, with or without Docker. Flyway migrates it like production; tests share
+ * it and keep their rows apart with fresh ids. The server stops when the JVM exits.
+ */
+public final class EmbeddedPostgresDatabase {
+
+    private static EmbeddedPostgres postgres;
+
+    private EmbeddedPostgresDatabase() {
+    }
+
+    /**
+     * Points the datasource at the embedded server, with the production dialect and Flyway instead of the
+     * H2 schema of the {@code test} profile. Call from a {@code @DynamicPropertySource}.
+     */
+    public static void register(DynamicPropertyRegistry registry) {
+        EmbeddedPostgres server = server();
+        registry.add("spring.datasource.url", () -> server.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.jpa.defer-datasource-initialization", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    /**
+     * The embedded server's database, for tests that run without a Spring context and migrate it themselves.
+     */
+    public static DataSource dataSource() {
+        return server().getPostgresDatabase();
+    }
+
+    private static synchronized EmbeddedPostgres server() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start embedded PostgreSQL", e);
+            }
+        }
+        return postgres;
+    }
+}
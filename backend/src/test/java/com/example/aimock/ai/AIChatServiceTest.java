@@ -1,9 +1,16 @@
 package com.example.aimock.ai;
 
+import com.example.aimock.ai.cassette.CassetteRecorder;
+import com.example.aimock.ai.prompt.HistoryWindowSelector;
+import com.example.aimock.ai.prompt.SystemPromptAssembler;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.ai.routing.ChatBackend;
+import com.example.aimock.ai.routing.ChatBackendRouter;
 import com.example.aimock.ai.strategy.DefaultInterviewStrategy;
-import com.example.aimock.ai.strategy.InterviewStrategy;
-import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.dto.HistoryMessage;
 import com.example.aimock.messages.model.MessageRole;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -19,9 +26,17 @@ import org.springframework.ai.chat.client.ChatClient.CallResponseSpec;
 import org.springframework.ai.chat.client.ChatClient.StreamResponseSpec;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,9 +47,6 @@ import static org.mockito.Mockito.*;
 @DisplayName("AIChatService")
 class AIChatServiceTest {
 
-    @Mock
-    private ChatClient.Builder chatClientBuilder;
-
     @Mock
     private ChatClient chatClient;
 
@@ -53,40 +65,60 @@ class AIChatServiceTest {
     @Captor
     private ArgumentCaptor<List<org.springframework.ai.chat.messages.Message>> messagesCaptor;
 
+    private static final TokenCounter TOKEN_COUNTER = new TokenCounter("gpt-4o-mini");
+
+    private SimpleMeterRegistry registry;
     private AIChatService aiChatService;
 
     @BeforeEach
     void setUp() {
-        when(chatClientBuilder.build()).thenReturn(chatClient);
         when(defaultStrategy.getInterviewType()).thenReturn("DEFAULT");
         when(defaultStrategy.buildSystemPrompt(anyString(), anyString())).thenReturn("System prompt");
         
-        Map<String, InterviewStrategy> strategies = new HashMap<>();
-        strategies.put("default", defaultStrategy);
-        
-        aiChatService = new AIChatService(chatClientBuilder, strategies, defaultStrategy);
+        registry = new SimpleMeterRegistry();
+        aiChatService = newService(6000);
     }
 
-    private Message createUserMessage(String content, UUID sessionId, long seq) {
-        return Message.builder()
-                .id(UUID.randomUUID())
-                .sessionId(sessionId)
-                .seq(seq)
-                .role(MessageRole.USER)
-                .content(content)
-                .build();
+    private AIChatService newService(int tokenBudget) {
+        SystemPromptAssembler assembler = new SystemPromptAssembler(List.of(defaultStrategy), defaultStrategy, TOKEN_COUNTER,
+                registry.counter("ai.prompt.cache.hits"), registry.counter("ai.prompt.cache.misses"), 1000);
+        HistoryWindowSelector selector = new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o-mini"), "", tokenBudget, 20);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 4, 1, 10, 0.9, Duration.ofSeconds(10),
+                0, Duration.ofSeconds(1), System::nanoTime, registry.timer("ai.limiter.queue_wait"),
+                registry.counter("ai.limiter.rejected", "reason", "queue_full"),
+                registry.counter("ai.limiter.rejected", "reason", "timeout"),
+                new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        StreamHedger hedger = new StreamHedger(false, Duration.ZERO, Duration.ZERO, Duration.ZERO, 0, 0,
+                registry.timer("ai.time_to_first_token"), registry.counter("ai.hedges.fired"),
+                registry.counter("ai.hedges.won"), Schedulers.parallel(), System::nanoTime);
+        ChatBackendRouter router = new ChatBackendRouter(List.of(new ChatBackend("openai", chatClient, registry)), 3,
+                Duration.ofSeconds(30), 4);
+        CassetteRecorder recorder = new CassetteRecorder(false, Path.of("cassettes"), new ObjectMapper());
+        return new AIChatService(router, assembler, selector, limiter, hedger, recorder,
+                registry.summary("ai.prompt.tokens.estimated"), registry.summary("ai.prompt.tokens.actual"),
+                registry.summary("ai.prompt.tokens.long_session.summarized"),
+                registry.summary("ai.prompt.tokens.long_session.full"), 16);
     }
 
-    private Message createInterviewerMessage(String content, UUID sessionId, long seq) {
-        return Message.builder()
-                .id(UUID.randomUUID())
-                .sessionId(sessionId)
-                .seq(seq)
-                .role(MessageRole.INTERVIEWER)
-                .content(content)
+    private static ChatResponse chatResponse(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static ChatResponse usageResponse(int promptTokens) {
+        return ChatResponse.builder()
+                .generations(List.of())
+                .metadata(ChatResponseMetadata.builder().usage(new DefaultUsage(promptTokens, 12)).build())
                 .build();
     }
 
+    private HistoryMessage createUserMessage(String content, UUID sessionId, long seq) {
+        return new HistoryMessage(UUID.randomUUID(), seq, MessageRole.USER, content, null);
+    }
+
+    private HistoryMessage createInterviewerMessage(String content, UUID sessionId, long seq) {
+        return new HistoryMessage(UUID.randomUUID(), seq, MessageRole.INTERVIEWER, content, null);
+    }
+
     @Nested
     @DisplayName("generateResponse")
     class GenerateResponse {
@@ -97,14 +129,14 @@ class AIChatServiceTest {
             when(requestSpec.system(anyString())).thenReturn(requestSpec);
             when(requestSpec.messages(anyList())).thenReturn(requestSpec);
             when(requestSpec.call()).thenReturn(callResponseSpec);
-            when(callResponseSpec.content()).thenReturn("AI response");
+            when(callResponseSpec.chatResponse()).thenReturn(chatResponse("AI response"));
         }
 
         @Test
         @DisplayName("should convert database messages to Spring AI message format")
         void convertsMessagesToSpringAIFormat() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = List.of(
+            List<HistoryMessage> history = List.of(
                     createUserMessage("Hello", sessionId, 1L),
                     createInterviewerMessage("Hi there", sessionId, 2L)
             );
@@ -129,7 +161,7 @@ class AIChatServiceTest {
         @DisplayName("should limit conversation history to last 20 messages")
         void limitsHistoryToLast20Messages() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = new ArrayList<>();
+            List<HistoryMessage> history = new ArrayList<>();
             
             // Create 30 messages (15 user + 15 interviewer pairs)
             for (int i = 0; i < 30; i++) {
@@ -150,6 +182,7 @@ class AIChatServiceTest {
             
             // First message should be from position 10 (30 - 20 = 10)
             assertThat(captured.get(0).getText()).isEqualTo("User message 10");
+            assertThat(registry.summary("ai.prompt.tokens.long_session.full").count()).isEqualTo(1);
         }
 
         @Test
@@ -165,10 +198,66 @@ class AIChatServiceTest {
             assertThat(captured.get(0).getText()).isEqualTo("First message");
         }
 
+        @Test
+        @DisplayName("should fill the token budget with the newest messages first")
+        void trimsHistoryToTokenBudget() {
+            UUID sessionId = UUID.randomUUID();
+            String content = "Tell me about a time you had to debug a production incident under pressure.";
+            List<HistoryMessage> history = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                history.add(i % 2 == 0
+                        ? createUserMessage(content + " #" + i, sessionId, i + 1)
+                        : createInterviewerMessage(content + " #" + i, sessionId, i + 1));
+            }
+            String systemPrompt = new SystemPromptAssembler(List.of(defaultStrategy), defaultStrategy, TOKEN_COUNTER,
+                    registry.counter("h"), registry.counter("m"), 0).assemble("TECHNICAL", 3, null);
+            int fixed = TokenCounter.REPLY_PRIMING_TOKENS
+                    + TokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.count(systemPrompt)
+                    + TokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.count("Latest");
+            int perMessage = TokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.count(content + " #9");
+
+            newService(fixed + 3 * perMessage + 1).generateResponse("TECHNICAL", history, "Latest", 3, null);
+
+            verify(requestSpec).messages(messagesCaptor.capture());
+            List<org.springframework.ai.chat.messages.Message> captured = messagesCaptor.getValue();
+            assertThat(captured).extracting(org.springframework.ai.chat.messages.Message::getText)
+                    .containsExactly(content + " #7", content + " #8", content + " #9", "Latest");
+            assertThat(registry.summary("ai.prompt.tokens.estimated").totalAmount())
+                    .isEqualTo(fixed + 3 * perMessage);
+        }
+
+        @Test
+        @DisplayName("should record provider-reported prompt tokens")
+        void recordsActualPromptTokens() {
+            when(callResponseSpec.chatResponse()).thenReturn(ChatResponse.builder()
+                    .generations(List.of(new Generation(new AssistantMessage("AI response"))))
+                    .metadata(ChatResponseMetadata.builder().usage(new DefaultUsage(1234, 5)).build())
+                    .build());
+
+            aiChatService.generateResponse("TECHNICAL", Collections.emptyList(), "Test", 3, null);
+
+            assertThat(registry.summary("ai.prompt.tokens.actual").count()).isEqualTo(1);
+            assertThat(registry.summary("ai.prompt.tokens.actual").totalAmount()).isEqualTo(1234);
+            assertThat(registry.summary("ai.prompt.tokens.estimated").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should append the rolling summary to the system prompt")
+        void appendsSummaryToSystemPrompt() {
+            ArgumentCaptor<String> systemCaptor = ArgumentCaptor.forClass(String.class);
+
+            aiChatService.generateResponse("TECHNICAL", Collections.emptyList(), "Latest", 3, null, "- Covered caching");
+
+            verify(requestSpec).system(systemCaptor.capture());
+            assertThat(systemCaptor.getValue()).startsWith("System prompt").endsWith("- Covered caching\n");
+            assertThat(registry.summary("ai.prompt.tokens.long_session.summarized").count()).isEqualTo(1);
+            assertThat(registry.summary("ai.prompt.tokens.long_session.full").count()).isZero();
+        }
+
         @Test
         @DisplayName("should handle null response from AI")
         void handlesNullResponse() {
-            when(callResponseSpec.content()).thenReturn(null);
+            when(callResponseSpec.chatResponse()).thenReturn(null);
 
             String response = aiChatService.generateResponse("TECHNICAL", Collections.emptyList(), "Test", 3, null);
 
@@ -192,13 +281,13 @@ class AIChatServiceTest {
         @DisplayName("should use native message format for streaming")
         void usesNativeMessageFormatForStreaming() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = List.of(
+            List<HistoryMessage> history = List.of(
                     createUserMessage("Hello", sessionId, 1L),
                     createInterviewerMessage("Hi", sessionId, 2L)
             );
-            when(streamResponseSpec.content()).thenReturn(Flux.just("Hello", " ", "world"));
+            when(streamResponseSpec.chatResponse()).thenReturn(Flux.just("Hello", " ", "world").map(AIChatServiceTest::chatResponse));
 
-            aiChatService.streamResponse("TECHNICAL", history, "Latest", 3, null);
+            aiChatService.streamResponse("TECHNICAL", history, "Latest", 3, null).blockLast();
 
             verify(requestSpec).messages(messagesCaptor.capture());
             List<org.springframework.ai.chat.messages.Message> captured = messagesCaptor.getValue();
@@ -209,19 +298,33 @@ class AIChatServiceTest {
             assertThat(captured.get(2)).isInstanceOf(UserMessage.class);
         }
 
+        @Test
+        @DisplayName("should stream text and record usage from the final chunk")
+        void recordsUsageFromFinalChunk() {
+            when(streamResponseSpec.chatResponse()).thenReturn(
+                    Flux.just(chatResponse("Hel"), chatResponse("lo"), usageResponse(321)));
+
+            List<String> chunks = aiChatService.streamResponse("TECHNICAL", Collections.emptyList(), "Latest", 3, null)
+                    .collectList().block();
+
+            assertThat(chunks).containsExactly("Hel", "lo");
+            assertThat(registry.summary("ai.prompt.tokens.actual").count()).isEqualTo(1);
+            assertThat(registry.summary("ai.prompt.tokens.actual").totalAmount()).isEqualTo(321);
+        }
+
         @Test
         @DisplayName("should limit history to 20 messages for streaming")
         void limitsHistoryForStreaming() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = IntStream.range(0, 25)
+            List<HistoryMessage> history = IntStream.range(0, 25)
                     .mapToObj(i -> i % 2 == 0 
                             ? createUserMessage("Msg " + i, sessionId, i + 1)
                             : createInterviewerMessage("Resp " + i, sessionId, i + 1))
                     .toList();
             
-            when(streamResponseSpec.content()).thenReturn(Flux.just("Response"));
+            when(streamResponseSpec.chatResponse()).thenReturn(Flux.just(chatResponse("Response")));
 
-            aiChatService.streamResponse("TECHNICAL", history, "New msg", 3, null);
+            aiChatService.streamResponse("TECHNICAL", history, "New msg", 3, null).blockLast();
 
             verify(requestSpec).messages(messagesCaptor.capture());
             List<org.springframework.ai.chat.messages.Message> captured = messagesCaptor.getValue();
@@ -231,6 +334,23 @@ class AIChatServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("complete")
+    class Complete {
+
+        @Test
+        @DisplayName("should send a one-off prompt through the routed backend")
+        void sendsOneOffPrompt() {
+            when(chatClient.prompt()).thenReturn(requestSpec);
+            when(requestSpec.system("Summarize")).thenReturn(requestSpec);
+            when(requestSpec.user("Transcript")).thenReturn(requestSpec);
+            when(requestSpec.call()).thenReturn(callResponseSpec);
+            when(callResponseSpec.chatResponse()).thenReturn(chatResponse("- Summary"));
+
+            assertThat(aiChatService.complete("Summarize", "Transcript")).isEqualTo("- Summary");
+        }
+    }
+
     @Nested
     @DisplayName("message role conversion")
     class MessageRoleConversion {
@@ -241,14 +361,14 @@ class AIChatServiceTest {
             when(requestSpec.system(anyString())).thenReturn(requestSpec);
             when(requestSpec.messages(anyList())).thenReturn(requestSpec);
             when(requestSpec.call()).thenReturn(callResponseSpec);
-            when(callResponseSpec.content()).thenReturn("Response");
+            when(callResponseSpec.chatResponse()).thenReturn(chatResponse("Response"));
         }
 
         @Test
         @DisplayName("should convert USER role to UserMessage")
         void convertsUserRoleToUserMessage() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = List.of(createUserMessage("User content", sessionId, 1L));
+            List<HistoryMessage> history = List.of(createUserMessage("User content", sessionId, 1L));
 
             aiChatService.generateResponse("TECHNICAL", history, "Latest", 3, null);
 
@@ -262,7 +382,7 @@ class AIChatServiceTest {
         @DisplayName("should convert INTERVIEWER role to AssistantMessage")
         void convertsInterviewerRoleToAssistantMessage() {
             UUID sessionId = UUID.randomUUID();
-            List<Message> history = List.of(createInterviewerMessage("AI content", sessionId, 1L));
+            List<HistoryMessage> history = List.of(createInterviewerMessage("AI content", sessionId, 1L));
 
             aiChatService.generateResponse("TECHNICAL", history, "Latest", 3, null);
 
@@ -1,11 +1,14 @@
 package com.example.aimock.ai;
 
+import com.example.aimock.ai.routing.ChatBackend;
+import com.example.aimock.ai.routing.ChatBackendRouter;
 import com.example.aimock.messages.MessageRepository;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.Status;
 import com.example.aimock.session.dto.EvaluationResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -16,10 +19,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -28,9 +33,6 @@ import static org.mockito.Mockito.when;
 @DisplayName("AIEvaluationService")
 class AIEvaluationServiceTest {
 
-    @Mock
-    private ChatClient.Builder chatClientBuilder;
-
     @Mock
     private ChatClient chatClient;
 
@@ -43,8 +45,15 @@ class AIEvaluationServiceTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        when(chatClientBuilder.build()).thenReturn(chatClient);
-        evaluationService = new AIEvaluationService(chatClientBuilder, messageRepository, objectMapper);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 4, 1, 10, 0.9, Duration.ofSeconds(10),
+                0, Duration.ofSeconds(1), System::nanoTime, registry.timer("ai.limiter.queue_wait"),
+                registry.counter("ai.limiter.rejected", "reason", "queue_full"),
+                registry.counter("ai.limiter.rejected", "reason", "timeout"),
+                new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        ChatBackendRouter router = new ChatBackendRouter(List.of(new ChatBackend("openai", chatClient, registry)), 3,
+                Duration.ofSeconds(30), 4);
+        evaluationService = new AIEvaluationService(router, messageRepository, objectMapper, limiter);
     }
 
     private InterviewSession createTestSession() {
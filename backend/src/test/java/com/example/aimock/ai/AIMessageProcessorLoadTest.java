@@ -0,0 +1,183 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.ai.prompt.HistoryWindowSelector;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.session.ConversationCache;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import com.example.aimock.session.Status;
+import com.example.aimock.websocket.DeltaCoalescer;
+import com.example.aimock.websocket.SessionTopicPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many interview turns on a node with a fixed number of worker threads. The model is simulated with a
+ * Flux that needs no thread to wait for tokens, like the real WebClient-backed stream. How many streams
+ * each mode sustains, and how fast, is measured by {@code ConcurrentTurnsBenchmark} in {@code benchmarks/}.
+ */
+@DisplayName("AIMessageProcessor load")
+class AIMessageProcessorLoadTest {
+
+    private static final int WORKER_THREADS = 16;
+    private static final int CONCURRENT_TURNS = 200;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private AIChatService aiChatService;
+    private MeterRegistry meterRegistry;
+    private Scheduler aiBlockingScheduler;
+    private AIMessageProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        aiChatService = mock(AIChatService.class);
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        InterviewSessionRepository sessionRepository = mock(InterviewSessionRepository.class);
+
+        when(messageRepository.findById(any())).thenAnswer(inv -> {
+            Message placeholder = Message.interviewer("", UUID.randomUUID(), 2L);
+            placeholder.setId(inv.getArgument(0));
+            return Optional.of(placeholder);
+        });
+        when(messageRepository.findRecentHistory(any(), anyLong(), anyLong(), any())).thenReturn(List.of());
+        when(messageRepository.startStreaming(any(), anyCollection())).thenReturn(1);
+        when(messageRepository.completeStreaming(any(), anyString(), anyInt())).thenReturn(1);
+        when(sessionRepository.findById(any())).thenAnswer(inv -> Optional.of(InterviewSession.builder()
+                .id(inv.getArgument(0))
+                .userId(UUID.randomUUID())
+                .title("Load")
+                .interviewType("TECHNICAL")
+                .status(Status.STARTED)
+                .build()));
+
+        meterRegistry = new SimpleMeterRegistry();
+        TokenCounter tokenCounter = new TokenCounter("gpt-4o-mini");
+        SessionTopicPublisher topicPublisher = mock(SessionTopicPublisher.class);
+        aiBlockingScheduler = Schedulers.newBoundedElastic(WORKER_THREADS, 10_000, "ai-blocking-test");
+        processor = new AIMessageProcessor(
+                aiChatService,
+                messageRepository,
+                sessionRepository,
+                topicPublisher,
+                new DeltaCoalescer(topicPublisher, meterRegistry.counter("websocket.delta.frames"),
+                        meterRegistry.counter("websocket.delta.bytes"), meterRegistry.counter("websocket.delta.tokens"),
+                        true, 50, 256),
+                tokenCounter,
+                new HistoryWindowSelector(tokenCounter, List.of("gpt-4o-mini"), "", 6000, 20),
+                mock(ConversationSummarizer.class),
+                mock(ConversationCache.class),
+                new StreamCheckpointer(messageRepository, mock(PlatformTransactionManager.class), aiBlockingScheduler,
+                        meterRegistry.summary("ai.checkpoint.writes"),
+                        meterRegistry.summary("ai.checkpoint.write_amplification"), false, 1000, 512, 20),
+                meterRegistry.timer("ai.response.duration"),
+                meterRegistry.timer("ai.time_to_first_token"),
+                meterRegistry.timer("ai.time_to_first_token.long_session.summarized"),
+                meterRegistry.timer("ai.time_to_first_token.long_session.full"),
+                meterRegistry.counter("ai.processing.success"),
+                meterRegistry.counter("ai.processing.failure"),
+                mock(PlatformTransactionManager.class),
+                aiBlockingScheduler,
+                new AtomicInteger()
+        );
+        ReflectionTestUtils.setField(processor, "streamingEnabled", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        aiBlockingScheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("blocking mode never runs more streams than it has worker threads")
+    void blockingModeIsCappedByWorkerThreads() throws Exception {
+        when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                .thenAnswer(inv -> countedStream(Flux.just("token ", "token ")));
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+        try {
+            List<Future<AIProcessingResult>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_TURNS; i++) {
+                futures.add(workers.submit(() ->
+                        processor.processMessage(UUID.randomUUID(), UUID.randomUUID(), "answer")));
+            }
+            for (Future<AIProcessingResult> future : futures) {
+                assertThat(future.get(60, TimeUnit.SECONDS).getStatus()).isEqualTo(AIProcessingResult.Status.SUCCESS);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertThat(peakInFlight.get()).isLessThanOrEqualTo(WORKER_THREADS);
+        assertThat(meterRegistry.counter("ai.processing.success").count()).isEqualTo(CONCURRENT_TURNS);
+    }
+
+    @Test
+    @DisplayName("reactive mode keeps every turn streaming at once without holding a worker thread per stream")
+    void reactiveModeStreamsAllTurnsAtOnce() throws Exception {
+        // No stream emits a token before every turn has started one, so this only finishes if all of them
+        // are open at the same time on WORKER_THREADS threads
+        Sinks.Empty<Void> allStarted = Sinks.empty();
+        AtomicInteger started = new AtomicInteger();
+        when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                .thenAnswer(inv -> countedStream(Flux.defer(() -> {
+                    if (started.incrementAndGet() == CONCURRENT_TURNS) {
+                        allStarted.tryEmitEmpty();
+                    }
+                    return allStarted.asMono().thenMany(Flux.just("token ", "token "));
+                })));
+
+        CountDownLatch done = new CountDownLatch(CONCURRENT_TURNS);
+        AtomicInteger succeeded = new AtomicInteger();
+        for (int i = 0; i < CONCURRENT_TURNS; i++) {
+            processor.processMessageReactive(UUID.randomUUID(), UUID.randomUUID(), "answer")
+                    .doFinally(signal -> done.countDown())
+                    .subscribe(result -> {
+                        if (result.getStatus() == AIProcessingResult.Status.SUCCESS) {
+                            succeeded.incrementAndGet();
+                        }
+                    });
+        }
+
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        assertThat(succeeded.get()).isEqualTo(CONCURRENT_TURNS);
+        assertThat(peakInFlight.get()).isEqualTo(CONCURRENT_TURNS);
+        assertThat(meterRegistry.counter("ai.processing.failure").count()).isZero();
+    }
+
+    private Flux<String> countedStream(Flux<String> tokens) {
+        return Flux.defer(() -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return tokens.doOnTerminate(inFlight::decrementAndGet);
+        });
+    }
+}
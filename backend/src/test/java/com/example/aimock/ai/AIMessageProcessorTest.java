@@ -1,15 +1,23 @@
 package com.example.aimock.ai;
 
+import com.example.aimock.ai.prompt.HistoryWindowSelector;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.exception.AiBusyException;
 import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.dto.HistoryMessage;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.messages.model.MessageRole;
 import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.session.ConversationCache;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.InterviewSessionRepository;
 import com.example.aimock.session.Status;
+import com.example.aimock.websocket.DeltaCoalescer;
 import com.example.aimock.websocket.SessionTopicPublisher;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -21,10 +29,13 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -34,6 +45,8 @@ import static org.mockito.Mockito.*;
 @DisplayName("AIMessageProcessor")
 class AIMessageProcessorTest {
 
+    private static final TokenCounter TOKEN_COUNTER = new TokenCounter("gpt-4o-mini");
+
     @Mock
     private AIChatService aiChatService;
 
@@ -52,6 +65,18 @@ class AIMessageProcessorTest {
     @Mock
     private Timer aiTimeToFirstToken;
 
+    @Mock
+    private Timer aiLongSessionTtftSummarized;
+
+    @Mock
+    private Timer aiLongSessionTtftFull;
+
+    @Mock
+    private ConversationSummarizer conversationSummarizer;
+
+    @Mock
+    private ConversationCache conversationCache;
+
     @Mock
     private Counter aiProcessingSuccess;
 
@@ -74,17 +99,55 @@ class AIMessageProcessorTest {
                 messageRepository,
                 sessionRepository,
                 topicPublisher,
+                newDeltaCoalescer(topicPublisher),
+                TOKEN_COUNTER,
+                new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o-mini"), "", 6000, 20),
+                conversationSummarizer,
+                conversationCache,
+                new StreamCheckpointer(messageRepository, transactionManager, Schedulers.immediate(),
+                        mock(DistributionSummary.class), mock(DistributionSummary.class), false, 1000, 512, 20),
                 aiResponseTimer,
                 aiTimeToFirstToken,
+                aiLongSessionTtftSummarized,
+                aiLongSessionTtftFull,
                 aiProcessingSuccess,
                 aiProcessingFailure,
-                transactionManager
+                transactionManager,
+                Schedulers.immediate(),
+                new AtomicInteger()
         );
         ReflectionTestUtils.setField(processor, "streamingEnabled", true);
 
         sessionId = UUID.randomUUID();
         interviewerMessageId = UUID.randomUUID();
         userId = UUID.randomUUID();
+
+        // The conditional status updates act on the placeholder findById returns, as they would on its row
+        lenient().when(messageRepository.startStreaming(any(), anyCollection())).thenAnswer(inv ->
+                transition(inv.getArgument(0), inv.getArgument(1), MessageStatus.STREAMING));
+        lenient().when(messageRepository.failUnfinished(any())).thenAnswer(inv -> transition(inv.getArgument(0),
+                List.of(MessageStatus.PENDING, MessageStatus.STREAMING), MessageStatus.FAILED));
+        lenient().when(messageRepository.completeStreaming(any(), anyString(), anyInt())).thenAnswer(inv -> {
+            int updated = transition(inv.getArgument(0), List.of(MessageStatus.STREAMING), MessageStatus.COMPLETED);
+            if (updated == 1) {
+                Message msg = messageRepository.findById(inv.getArgument(0)).orElseThrow();
+                msg.setContent(inv.getArgument(1));
+                msg.setTokenCount(inv.getArgument(2));
+            }
+            return updated;
+        });
+    }
+
+    private int transition(UUID id, Collection<MessageStatus> from, MessageStatus to) {
+        Optional<Message> msg = messageRepository.findById(id).filter(m -> from.contains(m.getMessageStatus()));
+        msg.ifPresent(m -> m.setMessageStatus(to));
+        return msg.isPresent() ? 1 : 0;
+    }
+
+    private static DeltaCoalescer newDeltaCoalescer(SessionTopicPublisher topicPublisher) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new DeltaCoalescer(topicPublisher, registry.counter("websocket.delta.frames"),
+                registry.counter("websocket.delta.bytes"), registry.counter("websocket.delta.tokens"), true, 50, 256);
     }
 
     @Nested
@@ -106,9 +169,9 @@ class AIMessageProcessorTest {
                     .build();
 
             when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
-            when(messageRepository.findBySessionIdOrderBySeqAsc(sessionId)).thenReturn(List.of());
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
             when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any()))
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
                     .thenReturn(Flux.just("Hello", " ", "world"));
             when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
                 try {
@@ -128,6 +191,128 @@ class AIMessageProcessorTest {
             verify(topicPublisher).aiComplete(eq(sessionId), eq(interviewerMessageId), eq("Hello world"));
         }
 
+        @Test
+        @DisplayName("does nothing when the same job runs again after the turn finished")
+        void runsSameJobTwice() throws Exception {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+            InterviewSession session = InterviewSession.builder()
+                    .id(sessionId)
+                    .userId(userId)
+                    .title("Test")
+                    .interviewType("TECHNICAL")
+                    .experienceYears(3)
+                    .status(Status.STARTED)
+                    .build();
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.just("Hello"), Flux.just("Second reply"));
+            when(aiResponseTimer.recordCallable(any())).thenAnswer(inv ->
+                    inv.getArgument(0, java.util.concurrent.Callable.class).call());
+
+            var first = processor.processMessage(interviewerMessageId, sessionId, "Test", false, false);
+            // As after a lost lease: a later attempt of the same job
+            var second = processor.processMessage(interviewerMessageId, sessionId, "Test", true, false);
+
+            assertThat(first.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            assertThat(second.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.COMPLETED);
+            assertThat(placeholder.getContent()).isEqualTo("Hello");
+            verify(aiChatService, times(1)).streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any());
+            verify(topicPublisher, times(1)).aiComplete(sessionId, interviewerMessageId, "Hello");
+            verify(topicPublisher, never()).aiFailed(any(), any(), any());
+            verify(aiProcessingSuccess, times(1)).increment();
+        }
+
+        @Test
+        @DisplayName("leaves a turn another run is streaming alone unless it is a retry")
+        void leavesStreamingTurnToItsRun() {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+            placeholder.setMessageStatus(MessageStatus.STREAMING);
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+
+            var result = processor.processMessage(interviewerMessageId, sessionId, "Test", false, false);
+
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.STREAMING);
+            verify(messageRepository, never()).startStreaming(any(), anyCollection());
+            verifyNoInteractions(aiChatService, topicPublisher);
+        }
+
+        @Test
+        @DisplayName("sends the rolling summary plus only the turns after it")
+        void sendsSummaryPlusRecentTurns() throws Exception {
+            Message placeholder = Message.interviewer("", sessionId, 6L);
+            placeholder.setId(interviewerMessageId);
+            InterviewSession session = InterviewSession.builder()
+                    .id(sessionId)
+                    .userId(userId)
+                    .title("Test")
+                    .interviewType("TECHNICAL")
+                    .experienceYears(3)
+                    .status(Status.STARTED)
+                    .conversationSummary("- Discussed caching")
+                    .summarizedThroughSeq(2L)
+                    .build();
+            HistoryMessage recentQuestion = new HistoryMessage(UUID.randomUUID(), 3L, MessageRole.INTERVIEWER, "Q2", 5);
+            HistoryMessage recentAnswer = new HistoryMessage(UUID.randomUUID(), 4L, MessageRole.USER, "A2", null);
+
+            when(conversationSummarizer.isEnabled()).thenReturn(true);
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            // Keyset window after the summary and before the triggering user message (seq 5), newest first
+            when(messageRepository.findRecentHistory(eq(sessionId), eq(2L), eq(5L), any()))
+                    .thenReturn(List.of(recentAnswer, recentQuestion));
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.just("Next"));
+            when(aiResponseTimer.recordCallable(any())).thenAnswer(inv ->
+                    inv.getArgument(0, java.util.concurrent.Callable.class).call());
+
+            var result = processor.processMessage(interviewerMessageId, sessionId, "A3");
+
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            int answerTokens = TOKEN_COUNTER.count("A2");
+            verify(messageRepository).updateTokenCount(recentAnswer.id(), answerTokens);
+            verify(aiChatService).streamResponse(eq("TECHNICAL"),
+                    eq(List.of(recentQuestion, recentAnswer.withTokenCount(answerTokens))),
+                    eq("A3"), eq(3), isNull(), eq("- Discussed caching"));
+            verify(aiLongSessionTtftSummarized).record(anyLong(), eq(java.util.concurrent.TimeUnit.MILLISECONDS));
+            verify(aiLongSessionTtftFull, never()).record(anyLong(), any(java.util.concurrent.TimeUnit.class));
+            verify(conversationSummarizer).summarizeInBackground(sessionId);
+        }
+
+        @Test
+        @DisplayName("builds the prompt from the conversation cache and writes the reply through")
+        void usesConversationCache() throws Exception {
+            Message placeholder = Message.interviewer("", sessionId, 4L);
+            placeholder.setId(interviewerMessageId);
+            HistoryMessage question = new HistoryMessage(UUID.randomUUID(), 1L, MessageRole.INTERVIEWER, "Q1", 2);
+            HistoryMessage answer = new HistoryMessage(UUID.randomUUID(), 2L, MessageRole.USER, "A1", 2);
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(conversationCache.session(sessionId)).thenReturn(Optional.of(
+                    new ConversationCache.SessionSnapshot("BEHAVIORAL", 5, "Staff engineer", null, null)));
+            when(conversationCache.history(sessionId, 0L, 3L, 20)).thenReturn(Optional.of(List.of(question, answer)));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.just("Next ", "question"));
+            when(aiResponseTimer.recordCallable(any())).thenAnswer(inv ->
+                    inv.getArgument(0, java.util.concurrent.Callable.class).call());
+
+            var result = processor.processMessage(interviewerMessageId, sessionId, "A2");
+
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            verify(sessionRepository, never()).findById(any());
+            verify(messageRepository, never()).findRecentHistory(any(), anyLong(), anyLong(), any());
+            verify(aiChatService).streamResponse(eq("BEHAVIORAL"), eq(List.of(question, answer)), eq("A2"), eq(5),
+                    eq("Staff engineer"), isNull());
+            verify(conversationCache).messageCompleted(sessionId, new HistoryMessage(interviewerMessageId, 4L,
+                    MessageRole.INTERVIEWER, "Next question", TOKEN_COUNTER.count("Next question")));
+        }
+
         @Test
         void handlesPlaceholderNotFound() {
             when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.empty());
@@ -187,9 +372,9 @@ class AIMessageProcessorTest {
                     .build();
 
             when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
-            when(messageRepository.findBySessionIdOrderBySeqAsc(sessionId)).thenReturn(List.of());
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
             when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any()))
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
                     .thenThrow(new RuntimeException("AI service error"));
             when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
                 try {
@@ -206,6 +391,77 @@ class AIMessageProcessorTest {
             verify(aiProcessingFailure).increment();
         }
 
+        @Test
+        @DisplayName("asks for a retry instead of failing the turn when the model fails before the first token")
+        void retriesBeforeFirstToken() throws Exception {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+            
+            InterviewSession session = InterviewSession.builder()
+                    .id(sessionId)
+                    .userId(userId)
+                    .title("Test")
+                    .interviewType("TECHNICAL")
+                    .experienceYears(3)
+                    .status(Status.STARTED)
+                    .build();
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenThrow(new RuntimeException("AI service error"));
+            when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
+                try {
+                    return inv.getArgument(0, java.util.concurrent.Callable.class).call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            var result = processor.processMessage(interviewerMessageId, sessionId, "Test", false, false);
+
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.RETRY);
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.STREAMING);
+            verify(topicPublisher, never()).aiFailed(any(), any(), any());
+            verify(aiProcessingFailure, never()).increment();
+        }
+
+        @Test
+        @DisplayName("fails the turn when the model fails after the first token, even before the last attempt")
+        void failsAfterFirstToken() throws Exception {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+            
+            InterviewSession session = InterviewSession.builder()
+                    .id(sessionId)
+                    .userId(userId)
+                    .title("Test")
+                    .interviewType("TECHNICAL")
+                    .experienceYears(3)
+                    .status(Status.STARTED)
+                    .build();
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.concat(Flux.just("Partial"), Flux.error(new RuntimeException("reset"))));
+            when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
+                try {
+                    return inv.getArgument(0, java.util.concurrent.Callable.class).call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            var result = processor.processMessage(interviewerMessageId, sessionId, "Test", false, false);
+
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.FAILED);
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.FAILED);
+            verify(topicPublisher).aiFailed(eq(sessionId), eq(interviewerMessageId), any());
+        }
+
         @Test
         void recordsTimeToFirstToken() throws Exception {
             Message placeholder = Message.interviewer("", sessionId, 1L);
@@ -221,9 +477,9 @@ class AIMessageProcessorTest {
                     .build();
 
             when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
-            when(messageRepository.findBySessionIdOrderBySeqAsc(sessionId)).thenReturn(List.of());
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
             when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any()))
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
                     .thenReturn(Flux.just("First", " ", "token"));
             when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
                 try {
@@ -263,9 +519,9 @@ class AIMessageProcessorTest {
                     .build();
 
             when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
-            when(messageRepository.findBySessionIdOrderBySeqAsc(sessionId)).thenReturn(List.of());
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
             when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-            when(aiChatService.generateResponse(anyString(), anyList(), anyString(), anyInt(), any()))
+            when(aiChatService.generateResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
                     .thenReturn("Complete response");
             when(aiResponseTimer.recordCallable(any())).thenAnswer(inv -> {
                 try {
@@ -279,8 +535,163 @@ class AIMessageProcessorTest {
 
             assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
             assertThat(result.getAiResponse()).isEqualTo("Complete response");
-            verify(aiChatService).generateResponse(anyString(), anyList(), anyString(), anyInt(), any());
-            verify(aiChatService, never()).streamResponse(anyString(), anyList(), anyString(), anyInt(), any());
+            verify(aiChatService).generateResponse(anyString(), anyList(), anyString(), anyInt(), any(), any());
+            verify(aiChatService, never()).streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("processMessageReactive")
+    class ProcessMessageReactive {
+
+        private InterviewSession session;
+
+        @BeforeEach
+        void setUp() {
+            session = InterviewSession.builder()
+                    .id(sessionId)
+                    .userId(userId)
+                    .title("Test")
+                    .interviewType("TECHNICAL")
+                    .experienceYears(3)
+                    .status(Status.STARTED)
+                    .build();
+        }
+
+        @Test
+        void processesMessageSuccessfully() {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.just("Hello", " ", "world"));
+
+            var result = processor.processMessageReactive(interviewerMessageId, sessionId, "User message").block();
+
+            assertThat(result).isNotNull();
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.SUCCESS);
+            assertThat(result.getAiResponse()).isEqualTo("Hello world");
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.COMPLETED);
+
+            verify(aiProcessingSuccess).increment();
+            verify(aiTimeToFirstToken).record(anyLong(), any());
+            verify(aiResponseTimer).record(anyLong(), any());
+            // First token goes out alone, the rest is coalesced and flushed before ai_complete
+            var inOrder = inOrder(topicPublisher);
+            inOrder.verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "Hello", 1L);
+            inOrder.verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, " world", 2L);
+            inOrder.verify(topicPublisher).aiComplete(eq(sessionId), eq(interviewerMessageId), eq("Hello world"));
+        }
+
+        @Test
+        void mapsStreamErrorToFailedResult() {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.concat(Flux.just("Partial"), Flux.error(new RuntimeException("upstream reset"))));
+
+            var result = processor.processMessageReactive(interviewerMessageId, sessionId, "Test").block();
+
+            assertThat(result).isNotNull();
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.FAILED);
+            assertThat(result.getErrorMessage()).isEqualTo("upstream reset");
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.FAILED);
+            verify(aiProcessingFailure).increment();
+            verify(topicPublisher).aiFailed(sessionId, interviewerMessageId, "upstream reset");
+        }
+
+        @Test
+        @DisplayName("publishes ai_failed with the busy message when the limiter sheds the call")
+        void publishesBusyWhenShed() {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.error(new AiBusyException()));
+
+            var result = processor.processMessageReactive(interviewerMessageId, sessionId, "Test").block();
+
+            assertThat(result).isNotNull();
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.FAILED);
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.FAILED);
+            verify(topicPublisher).aiFailed(sessionId, interviewerMessageId, new AiBusyException().getMessage());
+        }
+
+        @Test
+        @DisplayName("flushes and closes the delta stream when the turn is cancelled mid-stream")
+        void closesDeltasOnCancel() {
+            Message placeholder = Message.interviewer("", sessionId, 1L);
+            placeholder.setId(interviewerMessageId);
+
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+            when(messageRepository.findRecentHistory(eq(sessionId), anyLong(), anyLong(), any())).thenReturn(List.of());
+            when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+            when(aiChatService.streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any()))
+                    .thenReturn(Flux.concat(Flux.just("Hello", " world"), Flux.never()));
+
+            processor.processMessageReactive(interviewerMessageId, sessionId, "Test").subscribe().dispose();
+
+            // The buffered tail goes out on cancel, not when the 50 ms window would have flushed it
+            verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, " world", 2L);
+            verify(aiResponseTimer).record(anyLong(), any());
+            verify(topicPublisher, never()).aiComplete(any(), any(), any());
+        }
+
+        @Test
+        void mapsSynchronousFailureToFailedResult() {
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.empty());
+
+            var result = processor.processMessageReactive(interviewerMessageId, sessionId, "Test").block();
+
+            assertThat(result).isNotNull();
+            assertThat(result.getStatus()).isEqualTo(com.example.aimock.ai.dto.AIProcessingResult.Status.FAILED);
+            assertThat(result.getErrorMessage()).contains("Placeholder not found");
+            verify(aiProcessingFailure).increment();
+            verify(aiChatService, never()).streamResponse(anyString(), anyList(), anyString(), anyInt(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("failUnfinished")
+    class FailUnfinished {
+
+        @Test
+        @DisplayName("fails a turn that was still streaming and publishes ai_failed")
+        void failsStreamingTurn() {
+            Message placeholder = Message.interviewer("partial", sessionId, 2L);
+            placeholder.setId(interviewerMessageId);
+            placeholder.setMessageStatus(MessageStatus.STREAMING);
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+
+            assertThat(processor.failUnfinished(interviewerMessageId, sessionId, "gave up")).isTrue();
+
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.FAILED);
+            verify(topicPublisher).aiFailed(sessionId, interviewerMessageId, "gave up");
+            verify(aiProcessingFailure).increment();
+        }
+
+        @Test
+        @DisplayName("leaves a turn that already completed alone")
+        void leavesCompletedTurn() {
+            Message placeholder = Message.interviewer("done", sessionId, 2L);
+            placeholder.setId(interviewerMessageId);
+            placeholder.setMessageStatus(MessageStatus.COMPLETED);
+            when(messageRepository.findById(interviewerMessageId)).thenReturn(Optional.of(placeholder));
+
+            assertThat(processor.failUnfinished(interviewerMessageId, sessionId, "gave up")).isFalse();
+
+            assertThat(placeholder.getMessageStatus()).isEqualTo(MessageStatus.COMPLETED);
+            verifyNoInteractions(topicPublisher, aiProcessingFailure);
         }
     }
 }
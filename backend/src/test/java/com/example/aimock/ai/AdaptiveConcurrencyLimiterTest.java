@@ -0,0 +1,219 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.exception.AiBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("AdaptiveConcurrencyLimiter")
+class AdaptiveConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private AtomicInteger limitGauge;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        limitGauge = new AtomicInteger();
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit, int maxQueue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(true, initialLimit, 2, 20, 0.5, Duration.ofSeconds(5), maxQueue, maxWait,
+                clock::get, registry.timer("ai.limiter.queue_wait"),
+                registry.counter("ai.limiter.rejected", "reason", "queue_full"),
+                registry.counter("ai.limiter.rejected", "reason", "timeout"),
+                limitGauge, new AtomicInteger(), new AtomicInteger());
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter, int permits) {
+        List<AdaptiveConcurrencyLimiter.Permit> acquired = new ArrayList<>();
+        for (int i = 0; i < permits; i++) {
+            acquired.add(limiter.acquire().join());
+        }
+        return acquired;
+    }
+
+    private double rejected(String reason) {
+        return registry.counter("ai.limiter.rejected", "reason", reason).count();
+    }
+
+    @Test
+    @DisplayName("queues callers over the limit in order and sheds them once the queue is full")
+    void queuesAndSheds() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2, 1, Duration.ofMinutes(1));
+        List<AdaptiveConcurrencyLimiter.Permit> running = acquire(limiter, 2);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> shed = limiter.acquire();
+
+        assertThat(queued).isNotDone();
+        assertThat(shed).isCompletedExceptionally();
+        assertThatThrownBy(shed::join).hasCauseInstanceOf(AiBusyException.class);
+        assertThat(rejected("queue_full")).isEqualTo(1);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+        running.get(0).cancelled();
+
+        assertThat(queued).isCompleted();
+        assertThat(limiter.inflight()).isEqualTo(2);
+        assertThat(registry.timer("ai.limiter.queue_wait").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("sheds queued callers after max-wait and frees their place in the queue")
+    void queueTimeout() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2, 1, Duration.ofMillis(20));
+        acquire(limiter, 2);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(AiBusyException.class);
+        assertThat(rejected("timeout")).isEqualTo(1);
+        assertThat(limiter.acquire()).isNotDone();
+    }
+
+    @Test
+    @DisplayName("halves the limit on failures and slow first tokens, and grows it back additively")
+    void aimd() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(8, 10, Duration.ofMinutes(1));
+
+        acquire(limiter, 1).get(0).failed();
+        assertThat(limiter.limit()).isEqualTo(4);
+
+        AdaptiveConcurrencyLimiter.Permit slow = acquire(limiter, 1).get(0);
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        slow.firstResponse();
+        slow.succeeded();
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(limitGauge.get()).isEqualTo(2);
+
+        acquire(limiter, 1).get(0).failed();
+        assertThat(limiter.limit()).as("never below min-limit").isEqualTo(2);
+
+        // Each round fills the limit; every success adds 1/limit, so about +1 per round
+        for (int round = 0; round < 4; round++) {
+            acquire(limiter, limiter.limit()).forEach(AdaptiveConcurrencyLimiter.Permit::succeeded);
+        }
+        assertThat(limiter.limit()).isBetween(4, 6);
+    }
+
+    @Test
+    @DisplayName("backs off when a blocking call takes longer than the latency threshold")
+    void slowBlockingCall() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(8, 10, Duration.ofMinutes(1));
+
+        String fast = limiter.call(() -> {
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            return "fast";
+        });
+        assertThat(fast).isEqualTo("fast");
+        assertThat(limiter.limit()).isEqualTo(8);
+
+        limiter.call(() -> {
+            clock.addAndGet(Duration.ofSeconds(6).toNanos());
+            return "slow";
+        });
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(limiter.inflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("leaves the limit alone when calls are cancelled and releases each permit once")
+    void cancellation() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(4, 10, Duration.ofMinutes(1));
+        AdaptiveConcurrencyLimiter.Permit permit = acquire(limiter, 1).get(0);
+
+        permit.cancelled();
+        permit.failed();
+
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(limiter.inflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("holds a permit for the lifetime of a stream and fails shed streams with AiBusyException")
+    void streams() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2, 0, Duration.ofMinutes(1));
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<String> second = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger calls = new AtomicInteger();
+        List<String> received = new ArrayList<>();
+
+        limiter.stream(first::asFlux).subscribe(received::add);
+        Disposable secondSubscription = limiter.stream(second::asFlux).subscribe();
+        first.tryEmitNext("a");
+
+        assertThat(received).containsExactly("a");
+        assertThat(limiter.inflight()).isEqualTo(2);
+        assertThatThrownBy(() -> limiter.stream(() -> {
+                    calls.incrementAndGet();
+                    return Flux.just("never");
+                }).blockLast())
+                .isInstanceOf(AiBusyException.class);
+        assertThat(calls).hasValue(0);
+
+        first.tryEmitComplete();
+        assertThat(limiter.inflight()).isEqualTo(1);
+        secondSubscription.dispose();
+        assertThat(limiter.inflight()).isZero();
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("runs an optional stream only on a free permit, without queueing")
+    void tryStream() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2, 10, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+
+        limiter.tryStream(running::asFlux).subscribe();
+        assertThat(limiter.inflight()).isEqualTo(1);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 1);
+
+        List<String> skipped = limiter.tryStream(() -> {
+            calls.incrementAndGet();
+            return Flux.just("never");
+        }).collectList().block();
+
+        assertThat(skipped).isEmpty();
+        assertThat(calls).hasValue(0);
+        assertThat(limiter.acquire()).as("nothing was queued ahead of this").isNotDone();
+
+        running.tryEmitComplete();
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::succeeded);
+        assertThat(limiter.inflight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("does not limit when disabled")
+    void disabled() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 1, 1, 0.5, Duration.ofSeconds(5),
+                0, Duration.ofSeconds(1), clock::get, registry.timer("ai.limiter.queue_wait"),
+                registry.counter("ai.limiter.rejected", "reason", "queue_full"),
+                registry.counter("ai.limiter.rejected", "reason", "timeout"),
+                limitGauge, new AtomicInteger(), new AtomicInteger());
+
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 5);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::failed);
+
+        assertThat(limiter.inflight()).isZero();
+        assertThat(rejected("queue_full")).isZero();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.aimock.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AiJobExecutor")
+class AiJobExecutorTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private AtomicInteger queuedGauge;
+    private AtomicInteger activeGauge;
+    private AiJobExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        queuedGauge = new AtomicInteger();
+        activeGauge = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown(Duration.ofSeconds(5));
+        }
+    }
+
+    private AiJobExecutor newExecutor(int threads, int queueCapacity, boolean virtualThreads) {
+        executor = new AiJobExecutor(threads, queueCapacity, virtualThreads, clock::get,
+                registry.timer("ai.jobs.queue_wait"), registry.counter("ai.jobs.rejected"), queuedGauge, activeGauge);
+        return executor;
+    }
+
+    private static Runnable await(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("runs jobs beyond the pool size from the queue and rejects them once the queue is full")
+    void queuesAndRejects() throws InterruptedException {
+        AiJobExecutor executor = newExecutor(1, 1, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> rejected = new CopyOnWriteArrayList<>();
+
+        executor.execute(() -> {
+            await(started, release).run();
+            done.countDown();
+        }, () -> rejected.add("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.execute(done::countDown, () -> rejected.add("second"));
+        executor.execute(done::countDown, () -> rejected.add("third"));
+
+        assertThat(rejected).containsExactly("third");
+        assertThat(registry.counter("ai.jobs.rejected").count()).isEqualTo(1);
+        assertThat(activeGauge.get()).isEqualTo(1);
+        assertThat(queuedGauge.get()).isEqualTo(1);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.shutdown(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(queuedGauge.get()).isZero();
+        assertThat(activeGauge.get()).isZero();
+        assertThat(registry.timer("ai.jobs.queue_wait").count()).isEqualTo(2);
+        assertThat(registry.timer("ai.jobs.queue_wait").max(TimeUnit.MILLISECONDS)).isEqualTo(250);
+    }
+
+    @Test
+    @DisplayName("keeps running jobs after one throws")
+    void survivesFailingJob() throws InterruptedException {
+        AiJobExecutor executor = newExecutor(1, 10, false);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        }, () -> { });
+        executor.execute(done::countDown, () -> { });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.shutdown(Duration.ofSeconds(5))).isTrue();
+        assertThat(activeGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("runs jobs on virtual threads when configured, still capped at the pool size")
+    void virtualThreads() throws InterruptedException {
+        AiJobExecutor executor = newExecutor(2, 10, true);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        executor.execute(() -> {
+            thread.set(Thread.currentThread());
+            await(started, release).run();
+        }, () -> { });
+        executor.execute(await(started, release), () -> { });
+        executor.execute(() -> { }, () -> { });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(thread.get().isVirtual()).isTrue();
+        assertThat(thread.get().getName()).startsWith("ai-job-");
+        assertThat(activeGauge.get()).isEqualTo(2);
+        assertThat(queuedGauge.get()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(executor.shutdown(Duration.ofSeconds(5))).isTrue();
+        assertThat(queuedGauge.get()).isZero();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.session.ConversationCache;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConversationSummarizer")
+class ConversationSummarizerTest {
+
+    @Mock
+    private AIChatService aiChatService;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private InterviewSessionRepository sessionRepository;
+
+    @Mock
+    private ConversationCache conversationCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+    private UUID sessionId;
+    private InterviewSession session;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        sessionId = UUID.randomUUID();
+        session = InterviewSession.builder().id(sessionId).userId(UUID.randomUUID())
+                .title("Test").interviewType("TECHNICAL").build();
+    }
+
+    private ConversationSummarizer newSummarizer(boolean enabled) {
+        return new ConversationSummarizer(aiChatService, messageRepository, sessionRepository, conversationCache,
+                transactionManager,
+                Schedulers.immediate(), registry.timer("ai.summary.duration"), registry.counter("ai.summary.updates"),
+                enabled, 4, 2);
+    }
+
+    private static List<Message> turns(UUID sessionId, long fromSeq, int count) {
+        List<Message> messages = new ArrayList<>();
+        for (long seq = fromSeq; seq < fromSeq + count; seq++) {
+            Message message = seq % 2 == 1
+                    ? Message.interviewer("Question " + seq, sessionId, seq)
+                    : Message.user("Answer " + seq, sessionId, seq);
+            message.markComplete();
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private void stubChat(String summary) {
+        when(aiChatService.complete(eq(ConversationSummarizer.SYSTEM_PROMPT), anyString())).thenReturn(summary);
+    }
+
+    @Test
+    @DisplayName("does nothing until unsummarized history passes the trigger")
+    void skipsShortHistory() throws Exception {
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(messageRepository.findBySessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, 0L))
+                .thenReturn(turns(sessionId, 1, 4));
+
+        assertThat(newSummarizer(true).summarizeIfNeeded(sessionId)).isFalse();
+
+        verifyNoInteractions(aiChatService);
+    }
+
+    @Test
+    @DisplayName("folds all but the most recent messages into the summary")
+    void foldsOlderTurns() throws Exception {
+        session.setConversationSummary("- Intro done");
+        session.setSummarizedThroughSeq(2L);
+        List<Message> pending = new ArrayList<>(turns(sessionId, 3, 6));
+        Message streaming = Message.interviewer("", sessionId, 9L);
+        pending.add(streaming);
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(messageRepository.findBySessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, 2L)).thenReturn(pending);
+        when(sessionRepository.updateConversationSummary(sessionId, "- Intro done\n- Covered caching", 6L, 2L))
+                .thenReturn(1);
+        stubChat("  - Intro done\n- Covered caching  ");
+
+        assertThat(newSummarizer(true).summarizeIfNeeded(sessionId)).isTrue();
+
+        ArgumentCaptor<String> userPrompt = ArgumentCaptor.forClass(String.class);
+        verify(aiChatService).complete(eq(ConversationSummarizer.SYSTEM_PROMPT), userPrompt.capture());
+        assertThat(userPrompt.getValue())
+                .contains("- Intro done")
+                .contains("Interviewer: Question 3", "Candidate: Answer 6")
+                .doesNotContain("Question 7", "Answer 8");
+        assertThat(registry.counter("ai.summary.updates").count()).isEqualTo(1);
+        assertThat(registry.timer("ai.summary.duration").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("does not count a superseded summary as stored")
+    void ignoresSupersededSummary() throws Exception {
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(messageRepository.findBySessionIdAndSeqGreaterThanOrderBySeqAsc(sessionId, 0L))
+                .thenReturn(turns(sessionId, 1, 5));
+        when(sessionRepository.updateConversationSummary(eq(sessionId), anyString(), eq(3L), eq(0L))).thenReturn(0);
+        stubChat("- Summary");
+
+        assertThat(newSummarizer(true).summarizeIfNeeded(sessionId)).isFalse();
+        assertThat(registry.counter("ai.summary.updates").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("background updates are skipped when disabled and swallow failures when enabled")
+    void backgroundUpdates() {
+        newSummarizer(false).summarizeInBackground(sessionId);
+        verifyNoInteractions(sessionRepository);
+
+        when(sessionRepository.findById(sessionId)).thenThrow(new RuntimeException("db down"));
+        ConversationSummarizer summarizer = newSummarizer(true);
+        summarizer.summarizeInBackground(sessionId);
+        summarizer.summarizeInBackground(sessionId);
+
+        // The failed run released the session, so the second call ran again
+        verify(sessionRepository, times(2)).findById(sessionId);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.aimock.ai;
+
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.model.StreamingContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StreamCheckpointer")
+class StreamCheckpointerTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+    private UUID messageId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        messageId = UUID.randomUUID();
+    }
+
+    private StreamCheckpointer newCheckpointer(Scheduler scheduler, boolean enabled, long intervalMs, int minChars,
+                                               int maxWrites) {
+        return new StreamCheckpointer(messageRepository, transactionManager, scheduler,
+                registry.summary("ai.checkpoint.writes"), registry.summary("ai.checkpoint.write_amplification"),
+                enabled, intervalMs, minChars, maxWrites);
+    }
+
+    private static void stream(StreamCheckpointer.Checkpoints checkpoints, StreamingContent content, int deltas) {
+        for (int i = 0; i < deltas; i++) {
+            content.append("abcd");
+            checkpoints.onDelta(content);
+        }
+    }
+
+    @Test
+    @DisplayName("writes the partial content once enough new characters arrived")
+    void checkpointsBySize() {
+        StreamCheckpointer.Checkpoints checkpoints =
+                newCheckpointer(Schedulers.immediate(), true, 60_000, 40, 20).open(messageId);
+        StreamingContent content = new StreamingContent();
+
+        stream(checkpoints, content, 25);
+        checkpoints.complete(content.length());
+
+        // 100 characters in 4-character deltas: checkpoints at 40 and 80
+        ArgumentCaptor<String> partial = ArgumentCaptor.forClass(String.class);
+        verify(messageRepository, times(2)).updateStreamingContent(eq(messageId), partial.capture());
+        assertThat(partial.getAllValues()).extracting(String::length).containsExactly(40, 80);
+        assertThat(registry.summary("ai.checkpoint.writes").totalAmount()).isEqualTo(2);
+        // (40 + 80 + 100) characters written for 100 final characters
+        assertThat(registry.summary("ai.checkpoint.write_amplification").totalAmount()).isEqualTo(2.2);
+    }
+
+    @Test
+    @DisplayName("bounds writes per response and stops after completion")
+    void boundsWrites() {
+        StreamCheckpointer.Checkpoints checkpoints =
+                newCheckpointer(Schedulers.immediate(), true, 0, 1_000_000, 3).open(messageId);
+        StreamingContent content = new StreamingContent();
+
+        stream(checkpoints, content, 10);
+        checkpoints.complete(content.length());
+        stream(checkpoints, content, 10);
+
+        verify(messageRepository, times(3)).updateStreamingContent(eq(messageId), any());
+        assertThat(checkpoints.writes()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("skips due checkpoints while a write is still in flight")
+    void oneWriteInFlight() {
+        Scheduler scheduler = mock(Scheduler.class);
+        StreamCheckpointer.Checkpoints checkpoints = newCheckpointer(scheduler, true, 0, 1, 20).open(messageId);
+
+        stream(checkpoints, new StreamingContent(), 5);
+
+        verify(scheduler, times(1)).schedule(any());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("does nothing when disabled")
+    void disabled() {
+        StreamCheckpointer.Checkpoints checkpoints =
+                newCheckpointer(Schedulers.immediate(), false, 0, 1, 20).open(messageId);
+        StreamingContent content = new StreamingContent();
+
+        stream(checkpoints, content, 10);
+        checkpoints.complete(content.length());
+
+        verifyNoInteractions(messageRepository);
+        assertThat(registry.summary("ai.checkpoint.writes").count()).isZero();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.aimock.ai;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StreamHedger")
+class StreamHedgerTest {
+
+    private SimpleMeterRegistry registry;
+    private Timer ttft;
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ttft = Timer.builder("ai.time_to_first_token").publishPercentiles(0.5, 0.95).register(registry);
+        clock = new AtomicLong();
+    }
+
+    private StreamHedger newHedger(boolean enabled, Duration defaultDelay, long minSamples, double maxRatio) {
+        return new StreamHedger(enabled, Duration.ofMillis(5), Duration.ofSeconds(2), defaultDelay, minSamples,
+                maxRatio, ttft, registry.counter("ai.hedges.fired"), registry.counter("ai.hedges.won"),
+                Schedulers.parallel(), clock::get);
+    }
+
+    /**
+     * A call whose n-th subscription (0-based) streams what {@code attempts[n]} returns.
+     */
+    @SafeVarargs
+    private static Supplier<Flux<String>> calls(AtomicInteger subscriptions, Supplier<Flux<String>>... attempts) {
+        return () -> attempts[subscriptions.getAndIncrement()].get();
+    }
+
+    private double count(String name) {
+        return registry.counter(name).count();
+    }
+
+    @Test
+    @DisplayName("keeps the primary when its first token beats the hedge delay")
+    void primaryWins() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(200), 0, 1);
+
+        List<String> items = hedger.hedge(calls(subscriptions, () -> Flux.just("a", "b"))).collectList().block();
+
+        assertThat(items).containsExactly("a", "b");
+        assertThat(subscriptions).hasValue(1);
+        assertThat(count("ai.hedges.fired")).isZero();
+    }
+
+    @Test
+    @DisplayName("starts a second call when the first token is late and cancels the loser")
+    void hedgeWins() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(20), 1000, 1);
+
+        List<String> items = hedger.hedge(calls(subscriptions,
+                        () -> Flux.<String>never().doOnCancel(() -> primaryCancelled.set(true)),
+                        () -> Flux.just("x", "y")))
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(items).containsExactly("x", "y");
+        assertThat(primaryCancelled).isTrue();
+        assertThat(count("ai.hedges.fired")).isEqualTo(1);
+        assertThat(count("ai.hedges.won")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ignores a hedge that fails before its first token")
+    void failedHedge() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(10), 1000, 1);
+
+        List<String> items = hedger.hedge(calls(subscriptions,
+                        () -> Mono.delay(Duration.ofMillis(150)).thenMany(Flux.just("late")),
+                        () -> Flux.error(new IllegalStateException("busy"))))
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(items).containsExactly("late");
+        assertThat(count("ai.hedges.fired")).isEqualTo(1);
+        assertThat(count("ai.hedges.won")).isZero();
+    }
+
+    @Test
+    @DisplayName("ignores a hedge that completes empty")
+    void emptyHedge() {
+        AtomicBoolean hedgeSubscribed = new AtomicBoolean();
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(10), 1000, 1);
+
+        List<String> items = hedger.hedge(Mono.delay(Duration.ofMillis(150)).thenMany(Flux.just("primary")),
+                        Flux.<String>empty().doOnSubscribe(s -> hedgeSubscribed.set(true)))
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(items).containsExactly("primary");
+        assertThat(hedgeSubscribed).isTrue();
+        assertThat(count("ai.hedges.won")).isZero();
+    }
+
+    @Test
+    @DisplayName("caps hedges at max-ratio of calls beyond the initial burst")
+    void hedgeBudget() {
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(5), 1000, 0);
+
+        for (int i = 0; i < 12; i++) {
+            hedger.hedge(() -> Mono.delay(Duration.ofMillis(40)).thenMany(Flux.just("slow")))
+                    .blockLast(Duration.ofSeconds(5));
+        }
+
+        assertThat(count("ai.hedges.fired")).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("uses the live p95 time to first token, clamped, once enough samples were recorded")
+    void delayFromTtft() {
+        StreamHedger hedger = newHedger(true, Duration.ofMillis(700), 50, 1);
+        for (int i = 1; i <= 40; i++) {
+            ttft.record(i * 10L, TimeUnit.MILLISECONDS);
+        }
+        assertThat(hedger.delayMillis()).as("default until min-samples").isEqualTo(700);
+
+        for (int i = 41; i <= 100; i++) {
+            ttft.record(i * 10L, TimeUnit.MILLISECONDS);
+        }
+        assertThat(hedger.delayMillis()).as("cached for a second").isEqualTo(700);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(hedger.delayMillis()).isBetween(900L, 1000L);
+
+        for (int i = 0; i < 200; i++) {
+            ttft.record(30, TimeUnit.SECONDS);
+        }
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(hedger.delayMillis()).as("clamped to max-delay").isEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("passes the call through when disabled")
+    void disabled() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        StreamHedger hedger = newHedger(false, Duration.ofMillis(1), 0, 1);
+
+        String item = hedger.hedge(calls(subscriptions, () -> Mono.delay(Duration.ofMillis(50)).thenMany(Flux.just("only"))))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertThat(item).isEqualTo("only");
+        assertThat(subscriptions).hasValue(1);
+        assertThat(count("ai.hedges.fired")).isZero();
+    }
+}
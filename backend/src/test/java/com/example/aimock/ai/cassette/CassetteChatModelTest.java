@@ -0,0 +1,117 @@
+package com.example.aimock.ai.cassette;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.retry.NonTransientAiException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Cassette record and replay")
+class CassetteChatModelTest {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    private Path directory;
+
+    private static ChatResponse chunk(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static ChatResponse usageChunk() {
+        return ChatResponse.builder()
+                .generations(List.of())
+                .metadata(ChatResponseMetadata.builder().usage(new DefaultUsage(120, 3)).build())
+                .build();
+    }
+
+    private static List<Message> prompt(String question) {
+        return List.of(new SystemMessage("You are an interviewer"), new UserMessage(question));
+    }
+
+    private static Cassette cassette(String hash, String... texts) {
+        return new Cassette(hash, Instant.EPOCH,
+                Arrays.stream(texts).map(text -> new Cassette.Chunk(1000, text)).toList(), null, null);
+    }
+
+    @Test
+    @DisplayName("records chunk boundaries and gaps, then replays them for the same prompt through ChatClient")
+    void roundTrip() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        CassetteRecorder recorder = new CassetteRecorder(true, directory, MAPPER, Schedulers.immediate(), clock::get);
+        Flux<ChatResponse> live = Flux.just(chunk("Hello"), chunk(" there"), usageChunk())
+                .doOnNext(response -> clock.addAndGet(Duration.ofMillis(40).toNanos()));
+
+        recorder.record(prompt("Why Java?"), live).blockLast();
+
+        Path file = directory.resolve(Cassette.promptHash(prompt("Why Java?")) + ".jsonl");
+        assertThat(Files.readAllLines(file)).hasSize(1);
+        Cassette recorded = MAPPER.readValue(Files.readString(file), Cassette.class);
+        assertThat(recorded.chunks()).extracting(Cassette.Chunk::text).containsExactly("Hello", " there", null);
+        assertThat(recorded.chunks()).extracting(Cassette.Chunk::delayMicros).containsOnly(40_000L);
+        assertThat(recorded.promptTokens()).isEqualTo(120);
+
+        CassetteChatModel model = new CassetteChatModel(List.of(recorded), 0.5, true, Schedulers.parallel());
+        long started = System.nanoTime();
+        List<ChatResponse> replayed = ChatClient.create(model).prompt()
+                .system("You are an interviewer")
+                .messages(new UserMessage("Why Java?"))
+                .stream().chatResponse()
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(60));
+        assertThat(replayed).hasSize(3);
+        assertThat(replayed.get(1).getResult().getOutput().getText()).isEqualTo(" there");
+        assertThat(replayed.get(2).getMetadata().getUsage().getPromptTokens()).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("does not record failed streams")
+    void skipsFailedStreams() {
+        CassetteRecorder recorder = new CassetteRecorder(true, directory, MAPPER, Schedulers.immediate(), System::nanoTime);
+
+        assertThatThrownBy(() -> recorder.record(prompt("q"),
+                Flux.concat(Flux.just(chunk("partial")), Flux.error(new IllegalStateException("reset")))).blockLast())
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rotates through takes of a prompt and falls back to any cassette unless strict")
+    void selection() {
+        String hash = Cassette.promptHash(prompt("q"));
+        List<Cassette> cassettes = List.of(cassette(hash, "first"), cassette(hash, "second"), cassette("other", "x"));
+
+        CassetteChatModel lenient = new CassetteChatModel(cassettes, 0, false, Schedulers.parallel());
+        assertThat(lenient.select(hash).chunks().getFirst().text()).isEqualTo("first");
+        assertThat(lenient.select(hash).chunks().getFirst().text()).isEqualTo("second");
+        assertThat(lenient.select("unknown")).isIn(cassettes);
+
+        CassetteChatModel strict = new CassetteChatModel(cassettes, 0, true, Schedulers.parallel());
+        assertThatThrownBy(() -> strict.select("unknown")).isInstanceOf(NonTransientAiException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.aimock.ai.prompt;
+
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.MessageRole;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("HistoryWindowSelector")
+class HistoryWindowSelectorTest {
+
+    private static final TokenCounter TOKEN_COUNTER = new TokenCounter("gpt-4o-mini");
+
+    private static HistoryMessage message(MessageRole role, String content, long seq) {
+        return new HistoryMessage(UUID.randomUUID(), seq, role, content, null);
+    }
+
+    private static int fixedCost(String systemPrompt, String latest) {
+        return TokenCounter.REPLY_PRIMING_TOKENS
+                + TokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.count(systemPrompt)
+                + TokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.count(latest);
+    }
+
+    @Test
+    @DisplayName("resolves the budget for the configured model")
+    void resolvesPerModelBudget() {
+        assertThat(new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o"), "gpt-4o-mini:8000, gpt-4o:12000", 4000, 20)
+                .tokenBudget()).isEqualTo(12000);
+        assertThat(new HistoryWindowSelector(TOKEN_COUNTER, List.of("o3-mini"), "gpt-4o-mini:8000", 4000, 20)
+                .tokenBudget()).isEqualTo(4000);
+        assertThatThrownBy(() -> new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o"), "gpt-4o", 4000, 20))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("budgets to the smallest of the routed backends' models")
+    void smallestRoutedBudget() {
+        assertThat(new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o", "llama3.1"),
+                "gpt-4o:12000, llama3.1:3000", 6000, 20).tokenBudget()).isEqualTo(3000);
+        assertThat(new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o", "qwen2.5"),
+                "gpt-4o:12000", 6000, 20).tokenBudget()).as("unlisted models use the default").isEqualTo(6000);
+    }
+
+    @Test
+    @DisplayName("keeps a contiguous newest suffix that fits the budget")
+    void keepsNewestSuffix() {
+        HistoryMessage oldLong = message(MessageRole.USER, "word ".repeat(500), 1);
+        HistoryMessage olderShort = message(MessageRole.INTERVIEWER, "Short question?", 2);
+        HistoryMessage recent = message(MessageRole.USER, "Short answer.", 3);
+        HistoryMessage newest = message(MessageRole.INTERVIEWER, "Follow-up?", 4);
+        List<HistoryMessage> history = List.of(olderShort, oldLong, recent, newest);
+        int budget = fixedCost("System", "Latest") + 200;
+
+        HistoryWindowSelector.Window window = new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o-mini"), "", budget, 20)
+                .select(TOKEN_COUNTER.count("System"), history, "Latest");
+
+        // The long message does not fit, and nothing older than it is pulled in
+        assertThat(window.messages()).containsExactly(recent, newest);
+        assertThat(window.estimatedPromptTokens()).isLessThanOrEqualTo(budget);
+    }
+
+    @Test
+    @DisplayName("skips blank placeholders and respects the message cap")
+    void skipsBlankAndCaps() {
+        HistoryMessage first = message(MessageRole.USER, "One", 1);
+        HistoryMessage second = message(MessageRole.INTERVIEWER, "Two", 2);
+        HistoryMessage third = message(MessageRole.USER, "Three", 3);
+        HistoryMessage placeholder = message(MessageRole.INTERVIEWER, "", 4);
+
+        HistoryWindowSelector.Window window = new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o-mini"), "", 10_000, 2)
+                .select(TOKEN_COUNTER.count("System"), List.of(first, second, third, placeholder), "Latest");
+
+        assertThat(window.messages()).containsExactly(second, third);
+    }
+
+    @Test
+    @DisplayName("sends no history when the fixed part already fills the budget")
+    void emptyWindowWhenBudgetExhausted() {
+        HistoryWindowSelector.Window window = new HistoryWindowSelector(TOKEN_COUNTER, List.of("gpt-4o-mini"), "", 1, 20)
+                .select(TOKEN_COUNTER.count("System"), List.of(message(MessageRole.USER, "Hi", 1)), "Latest");
+
+        assertThat(window.messages()).isEmpty();
+        assertThat(window.estimatedPromptTokens()).isEqualTo(fixedCost("System", "Latest"));
+    }
+
+    @Test
+    @DisplayName("uses the cached token count of a message when present")
+    void usesCachedCount() {
+        HistoryMessage uncounted = message(MessageRole.USER, "Hello there, how are you?", 1);
+
+        assertThat(TOKEN_COUNTER.count(uncounted)).isEqualTo(TOKEN_COUNTER.count("Hello there, how are you?"));
+        assertThat(TOKEN_COUNTER.count(uncounted.withTokenCount(99))).isEqualTo(99);
+    }
+}
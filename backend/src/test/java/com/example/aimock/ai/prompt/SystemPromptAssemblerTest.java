@@ -0,0 +1,156 @@
+package com.example.aimock.ai.prompt;
+
+import com.example.aimock.ai.strategy.BehavioralInterviewStrategy;
+import com.example.aimock.ai.strategy.DefaultInterviewStrategy;
+import com.example.aimock.ai.strategy.FullstackInterviewStrategy;
+import com.example.aimock.ai.strategy.InterviewStrategy;
+import com.example.aimock.ai.strategy.JavaScriptReactInterviewStrategy;
+import com.example.aimock.ai.strategy.OOPInterviewStrategy;
+import com.example.aimock.ai.strategy.SpringBootInterviewStrategy;
+import com.example.aimock.ai.strategy.SystemDesignInterviewStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SystemPromptAssembler")
+class SystemPromptAssemblerTest {
+
+    private static final TokenCounter TOKEN_COUNTER = new TokenCounter("gpt-4o-mini");
+
+    private final DefaultInterviewStrategy defaultStrategy = new DefaultInterviewStrategy();
+    private final List<InterviewStrategy> strategies = List.of(
+            new BehavioralInterviewStrategy(),
+            defaultStrategy,
+            new FullstackInterviewStrategy(),
+            new JavaScriptReactInterviewStrategy(),
+            new OOPInterviewStrategy(),
+            new SpringBootInterviewStrategy(),
+            new SystemDesignInterviewStrategy()
+    );
+
+    private SimpleMeterRegistry registry;
+    private SystemPromptAssembler assembler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        assembler = newAssembler(1000);
+    }
+
+    private SystemPromptAssembler newAssembler(int maxEntries) {
+        return new SystemPromptAssembler(strategies, defaultStrategy, TOKEN_COUNTER,
+                registry.counter("hits"), registry.counter("misses"), maxEntries);
+    }
+
+    /**
+     * Reference implementation: what AIChatService used to format on every turn.
+     */
+    private static String formatPerTurn(InterviewStrategy strategy, int years, String level, String jobDescription) {
+        String levelGuidance = SystemPromptAssembler.LEVEL_GUIDANCE_TEMPLATE.formatted(years, level);
+        String jobContext = jobDescription == null ? ""
+                : SystemPromptAssembler.JOB_CONTEXT_TEMPLATE.formatted(jobDescription.trim());
+        return strategy.buildSystemPrompt(levelGuidance, jobContext)
+                + SystemPromptAssembler.CONVERSATION_FLOW
+                + SystemPromptAssembler.SAFETY_GUIDELINES;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, junior (0-2 years)",
+            "3, mid-level (2-4 years)",
+            "6, senior (5-8 years)",
+            "12, staff/principal (8+ years)"
+    })
+    @DisplayName("precompiled output is identical to per-turn formatting for every strategy")
+    void matchesPerTurnFormatting(int years, String level) {
+        for (InterviewStrategy strategy : strategies) {
+            assertThat(assembler.assemble(strategy.getInterviewType(), years, null))
+                    .isEqualTo(formatPerTurn(strategy, years, level, null));
+            assertThat(assembler.assemble(strategy.getInterviewType(), years, "  Backend role, Java 21  "))
+                    .isEqualTo(formatPerTurn(strategy, years, level, "Backend role, Java 21"));
+        }
+    }
+
+    @Test
+    @DisplayName("normalizes interview type and falls back to default strategy")
+    void resolvesStrategies() {
+        assertThat(assembler.assemble(" oop ", 3, null))
+                .isEqualTo(formatPerTurn(new OOPInterviewStrategy(), 3, "mid-level (2-4 years)", null));
+        assertThat(assembler.assemble("UNKNOWN", 3, null))
+                .isEqualTo(formatPerTurn(defaultStrategy, 3, "mid-level (2-4 years)", null));
+        assertThat(assembler.assemble(null, 3, "   "))
+                .isEqualTo(formatPerTurn(defaultStrategy, 3, "mid-level (2-4 years)", null));
+    }
+
+    @Test
+    @DisplayName("counts cache hits and misses")
+    void countsHitsAndMisses() {
+        String first = assembler.assemble("OOP", 3, "JD");
+        String second = assembler.assemble("oop", 3, " JD ");
+        assembler.assemble("OOP", 4, "JD");
+
+        assertThat(second).isSameAs(first);
+        assertThat(registry.counter("hits").count()).isEqualTo(1);
+        assertThat(registry.counter("misses").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("caches the token count with the prompt and adds only the summary's tokens")
+    void countsTokensOnce() {
+        SystemPromptAssembler.SystemPrompt prompt = assembler.assemblePrompt("OOP", 3, "JD");
+
+        assertThat(prompt.tokens()).isEqualTo(TOKEN_COUNTER.count(prompt.text()));
+        assertThat(assembler.assemblePrompt("OOP", 3, "JD")).isSameAs(prompt);
+
+        SystemPromptAssembler.SystemPrompt summarized = assembler.withSummary(prompt, "Discussed SOLID.");
+        String summaryBlock = SystemPromptAssembler.SUMMARY_HEADER + "Discussed SOLID.\n";
+        assertThat(summarized.text()).isEqualTo(prompt.text() + summaryBlock);
+        assertThat(summarized.tokens()).isEqualTo(prompt.tokens() + TOKEN_COUNTER.count(summaryBlock));
+        assertThat(assembler.withSummary(prompt, " ")).isSameAs(prompt);
+    }
+
+    @Test
+    @DisplayName("evicts least recently used prompts beyond the bound")
+    void evictsLeastRecentlyUsed() {
+        assembler = newAssembler(2);
+
+        assembler.assemble("OOP", 1, null);
+        assembler.assemble("OOP", 2, null);
+        assembler.assemble("OOP", 1, null);  // refresh 1
+        assembler.assemble("OOP", 3, null);  // evicts 2
+
+        assertThat(assembler.cacheSize()).isEqualTo(2);
+        assembler.assemble("OOP", 1, null);
+        assertThat(registry.counter("hits").count()).isEqualTo(2);
+        assembler.assemble("OOP", 2, null);
+        assertThat(registry.counter("misses").count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("falls back to strategy formatting when a template cannot be precompiled")
+    void fallsBackForOpaqueStrategies() {
+        InterviewStrategy opaque = new InterviewStrategy() {
+            @Override
+            public String getInterviewType() {
+                return "OPAQUE";
+            }
+
+            @Override
+            public String buildSystemPrompt(String levelGuidance, String jobContext) {
+                return "static prompt";
+            }
+        };
+        assembler = new SystemPromptAssembler(List.of(opaque, defaultStrategy), defaultStrategy, TOKEN_COUNTER,
+                registry.counter("hits"), registry.counter("misses"), 10);
+
+        assertThat(assembler.assemble("OPAQUE", 3, null))
+                .isEqualTo("static prompt" + SystemPromptAssembler.CONVERSATION_FLOW + SystemPromptAssembler.SAFETY_GUIDELINES);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.aimock.ai.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("ChatBackendRouter")
+class ChatBackendRouterTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private ChatClient fastClient;
+    private ChatClient slowClient;
+    private ChatBackendRouter router;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        slowClient = mock(ChatClient.class);
+        fastClient = mock(ChatClient.class);
+        router = new ChatBackendRouter(List.of(new ChatBackend("slow", slowClient, registry),
+                new ChatBackend("fast", fastClient, registry)), 2, Duration.ofSeconds(30), 4, clock::get);
+    }
+
+    /**
+     * Streams "name" from each backend after its first-item latency; backends listed in failing error out.
+     */
+    private Function<ChatClient, Flux<String>> backendsRespond(Map<ChatClient, Long> latencyMillis, ChatClient... failing) {
+        return client -> Flux.defer(() -> {
+            if (List.of(failing).contains(client)) {
+                return Flux.error(new IllegalStateException("429 Too Many Requests"));
+            }
+            clock.addAndGet(Duration.ofMillis(latencyMillis.get(client)).toNanos());
+            return Flux.just(client == fastClient ? "fast" : "slow");
+        });
+    }
+
+    private double count(String name, String... tags) {
+        return registry.counter(name, tags).count();
+    }
+
+    @Test
+    @DisplayName("routes new calls to the backend with the lowest rolling TTFT")
+    void routesByLatency() {
+        Map<ChatClient, Long> latency = Map.of(slowClient, 800L, fastClient, 100L);
+
+        List<String> served = Flux.range(0, 4)
+                .concatMap(i -> router.stream(backendsRespond(latency)))
+                .collectList().block();
+
+        // Unsampled backends are tried first, in configured order; then the faster one keeps the traffic
+        assertThat(served).containsExactly("slow", "fast", "fast", "fast");
+        assertThat(count("ai.backend.routed", "backend", "fast")).isEqualTo(3);
+        assertThat(registry.timer("ai.backend.time_to_first_token", "backend", "slow").count()).isEqualTo(1);
+        assertThat(registry.get("ai.backend.ttft.ewma").tag("backend", "fast").gauge().value()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("fails over to the next backend when a stream fails before its first item")
+    void failsOverBeforeFirstItem() {
+        Map<ChatClient, Long> latency = Map.of(slowClient, 800L, fastClient, 100L);
+
+        List<String> served = router.stream(backendsRespond(latency, slowClient)).collectList().block();
+
+        assertThat(served).containsExactly("fast");
+        assertThat(count("ai.backend.failovers", "backend", "slow")).isEqualTo(1);
+        assertThat(count("ai.backend.calls", "backend", "slow", "outcome", "error")).isEqualTo(1);
+        assertThat(count("ai.backend.calls", "backend", "fast", "outcome", "success")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("stops routing to a backend that fails every call before its first item")
+    void alwaysFailingBackend() {
+        Map<ChatClient, Long> latency = Map.of(slowClient, 800L, fastClient, 100L);
+
+        List<String> served = Flux.range(0, 10)
+                .concatMap(i -> router.stream(backendsRespond(latency, slowClient)))
+                .collectList().block();
+
+        // Never sampled, it counts as average TTFT weighted up by its error rate, so it loses to "fast"
+        assertThat(served).hasSize(10).containsOnly("fast");
+        assertThat(count("ai.backend.routed", "backend", "slow")).isEqualTo(1);
+        assertThat(count("ai.backend.failovers", "backend", "slow")).isEqualTo(1);
+        assertThat(router.route()).extracting(ChatBackend::name).containsExactly("fast", "slow");
+    }
+
+    @Test
+    @DisplayName("sends a hedge to the next backend in the primary's route")
+    void hedgesToNextBackend() {
+        Map<ChatClient, Long> latency = Map.of(slowClient, 800L, fastClient, 100L);
+
+        ChatBackendRouter.Hedged<String> streams = router.hedged(backendsRespond(latency));
+
+        assertThat(streams.primary().blockLast()).isEqualTo("slow");
+        assertThat(streams.hedge().blockLast()).isEqualTo("fast");
+        // The route is planned once, so the primary's sample does not move the hedge onto its backend
+        assertThat(count("ai.backend.routed", "backend", "slow")).isEqualTo(1);
+        assertThat(count("ai.backend.routed", "backend", "fast")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("passes errors through once the stream has emitted")
+    void noFailoverAfterFirstItem() {
+        Flux<String> stream = router.stream(client ->
+                Flux.concat(Flux.just("partial"), Flux.error(new IllegalStateException("reset"))));
+
+        assertThatThrownBy(stream::blockLast).hasMessage("reset");
+        assertThat(count("ai.backend.routed", "backend", "fast")).isZero();
+    }
+
+    @Test
+    @DisplayName("cools a failing backend down and probes it once the cooldown expired")
+    void cooldownAndProbe() {
+        Map<ChatClient, Long> latency = Map.of(slowClient, 100L, fastClient, 300L);
+        router.stream(backendsRespond(latency)).blockLast();
+        router.stream(backendsRespond(latency)).blockLast();
+
+        // Two failures in a row open "slow" (failure-threshold 2)
+        router.stream(backendsRespond(latency, slowClient)).blockLast();
+        router.stream(backendsRespond(latency, slowClient)).blockLast();
+        assertThat(router.route()).extracting(ChatBackend::name).containsExactly("fast", "slow");
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(router.stream(backendsRespond(latency)).blockLast()).isEqualTo("slow");
+        assertThat(registry.get("ai.backend.error_rate").tag("backend", "slow").gauge().value()).isZero();
+        assertThat(router.route()).extracting(ChatBackend::name).containsExactly("slow", "fast");
+    }
+
+    @Test
+    @DisplayName("fails blocking calls over and rethrows when every backend failed")
+    void blockingCalls() {
+        String result = router.call(client -> {
+            if (client == slowClient) throw new IllegalStateException("503");
+            return "fast";
+        });
+        assertThat(result).isEqualTo("fast");
+
+        assertThatThrownBy(() -> router.call(client -> {
+            throw new IllegalStateException("down");
+        })).hasMessage("down");
+        assertThat(count("ai.backend.calls", "backend", "fast", "outcome", "error")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.aimock.ai.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("StubChatModel")
+class StubChatModelTest {
+
+    private static StubChatModel newModel(long seed, int minTokens, int maxTokens, double errorRate, double timeoutRate) {
+        return new StubChatModel(seed, Duration.ofMillis(2), Duration.ofMillis(10), Duration.ofMillis(1), minTokens,
+                maxTokens, errorRate, timeoutRate, Duration.ofMillis(50), Schedulers.parallel());
+    }
+
+    private static String text(List<ChatResponse> chunks) {
+        StringBuilder content = new StringBuilder();
+        for (ChatResponse chunk : chunks) {
+            if (chunk.getResult() != null) {
+                content.append(chunk.getResult().getOutput().getText());
+            }
+        }
+        return content.toString();
+    }
+
+    @Test
+    @DisplayName("streams the planned number of tokens followed by a usage chunk")
+    void streamsTokensThenUsage() {
+        StubChatModel model = newModel(1, 5, 5, 0, 0);
+
+        List<ChatResponse> chunks = model.stream(new Prompt("Tell me about yourself")).collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(chunks).hasSize(6);
+        assertThat(text(chunks).split(" ")).hasSize(5);
+        ChatResponse last = chunks.getLast();
+        assertThat(last.getResults()).isEmpty();
+        assertThat(last.getMetadata().getUsage().getCompletionTokens()).isEqualTo(5);
+        assertThat(last.getMetadata().getUsage().getPromptTokens()).isPositive();
+    }
+
+    @Test
+    @DisplayName("replays the same replies for the same seed and call sequence")
+    void deterministic() {
+        StubChatModel first = newModel(7, 3, 30, 0, 0);
+        StubChatModel second = newModel(7, 3, 30, 0, 0);
+        Prompt prompt = new Prompt("Design a URL shortener");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(text(second.stream(prompt).collectList().block(Duration.ofSeconds(5))))
+                    .isEqualTo(text(first.stream(prompt).collectList().block(Duration.ofSeconds(5))));
+        }
+        assertThat(newModel(8, 3, 30, 0, 0).plan(prompt).tokens()).isNotEqualTo(newModel(7, 3, 30, 0, 0).plan(prompt).tokens());
+    }
+
+    @Test
+    @DisplayName("injects transient errors and timeouts")
+    void faults() {
+        assertThatThrownBy(() -> newModel(1, 5, 5, 1, 0).stream(new Prompt("hi")).blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(TransientAiException.class)
+                .hasMessageContaining("429");
+        assertThatThrownBy(() -> newModel(1, 5, 5, 0, 1).call(new Prompt("hi")))
+                .isInstanceOf(TransientAiException.class)
+                .hasMessageContaining("timeout");
+    }
+
+    @Test
+    @DisplayName("answers evaluation prompts with parseable evaluation JSON")
+    void evaluationJson() throws Exception {
+        StubChatModel model = newModel(1, 5, 5, 0, 0);
+
+        String content = model.call(new Prompt("Provide your evaluation in the following JSON format: {\"overallScore\": ...}"))
+                .getResult().getOutput().getText();
+
+        JsonNode json = new ObjectMapper().readTree(content);
+        assertThat(json.get("overallScore").asDouble()).isBetween(0.0, 10.0);
+        assertThat(json.get("technicalDepth").asInt()).isBetween(0, 100);
+        assertThat(json.get("feedback").asText()).isNotBlank();
+    }
+
+    @Test
+    @DisplayName("serves a thousand concurrent streams without a thread per stream")
+    void concurrentStreams() {
+        StubChatModel model = newModel(1, 20, 20, 0, 0);
+
+        List<Integer> tokens = Flux.range(0, 1000)
+                .flatMap(i -> model.stream(new Prompt("turn " + i))
+                        .filter(chunk -> chunk.getResult() != null)
+                        .count()
+                        .map(Long::intValue), 1000)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertThat(tokens).hasSize(1000).allMatch(count -> Objects.equals(count, 20));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.aimock.auth.user;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The native quota statements of {@link UserRepository} against a real PostgreSQL migrated by Flyway.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@DisplayName("UserRepository")
+class UserRepositoryTest {
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User newUser(int messageCount, int messageLimit) {
+        String name = "quota-" + UUID.randomUUID();
+        User user = entityManager.persist(User.builder()
+                .email(name + "@example.com")
+                .password("password")
+                .username(name)
+                .firstName("Quota")
+                .lastName("User")
+                .messageCount(messageCount)
+                .messageLimit(messageLimit)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        return user;
+    }
+
+    private int messageCount(User user) {
+        entityManager.clear();
+        return entityManager.find(User.class, user.getId()).getMessageCount();
+    }
+
+    @Test
+    @DisplayName("takeMessage counts one message and returns how many are left")
+    void takesMessage() {
+        User user = newUser(3, 5);
+
+        assertThat(userRepository.takeMessage(user.getId())).contains(1);
+        assertThat(messageCount(user)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("takeMessage takes the last message and then nothing more")
+    void stopsAtLimit() {
+        User user = newUser(4, 5);
+
+        assertThat(userRepository.takeMessage(user.getId())).contains(0);
+        assertThat(userRepository.takeMessage(user.getId())).isEmpty();
+        assertThat(messageCount(user)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("isAtMessageLimit reads whether a user has used up their messages")
+    void atMessageLimit() {
+        assertThat(userRepository.isAtMessageLimit(newUser(4, 5).getId())).isFalse();
+        assertThat(userRepository.isAtMessageLimit(newUser(5, 5).getId())).isTrue();
+        assertThat(userRepository.isAtMessageLimit(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    @DisplayName("takeMessage is empty for an unknown user")
+    void unknownUser() {
+        assertThat(userRepository.takeMessage(UUID.randomUUID())).isEmpty();
+    }
+}
@@ -6,6 +6,7 @@ import com.example.aimock.messages.model.MessageRole;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.InterviewSessionRepository;
 import com.example.aimock.session.Status;
+import com.example.aimock.websocket.DeltaReplayBuffer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -28,6 +29,9 @@ class MessageControllerIntegrationTest extends AbstractControllerIntegrationTest
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private DeltaReplayBuffer deltaReplayBuffer;
+
     private String token;
     private InterviewSession ownedSession;
 
@@ -88,4 +92,47 @@ class MessageControllerIntegrationTest extends AbstractControllerIntegrationTest
         }
     }
 
+    @Nested
+    @DisplayName("GET /api/v1/sessions/{sessionId}/messages/{interviewerMessageId}/stream")
+    class ResumeStream {
+        @Test
+        void returns200WithMissedFramesWhenOwner() throws Exception {
+            UUID interviewerMessageId = UUID.randomUUID();
+            deltaReplayBuffer.frame(ownedSession.getId(), interviewerMessageId, 1, "Tell me ");
+            deltaReplayBuffer.frame(ownedSession.getId(), interviewerMessageId, 2, "about caching");
+
+            mockMvc.perform(get("/api/v1/sessions/" + ownedSession.getId() + "/messages/" + interviewerMessageId + "/stream")
+                            .param("afterFrameSeq", "1")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.messageStatus").value("STREAMING"))
+                    .andExpect(jsonPath("$.truncated").value(false))
+                    .andExpect(jsonPath("$.lastFrameSeq").value(2))
+                    .andExpect(jsonPath("$.frames", hasSize(1)))
+                    .andExpect(jsonPath("$.frames[0].delta").value("about caching"));
+        }
+
+        @Test
+        void returns404WhenNothingBuffered() throws Exception {
+            mockMvc.perform(get("/api/v1/sessions/" + ownedSession.getId() + "/messages/" + UUID.randomUUID() + "/stream")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void returns404WhenSessionNotOwned() throws Exception {
+            UUID otherSessionId = sessionRepository.save(InterviewSession.builder()
+                    .userId(UUID.randomUUID())
+                    .title("Other")
+                    .interviewType("TECH")
+                    .status(Status.STARTED)
+                    .build()).getId();
+            UUID interviewerMessageId = UUID.randomUUID();
+            deltaReplayBuffer.frame(otherSessionId, interviewerMessageId, 1, "secret");
+
+            mockMvc.perform(get("/api/v1/sessions/" + otherSessionId + "/messages/" + interviewerMessageId + "/stream")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isNotFound());
+        }
+    }
 }
@@ -0,0 +1,244 @@
+package com.example.aimock.jobs;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.jobs.PostgresJobQueue.ClaimedJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link PostgresJobQueue} and {@link PostgresJobWorker} against a real PostgreSQL migrated by Flyway.
+ */
+@DisplayName("Postgres job queue")
+class PostgresJobQueueIntegrationTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private PostgresJobQueue queue;
+
+    @BeforeAll
+    static void migrate() {
+        dataSource = EmbeddedPostgresDatabase.dataSource();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM ai_jobs");
+        jdbcTemplate.update("DELETE FROM ai_jobs_dead");
+        queue = new PostgresJobQueue(jdbcTemplate);
+    }
+
+    private PostgresJobWorker startWorker(AIMessageProcessor processor, int workers, int maxAttempts,
+                                          Duration retryBackoff, Duration pollInterval, SimpleMeterRegistry registry) {
+        PostgresJobWorker worker = new PostgresJobWorker(queue, processor, dataSource, workers, LEASE, maxAttempts,
+                retryBackoff, pollInterval, registry.timer("ai.pgqueue.start_latency"), new AtomicInteger(),
+                registry.counter("ai.pgqueue.retries"), registry.counter("ai.pgqueue.dead_lettered"));
+        worker.start();
+        return worker;
+    }
+
+    private static AIProcessingResult result(UUID interviewerMessageId, UUID sessionId, AIProcessingResult.Status status) {
+        return new AIProcessingResult(interviewerMessageId, sessionId, null, status, status.name());
+    }
+
+    @Test
+    @DisplayName("claims jobs in order, holding back a session's later jobs until its earlier one is done")
+    void claimsInSessionOrder() {
+        UUID sessionA = UUID.randomUUID();
+        UUID sessionB = UUID.randomUUID();
+        queue.enqueue(UUID.randomUUID(), sessionA, "a1");
+        queue.enqueue(UUID.randomUUID(), sessionA, "a2");
+        queue.enqueue(UUID.randomUUID(), sessionB, "b1");
+
+        ClaimedJob a1 = queue.claim(LEASE);
+        ClaimedJob b1 = queue.claim(LEASE);
+        assertThat(a1.userContent()).isEqualTo("a1");
+        assertThat(a1.attempts()).isEqualTo(1);
+        assertThat(b1.userContent()).isEqualTo("b1");
+        assertThat(queue.claim(LEASE)).isNull();
+
+        assertThat(queue.complete(a1)).isTrue();
+        assertThat(queue.claim(LEASE).userContent()).isEqualTo("a2");
+    }
+
+    @Test
+    @DisplayName("hands a job out again once its lease runs out, and fences off the worker that lost it")
+    void expiredLeases() throws Exception {
+        queue.enqueue(UUID.randomUUID(), UUID.randomUUID(), "slow");
+
+        ClaimedJob first = queue.claim(Duration.ofMillis(50));
+        assertThat(queue.claim(LEASE)).isNull();
+        Thread.sleep(100);
+        ClaimedJob second = queue.claim(LEASE);
+
+        assertThat(second.id()).isEqualTo(first.id());
+        assertThat(second.attempts()).isEqualTo(2);
+        assertThat(queue.complete(first)).isFalse();
+        assertThat(queue.deadLetter(first, "late")).isFalse();
+        assertThat(queue.extendLeases(List.of(second.id()), LEASE)).isEqualTo(1);
+        assertThat(queue.complete(second)).isTrue();
+    }
+
+    @Test
+    @DisplayName("dead-letters a job whose lease ran out on every attempt, without running it again")
+    void deadLettersAfterExpiredLeases() throws Exception {
+        UUID interviewerMessageId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        queue.enqueue(interviewerMessageId, sessionId, "poison");
+        // Three workers that die mid-job: each claim bumps attempts and is never settled
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertThat(queue.claim(Duration.ofMillis(20)).attempts()).isEqualTo(attempt);
+            Thread.sleep(40);
+        }
+        AIMessageProcessor processor = mock(AIMessageProcessor.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        PostgresJobWorker worker = startWorker(processor, 1, 3, Duration.ofMillis(100), Duration.ofMillis(50), registry);
+        try {
+            await().atMost(Duration.ofSeconds(10)).until(
+                    () -> jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs_dead", Integer.class) == 1);
+            Map<String, Object> dead = jdbcTemplate.queryForMap("SELECT * FROM ai_jobs_dead");
+            assertThat(dead.get("interviewer_message_id")).isEqualTo(interviewerMessageId);
+            assertThat(dead.get("attempts")).isEqualTo(4);
+            assertThat(dead.get("last_error")).isEqualTo("Lease ran out on the last of 3 attempts");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs", Integer.class)).isZero();
+            verify(processor, timeout(5000)).failUnfinished(interviewerMessageId, sessionId, "Lease ran out on the last of 3 attempts");
+            verify(processor, never()).processMessage(any(), any(), any(), anyBoolean(), anyBoolean());
+            assertThat(registry.counter("ai.pgqueue.dead_lettered").count()).isEqualTo(1);
+        } finally {
+            worker.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("retries a turn that failed before its first token with backoff, recording the error, until its last attempt")
+    void retriesWithBackoffUntilTheLastAttempt() {
+        AIMessageProcessor processor = mock(AIMessageProcessor.class);
+        List<Boolean> lastAttempts = new CopyOnWriteArrayList<>();
+        List<String> lastErrors = new CopyOnWriteArrayList<>();
+        when(processor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            boolean lastAttempt = invocation.getArgument(4);
+            lastAttempts.add(lastAttempt);
+            lastErrors.add(String.valueOf(jdbcTemplate.queryForObject(
+                    "SELECT last_error FROM ai_jobs", String.class)));
+            return result(invocation.getArgument(0), invocation.getArgument(1),
+                    lastAttempt ? AIProcessingResult.Status.FAILED : AIProcessingResult.Status.RETRY);
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Retried jobs are not notified; they are picked up by the next poll after their backoff
+        PostgresJobWorker worker = startWorker(processor, 2, 3, Duration.ofMillis(100), Duration.ofMillis(50), registry);
+        try {
+            queue.enqueue(UUID.randomUUID(), UUID.randomUUID(), "flaky");
+
+            await().atMost(Duration.ofSeconds(10)).until(
+                    () -> jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs", Integer.class) == 0);
+            assertThat(lastAttempts).containsExactly(false, false, true);
+            assertThat(lastErrors).containsExactly("null", "RETRY", "RETRY");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs_dead", Integer.class)).isZero();
+            assertThat(registry.counter("ai.pgqueue.retries").count()).isEqualTo(2);
+        } finally {
+            worker.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("completes a job whose turn the processor failed, without retrying it")
+    void completesFailedTurns() {
+        AIMessageProcessor processor = mock(AIMessageProcessor.class);
+        AtomicInteger calls = new AtomicInteger();
+        when(processor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            return result(invocation.getArgument(0), invocation.getArgument(1), AIProcessingResult.Status.FAILED);
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PostgresJobWorker worker = startWorker(processor, 2, 3, Duration.ofMillis(100), Duration.ofMillis(50), registry);
+        try {
+            queue.enqueue(UUID.randomUUID(), UUID.randomUUID(), "failed");
+
+            await().atMost(Duration.ofSeconds(10)).until(
+                    () -> jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs", Integer.class) == 0);
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs_dead", Integer.class)).isZero();
+            assertThat(calls.get()).isEqualTo(1);
+            assertThat(registry.counter("ai.pgqueue.retries").count()).isZero();
+        } finally {
+            worker.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("runs every job exactly once across workers, each session's jobs in order")
+    void processesEachJobOnceInSessionOrder() {
+        AIMessageProcessor processor = mock(AIMessageProcessor.class);
+        Map<UUID, Queue<String>> seenBySession = new ConcurrentHashMap<>();
+        Queue<UUID> seen = new ConcurrentLinkedQueue<>();
+        when(processor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            UUID interviewerMessageId = invocation.getArgument(0);
+            UUID sessionId = invocation.getArgument(1);
+            seen.add(interviewerMessageId);
+            seenBySession.computeIfAbsent(sessionId, id -> new ConcurrentLinkedQueue<>()).add(invocation.getArgument(2));
+            Thread.sleep(2);
+            return result(interviewerMessageId, sessionId, AIProcessingResult.Status.SUCCESS);
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // A long poll interval, so only NOTIFY gets the jobs picked up in time
+        PostgresJobWorker worker = startWorker(processor, 4, 3, Duration.ofMillis(100), Duration.ofSeconds(30), registry);
+        try {
+            List<UUID> sessions = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+            List<UUID> enqueued = new ArrayList<>();
+            for (int turn = 0; turn < 20; turn++) {
+                for (UUID session : sessions) {
+                    UUID interviewerMessageId = UUID.randomUUID();
+                    enqueued.add(interviewerMessageId);
+                    // Straight into the table, so only NOTIFY wakes the workers
+                    queue.enqueue(interviewerMessageId, session, "turn-" + turn);
+                }
+            }
+
+            await().atMost(Duration.ofSeconds(20)).until(() -> seen.size() == enqueued.size()
+                    && jdbcTemplate.queryForObject("SELECT count(*) FROM ai_jobs", Integer.class) == 0);
+            assertThat(seen).containsExactlyInAnyOrderElementsOf(enqueued);
+            List<String> expectedOrder = new ArrayList<>();
+            for (int turn = 0; turn < 20; turn++) {
+                expectedOrder.add("turn-" + turn);
+            }
+            for (UUID session : sessions) {
+                assertThat(seenBySession.get(session)).containsExactlyElementsOf(expectedOrder);
+            }
+            assertThat(registry.timer("ai.pgqueue.start_latency").count()).isEqualTo(enqueued.size());
+        } finally {
+            worker.stop();
+        }
+    }
+}
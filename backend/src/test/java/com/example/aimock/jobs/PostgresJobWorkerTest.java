@@ -0,0 +1,217 @@
+package com.example.aimock.jobs;
+
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.jobs.PostgresJobQueue.ClaimedJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PostgresJobWorker")
+class PostgresJobWorkerTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Mock
+    private PostgresJobQueue queue;
+
+    @Mock
+    private AIMessageProcessor aiMessageProcessor;
+
+    @Mock
+    private DataSource dataSource;
+
+    private SimpleMeterRegistry registry;
+    private AtomicInteger activeGauge;
+    private PostgresJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        activeGauge = new AtomicInteger();
+        worker = new PostgresJobWorker(queue, aiMessageProcessor, dataSource, 2, LEASE, 3, Duration.ofSeconds(5),
+                Duration.ofSeconds(1), registry.timer("ai.pgqueue.start_latency"), activeGauge,
+                registry.counter("ai.pgqueue.retries"), registry.counter("ai.pgqueue.dead_lettered"));
+    }
+
+    private static ClaimedJob job(int attempts, long waitedMillis) {
+        return new ClaimedJob(42, UUID.randomUUID(), UUID.randomUUID(), "Hello", attempts, waitedMillis);
+    }
+
+    private static AIProcessingResult result(ClaimedJob job, AIProcessingResult.Status status) {
+        return new AIProcessingResult(job.interviewerMessageId(), job.sessionId(),
+                status == AIProcessingResult.Status.SUCCESS ? "Hi" : null, status,
+                status == AIProcessingResult.Status.SUCCESS ? null : "model down");
+    }
+
+    @Test
+    @DisplayName("returns false without processing anything when no job is due")
+    void nothingDue() {
+        when(queue.claim(LEASE)).thenReturn(null);
+
+        assertThat(worker.runOnce()).isFalse();
+
+        verifyNoInteractions(aiMessageProcessor);
+    }
+
+    @Test
+    @DisplayName("deletes a job that succeeded and records how long its first attempt waited")
+    void completesSuccessfulJobs() {
+        ClaimedJob job = job(1, 35);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(job.interviewerMessageId(), job.sessionId(), "Hello", false, false))
+                .thenReturn(result(job, AIProcessingResult.Status.SUCCESS));
+        when(queue.complete(job)).thenReturn(true);
+
+        assertThat(worker.runOnce()).isTrue();
+
+        verify(queue).complete(job);
+        assertThat(registry.timer("ai.pgqueue.start_latency").count()).isEqualTo(1);
+        assertThat(registry.timer("ai.pgqueue.start_latency").max(TimeUnit.MILLISECONDS)).isEqualTo(35);
+        assertThat(activeGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("completes a job whose turn the processor already failed")
+    void completesFailedTurns() {
+        ClaimedJob job = job(1, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenReturn(result(job, AIProcessingResult.Status.FAILED));
+        when(queue.complete(job)).thenReturn(true);
+
+        worker.runOnce();
+
+        verify(queue).complete(job);
+        verify(queue, never()).deadLetter(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("reschedules a turn that failed before its first token after the backoff times its attempts")
+    void retriesTurnsThatFailedBeforeTheirFirstToken() {
+        ClaimedJob job = job(2, 9000);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(job.interviewerMessageId(), job.sessionId(), "Hello", true, false))
+                .thenReturn(result(job, AIProcessingResult.Status.RETRY));
+        when(queue.retry(job, "model down", Duration.ofSeconds(10))).thenReturn(true);
+
+        assertThat(worker.runOnce()).isTrue();
+
+        verify(queue, never()).complete(any());
+        verify(queue, never()).deadLetter(any(), anyString());
+        assertThat(registry.counter("ai.pgqueue.retries").count()).isEqualTo(1);
+        assertThat(activeGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("runs the last attempt as the last, so the processor fails the turn instead of asking for a retry")
+    void lastAttempt() {
+        ClaimedJob job = job(3, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(job.interviewerMessageId(), job.sessionId(), "Hello", true, true))
+                .thenReturn(result(job, AIProcessingResult.Status.FAILED));
+        when(queue.complete(job)).thenReturn(true);
+
+        worker.runOnce();
+
+        verify(queue).complete(job);
+        verify(queue, never()).retry(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("runs a job claimed again after a lost lease, up to its last attempt, without recording start latency")
+    void runsReclaimedJobs() {
+        ClaimedJob job = job(3, 9000);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenReturn(result(job, AIProcessingResult.Status.SUCCESS));
+        when(queue.complete(job)).thenReturn(true);
+
+        worker.runOnce();
+
+        verify(queue).complete(job);
+        assertThat(registry.counter("ai.pgqueue.retries").count()).isEqualTo(1);
+        assertThat(registry.timer("ai.pgqueue.start_latency").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("dead-letters a job claimed past max-attempts instead of running it, and fails its unfinished turn")
+    void deadLettersAfterMaxAttempts() {
+        ClaimedJob job = job(4, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(queue.deadLetter(job, "Lease ran out on the last of 3 attempts")).thenReturn(true);
+
+        assertThat(worker.runOnce()).isTrue();
+
+        verify(aiMessageProcessor, never()).processMessage(any(), any(), any(), anyBoolean(), anyBoolean());
+        verify(aiMessageProcessor).failUnfinished(job.interviewerMessageId(), job.sessionId(),
+                "Lease ran out on the last of 3 attempts");
+        assertThat(registry.counter("ai.pgqueue.dead_lettered").count()).isEqualTo(1);
+        assertThat(activeGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("leaves the turn alone when another worker dead-lettered the job first")
+    void lostDeadLetterRace() {
+        ClaimedJob job = job(4, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(queue.deadLetter(any(), anyString())).thenReturn(false);
+
+        worker.runOnce();
+
+        verifyNoInteractions(aiMessageProcessor);
+        assertThat(registry.counter("ai.pgqueue.dead_lettered").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("leaves a job it could not settle leased, to be claimed again")
+    void unsettledJob() {
+        ClaimedJob job = job(1, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenReturn(result(job, AIProcessingResult.Status.SUCCESS));
+        when(queue.complete(job)).thenThrow(new IllegalStateException("db down"));
+
+        assertThat(worker.runOnce()).isTrue();
+
+        verify(queue, never()).deadLetter(any(), anyString());
+        assertThat(activeGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("extends the leases of the jobs it is running")
+    void extendsRunningLeases() {
+        ClaimedJob job = job(1, 0);
+        when(queue.claim(LEASE)).thenReturn(job);
+        when(aiMessageProcessor.processMessage(any(), any(), any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            worker.extendLeases();
+            return result(job, AIProcessingResult.Status.SUCCESS);
+        });
+        when(queue.complete(job)).thenReturn(true);
+
+        worker.runOnce();
+        worker.extendLeases();
+
+        verify(queue, times(1)).extendLeases(any(), any());
+        verify(queue).extendLeases(List.of(42L), LEASE);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.messages.dto.MessageCreationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("IdempotencyCache")
+class IdempotencyCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        sessionId = UUID.randomUUID();
+    }
+
+    private IdempotencyCache newCache(boolean enabled, int maxEntries) {
+        return new IdempotencyCache(enabled, Duration.ofMinutes(10), maxEntries, clock::get,
+                registry.counter("messages.idempotency", "result", "hit"),
+                registry.counter("messages.idempotency", "result", "miss"),
+                registry.counter("messages.idempotency", "result", "duplicate"));
+    }
+
+    private static MessageCreationResult result() {
+        return new MessageCreationResult(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    private double count(String result) {
+        return registry.counter("messages.idempotency", "result", result).count();
+    }
+
+    @Test
+    @DisplayName("answers a key of the same session and counts hits and misses")
+    void hitsAndMisses() {
+        IdempotencyCache cache = newCache(true, 100);
+        MessageCreationResult created = result();
+        cache.created(sessionId, "key-1", created);
+
+        assertThat(cache.lookup(sessionId, "key-1")).containsSame(created);
+        assertThat(cache.lookup(sessionId, "key-2")).isEmpty();
+        assertThat(cache.lookup(UUID.randomUUID(), "key-1")).isEmpty();
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("caches a created result only once its transaction commits")
+    void createdAfterCommit() {
+        IdempotencyCache cache = newCache(true, 100);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.created(sessionId, "key-1", result());
+            assertThat(cache.size()).isZero();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.lookup(sessionId, "key-1")).isPresent();
+    }
+
+    @Test
+    @DisplayName("caches a duplicate's earlier result straight away and counts it")
+    void duplicates() {
+        IdempotencyCache cache = newCache(true, 100);
+        MessageCreationResult existing = result();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.duplicate(sessionId, "key-1", existing);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.lookup(sessionId, "key-1")).containsSame(existing);
+        assertThat(count("duplicate")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("drops entries after the ttl and the oldest beyond max-entries")
+    void evicts() {
+        IdempotencyCache cache = newCache(true, 2);
+        cache.created(sessionId, "key-1", result());
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        cache.created(sessionId, "key-2", result());
+        cache.created(sessionId, "key-3", result());
+
+        assertThat(cache.lookup(sessionId, "key-1")).isEmpty();
+        assertThat(cache.lookup(sessionId, "key-2")).isPresent();
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertThat(cache.lookup(sessionId, "key-2")).isEmpty();
+        assertThat(cache.lookup(sessionId, "key-3")).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("when disabled, never answers but still counts duplicates")
+    void disabled() {
+        IdempotencyCache cache = newCache(false, 100);
+        cache.created(sessionId, "key-1", result());
+        cache.duplicate(sessionId, "key-2", result());
+
+        assertThat(cache.lookup(sessionId, "key-1")).isEmpty();
+        assertThat(cache.lookup(sessionId, "key-2")).isEmpty();
+        assertThat(count("duplicate")).isEqualTo(1);
+        assertThat(count("miss")).isZero();
+    }
+}
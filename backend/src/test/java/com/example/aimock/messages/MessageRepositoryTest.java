@@ -0,0 +1,171 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.model.MessageRole;
+import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.session.InterviewSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * The single-statement turn insert of {@link MessageRepository#insertTurn}, the keyset history window of
+ * {@link MessageRepository#findRecentHistory} and the conditional status updates of a reply against a real
+ * PostgreSQL migrated by Flyway, so the partial unique index on the idempotency key is the real one.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@DisplayName("MessageRepository")
+class MessageRepositoryTest {
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        String name = "turns-" + UUID.randomUUID();
+        User user = entityManager.persist(User.builder()
+                .email(name + "@example.com")
+                .password("password")
+                .username(name)
+                .firstName("Turn")
+                .lastName("User")
+                .build());
+        sessionId = entityManager.persist(InterviewSession.builder()
+                .title("Turns")
+                .interviewType("TECHNICAL")
+                .userId(user.getId())
+                .build()).getId();
+        entityManager.flush();
+    }
+
+    private Message userMessage(long seq, String idempotencyKey) {
+        Message message = Message.user("Hello", sessionId, seq, idempotencyKey);
+        message.setId(UUID.randomUUID());
+        message.setTokenCount(1);
+        return message;
+    }
+
+    private List<Message> messages() {
+        entityManager.clear();
+        return messageRepository.findBySessionIdOrderBySeqAsc(sessionId);
+    }
+
+    @Test
+    @DisplayName("inserts the user message and an empty PENDING placeholder at the next seq")
+    void insertsTurn() {
+        Message user = userMessage(1, "key-1");
+        UUID interviewerMessageId = UUID.randomUUID();
+
+        assertThat(messageRepository.insertTurn(user, interviewerMessageId)).isEqualTo(1);
+
+        assertThat(messages())
+                .extracting(Message::getId, Message::getSeq, Message::getRole, Message::getMessageStatus,
+                        Message::getContent, Message::getIdempotencyKey)
+                .containsExactly(
+                        tuple(user.getId(), 1L, MessageRole.USER, MessageStatus.COMPLETED, "Hello", "key-1"),
+                        tuple(interviewerMessageId, 2L, MessageRole.INTERVIEWER, MessageStatus.PENDING, "", null));
+        assertThat(messages().get(0).getTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("inserts nothing and returns 0 for an idempotency key the session already has")
+    void skipsDuplicateKey() {
+        messageRepository.insertTurn(userMessage(1, "key-1"), UUID.randomUUID());
+
+        assertThat(messageRepository.insertTurn(userMessage(3, "key-1"), UUID.randomUUID())).isZero();
+
+        assertThat(messages()).extracting(Message::getSeq).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("never treats turns without an idempotency key as duplicates")
+    void nullKeysNeverConflict() {
+        assertThat(messageRepository.insertTurn(userMessage(1, null), UUID.randomUUID())).isEqualTo(1);
+        assertThat(messageRepository.insertTurn(userMessage(3, null), UUID.randomUUID())).isEqualTo(1);
+
+        assertThat(messages()).extracting(Message::getSeq).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    private void completedTurns(int count) {
+        for (long seq = 1; seq <= count; seq++) {
+            Message message = seq % 2 == 1
+                    ? Message.user("Message " + seq, sessionId, seq)
+                    : Message.interviewer("Message " + seq, sessionId, seq);
+            message.markComplete();
+            entityManager.persist(message);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("findRecentHistory returns the newest limit messages strictly between afterSeq and beforeSeq, newest first")
+    void recentHistoryWindow() {
+        completedTurns(10);
+
+        List<HistoryMessage> history = messageRepository.findRecentHistory(sessionId, 2L, 9L, PageRequest.of(0, 3));
+
+        assertThat(history).extracting(HistoryMessage::seq, HistoryMessage::content)
+                .containsExactly(tuple(8L, "Message 8"), tuple(7L, "Message 7"), tuple(6L, "Message 6"));
+    }
+
+    @Test
+    @DisplayName("findRecentHistory leaves out placeholders and other messages that are not completed")
+    void recentHistorySkipsUnfinished() {
+        completedTurns(2);
+        messageRepository.insertTurn(userMessage(3, null), UUID.randomUUID());
+
+        List<HistoryMessage> history = messageRepository.findRecentHistory(
+                sessionId, 0L, Long.MAX_VALUE, PageRequest.of(0, 20));
+
+        assertThat(history).extracting(HistoryMessage::seq).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    @DisplayName("starts a placeholder once, completes it only while STREAMING and never fails a finished one")
+    void conditionalStatusUpdates() {
+        UUID id = UUID.randomUUID();
+        messageRepository.insertTurn(userMessage(1, null), id);
+
+        assertThat(messageRepository.startStreaming(id, List.of(MessageStatus.PENDING))).isEqualTo(1);
+        assertThat(messageRepository.startStreaming(id, List.of(MessageStatus.PENDING))).isZero();
+        assertThat(messageRepository.completeStreaming(id, "Reply", 1)).isEqualTo(1);
+        assertThat(messageRepository.completeStreaming(id, "Second reply", 2)).isZero();
+        assertThat(messageRepository.startStreaming(id, List.of(MessageStatus.PENDING, MessageStatus.STREAMING)))
+                .isZero();
+        assertThat(messageRepository.failUnfinished(id)).isZero();
+
+        assertThat(messages().get(1))
+                .extracting(Message::getMessageStatus, Message::getContent, Message::getTokenCount)
+                .containsExactly(MessageStatus.COMPLETED, "Reply", 1);
+    }
+}
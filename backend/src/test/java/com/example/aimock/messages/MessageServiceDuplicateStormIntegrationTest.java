@@ -0,0 +1,150 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.messages.dto.MessageCreationResult;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link MessageService} under a storm of concurrent retries of one send, against a real PostgreSQL
+ * migrated by Flyway, so the unique index and the row locks are the real ones.
+ */
+@SpringBootTest
+@ActiveProfiles({"test", "stub-ai"})
+@DisplayName("MessageService duplicate storm")
+class MessageServiceDuplicateStormIntegrationTest {
+
+    private static final int SENDERS = 32;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InterviewSessionRepository sessionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private double idempotency(String result) {
+        return meterRegistry.counter("messages.idempotency", "result", result).count();
+    }
+
+    private User newUser() {
+        String name = "storm-" + UUID.randomUUID();
+        return userRepository.save(User.builder()
+                .email(name + "@example.com")
+                .password("password")
+                .username(name)
+                .firstName("Storm")
+                .lastName("User")
+                .messageLimit(100)
+                .build());
+    }
+
+    private InterviewSession newSession(User user) {
+        return sessionRepository.save(InterviewSession.builder()
+                .title("Storm")
+                .interviewType("TECHNICAL")
+                .userId(user.getId())
+                .build());
+    }
+
+    @Test
+    @DisplayName("creates one turn, takes one message of quota and answers every retry with it")
+    void duplicateStorm() throws Exception {
+        User user = newUser();
+        InterviewSession session = newSession(user);
+        double hitsBefore = idempotency("hit");
+        double duplicatesBefore = idempotency("duplicate");
+
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MessageCreationResult>> sends = new ArrayList<>();
+        try {
+            for (int i = 0; i < SENDERS; i++) {
+                sends.add(executor.submit(() -> {
+                    start.await();
+                    return messageService.createUserMessageAndEnqueue(session.getId(), user.getId(), "Hello", "storm-key");
+                }));
+            }
+            start.countDown();
+            Set<UUID> userMessageIds = new HashSet<>();
+            Set<UUID> interviewerMessageIds = new HashSet<>();
+            for (Future<MessageCreationResult> send : sends) {
+                MessageCreationResult result = send.get(30, TimeUnit.SECONDS);
+                userMessageIds.add(result.getUserMessageId());
+                interviewerMessageIds.add(result.getInterviewerMessageId());
+            }
+
+            assertThat(userMessageIds).hasSize(1);
+            assertThat(interviewerMessageIds).hasSize(1).doesNotContainNull();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM messages WHERE session_id = ?",
+                Integer.class, session.getId())).isEqualTo(2);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getMessageCount()).isEqualTo(1);
+        // Every send after the first was answered by the cache or stopped by the unique index
+        assertThat(idempotency("hit") - hitsBefore + idempotency("duplicate") - duplicatesBefore)
+                .isEqualTo(SENDERS - 1);
+
+        double hitsAfterStorm = idempotency("hit");
+        MessageCreationResult retry = messageService.createUserMessageAndEnqueue(
+                session.getId(), user.getId(), "Hello", "storm-key");
+        assertThat(retry.getUserMessageId()).isEqualTo(sends.get(0).get().getUserMessageId());
+        assertThat(idempotency("hit")).isEqualTo(hitsAfterStorm + 1);
+    }
+
+    @Test
+    @DisplayName("never deduplicates sends without a key")
+    void sendsWithoutKey() {
+        User user = newUser();
+        InterviewSession session = newSession(user);
+
+        MessageCreationResult first = messageService.createUserMessageAndEnqueue(
+                session.getId(), user.getId(), "Hello", null);
+        MessageCreationResult second = messageService.createUserMessageAndEnqueue(
+                session.getId(), user.getId(), "Hello", null);
+
+        assertThat(second.getUserMessageId()).isNotEqualTo(first.getUserMessageId());
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM messages WHERE session_id = ?",
+                Integer.class, session.getId())).isEqualTo(4);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getMessageCount()).isEqualTo(2);
+    }
+}
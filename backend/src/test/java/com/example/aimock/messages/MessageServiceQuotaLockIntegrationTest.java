@@ -0,0 +1,123 @@
+package com.example.aimock.messages;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.messages.dto.MessageCreationResult;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * {@link MessageService} with two sends of one user to different sessions, against a real PostgreSQL, so
+ * the users and session row locks are the real ones.
+ */
+@SpringBootTest
+@ActiveProfiles({"test", "stub-ai"})
+@DisplayName("MessageService quota lock")
+class MessageServiceQuotaLockIntegrationTest {
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InterviewSessionRepository sessionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User newUser() {
+        String name = "tabs-" + UUID.randomUUID();
+        return userRepository.save(User.builder()
+                .email(name + "@example.com")
+                .password("password")
+                .username(name)
+                .firstName("Tabs")
+                .lastName("User")
+                .messageLimit(100)
+                .build());
+    }
+
+    private InterviewSession newSession(User user) {
+        return sessionRepository.save(InterviewSession.builder()
+                .title("Tab")
+                .interviewType("TECHNICAL")
+                .userId(user.getId())
+                .build());
+    }
+
+    private int waitingOnLocks() {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_stat_activity
+                WHERE datname = current_database() AND wait_event_type = 'Lock'
+                """, Integer.class);
+    }
+
+    @Test
+    @DisplayName("lets a user's send to one session commit while their send to another waits for its session row")
+    void sendsToDifferentSessionsDoNotSerialize() throws Exception {
+        User user = newUser();
+        InterviewSession busy = newSession(user);
+        InterviewSession other = newSession(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Connection blocker = dataSource.getConnection()) {
+            blocker.setAutoCommit(false);
+            // Holds the first session's row, as a long append to it would
+            try (PreparedStatement lock = blocker.prepareStatement(
+                    "SELECT id FROM interview_sessions WHERE id = ? FOR UPDATE")) {
+                lock.setObject(1, busy.getId());
+                lock.executeQuery();
+            }
+
+            Future<MessageCreationResult> waiting = executor.submit(() ->
+                    messageService.createUserMessageAndEnqueue(busy.getId(), user.getId(), "First tab", null));
+            await().atMost(Duration.ofSeconds(10)).until(() -> waitingOnLocks() == 1);
+
+            // Would wait on the users row if the parked send had already taken its message
+            Future<MessageCreationResult> sent = executor.submit(() ->
+                    messageService.createUserMessageAndEnqueue(other.getId(), user.getId(), "Second tab", null));
+            assertThat(sent.get(10, TimeUnit.SECONDS).getInterviewerMessageId()).isNotNull();
+            assertThat(waiting).isNotDone();
+            assertThat(userRepository.findById(user.getId()).orElseThrow().getMessageCount()).isEqualTo(1);
+
+            blocker.rollback();
+            assertThat(waiting.get(10, TimeUnit.SECONDS).getInterviewerMessageId()).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getMessageCount()).isEqualTo(2);
+    }
+}
@@ -1,25 +1,32 @@
 package com.example.aimock.messages;
 
-import com.example.aimock.auth.user.User;
-import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.ai.prompt.TokenCounter;
 import com.example.aimock.messages.dto.MessageCreationResult;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.messages.model.MessageRole;
+import com.example.aimock.exception.MessageLimitExceededException;
+import com.example.aimock.messages.outbox.AiJobOutboxRepository;
+import com.example.aimock.quota.MessageQuotaService;
+import com.example.aimock.session.ConversationCache;
 import com.example.aimock.session.InterviewSession;
 import com.example.aimock.session.InterviewSessionRepository;
 import com.example.aimock.session.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -36,13 +43,23 @@ class MessageServiceTest {
     private InterviewSessionRepository sessionRepository;
 
     @Mock
-    private SQSService sqsService;
+    private MessageQuotaService messageQuotaService;
 
     @Mock
-    private UserRepository userRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private ConversationCache conversationCache;
+
+    @Mock
+    private AiJobOutboxRepository outboxRepository;
+
+    @Mock
+    private SQSService sqsService;
+
+    private SimpleMeterRegistry registry;
+
+    private IdempotencyCache idempotencyCache;
 
     private MessageService messageService;
 
@@ -50,10 +67,30 @@ class MessageServiceTest {
 
     @BeforeEach
     void setUp() {
-        messageService = new MessageService(messageRepository, sessionRepository, userRepository, sqsService, eventPublisher);
+        registry = new SimpleMeterRegistry();
+        idempotencyCache = new IdempotencyCache(true, Duration.ofMinutes(10), 100, System::nanoTime,
+                registry.counter("messages.idempotency", "result", "hit"),
+                registry.counter("messages.idempotency", "result", "miss"),
+                registry.counter("messages.idempotency", "result", "duplicate"));
+        messageService = new MessageService(messageRepository, sessionRepository, messageQuotaService, eventPublisher,
+                new TokenCounter("gpt-4o-mini"), conversationCache, outboxRepository, sqsService, idempotencyCache);
         sessionId = UUID.randomUUID();
     }
 
+    /**
+     * Mimics the UPDATE ... RETURNING: advances the session's next_seq and returns it.
+     */
+    private void stubSeqAllocation(InterviewSession session, UUID userId) {
+        when(sessionRepository.allocateSeqs(sessionId, userId, 2)).thenAnswer(inv -> {
+            session.setNextSeq(session.getNextSeq() + 2);
+            return Optional.of(session);
+        });
+    }
+
+    private void stubInsertTurn() {
+        when(messageRepository.insertTurn(any(Message.class), any(UUID.class))).thenReturn(1);
+    }
+
     @Test
     @DisplayName("getMessages returns all messages for session ordered by seq")
     void getMessages_returnsAllOrderedBySeq() {
@@ -117,7 +154,6 @@ class MessageServiceTest {
     class CreateUserMessageAndEnqueue {
         private UUID userId;
         private InterviewSession session;
-        private User user;
 
         @BeforeEach
         void setUp() {
@@ -129,102 +165,140 @@ class MessageServiceTest {
                     .interviewType("TECHNICAL")
                     .status(Status.STARTED)
                     .build();
-            user = User.builder()
-                    .id(userId)
-                    .email("test@example.com")
-                    .username("testuser")
-                    .password("password")
-                    .firstName("Test")
-                    .lastName("User")
-                    .tier("FREE")
-                    .messageCount(0)
-                    .messageLimit(30)
-                    .build();
-            when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         }
 
         @Test
         @DisplayName("creates user and interviewer messages successfully")
         void createsMessagesSuccessfully() {
-            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "key-1"))
-                    .thenReturn(Optional.empty());
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
 
             var result = messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "User content", "key-1");
 
             assertThat(result.getUserMessageId()).isNotNull();
             assertThat(result.getInterviewerMessageId()).isNotNull();
-            verify(messageRepository, times(2)).save(any(Message.class));
-            verify(sessionRepository).save(session);
-            verify(userRepository).save(user);
+            verify(messageRepository).insertTurn(argThat(m -> m.getId().equals(result.getUserMessageId())),
+                    eq(result.getInterviewerMessageId()));
+            verify(sessionRepository, never()).save(any());
+            verify(outboxRepository).save(argThat(entry ->
+                    entry.getInterviewerMessageId().equals(result.getInterviewerMessageId())
+                            && entry.getSessionId().equals(sessionId)
+                            && entry.getUserContent().equals("User content")));
+            // The quota is taken last, so the users row is locked only until the commit
+            InOrder order = inOrder(sessionRepository, messageRepository, outboxRepository, messageQuotaService);
+            order.verify(messageQuotaService).checkMessageAvailable(userId);
+            order.verify(sessionRepository).allocateSeqs(sessionId, userId, 2);
+            order.verify(messageRepository).insertTurn(any(), any());
+            order.verify(outboxRepository).save(any());
+            order.verify(messageQuotaService).takeMessage(userId);
         }
 
         @Test
-        @DisplayName("throws when session not found")
+        @DisplayName("queues the job in the send transaction when the queue joins it, skipping the outbox")
+        void skipsOutboxForTransactionalQueue() {
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
+            when(sqsService.joinsTransaction()).thenReturn(true);
+            when(sqsService.enqueueMessageJob(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+            var result = messageService.createUserMessageAndEnqueue(sessionId, userId, "User content", "key-1");
+
+            verify(sqsService).enqueueMessageJob(result.getInterviewerMessageId(), sessionId, "User content");
+            verifyNoInteractions(outboxRepository, eventPublisher);
+            verify(messageQuotaService).takeMessage(userId);
+        }
+
+        @Test
+        @DisplayName("throws when session not found, without taking a message")
         void throwsWhenSessionNotFound() {
-            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "key-1"))
-                    .thenReturn(Optional.empty());
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
+            when(sessionRepository.allocateSeqs(sessionId, userId, 2))
                     .thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "Content", "key-1"))
                     .isInstanceOf(com.example.aimock.exception.ResourceNotFoundException.class);
-            verify(userRepository).findById(userId);
+            verify(messageRepository, never()).insertTurn(any(), any());
+            verify(outboxRepository, never()).save(any());
+            verify(messageQuotaService, never()).takeMessage(any());
         }
 
         @Test
         @DisplayName("allocates sequence numbers correctly")
         void allocatesSequenceNumbers() {
-            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "key-1"))
-                    .thenReturn(Optional.empty());
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
+            session.setNextSeq(5);
 
             messageService.createUserMessageAndEnqueue(sessionId, userId, "Content", "key-1");
 
-            verify(sessionRepository).save(argThat(s -> s.getNextSeq() > 0));
-            verify(userRepository).save(user);
+            verify(messageRepository).insertTurn(argThat(m -> m.getRole() == MessageRole.USER && m.getSeq() == 5),
+                    any(UUID.class));
+            verify(conversationCache).messagesCreated(eq(session), argThat(m -> m.seq() == 5), eq(6L));
         }
-        
+
+        @Test
+        @DisplayName("refuses the send when the quota is used up, throwing so that the turn and its job roll back")
+        void refusesWhenQuotaUsedUp() {
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
+            when(messageQuotaService.takeMessage(userId))
+                    .thenThrow(new MessageLimitExceededException(30, 30, "FREE"));
+
+            assertThatThrownBy(() -> messageService.createUserMessageAndEnqueue(
+                    sessionId, userId, "Content", "key-1"))
+                    .isInstanceOf(MessageLimitExceededException.class);
+            assertThat(idempotencyCache.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("refuses a user with no messages left before locking the session or writing anything")
+        void refusesOverLimitBeforeLocking() {
+            doThrow(new MessageLimitExceededException(30, 30, "FREE"))
+                    .when(messageQuotaService).checkMessageAvailable(userId);
+
+            assertThatThrownBy(() -> messageService.createUserMessageAndEnqueue(
+                    sessionId, userId, "Content", "key-1"))
+                    .isInstanceOf(MessageLimitExceededException.class);
+            verifyNoInteractions(sessionRepository, outboxRepository, eventPublisher);
+            verify(messageRepository, never()).insertTurn(any(), any());
+            verify(messageQuotaService, never()).takeMessage(any());
+        }
+
+        @Test
+        @DisplayName("answers a retry of an accepted send even when that send used the last message")
+        void retryAtLimit() {
+            Message existingUserMessage = Message.user("Content", sessionId, 1L, "key-1");
+            existingUserMessage.setId(UUID.randomUUID());
+            Message existingInterviewerMessage = Message.interviewer("", sessionId, 2L);
+            existingInterviewerMessage.setId(UUID.randomUUID());
+            doThrow(new MessageLimitExceededException(30, 30, "FREE"))
+                    .when(messageQuotaService).checkMessageAvailable(userId);
+            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "key-1"))
+                    .thenReturn(Optional.of(existingUserMessage));
+            when(messageRepository.findInterviewerMessageAfterSeq(sessionId, 1L))
+                    .thenReturn(Optional.of(existingInterviewerMessage));
+
+            var result = messageService.createUserMessageAndEnqueue(sessionId, userId, "Content", "key-1");
+
+            assertThat(result.getUserMessageId()).isEqualTo(existingUserMessage.getId());
+            assertThat(result.getInterviewerMessageId()).isEqualTo(existingInterviewerMessage.getId());
+            verifyNoInteractions(sessionRepository);
+        }
+
         @Test
         @DisplayName("sets idempotency key on user message")
         void setsIdempotencyKeyOnUserMessage() {
-            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "unique-key-123"))
-                    .thenReturn(Optional.empty());
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
 
             messageService.createUserMessageAndEnqueue(sessionId, userId, "Content", "unique-key-123");
 
-            verify(messageRepository).save(argThat(m -> 
-                    m.getRole() == MessageRole.USER && 
+            verify(messageRepository).insertTurn(argThat(m ->
+                    m.getRole() == MessageRole.USER &&
                     "unique-key-123".equals(m.getIdempotencyKey())
-            ));
-            verify(userRepository).save(user);
+            ), any(UUID.class));
+            verify(messageQuotaService).takeMessage(userId);
         }
     }
     
@@ -233,7 +307,6 @@ class MessageServiceTest {
     class Idempotency {
         private UUID userId;
         private InterviewSession session;
-        private User user;
 
         @BeforeEach
         void setUp() {
@@ -245,56 +318,31 @@ class MessageServiceTest {
                     .interviewType("TECHNICAL")
                     .status(Status.STARTED)
                     .build();
-            user = User.builder()
-                    .id(userId)
-                    .email("test@example.com")
-                    .username("testuser")
-                    .password("password")
-                    .firstName("Test")
-                    .lastName("User")
-                    .tier("FREE")
-                    .messageCount(0)
-                    .messageLimit(30)
-                    .build();
-            when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         }
         
         @Test
-        @DisplayName("returns existing message on duplicate request (fast path)")
-        void returnsExistingOnDuplicate_fastPath() {
-            UUID existingUserMsgId = UUID.randomUUID();
-            UUID existingInterviewerMsgId = UUID.randomUUID();
-            
-            Message existingUserMessage = Message.user("Original content", sessionId, 1L, "dup-key");
-            existingUserMessage.setId(existingUserMsgId);
-            
-            Message existingInterviewerMessage = Message.interviewer("AI response", sessionId, 2L);
-            existingInterviewerMessage.setId(existingInterviewerMsgId);
-            
-            // Fast path: found without lock
-            when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "dup-key"))
-                    .thenReturn(Optional.of(existingUserMessage));
-            when(messageRepository.findInterviewerMessageAfterSeq(sessionId, 1L))
-                    .thenReturn(Optional.of(existingInterviewerMessage));
-
-            var result = messageService.createUserMessageAndEnqueue(
-                    sessionId, userId, "Duplicate content", "dup-key");
-
-            // Should return existing IDs
-            assertThat(result.getUserMessageId()).isEqualTo(existingUserMsgId);
-            assertThat(result.getInterviewerMessageId()).isEqualTo(existingInterviewerMsgId);
-            
-            // Should NOT create new messages
-            verify(messageRepository, never()).save(any(Message.class));
-            verify(sessionRepository, never()).findByIdAndUserIdForUpdate(any(), any());
-            // Message limit check still happens before idempotency check
-            verify(userRepository).findById(userId);
-            verify(userRepository, never()).save(any(User.class));
+        @DisplayName("answers a retried send from the cache, without a lock or a query")
+        void returnsExistingOnDuplicate_cache() {
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
+            var first = messageService.createUserMessageAndEnqueue(sessionId, userId, "Content", "dup-key");
+
+            var retry = messageService.createUserMessageAndEnqueue(sessionId, userId, "Content", "dup-key");
+
+            assertThat(retry.getUserMessageId()).isEqualTo(first.getUserMessageId());
+            assertThat(retry.getInterviewerMessageId()).isEqualTo(first.getInterviewerMessageId());
+            verify(sessionRepository, times(1)).allocateSeqs(any(), any(), anyInt());
+            verify(messageRepository, times(1)).insertTurn(any(), any());
+            verify(messageRepository, never()).findBySessionIdAndIdempotencyKey(any(), any());
+            // A retried send does not cost a message
+            verify(messageQuotaService, times(1)).takeMessage(userId);
+            assertThat(registry.counter("messages.idempotency", "result", "hit").count()).isEqualTo(1);
+            assertThat(registry.counter("messages.idempotency", "result", "miss").count()).isEqualTo(1);
         }
         
         @Test
-        @DisplayName("returns existing message on duplicate request (under lock)")
-        void returnsExistingOnDuplicate_underLock() {
+        @DisplayName("returns existing message when the unique index rejects a duplicate the cache missed")
+        void returnsExistingOnDuplicate_uniqueIndex() {
             UUID existingUserMsgId = UUID.randomUUID();
             UUID existingInterviewerMsgId = UUID.randomUUID();
             
@@ -304,45 +352,38 @@ class MessageServiceTest {
             Message existingInterviewerMessage = Message.interviewer("AI response", sessionId, 2L);
             existingInterviewerMessage.setId(existingInterviewerMsgId);
             
-            // Fast path: not found
-            // Under lock: found (simulates concurrent insert)
+            // Sent through another node: not cached here, but already in the database
+            stubSeqAllocation(session, userId);
+            when(messageRepository.insertTurn(any(Message.class), any(UUID.class))).thenReturn(0);
             when(messageRepository.findBySessionIdAndIdempotencyKey(sessionId, "dup-key"))
-                    .thenReturn(Optional.empty())  // First call (fast path)
-                    .thenReturn(Optional.of(existingUserMessage));  // Second call (under lock)
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
+                    .thenReturn(Optional.of(existingUserMessage));
             when(messageRepository.findInterviewerMessageAfterSeq(sessionId, 1L))
                     .thenReturn(Optional.of(existingInterviewerMessage));
 
             var result = messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "Duplicate content", "dup-key");
+            var retry = messageService.createUserMessageAndEnqueue(
+                    sessionId, userId, "Duplicate content", "dup-key");
 
-            // Should return existing IDs
+            // Should return existing IDs, the second time from the cache
             assertThat(result.getUserMessageId()).isEqualTo(existingUserMsgId);
             assertThat(result.getInterviewerMessageId()).isEqualTo(existingInterviewerMsgId);
+            assertThat(retry.getUserMessageId()).isEqualTo(existingUserMsgId);
+            verify(sessionRepository, times(1)).allocateSeqs(sessionId, userId, 2);
             
-            // Should NOT create new messages
-            verify(messageRepository, never()).save(any(Message.class));
-            
-            // Should have acquired lock (to double-check)
-            verify(sessionRepository).findByIdAndUserIdForUpdate(sessionId, userId);
-            // Message limit check still happens before idempotency check
-            verify(userRepository).findById(userId);
-            verify(userRepository, never()).save(any(User.class));
+            // A retried send does not cost a message or queue another AI job
+            verify(messageQuotaService, never()).takeMessage(any());
+            verify(outboxRepository, never()).save(any());
+            verifyNoInteractions(eventPublisher);
+            assertThat(registry.counter("messages.idempotency", "result", "duplicate").count()).isEqualTo(1);
+            assertThat(registry.counter("messages.idempotency", "result", "hit").count()).isEqualTo(1);
         }
         
         @Test
         @DisplayName("handles null idempotency key gracefully")
         void handlesNullIdempotencyKey() {
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
 
             var result = messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "Content", null);
@@ -351,46 +392,32 @@ class MessageServiceTest {
             
             // Should NOT check for existing (null key)
             verify(messageRepository, never()).findBySessionIdAndIdempotencyKey(any(), any());
-            verify(userRepository).save(user);
+            verify(messageQuotaService).takeMessage(userId);
+            assertThat(idempotencyCache.size()).isZero();
         }
         
         @Test
         @DisplayName("handles blank idempotency key gracefully")
         void handlesBlankIdempotencyKey() {
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
 
             var result = messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "Content", "   ");
 
             assertThat(result.getUserMessageId()).isNotNull();
             
-            // Should NOT check for existing (blank key)
+            // Stored without a key, so it cannot collide with another blank one
+            verify(messageRepository).insertTurn(argThat(m -> m.getIdempotencyKey() == null), any(UUID.class));
             verify(messageRepository, never()).findBySessionIdAndIdempotencyKey(any(), any());
-            verify(userRepository).save(user);
+            verify(messageQuotaService).takeMessage(userId);
         }
         
         @Test
         @DisplayName("different idempotency keys create different messages")
         void differentKeysCreateDifferentMessages() {
-            when(messageRepository.findBySessionIdAndIdempotencyKey(eq(sessionId), anyString()))
-                    .thenReturn(Optional.empty());
-            when(sessionRepository.findByIdAndUserIdForUpdate(sessionId, userId))
-                    .thenReturn(Optional.of(session));
-            when(messageRepository.save(any(Message.class))).thenAnswer(inv -> {
-                Message m = inv.getArgument(0);
-                if (m.getId() == null) {
-                    m.setId(UUID.randomUUID());
-                }
-                return m;
-            });
+            stubSeqAllocation(session, userId);
+            stubInsertTurn();
 
             var result1 = messageService.createUserMessageAndEnqueue(
                     sessionId, userId, "First", "key-1");
@@ -398,8 +425,8 @@ class MessageServiceTest {
                     sessionId, userId, "Second", "key-2");
 
             assertThat(result1.getUserMessageId()).isNotEqualTo(result2.getUserMessageId());
-            verify(messageRepository, times(4)).save(any(Message.class)); // 2 user + 2 interviewer
-            verify(userRepository, times(2)).save(user); // User message count incremented twice
+            verify(messageRepository, times(2)).insertTurn(any(), any()); // One turn per send
+            verify(messageQuotaService, times(2)).takeMessage(userId); // One message per send
         }
     }
 }
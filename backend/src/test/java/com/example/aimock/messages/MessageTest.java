@@ -3,6 +3,7 @@ package com.example.aimock.messages;
 import com.example.aimock.messages.model.Message;
 import com.example.aimock.messages.model.MessageRole;
 import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.messages.model.StreamingContent;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -133,16 +134,18 @@ class MessageTest {
     class ContentManipulation {
 
         @Test
-        void appendDeltaAddsToContent() {
+        void streamedContentContinuesAfterExistingContent() {
             Message message = Message.interviewer("Hello", sessionId, 1L);
+            StreamingContent streamed = StreamingContent.after(message.getContent());
 
-            message.appendDelta(" world");
+            streamed.append(" world");
+            message.setContent(streamed.toString());
 
             assertThat(message.getContent()).isEqualTo("Hello world");
         }
 
         @Test
-        void appendDeltaHandlesNullContent() {
+        void streamedContentHandlesNullContent() {
             Message message = Message.builder()
                     .role(MessageRole.INTERVIEWER)
                     .sessionId(sessionId)
@@ -150,22 +153,46 @@ class MessageTest {
                     .messageStatus(MessageStatus.STREAMING)
                     .content(null)
                     .build();
+            StreamingContent streamed = StreamingContent.after(message.getContent());
 
-            message.appendDelta("First delta");
+            streamed.append("First delta");
+            message.setContent(streamed.toString());
 
             assertThat(message.getContent()).isEqualTo("First delta");
         }
 
         @Test
         void multipleAppendsAccumulate() {
+            StreamingContent streamed = new StreamingContent();
+
+            streamed.append("Hello").append(" ").append(null).append("world");
+            assertThat(streamed.toString()).isEqualTo("Hello world");
+            streamed.append("!");
+
+            assertThat(streamed.length()).isEqualTo(12);
+            assertThat(streamed.toString()).isEqualTo("Hello world!");
+            assertThat(streamed.toString()).isSameAs(streamed.toString());
+        }
+
+        @Test
+        void settingContentResetsTokenCount() {
             Message message = Message.interviewer("", sessionId, 1L);
+            message.setTokenCount(3);
+
+            message.setContent(new StreamingContent().append("Done").toString());
+
+            assertThat(message.getTokenCount()).isNull();
+        }
+
+        @Test
+        void sizeHintTracksMaterializedLengths() {
+            StreamingContent.SizeHint hint = new StreamingContent.SizeHint();
 
-            message.appendDelta("Hello");
-            message.appendDelta(" ");
-            message.appendDelta("world");
-            message.appendDelta("!");
+            for (int i = 0; i < 50; i++) {
+                hint.newContent().append("x".repeat(4000)).toString();
+            }
 
-            assertThat(message.getContent()).isEqualTo("Hello world!");
+            assertThat(hint.expectedChars()).isBetween(3900, 4000);
         }
     }
 }
@@ -0,0 +1,236 @@
+package com.example.aimock.messages.outbox;
+
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.messages.SQSService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AiJobOutboxRelay")
+class AiJobOutboxRelayTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Mock
+    private AiJobOutboxRepository outboxRepository;
+
+    @Mock
+    private SQSService sqsService;
+
+    @Mock
+    private AIMessageProcessor aiMessageProcessor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DataSource dataSource;
+
+    private SimpleMeterRegistry registry;
+    private AtomicInteger pendingGauge;
+    private AtomicLong oldestAgeGauge;
+    private AiJobOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        pendingGauge = new AtomicInteger();
+        oldestAgeGauge = new AtomicLong();
+        relay = new AiJobOutboxRelay(outboxRepository, sqsService, aiMessageProcessor,
+                new TransactionTemplate(transactionManager), dataSource, 10, Duration.ofSeconds(1),
+                Duration.ofMillis(200), 3, Duration.ofSeconds(2), false, Clock.fixed(NOW, ZoneOffset.UTC),
+                registry.timer("ai.outbox.lag"), registry.counter("ai.outbox.abandoned"), pendingGauge, oldestAgeGauge);
+    }
+
+    private static Instant now() {
+        return NOW;
+    }
+
+    private static AiJobOutboxEntry entry(long id, int attempts, Duration age) {
+        AiJobOutboxEntry entry = AiJobOutboxEntry.of(UUID.randomUUID(), UUID.randomUUID(), "Hello", now().minus(age));
+        entry.setId(id);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    @Test
+    @DisplayName("leases the claimed rows, hands them to the queue and deletes them once it has accepted them")
+    void relaysAcceptedJobs() {
+        AiJobOutboxEntry first = entry(1, 0, Duration.ofMillis(40));
+        AiJobOutboxEntry second = entry(2, 0, Duration.ofMillis(80));
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(first, second));
+        when(sqsService.enqueueMessageJob(any(), any(), eq("Hello"))).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(relay.relayBatch()).isEqualTo(2);
+
+        verify(outboxRepository).lease(List.of(1L, 2L), now().plus(Duration.ofMillis(400)));
+        verify(outboxRepository).deleteByIds(List.of(1L, 2L));
+        assertThat(registry.timer("ai.outbox.lag").count()).isEqualTo(2);
+        assertThat(registry.timer("ai.outbox.lag").max(TimeUnit.MILLISECONDS)).isEqualTo(80);
+    }
+
+    @Test
+    @DisplayName("hands jobs to the queue between the claim and the settle transaction, not inside one")
+    void sendsOutsideTransactions() {
+        AtomicInteger begun = new AtomicInteger();
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger openAtSend = new AtomicInteger(-1);
+        doAnswer(invocation -> {
+            begun.incrementAndGet();
+            return null;
+        }).when(transactionManager).getTransaction(any());
+        doAnswer(invocation -> committed.incrementAndGet()).when(transactionManager).commit(any());
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(entry(1, 0, Duration.ZERO)));
+        when(sqsService.enqueueMessageJob(any(), any(), any())).thenAnswer(invocation -> {
+            openAtSend.set(begun.get() - committed.get());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relay.relayBatch();
+
+        assertThat(openAtSend.get()).isZero();
+        assertThat(committed.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("inserts jobs into a queue in the same database and deletes their rows in one transaction")
+    void relaysInOneTransactionWhenTheQueueJoinsIt() {
+        AtomicInteger begun = new AtomicInteger();
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger openAtSend = new AtomicInteger();
+        doAnswer(invocation -> {
+            begun.incrementAndGet();
+            return null;
+        }).when(transactionManager).getTransaction(any());
+        doAnswer(invocation -> committed.incrementAndGet()).when(transactionManager).commit(any());
+        when(sqsService.joinsTransaction()).thenReturn(true);
+        when(outboxRepository.lockDue(now(), 10))
+                .thenReturn(List.of(entry(1, 0, Duration.ofMillis(30)), entry(2, 0, Duration.ZERO)));
+        when(sqsService.enqueueMessageJob(any(), any(), any())).thenAnswer(invocation -> {
+            openAtSend.set(begun.get() - committed.get());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertThat(relay.relayBatch()).isEqualTo(2);
+
+        InOrder order = inOrder(sqsService, outboxRepository, transactionManager);
+        order.verify(sqsService, times(2)).enqueueMessageJob(any(), any(), any());
+        order.verify(outboxRepository).deleteByIds(List.of(1L, 2L));
+        order.verify(transactionManager).commit(any());
+        assertThat(openAtSend.get()).isEqualTo(1);
+        assertThat(begun.get()).isEqualTo(1);
+        verify(outboxRepository, never()).lease(any(), any());
+        assertThat(registry.timer("ai.outbox.lag").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("rolls the pass back when a queue in the same database cannot insert a job")
+    void rollsBackWhenTheJoinedInsertFails() {
+        when(sqsService.joinsTransaction()).thenReturn(true);
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(entry(1, 0, Duration.ZERO)));
+        when(sqsService.enqueueMessageJob(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("db down")));
+
+        assertThatThrownBy(() -> relay.relayBatch()).hasRootCauseMessage("db down");
+
+        verify(outboxRepository, never()).deleteByIds(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    @DisplayName("keeps a job the queue refused and retries it after a backoff")
+    void retriesRefusedJobs() {
+        AiJobOutboxEntry refused = entry(1, 1, Duration.ZERO);
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(refused));
+        when(sqsService.enqueueMessageJob(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+
+        relay.relayBatch();
+
+        verify(outboxRepository, never()).deleteByIds(any());
+        verify(outboxRepository).reschedule(1L, 2, now().plusSeconds(4));
+    }
+
+    @Test
+    @DisplayName("retries a job the queue did not answer in time")
+    void retriesTimedOutJobs() {
+        AiJobOutboxEntry pending = entry(1, 0, Duration.ZERO);
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(pending));
+        when(sqsService.enqueueMessageJob(any(), any(), any())).thenReturn(new CompletableFuture<>());
+
+        relay.relayBatch();
+
+        verify(outboxRepository).reschedule(1L, 1, now().plusSeconds(2));
+    }
+
+    @Test
+    @DisplayName("fails the turn once the queue has refused it max-attempts times, after the delete committed")
+    void abandonsAfterMaxAttempts() {
+        AiJobOutboxEntry refused = entry(1, 2, Duration.ZERO);
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of(refused));
+        when(sqsService.enqueueMessageJob(any(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        relay.relayBatch();
+
+        InOrder order = inOrder(outboxRepository, transactionManager, aiMessageProcessor);
+        order.verify(outboxRepository).deleteByIds(List.of(1L));
+        order.verify(transactionManager).commit(any());
+        order.verify(aiMessageProcessor).rejectMessage(refused.getInterviewerMessageId(), refused.getSessionId());
+        assertThat(registry.counter("ai.outbox.abandoned").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("does nothing further when no row is due")
+    void idlesWhenNothingIsDue() {
+        when(outboxRepository.lockDue(now(), 10)).thenReturn(List.of());
+
+        assertThat(relay.relayBatch()).isZero();
+
+        verify(outboxRepository, never()).lease(any(), any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    @DisplayName("exports the backlog size and the age of its oldest job")
+    void refreshesGauges() {
+        when(outboxRepository.count()).thenReturn(7L);
+        when(outboxRepository.findOldestCreatedAt()).thenReturn(now().minusSeconds(3));
+
+        relay.refreshGauges();
+
+        assertThat(pendingGauge.get()).isEqualTo(7);
+        assertThat(oldestAgeGauge.get()).isEqualTo(3000);
+    }
+}
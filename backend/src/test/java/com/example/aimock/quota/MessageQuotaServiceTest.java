@@ -0,0 +1,107 @@
+package com.example.aimock.quota;
+
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.exception.MessageLimitExceededException;
+import com.example.aimock.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageQuotaService")
+class MessageQuotaServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry registry;
+    private MessageQuotaService quotaService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        quotaService = new MessageQuotaService(userRepository, registry.summary("messages.quota.remaining"),
+                registry.counter("messages.quota.exceeded"));
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("returns what is left after taking a message, without loading the user")
+    void takesMessage() {
+        when(userRepository.takeMessage(userId)).thenReturn(Optional.of(12));
+
+        assertThat(quotaService.takeMessage(userId)).isEqualTo(12);
+
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any());
+        assertThat(registry.summary("messages.quota.remaining").count()).isEqualTo(1);
+        assertThat(registry.summary("messages.quota.remaining").max()).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("throws MessageLimitExceededException with the user's counts when none are left")
+    void refusesAtLimit() {
+        when(userRepository.takeMessage(userId)).thenReturn(Optional.empty());
+        when(userRepository.findById(userId)).thenReturn(Optional.of(User.builder()
+                .id(userId)
+                .tier("FREE")
+                .messageCount(30)
+                .messageLimit(30)
+                .build()));
+
+        assertThatThrownBy(() -> quotaService.takeMessage(userId))
+                .isInstanceOfSatisfying(MessageLimitExceededException.class, e -> {
+                    assertThat(e.getMessageLimit()).isEqualTo(30);
+                    assertThat(e.getMessageCount()).isEqualTo(30);
+                    assertThat(e.getTier()).isEqualTo("FREE");
+                });
+        assertThat(registry.counter("messages.quota.exceeded").count()).isEqualTo(1);
+        assertThat(registry.summary("messages.quota.remaining").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("checks the quota with a read, and refuses a user at their limit")
+    void checksMessageAvailable() {
+        when(userRepository.isAtMessageLimit(userId)).thenReturn(false);
+        quotaService.checkMessageAvailable(userId);
+        verify(userRepository, never()).findById(any());
+
+        when(userRepository.isAtMessageLimit(userId)).thenReturn(true);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(User.builder()
+                .id(userId)
+                .tier("FREE")
+                .messageCount(30)
+                .messageLimit(30)
+                .build()));
+        assertThatThrownBy(() -> quotaService.checkMessageAvailable(userId))
+                .isInstanceOf(MessageLimitExceededException.class);
+        verify(userRepository, never()).takeMessage(any());
+    }
+
+    @Test
+    @DisplayName("throws ResourceNotFoundException for an unknown user")
+    void unknownUser() {
+        when(userRepository.takeMessage(userId)).thenReturn(Optional.empty());
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> quotaService.takeMessage(userId))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(registry.counter("messages.quota.exceeded").count()).isZero();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.aimock.session;
+
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.MessageRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ConversationCache")
+class ConversationCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        sessionId = UUID.randomUUID();
+    }
+
+    private ConversationCache newCache(boolean enabled, int maxSessions, int messagesPerSession) {
+        return new ConversationCache(enabled, Duration.ofMinutes(15), maxSessions, messagesPerSession, clock::get,
+                registry.counter("conversation.cache", "lookup", "session", "result", "hit"),
+                registry.counter("conversation.cache", "lookup", "session", "result", "miss"),
+                registry.counter("conversation.cache", "lookup", "history", "result", "hit"),
+                registry.counter("conversation.cache", "lookup", "history", "result", "miss"),
+                registry.counter("conversation.cache.evictions", "cause", "expired"),
+                registry.counter("conversation.cache.evictions", "cause", "size"));
+    }
+
+    private InterviewSession session(UUID id, long nextSeq) {
+        return InterviewSession.builder().id(id).userId(UUID.randomUUID()).title("Test")
+                .interviewType("TECHNICAL").experienceYears(4).jobDescription("Backend").nextSeq(nextSeq).build();
+    }
+
+    private static HistoryMessage message(long seq, String content) {
+        return new HistoryMessage(UUID.randomUUID(), seq,
+                seq % 2 == 1 ? MessageRole.USER : MessageRole.INTERVIEWER, content, 1);
+    }
+
+    /**
+     * One turn: user message at seq, reply at seq + 1 (completed unless reply is null).
+     */
+    private HistoryMessage[] turn(ConversationCache cache, InterviewSession session, long seq, String reply) {
+        HistoryMessage user = message(seq, "Answer " + seq);
+        cache.messagesCreated(session, user, seq + 1);
+        HistoryMessage interviewer = reply != null ? message(seq + 1, reply) : null;
+        if (interviewer != null) {
+            cache.messageCompleted(session.getId(), interviewer);
+        }
+        return new HistoryMessage[]{user, interviewer};
+    }
+
+    private double count(String name, String... tags) {
+        return registry.counter(name, tags).count();
+    }
+
+    @Test
+    @DisplayName("serves session metadata and history kept up to date write-through")
+    void writeThrough() {
+        ConversationCache cache = newCache(true, 100, 40);
+        InterviewSession session = session(sessionId, 1);
+        cache.sessionCreated(session);
+
+        HistoryMessage[] first = turn(cache, session, 1, "Question 2");
+        HistoryMessage[] second = turn(cache, session, 3, null);
+
+        assertThat(cache.session(sessionId)).hasValueSatisfying(snapshot -> {
+            assertThat(snapshot.interviewType()).isEqualTo("TECHNICAL");
+            assertThat(snapshot.experienceYears()).isEqualTo(4);
+            assertThat(snapshot.jobDescription()).isEqualTo("Backend");
+        });
+        // Prompt for the reply at seq 4: history before the triggering user message at seq 3
+        assertThat(cache.history(sessionId, 0, 3, 20)).contains(List.of(first[0], first[1]));
+        assertThat(cache.history(sessionId, 1, 4, 20)).contains(List.of(first[1], second[0]));
+        assertThat(count("conversation.cache", "lookup", "session", "result", "hit")).isEqualTo(1);
+        assertThat(count("conversation.cache", "lookup", "history", "result", "hit")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("misses while a reply in the range is still pending, and after it failed")
+    void pendingReplies() {
+        ConversationCache cache = newCache(true, 100, 40);
+        InterviewSession session = session(sessionId, 1);
+        cache.sessionCreated(session);
+        turn(cache, session, 1, null);
+        turn(cache, session, 3, null);
+
+        // Reply at seq 2 has not completed on this node
+        assertThat(cache.history(sessionId, 0, 3, 20)).isEmpty();
+
+        cache.messageFailed(sessionId, 2);
+
+        assertThat(cache.history(sessionId, 0, 3, 20)).hasValueSatisfying(history -> assertThat(history).hasSize(1));
+        assertThat(count("conversation.cache", "lookup", "history", "result", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("restarts coverage when messages were appended elsewhere and joins database reads onto it")
+    void gapsAndDatabaseMerge() {
+        ConversationCache cache = newCache(true, 100, 40);
+        InterviewSession session = session(sessionId, 1);
+        cache.sessionCreated(session);
+        turn(cache, session, 1, "Question 2");
+
+        // Seqs 3-4 were written by another node
+        HistoryMessage[] third = turn(cache, session, 5, null);
+        assertThat(cache.history(sessionId, 0, 5, 20)).isEmpty();
+
+        List<HistoryMessage> fromDatabase = List.of(message(1, "Answer 1"), message(2, "Question 2"),
+                message(3, "Answer 3"), message(4, "Question 4"));
+        cache.historyLoaded(sessionId, 0, 5, 20, fromDatabase);
+
+        assertThat(cache.history(sessionId, 0, 5, 20)).contains(fromDatabase);
+        assertThat(cache.history(sessionId, 2, 6, 20)).contains(List.of(fromDatabase.get(2), fromDatabase.get(3), third[0]));
+    }
+
+    @Test
+    @DisplayName("keeps the newest messages per session and still serves windows that fit")
+    void trimsPerSession() {
+        ConversationCache cache = newCache(true, 100, 4);
+        InterviewSession session = session(sessionId, 1);
+        cache.sessionCreated(session);
+        turn(cache, session, 1, "Question 2");
+        HistoryMessage[] second = turn(cache, session, 3, "Question 4");
+        HistoryMessage[] third = turn(cache, session, 5, null);
+
+        assertThat(cache.history(sessionId, 0, 5, 2)).contains(List.of(second[0], second[1]));
+        // Seq 1 was dropped, so a full window can no longer be proven complete
+        assertThat(cache.history(sessionId, 0, 5, 20)).isEmpty();
+        assertThat(cache.history(sessionId, 2, 6, 20)).contains(List.of(second[0], second[1], third[0]));
+    }
+
+    @Test
+    @DisplayName("evicts by age and by size, and drops sessions that ended")
+    void eviction() {
+        ConversationCache cache = newCache(true, 2, 40);
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        cache.sessionCreated(session(sessionId, 1));
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        cache.sessionCreated(session(second, 1));
+        cache.sessionCreated(session(third, 1));
+
+        assertThat(cache.session(sessionId)).isEmpty();
+        assertThat(count("conversation.cache.evictions", "cause", "size")).isEqualTo(1);
+
+        clock.addAndGet(Duration.ofMinutes(16).toNanos());
+        assertThat(cache.session(second)).isEmpty();
+        assertThat(count("conversation.cache.evictions", "cause", "expired")).isEqualTo(2);
+
+        cache.sessionCreated(session(sessionId, 1));
+        cache.invalidate(sessionId);
+        assertThat(cache.session(sessionId)).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("applies newer summaries only")
+    void summaries() {
+        ConversationCache cache = newCache(true, 100, 40);
+        cache.sessionCreated(session(sessionId, 1));
+
+        cache.summaryUpdated(sessionId, "- Covered caching", 6);
+        cache.summaryUpdated(sessionId, "- Stale", 4);
+
+        assertThat(cache.session(sessionId)).hasValueSatisfying(snapshot -> {
+            assertThat(snapshot.conversationSummary()).isEqualTo("- Covered caching");
+            assertThat(snapshot.summarizedThroughSeq()).isEqualTo(6L);
+        });
+    }
+
+    @Test
+    @DisplayName("does nothing when disabled")
+    void disabled() {
+        ConversationCache cache = newCache(false, 100, 40);
+        InterviewSession session = session(sessionId, 1);
+        cache.sessionCreated(session);
+        turn(cache, session, 1, "Question 2");
+
+        assertThat(cache.session(sessionId)).isEmpty();
+        assertThat(cache.history(sessionId, 0, 3, 20)).isEmpty();
+        assertThat(cache.size()).isZero();
+        assertThat(registry.find("conversation.cache").counters()).allMatch(counter -> counter.count() == 0);
+    }
+}
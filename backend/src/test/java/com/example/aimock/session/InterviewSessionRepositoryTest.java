@@ -0,0 +1,103 @@
+package com.example.aimock.session;
+
+import com.example.aimock.EmbeddedPostgresDatabase;
+import com.example.aimock.auth.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The native {@code UPDATE ... RETURNING} of {@link InterviewSessionRepository#allocateSeqs} against a real
+ * PostgreSQL migrated by Flyway.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@DisplayName("InterviewSessionRepository")
+class InterviewSessionRepositoryTest {
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private InterviewSessionRepository sessionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+    private InterviewSession session;
+
+    @BeforeEach
+    void setUp() {
+        String name = "seqs-" + UUID.randomUUID();
+        user = entityManager.persist(User.builder()
+                .email(name + "@example.com")
+                .password("password")
+                .username(name)
+                .firstName("Seq")
+                .lastName("User")
+                .build());
+        session = entityManager.persist(InterviewSession.builder()
+                .title("Seqs")
+                .interviewType("TECHNICAL")
+                .userId(user.getId())
+                .build());
+        // The query's RETURNING row must be read, not the managed instance
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("reserves count seqs and returns the session with next_seq past them")
+    void reservesSeqs() {
+        Optional<InterviewSession> allocated = sessionRepository.allocateSeqs(session.getId(), user.getId(), 2);
+
+        assertThat(allocated).hasValueSatisfying(s -> {
+            assertThat(s.getId()).isEqualTo(session.getId());
+            assertThat(s.getNextSeq()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    @DisplayName("hands consecutive calls consecutive ranges")
+    void consecutiveRanges() {
+        sessionRepository.allocateSeqs(session.getId(), user.getId(), 2);
+        entityManager.clear();
+
+        Optional<InterviewSession> second = sessionRepository.allocateSeqs(session.getId(), user.getId(), 2);
+        entityManager.clear();
+
+        assertThat(second).map(InterviewSession::getNextSeq).contains(5L);
+        assertThat(entityManager.find(InterviewSession.class, session.getId()).getNextSeq()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("is empty and reserves nothing for another user's session")
+    void otherUsersSession() {
+        assertThat(sessionRepository.allocateSeqs(session.getId(), UUID.randomUUID(), 2)).isEmpty();
+        entityManager.clear();
+
+        assertThat(entityManager.find(InterviewSession.class, session.getId()).getNextSeq()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("is empty for a session that does not exist")
+    void unknownSession() {
+        assertThat(sessionRepository.allocateSeqs(UUID.randomUUID(), user.getId(), 2)).isEmpty();
+    }
+}
@@ -36,6 +36,9 @@ class InterviewSessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ConversationCache conversationCache;
+
     private InterviewSessionService service;
 
     private UUID userId;
@@ -43,7 +46,7 @@ class InterviewSessionServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new InterviewSessionService(interviewSessionRepository, userRepository);
+        service = new InterviewSessionService(interviewSessionRepository, userRepository, conversationCache);
         userId = UUID.randomUUID();
         sessionId = UUID.randomUUID();
     }
@@ -135,6 +138,7 @@ class InterviewSessionServiceTest {
             assertThat(result.getStatus()).isEqualTo(Status.COMPLETED);
             assertThat(result.getEndedAt()).isNotNull();
             verify(interviewSessionRepository).save(session);
+            verify(conversationCache).invalidate(sessionId);
         }
 
         @Test
@@ -202,6 +206,7 @@ class InterviewSessionServiceTest {
             assertThat(result.getStatus()).isEqualTo(Status.ABORTED);
             assertThat(result.getEndedAt()).isNotNull();
             verify(interviewSessionRepository).save(session);
+            verify(conversationCache).invalidate(sessionId);
         }
 
         @Test
@@ -0,0 +1,238 @@
+package com.example.aimock.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SqsBatcher")
+class SqsBatcherTest {
+
+    private static final String QUEUE_URL = "https://sqs.test/queue.fifo";
+
+    @Mock
+    private SqsClient sqsClient;
+
+    private SimpleMeterRegistry registry;
+    private ScheduledExecutorService timer;
+    private ExecutorService sender;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        sender = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    private SqsBatcher newBatcher(Duration flushWindow, int maxAttempts) {
+        return newBatcher(flushWindow, Duration.ofMillis(1), maxAttempts);
+    }
+
+    private SqsBatcher newBatcher(Duration flushWindow, Duration retryBackoff, int maxAttempts) {
+        return new SqsBatcher(sqsClient, QUEUE_URL, flushWindow, retryBackoff, maxAttempts, timer, sender,
+                registry.summary("sqs.batch.size", "operation", "delete"),
+                registry.summary("sqs.batch.size", "operation", "send"),
+                registry.counter("sqs.batch.retries", "operation", "delete"),
+                registry.counter("sqs.batch.retries", "operation", "send"),
+                registry.counter("sqs.batch.failures", "operation", "delete"),
+                registry.counter("sqs.batch.failures", "operation", "send"));
+    }
+
+    private static BatchResultErrorEntry error(String id, boolean senderFault) {
+        return BatchResultErrorEntry.builder().id(id).code("Code" + id).message("failed").senderFault(senderFault).build();
+    }
+
+    @Test
+    @DisplayName("sends ten deletes as soon as they are queued and holds the rest for the flush window")
+    void fullBatchesGoOutImmediately() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMinutes(1), 3);
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            results.add(batcher.delete("rh-" + i));
+        }
+        CompletableFuture.allOf(results.subList(0, 10).toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertThat(results.get(10)).isNotDone();
+
+        batcher.shutdown();
+        assertThat(results).allMatch(result -> result.isDone() && !result.isCompletedExceptionally());
+
+        ArgumentCaptor<DeleteMessageBatchRequest> requests = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqsClient, times(2)).deleteMessageBatch(requests.capture());
+        assertThat(requests.getAllValues().get(0).entries()).extracting(DeleteMessageBatchRequestEntry::receiptHandle)
+                .containsExactly("rh-0", "rh-1", "rh-2", "rh-3", "rh-4", "rh-5", "rh-6", "rh-7", "rh-8", "rh-9");
+        assertThat(requests.getAllValues().get(1).entries()).extracting(DeleteMessageBatchRequestEntry::id)
+                .containsExactly("0", "1");
+        assertThat(registry.summary("sqs.batch.size", "operation", "delete").count()).isEqualTo(2);
+        assertThat(registry.summary("sqs.batch.size", "operation", "delete").totalAmount()).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("sends a partial batch once the flush window passes, keeping each entry's group")
+    void partialBatchAfterWindow() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(20), 3);
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+
+        batcher.send(SendMessageBatchRequestEntry.builder().messageBody("a").messageGroupId("session-a").build())
+                .get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(request.capture());
+        assertThat(request.getValue().queueUrl()).isEqualTo(QUEUE_URL);
+        assertThat(request.getValue().entries()).singleElement().satisfies(entry -> {
+            assertThat(entry.id()).isEqualTo("0");
+            assertThat(entry.messageGroupId()).isEqualTo("session-a");
+            assertThat(entry.messageBody()).isEqualTo("a");
+        });
+    }
+
+    @Test
+    @DisplayName("retries entries SQS failed on its side and fails entries rejected as the sender's fault")
+    void partialFailure() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(50), 3);
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().failed(error("0", false), error("1", true)).build())
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+
+        CompletableFuture<Void> retried = batcher.delete("rh-throttled");
+        CompletableFuture<Void> rejected = batcher.delete("rh-invalid");
+        CompletableFuture<Void> accepted = batcher.delete("rh-ok");
+
+        retried.get(5, TimeUnit.SECONDS);
+        accepted.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("Code1");
+
+        ArgumentCaptor<DeleteMessageBatchRequest> requests = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqsClient, times(2)).deleteMessageBatch(requests.capture());
+        assertThat(requests.getAllValues().get(1).entries()).extracting(DeleteMessageBatchRequestEntry::receiptHandle)
+                .containsExactly("rh-throttled");
+        assertThat(registry.counter("sqs.batch.retries", "operation", "delete").count()).isEqualTo(1);
+        assertThat(registry.counter("sqs.batch.failures", "operation", "delete").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("gives up on entries once the batch call has failed max-attempts times")
+    void givesUpAfterMaxAttempts() {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(10), 2);
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenThrow(SqsException.builder().message("unavailable").build());
+
+        CompletableFuture<Void> result = batcher.send(SendMessageBatchRequestEntry.builder().messageBody("a").build());
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        verify(sqsClient, timeout(5000).times(2)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        assertThat(registry.counter("sqs.batch.retries", "operation", "send").count()).isEqualTo(1);
+        assertThat(registry.counter("sqs.batch.failures", "operation", "send").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("waits out the retry backoff before resending an entry SQS failed on its side")
+    void backsOffBeforeRetry() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(10), Duration.ofMillis(300), 3);
+        List<Long> callTimes = new CopyOnWriteArrayList<>();
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenAnswer(invocation -> {
+            callTimes.add(System.nanoTime());
+            return callTimes.size() == 1
+                    ? DeleteMessageBatchResponse.builder().failed(error("0", false)).build()
+                    : DeleteMessageBatchResponse.builder().build();
+        });
+
+        batcher.delete("rh-throttled").get(5, TimeUnit.SECONDS);
+
+        assertThat(callTimes).hasSize(2);
+        assertThat(callTimes.get(1) - callTimes.get(0)).isGreaterThanOrEqualTo(Duration.ofMillis(300).toNanos());
+    }
+
+    @Test
+    @DisplayName("keeps a message group in order when its first entry is retried")
+    void keepsGroupOrder() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(20), Duration.ofMillis(10), 3);
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenAnswer(invocation -> {
+            SendMessageBatchRequest request = invocation.getArgument(0);
+            batches.add(request.entries().stream().map(SendMessageBatchRequestEntry::messageBody).toList());
+            return batches.size() == 1
+                    ? SendMessageBatchResponse.builder().failed(error("0", false)).build()
+                    : SendMessageBatchResponse.builder().build();
+        });
+
+        CompletableFuture<Void> first = batcher.send(
+                SendMessageBatchRequestEntry.builder().messageBody("a1").messageGroupId("session-a").build());
+        CompletableFuture<Void> second = batcher.send(
+                SendMessageBatchRequestEntry.builder().messageBody("a2").messageGroupId("session-a").build());
+        CompletableFuture<Void> other = batcher.send(
+                SendMessageBatchRequestEntry.builder().messageBody("b1").messageGroupId("session-b").build());
+        CompletableFuture.allOf(first, second, other).get(5, TimeUnit.SECONDS);
+
+        // a2 waits behind a1, including through a1's retry
+        assertThat(batches).containsExactly(List.of("a1", "b1"), List.of("a1"), List.of("a2"));
+    }
+
+    @Test
+    @DisplayName("sends a batch while an earlier batch call is still blocked")
+    void slowCallDoesNotHoldTheTimer() throws Exception {
+        SqsBatcher batcher = newBatcher(Duration.ofMillis(10), 3);
+        CountDownLatch release = new CountDownLatch(1);
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenAnswer(invocation -> {
+            DeleteMessageBatchRequest request = invocation.getArgument(0);
+            if (request.entries().getFirst().receiptHandle().equals("rh-slow")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return DeleteMessageBatchResponse.builder().build();
+        });
+
+        CompletableFuture<Void> slow = batcher.delete("rh-slow");
+        verify(sqsClient, timeout(5000)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+        batcher.delete("rh-fast").get(5, TimeUnit.SECONDS);
+
+        assertThat(slow).isNotDone();
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+    }
+}
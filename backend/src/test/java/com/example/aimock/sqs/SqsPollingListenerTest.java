@@ -0,0 +1,240 @@
+package com.example.aimock.sqs;
+
+import com.example.aimock.ai.consumer.SQSMessageConsumer;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SqsPollingListener")
+class SqsPollingListenerTest {
+
+    @Mock
+    private SqsClient sqsClient;
+
+    @Mock
+    private SQSMessageConsumer consumer;
+
+    @Mock
+    private SqsBatcher sqsBatcher;
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private AtomicInteger inflightGauge;
+    private AtomicInteger processingGauge;
+    private ExecutorService workers;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        inflightGauge = new AtomicInteger();
+        processingGauge = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    private SqsPollingListener newListener(int maxInFlight) {
+        return new SqsPollingListener(sqsClient, consumer, sqsBatcher, "https://sqs.test/queue.fifo", 10, 0, 60, 100, 1,
+                maxInFlight, Duration.ofMinutes(15), clock::get, workers, mock(ScheduledExecutorService.class),
+                inflightGauge, processingGauge, registry.counter("sqs.visibility.extensions"));
+    }
+
+    private static Message message(String id, String group) {
+        return Message.builder()
+                .messageId(id)
+                .receiptHandle("rh-" + id)
+                .body(id)
+                .attributes(Map.of(MessageSystemAttributeName.MESSAGE_GROUP_ID, group))
+                .build();
+    }
+
+    private void receive(Message... messages) {
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer(invocation -> {
+            ReceiveMessageRequest request = invocation.getArgument(0);
+            int count = Math.min(messages.length, request.maxNumberOfMessages());
+            return ReceiveMessageResponse.builder().messages(List.of(messages).subList(0, count)).build();
+        });
+    }
+
+    private static AIProcessingResult result(AIProcessingResult.Status status) {
+        return new AIProcessingResult(UUID.randomUUID(), UUID.randomUUID(), null, status, null);
+    }
+
+    @Test
+    @DisplayName("runs different sessions in parallel and one session's messages in receive order")
+    void perSessionOrdering() throws Exception {
+        SqsPollingListener listener = newListener(10);
+        receive(message("a1", "session-a"), message("a2", "session-a"), message("b1", "session-b"));
+        CountDownLatch a1Started = new CountDownLatch(1);
+        CountDownLatch releaseA1 = new CountDownLatch(1);
+        List<String> finished = new CopyOnWriteArrayList<>();
+        when(consumer.processMessage(anyString())).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0);
+            if (id.equals("a1")) {
+                a1Started.countDown();
+                releaseA1.await(5, TimeUnit.SECONDS);
+            }
+            finished.add(id);
+            return result(AIProcessingResult.Status.SUCCESS);
+        });
+
+        assertThat(listener.poll()).isEqualTo(3);
+        assertThat(a1Started.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(sqsBatcher, timeout(5000)).delete("rh-b1");
+
+        assertThat(finished).containsExactly("b1");
+        awaitValue(inflightGauge, 2);
+        assertThat(processingGauge.get()).isEqualTo(1);
+
+        releaseA1.countDown();
+        verify(sqsBatcher, timeout(5000)).delete("rh-a2");
+        assertThat(finished).containsExactly("b1", "a1", "a2");
+        awaitValue(inflightGauge, 0);
+    }
+
+    @Test
+    @DisplayName("asks only for as many messages as there is room for in flight")
+    void receivesUpToFreeCapacity() throws Exception {
+        SqsPollingListener listener = newListener(3);
+        receive(message("a1", "session-a"), message("b1", "session-b"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(consumer.processMessage(anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return result(AIProcessingResult.Status.SUCCESS);
+        });
+        ArgumentCaptor<ReceiveMessageRequest> requests = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+
+        listener.poll();
+        listener.poll();
+        release.countDown();
+
+        verify(consumer, timeout(5000).times(3)).processMessage(anyString());
+        verify(sqsClient, times(2)).receiveMessage(requests.capture());
+        assertThat(requests.getAllValues()).extracting(ReceiveMessageRequest::maxNumberOfMessages)
+                .containsExactly(3, 1);
+        assertThat(requests.getValue().messageSystemAttributeNames())
+                .containsExactly(MessageSystemAttributeName.MESSAGE_GROUP_ID);
+    }
+
+    @Test
+    @DisplayName("leaves messages that did not succeed on the queue")
+    void keepsFailedMessages() throws Exception {
+        SqsPollingListener listener = newListener(10);
+        receive(message("a1", "session-a"));
+        CountDownLatch done = new CountDownLatch(1);
+        when(consumer.processMessage(anyString())).thenAnswer(invocation -> {
+            done.countDown();
+            return result(AIProcessingResult.Status.FAILED);
+        });
+
+        listener.poll();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        workers.shutdown();
+        assertThat(workers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(sqsBatcher, never()).delete(anyString());
+        assertThat(inflightGauge.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("extends the visibility timeout of long-running messages once half of it is used")
+    void extendsVisibility() throws Exception {
+        SqsPollingListener listener = newListener(10);
+        receive(message("a1", "session-a"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(consumer.processMessage(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return result(AIProcessingResult.Status.SUCCESS);
+        });
+        Map<String, Integer> extended = new ConcurrentHashMap<>();
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenAnswer(invocation -> {
+                    ChangeMessageVisibilityBatchRequest request = invocation.getArgument(0);
+                    for (ChangeMessageVisibilityBatchRequestEntry entry : request.entries()) {
+                        extended.merge(entry.receiptHandle(), entry.visibilityTimeout(), Integer::sum);
+                    }
+                    return ChangeMessageVisibilityBatchResponse.builder().build();
+                });
+
+        listener.poll();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        clock.set(TimeUnit.SECONDS.toNanos(20));
+        listener.extendVisibility();
+        assertThat(extended).isEmpty();
+
+        clock.set(TimeUnit.SECONDS.toNanos(40));
+        listener.extendVisibility();
+        assertThat(extended).containsExactly(Map.entry("rh-a1", 60));
+
+        // Visible again at 100s: nothing to do until 70s
+        clock.set(TimeUnit.SECONDS.toNanos(60));
+        listener.extendVisibility();
+        assertThat(extended).containsExactly(Map.entry("rh-a1", 60));
+
+        // Past max-processing-time SQS is left to redeliver it
+        clock.set(TimeUnit.MINUTES.toNanos(16));
+        listener.extendVisibility();
+        assertThat(registry.counter("sqs.visibility.extensions").count()).isEqualTo(1);
+
+        release.countDown();
+        verify(sqsBatcher, timeout(5000)).delete("rh-a1");
+    }
+
+    /**
+     * Gauges drop just after the delete call, on the worker thread.
+     */
+    private static void awaitValue(AtomicInteger gauge, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge.get() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(gauge.get()).isEqualTo(expected);
+    }
+}
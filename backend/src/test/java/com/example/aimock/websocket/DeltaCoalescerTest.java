@@ -0,0 +1,157 @@
+package com.example.aimock.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DeltaCoalescer")
+class DeltaCoalescerTest {
+
+    @Mock
+    private SessionTopicPublisher topicPublisher;
+
+    private SimpleMeterRegistry registry;
+    private DeltaCoalescer coalescer;
+
+    private UUID sessionId;
+    private UUID interviewerMessageId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        sessionId = UUID.randomUUID();
+        interviewerMessageId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    private DeltaCoalescer newCoalescer(boolean enabled, long flushIntervalMs, int maxChars) {
+        return new DeltaCoalescer(topicPublisher,
+                registry.counter("websocket.delta.frames"),
+                registry.counter("websocket.delta.bytes"),
+                registry.counter("websocket.delta.tokens"),
+                enabled, flushIntervalMs, maxChars);
+    }
+
+    @Test
+    @DisplayName("flushes the first token immediately")
+    void flushesFirstTokenImmediately() {
+        coalescer = newCoalescer(true, 60_000, 256);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("Hi");
+
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "Hi", 1L);
+    }
+
+    @Test
+    @DisplayName("coalesces tokens until the size threshold is reached")
+    void coalescesUntilSizeThreshold() {
+        coalescer = newCoalescer(true, 60_000, 6);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("A");
+        stream.append("bc");
+        stream.append("de");
+        verify(topicPublisher, never()).aiDelta(any(), any(), eq("bcde"), anyLong());
+
+        stream.append("fg");
+
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "A", 1L);
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "bcdefg", 2L);
+        assertThat(stream.framesSent()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("flushes buffered tokens after the time window")
+    void flushesAfterTimeWindow() {
+        coalescer = newCoalescer(true, 20, 10_000);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("first");
+        stream.append(" second");
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() ->
+                verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, " second", 2L));
+    }
+
+    @Test
+    @DisplayName("complete flushes the remainder and ignores later deltas")
+    void completeFlushesRemainder() {
+        coalescer = newCoalescer(true, 60_000, 10_000);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("one");
+        stream.append(" two");
+        stream.append(" three");
+        stream.complete();
+        stream.append(" late");
+        stream.complete();
+
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "one", 1L);
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, " two three", 2L);
+        verifyNoMoreInteractions(topicPublisher);
+    }
+
+    @Test
+    @DisplayName("publishes one frame per token when coalescing is disabled")
+    void passThroughWhenDisabled() {
+        coalescer = newCoalescer(false, 60_000, 10_000);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("a");
+        stream.append("b");
+        stream.append("c");
+
+        verify(topicPublisher, times(3)).aiDelta(eq(sessionId), eq(interviewerMessageId), anyString(), anyLong());
+        verify(topicPublisher).aiDelta(sessionId, interviewerMessageId, "c", 3L);
+    }
+
+    @Test
+    @DisplayName("records frame, byte and token counters")
+    void recordsMetrics() {
+        coalescer = newCoalescer(true, 60_000, 10_000);
+        DeltaCoalescer.DeltaStream stream = coalescer.open(sessionId, interviewerMessageId);
+
+        stream.append("ab");
+        stream.append("cd");
+        stream.append("é");
+        stream.complete();
+
+        assertThat(registry.counter("websocket.delta.tokens").count()).isEqualTo(3);
+        assertThat(registry.counter("websocket.delta.frames").count()).isEqualTo(2);
+        // "ab" + "cdé" (é is two bytes in UTF-8)
+        assertThat(registry.counter("websocket.delta.bytes").count()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("counts UTF-8 bytes as String.getBytes would, without encoding")
+    void utf8Length() {
+        for (String text : new String[]{"", "plain ascii", "café", "€ 5", "emoji 😀 pair", "lone \uD83D surrogate",
+                "trailing \uDE00", "日本語"}) {
+            assertThat(DeltaCoalescer.utf8Length(text))
+                    .as(text)
+                    .isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.aimock.websocket;
+
+import com.example.aimock.messages.model.MessageStatus;
+import com.example.aimock.websocket.dto.StreamReplay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DeltaReplayBuffer")
+class DeltaReplayBufferTest {
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+    private UUID sessionId;
+    private UUID messageId;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        sessionId = UUID.randomUUID();
+        messageId = UUID.randomUUID();
+    }
+
+    private DeltaReplayBuffer newBuffer(boolean enabled, int maxFrames, int maxChars, int maxMessages) {
+        return new DeltaReplayBuffer(enabled, maxFrames, maxChars, maxMessages, Duration.ofSeconds(30), clock::get,
+                registry.counter("websocket.replay.requests", "result", "hit"),
+                registry.counter("websocket.replay.requests", "result", "truncated"),
+                registry.counter("websocket.replay.requests", "result", "miss"));
+    }
+
+    private static void stream(DeltaReplayBuffer buffer, UUID sessionId, UUID messageId, int frames) {
+        for (int seq = 1; seq <= frames; seq++) {
+            buffer.frame(sessionId, messageId, seq, "f" + seq);
+        }
+    }
+
+    private double count(String result) {
+        return registry.counter("websocket.replay.requests", "result", result).count();
+    }
+
+    @Test
+    @DisplayName("replays the frames after the client's offset")
+    void replaysFromOffset() {
+        DeltaReplayBuffer buffer = newBuffer(true, 100, 1000, 10);
+        stream(buffer, sessionId, messageId, 5);
+
+        assertThat(buffer.replay(sessionId, messageId, 3)).hasValueSatisfying(replay -> {
+            assertThat(replay.messageStatus()).isEqualTo(MessageStatus.STREAMING);
+            assertThat(replay.truncated()).isFalse();
+            assertThat(replay.lastFrameSeq()).isEqualTo(5);
+            assertThat(replay.frames()).containsExactly(new StreamReplay.Frame(4, "f4"), new StreamReplay.Frame(5, "f5"));
+        });
+        assertThat(buffer.replay(sessionId, messageId, 5)).hasValueSatisfying(replay ->
+                assertThat(replay.frames()).isEmpty());
+        assertThat(count("hit")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("keeps only the newest frames and flags offsets that fell out of the ring")
+    void boundsFramesAndChars() {
+        DeltaReplayBuffer buffer = newBuffer(true, 3, 1000, 10);
+        stream(buffer, sessionId, messageId, 5);
+
+        assertThat(buffer.replay(sessionId, messageId, 2)).hasValueSatisfying(replay -> {
+            assertThat(replay.truncated()).isFalse();
+            assertThat(replay.frames()).extracting(StreamReplay.Frame::frameSeq).containsExactly(3L, 4L, 5L);
+        });
+        assertThat(buffer.replay(sessionId, messageId, 1)).hasValueSatisfying(replay -> {
+            assertThat(replay.truncated()).isTrue();
+            assertThat(replay.frames()).extracting(StreamReplay.Frame::frameSeq).containsExactly(3L, 4L, 5L);
+        });
+
+        DeltaReplayBuffer byChars = newBuffer(true, 100, 5, 10);
+        stream(byChars, sessionId, messageId, 5);
+        assertThat(byChars.replay(sessionId, messageId, 0)).hasValueSatisfying(replay ->
+                assertThat(replay.frames()).extracting(StreamReplay.Frame::frameSeq).containsExactly(4L, 5L));
+        assertThat(count("truncated")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("answers with the final state after completion and evicts it after the grace period")
+    void completion() {
+        DeltaReplayBuffer buffer = newBuffer(true, 100, 1000, 10);
+        UUID failedId = UUID.randomUUID();
+        stream(buffer, sessionId, messageId, 3);
+        buffer.completed(sessionId, messageId, "f1f2f3");
+        buffer.frame(sessionId, messageId, 4, "late");
+        buffer.failed(sessionId, failedId, "AI is busy");
+
+        assertThat(buffer.replay(sessionId, messageId, 1)).hasValueSatisfying(replay -> {
+            assertThat(replay.messageStatus()).isEqualTo(MessageStatus.COMPLETED);
+            assertThat(replay.content()).isEqualTo("f1f2f3");
+            assertThat(replay.frames()).isEmpty();
+            assertThat(replay.lastFrameSeq()).isEqualTo(3);
+        });
+        assertThat(buffer.replay(sessionId, failedId, 0)).hasValueSatisfying(replay -> {
+            assertThat(replay.messageStatus()).isEqualTo(MessageStatus.FAILED);
+            assertThat(replay.error()).isEqualTo("AI is busy");
+        });
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(buffer.replay(sessionId, messageId, 0)).isEmpty();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("evicts the oldest stream over capacity and never serves another session's message")
+    void capacityAndOwnership() {
+        DeltaReplayBuffer buffer = newBuffer(true, 100, 1000, 2);
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        stream(buffer, sessionId, messageId, 1);
+        buffer.completed(sessionId, messageId, "f1");
+        stream(buffer, sessionId, second, 1);
+        stream(buffer, sessionId, third, 1);
+
+        assertThat(buffer.replay(sessionId, messageId, 0)).isEmpty();
+        assertThat(buffer.replay(sessionId, third, 0)).isPresent();
+        assertThat(buffer.replay(UUID.randomUUID(), third, 0)).isEmpty();
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("flags a resume as truncated when the stream was evicted and buffered again mid-stream")
+    void evictedMidStream() {
+        DeltaReplayBuffer buffer = newBuffer(true, 100, 1000, 1);
+        stream(buffer, sessionId, messageId, 3);
+        buffer.frame(sessionId, UUID.randomUUID(), 1, "other");  // evicts the first stream
+        buffer.frame(sessionId, messageId, 4, "f4");             // evicts the other one, restarts at frame 4
+
+        assertThat(buffer.replay(sessionId, messageId, 1)).hasValueSatisfying(replay -> {
+            assertThat(replay.truncated()).isTrue();
+            assertThat(replay.frames()).containsExactly(new StreamReplay.Frame(4, "f4"));
+        });
+        assertThat(buffer.replay(sessionId, messageId, 3)).hasValueSatisfying(replay ->
+                assertThat(replay.truncated()).isFalse());
+        assertThat(count("truncated")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("does nothing when disabled")
+    void disabled() {
+        DeltaReplayBuffer buffer = newBuffer(false, 100, 1000, 10);
+        stream(buffer, sessionId, messageId, 3);
+        buffer.completed(sessionId, messageId, "f1f2f3");
+
+        assertThat(buffer.replay(sessionId, messageId, 0)).isEmpty();
+        assertThat(buffer.size()).isZero();
+    }
+}
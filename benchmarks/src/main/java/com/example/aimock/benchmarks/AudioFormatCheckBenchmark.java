@@ -0,0 +1,60 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.speech.SpeechService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code SpeechService.isValidAudioFormat}, the magic-byte check run on every uploaded recording before
+ * transcription. WebM is the browser recorder's format and is checked first; unknown bytes fall
+ * through every signature.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AudioFormatCheckBenchmark {
+
+    @Param({"webm", "wav", "unknown"})
+    public String format;
+
+    private static final MethodHandle IS_VALID_AUDIO_FORMAT =
+            PrivateAccess.method(SpeechService.class, "isValidAudioFormat", byte[].class, String.class);
+
+    private SpeechService speechService;
+    private byte[] audio;
+    private String contentType;
+
+    @Setup
+    public void setUp() {
+        speechService = new SpeechService(null, null, null);
+        // 64 KB, about 4 s of Opus; only the first bytes are read
+        audio = new byte[64 * 1024];
+        byte[] header = switch (format) {
+            case "webm" -> new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+            case "wav" -> new byte[]{'R', 'I', 'F', 'F'};
+            default -> new byte[]{0, 1, 2, 3, 4, 5, 6, 7};
+        };
+        System.arraycopy(header, 0, audio, 0, header.length);
+        contentType = "unknown".equals(format) ? null : "audio/" + format;
+    }
+
+    @Benchmark
+    public boolean isValidAudioFormat() throws Throwable {
+        return (boolean) IS_VALID_AUDIO_FORMAT.invoke(speechService, audio, contentType);
+    }
+}
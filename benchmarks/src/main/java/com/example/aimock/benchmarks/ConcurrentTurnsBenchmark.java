@@ -0,0 +1,170 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.AimockApplication;
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.messages.MessageService;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time of 200 interview turns started together on one node, each streaming 20 tokens from the
+ * {@code stub-ai} model (about 100 ms to the first token, then one every 10 ms):
+ *
+ * <ul>
+ *   <li>{@code blocking}: {@code AIMessageProcessor.processMessage} on 16 worker threads, so at most 16
+ *       turns stream at a time</li>
+ *   <li>{@code reactive}: {@code processMessageReactive} for all 200 at once, with the database phases on
+ *       the 16-thread {@code aiBlockingScheduler}</li>
+ * </ul>
+ *
+ * Each invocation sends one message to each of 200 sessions first, through {@code MessageService} with
+ * jobs accepted by {@link MessageAppendBenchmark.AcceptingQueue}, and then runs their turns. PostgreSQL is
+ * an embedded server unless {@code -Dbench.jdbc-url} (with {@code bench.jdbc-user} /
+ * {@code bench.jdbc-password}) points elsewhere.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentTurnsBenchmark {
+
+    private static final int TURNS = 200;
+    private static final int WORKER_THREADS = 16;
+    private static final String QUESTION = "How would you shard the messages table?";
+
+    @Param({"blocking", "reactive"})
+    public String mode;
+
+    private EmbeddedPostgres embeddedPostgres;
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private AIMessageProcessor processor;
+    private ExecutorService workers;
+    private UUID userId;
+    private final List<UUID> sessionIds = new ArrayList<>(TURNS);
+    private final List<UUID> interviewerMessageIds = new ArrayList<>(TURNS);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+        context = new SpringApplicationBuilder(AimockApplication.class)
+                .profiles("stub-ai")
+                .initializers(ctx -> ((GenericApplicationContext) ctx)
+                        .registerBean(MessageAppendBenchmark.AcceptingQueue.class))
+                // As command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + System.getProperty("bench.jdbc-user", "postgres"),
+                        "--spring.datasource.password=" + System.getProperty("bench.jdbc-password", "postgres"),
+                        "--spring.datasource.hikari.data-source-properties.sslmode=disable",
+                        "--app.sqs.enabled=false",
+                        "--app.ai.reactive.blocking-threads=" + WORKER_THREADS,
+                        "--app.ai.stub.ttft-median=100ms",
+                        "--app.ai.stub.ttft-p99=200ms",
+                        "--app.ai.stub.inter-token-delay=10ms",
+                        "--app.ai.stub.min-tokens=20",
+                        "--app.ai.stub.max-tokens=20",
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        messageService = context.getBean(MessageService.class);
+        processor = context.getBean(AIMessageProcessor.class);
+        workers = Executors.newFixedThreadPool(WORKER_THREADS);
+
+        String name = "bench-" + UUID.randomUUID();
+        userId = context.getBean(UserRepository.class).save(User.builder()
+                .email(name + "@example.com")
+                .password("x")
+                .username(name)
+                .firstName("Bench")
+                .lastName("User")
+                .messageLimit(Integer.MAX_VALUE)
+                .build()).getId();
+        InterviewSessionRepository sessionRepository = context.getBean(InterviewSessionRepository.class);
+        for (int i = 0; i < TURNS; i++) {
+            sessionIds.add(sessionRepository.save(InterviewSession.builder()
+                    .title("Benchmark")
+                    .interviewType("SYSTEM_DESIGN")
+                    .userId(userId)
+                    .build()).getId());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void sendMessages() {
+        interviewerMessageIds.clear();
+        for (UUID sessionId : sessionIds) {
+            interviewerMessageIds.add(messageService.createUserMessageAndEnqueue(sessionId, userId,
+                    QUESTION, null).getInterviewerMessageId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workers.shutdownNow();
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    @Benchmark
+    public long turns() throws Exception {
+        if ("reactive".equals(mode)) {
+            return Flux.range(0, TURNS)
+                    .flatMap(i -> processor.processMessageReactive(interviewerMessageIds.get(i), sessionIds.get(i),
+                            QUESTION), TURNS)
+                    .filter(result -> result.getStatus() == AIProcessingResult.Status.SUCCESS)
+                    .count()
+                    .block();
+        }
+        List<Future<AIProcessingResult>> futures = new ArrayList<>(TURNS);
+        for (int i = 0; i < TURNS; i++) {
+            UUID interviewerMessageId = interviewerMessageIds.get(i);
+            UUID sessionId = sessionIds.get(i);
+            futures.add(workers.submit(() -> processor.processMessage(interviewerMessageId, sessionId, QUESTION)));
+        }
+        long succeeded = 0;
+        for (Future<AIProcessingResult> future : futures) {
+            if (future.get().getStatus() == AIProcessingResult.Status.SUCCESS) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
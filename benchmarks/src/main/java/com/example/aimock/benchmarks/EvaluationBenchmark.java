@@ -0,0 +1,75 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.ai.AIEvaluationService;
+import com.example.aimock.messages.model.Message;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-interview evaluation work outside the model call: building the transcript from the session's
+ * messages and parsing the model's fenced JSON reply.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluationBenchmark {
+
+    private static final String RESPONSE = """
+            ```json
+            {
+                "overallScore": 7.5,
+                "knowledge": 78,
+                "communication": 82,
+                "problemSolving": 71,
+                "technicalDepth": 69,
+                "feedback": "%s",
+                "strengths": "Clear structure, good trade-off discussion",
+                "areasForImprovement": "Go deeper on failure modes and capacity estimates"
+            }
+            ```
+            """.formatted(Fixtures.text(800));
+
+    private static final MethodHandle BUILD_TRANSCRIPT =
+            PrivateAccess.method(AIEvaluationService.class, "buildTranscript", List.class);
+    private static final MethodHandle PARSE_EVALUATION_RESPONSE =
+            PrivateAccess.method(AIEvaluationService.class, "parseEvaluationResponse", String.class);
+
+    @Param({"10", "60"})
+    public int messages;
+
+    private AIEvaluationService evaluationService;
+    private List<Message> sessionMessages;
+
+    @Setup
+    public void setUp() {
+        evaluationService = new AIEvaluationService(null, null, JsonMapper.builder().findAndAddModules().build(), null);
+        sessionMessages = Fixtures.messages(messages, 600);
+    }
+
+    @Benchmark
+    public Object buildTranscript() throws Throwable {
+        return BUILD_TRANSCRIPT.invoke(evaluationService, sessionMessages);
+    }
+
+    @Benchmark
+    public Object parseEvaluationResponse() throws Throwable {
+        return PARSE_EVALUATION_RESPONSE.invoke(evaluationService, RESPONSE);
+    }
+}
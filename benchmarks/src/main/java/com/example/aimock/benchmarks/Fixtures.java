@@ -0,0 +1,71 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.messages.model.MessageRole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deterministic input generators shared by the benchmarks.
+ */
+final class Fixtures {
+
+    private static final String WORDS = "We are hiring a backend engineer to design, build and operate "
+            + "low-latency Java services on Spring Boot, PostgreSQL and AWS. You will own APIs end to end, "
+            + "improve reliability, mentor teammates and work closely with product on interview tooling. ";
+
+    private Fixtures() {
+    }
+
+    static String text(int chars) {
+        StringBuilder sb = new StringBuilder(chars);
+        while (sb.length() < chars) {
+            sb.append(WORDS);
+        }
+        return sb.substring(0, chars);
+    }
+
+    /**
+     * Stream deltas as a chat model sends them, roughly one token (about 4 characters) each.
+     */
+    static String[] deltas(int tokens) {
+        String text = text(tokens * 4);
+        String[] deltas = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            // substring copies, so each delta is its own String as it would be off the wire
+            deltas[i] = text.substring(i * 4, i * 4 + 4);
+        }
+        return deltas;
+    }
+
+    /**
+     * Alternating candidate / interviewer turns of {@code chars} characters each, oldest first.
+     *
+     * @param tokenCount stored per-message token count, or null when it has to be counted per turn
+     */
+    static List<HistoryMessage> history(int messages, int chars, Integer tokenCount) {
+        List<HistoryMessage> history = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            MessageRole role = i % 2 == 0 ? MessageRole.USER : MessageRole.INTERVIEWER;
+            history.add(new HistoryMessage(new UUID(0, i), (long) i + 1, role, text(chars), tokenCount));
+        }
+        return history;
+    }
+
+    /**
+     * The same turns as {@link #history} as message entities, for the evaluation transcript.
+     */
+    static List<Message> messages(int messages, int chars) {
+        UUID sessionId = new UUID(0, 0);
+        List<Message> result = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            result.add(i % 2 == 0
+                    ? Message.user(text(chars), sessionId, i + 1)
+                    : Message.interviewer(text(chars), sessionId, i + 1));
+        }
+        return result;
+    }
+}
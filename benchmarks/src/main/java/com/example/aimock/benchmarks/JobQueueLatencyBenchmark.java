@@ -0,0 +1,218 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.ai.AIMessageProcessor;
+import com.example.aimock.ai.consumer.SQSMessageConsumer;
+import com.example.aimock.ai.dto.AIProcessingResult;
+import com.example.aimock.jobs.PostgresJobQueue;
+import com.example.aimock.jobs.PostgresJobWorker;
+import com.example.aimock.messages.PostgresJobQueueService;
+import com.example.aimock.messages.RealSQSService;
+import com.example.aimock.sqs.SqsBatcher;
+import com.example.aimock.sqs.SqsPollingListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.elasticmq.rest.sqs.SQSRestServer;
+import org.elasticmq.rest.sqs.SQSRestServerBuilder;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enqueue-to-start latency of an AI job: from handing it to the queue to the consumer calling
+ * {@code AIMessageProcessor.processMessage}, with the production defaults of each path.
+ *
+ * <ul>
+ *   <li>{@code postgres}: {@link PostgresJobQueueService} inside a transaction that then commits, as in
+ *       {@code MessageService}'s send (which skips the outbox for this queue); timed from the insert, so
+ *       the commit and the in-process wakeup after it are included</li>
+ *   <li>{@code postgres-notify}: a row inserted without the in-process wakeup, so only {@code NOTIFY}
+ *       reaches the workers, as on every other node</li>
+ *   <li>{@code sqs}: {@link RealSQSService} through {@link SqsBatcher} to a FIFO queue, consumed by
+ *       {@link SqsPollingListener}'s long polls. In production the job first waits in the outbox for the
+ *       relay, which is not measured here ({@code ai.outbox.lag})</li>
+ * </ul>
+ *
+ * PostgreSQL is an embedded server and SQS an in-process ElasticMQ unless {@code -Dbench.jdbc-url}
+ * (with {@code bench.jdbc-user} / {@code bench.jdbc-password}) or {@code -Dbench.sqs-endpoint} point
+ * elsewhere, e.g. at a Postgres container or LocalStack.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JobQueueLatencyBenchmark {
+
+    @Param({"postgres", "postgres-notify", "sqs"})
+    public String queue;
+
+    private final StartSignal processor = new StartSignal();
+    private EmbeddedPostgres embeddedPostgres;
+    private HikariDataSource dataSource;
+    private PostgresJobQueue jobQueue;
+    private PostgresJobWorker jobWorker;
+    private PostgresJobQueueService postgresService;
+    private TransactionTemplate transactions;
+    private SQSRestServer elasticMq;
+    private SqsClient sqsClient;
+    private SqsBatcher sqsBatcher;
+    private SqsPollingListener sqsListener;
+    private RealSQSService sqsService;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (queue.startsWith("postgres")) {
+            startPostgres();
+        } else {
+            startSqs();
+        }
+    }
+
+    private void startPostgres() throws IOException {
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        dataSource = new HikariDataSource();
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        } else {
+            dataSource.setUsername(System.getProperty("bench.jdbc-user", "postgres"));
+            dataSource.setPassword(System.getProperty("bench.jdbc-password", "postgres"));
+        }
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setMaximumPoolSize(16);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM ai_jobs");
+        jobQueue = new PostgresJobQueue(jdbcTemplate);
+        jobWorker = new PostgresJobWorker(jobQueue, processor, dataSource, 8, Duration.ofMinutes(1), 5,
+                Duration.ofSeconds(2), Duration.ofSeconds(1), registry.timer("start"), new AtomicInteger(),
+                registry.counter("retries"), registry.counter("dead"));
+        jobWorker.start();
+        postgresService = new PostgresJobQueueService(jobQueue, jobWorker);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    private void startSqs() {
+        String endpoint = System.getProperty("bench.sqs-endpoint");
+        if (endpoint == null) {
+            elasticMq = SQSRestServerBuilder.withDynamicPort().start();
+            endpoint = "http://localhost:" + elasticMq.waitUntilStarted().localAddress().getPort();
+        }
+        sqsClient = SqsClient.builder()
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("x", "x")))
+                .build();
+        String queueUrl = sqsClient.createQueue(request -> request
+                .queueName("ai-jobs-bench-" + UUID.randomUUID() + ".fifo")
+                .attributes(Map.of(QueueAttributeName.FIFO_QUEUE, "true"))).queueUrl();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        sqsBatcher = new SqsBatcher(sqsClient, queueUrl, Duration.ofMillis(10), Duration.ofMillis(100), 3, 4,
+                registry.summary("delete"), registry.summary("send"), registry.counter("dr"),
+                registry.counter("sr"), registry.counter("df"), registry.counter("sf"));
+        sqsListener = new SqsPollingListener(sqsClient, new SQSMessageConsumer(processor, objectMapper), sqsBatcher,
+                queueUrl, 10, 20, 60, 100, 2, 8, 20, Duration.ofMinutes(15),
+                new AtomicInteger(), new AtomicInteger(), registry.counter("extensions"));
+        sqsListener.start();
+        sqsService = new RealSQSService(sqsBatcher, objectMapper);
+        PrivateAccess.setField(sqsService, "queueUrl", queueUrl);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (jobWorker != null) {
+            jobWorker.stop();
+            dataSource.close();
+        }
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+        if (sqsListener != null) {
+            sqsListener.stop();
+            sqsBatcher.shutdown();
+            sqsClient.close();
+        }
+        if (elasticMq != null) {
+            elasticMq.stopAndWait();
+        }
+    }
+
+    @Benchmark
+    public Object enqueueToStart() throws Exception {
+        // A fresh session per job, so FIFO / per-session ordering never holds one back
+        UUID interviewerMessageId = UUID.randomUUID();
+        UUID sessionId = UUID.randomUUID();
+        CompletableFuture<Void> started = processor.expect(interviewerMessageId);
+        switch (queue) {
+            case "postgres" -> transactions.executeWithoutResult(status ->
+                    postgresService.enqueueMessageJob(interviewerMessageId, sessionId, "Hello").join());
+            case "postgres-notify" -> jobQueue.enqueue(interviewerMessageId, sessionId, "Hello");
+            default -> sqsService.enqueueMessageJob(interviewerMessageId, sessionId, "Hello");
+        }
+        return started.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Completes a job's future as soon as a consumer starts it; nothing else of the processor is used.
+     */
+    static final class StartSignal extends AIMessageProcessor {
+
+        private final Map<UUID, CompletableFuture<Void>> expected = new ConcurrentHashMap<>();
+
+        StartSignal() {
+            super(null, null, null, null, null, null, null, null, null, null,
+                    null, null, null, null, null, null, null, null, null);
+        }
+
+        CompletableFuture<Void> expect(UUID interviewerMessageId) {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            expected.put(interviewerMessageId, started);
+            return started;
+        }
+
+        @Override
+        public AIProcessingResult processMessage(UUID interviewerMessageId, UUID sessionId, String userContent,
+                                                 boolean retry, boolean lastAttempt) {
+            CompletableFuture<Void> started = expected.remove(interviewerMessageId);
+            if (started != null) {
+                started.complete(null);
+            }
+            return new AIProcessingResult(interviewerMessageId, sessionId, "", AIProcessingResult.Status.SUCCESS, null);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.auth.jwt.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done by the JWT filter on every authenticated request: {@code extractUsername} alone, and
+ * the {@code extractUsername} + {@code validateToken} pair the filter runs (three signature
+ * verifications in total, each deriving the key from the Base64 secret).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtService jwtService;
+    private String token;
+    private UserDetails userDetails;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        PrivateAccess.setField(jwtService, "secret", "5367566859703373367639792F423F452848284D6251655468576D5A71347437");
+        PrivateAccess.setField(jwtService, "expiration", 86_400_000L);
+        token = jwtService.generateToken(UUID.randomUUID(), "candidate@example.com");
+        userDetails = new User("candidate@example.com", "unused", List.of());
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean extractUsernameAndValidate() {
+        String username = jwtService.extractUsername(token);
+        return username != null && jwtService.validateToken(token, userDetails);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.AimockApplication;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.messages.MessageService;
+import com.example.aimock.messages.SQSService;
+import com.example.aimock.messages.dto.MessageCreationResult;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends per second through {@code MessageService.createUserMessageAndEnqueue} on one node (the application
+ * context with its default connection pool) against PostgreSQL, with 8 sending threads.
+ *
+ * <ul>
+ *   <li>{@code shared}: every thread sends to the same session as the same user, like rapid double-sends
+ *       or several tabs; the score is the sends/sec one session can take</li>
+ *   <li>{@code own}: each thread has its own user and session; the score is the sends/sec of one node</li>
+ * </ul>
+ *
+ * Jobs are accepted by {@link AcceptingQueue}, so no AI turn runs. PostgreSQL is an embedded server unless
+ * {@code -Dbench.jdbc-url} (with {@code bench.jdbc-user} / {@code bench.jdbc-password}) points elsewhere.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 8, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MessageAppendBenchmark {
+
+    @Param({"shared", "own"})
+    public String sessions;
+
+    private EmbeddedPostgres embeddedPostgres;
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private UserRepository userRepository;
+    private InterviewSessionRepository sessionRepository;
+    private User sharedUser;
+    private InterviewSession sharedSession;
+
+    @Setup
+    public void setUp() throws IOException {
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+        context = new SpringApplicationBuilder(AimockApplication.class)
+                .profiles("stub-ai")
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean(AcceptingQueue.class))
+                // As command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + System.getProperty("bench.jdbc-user", "postgres"),
+                        "--spring.datasource.password=" + System.getProperty("bench.jdbc-password", "postgres"),
+                        "--spring.datasource.hikari.data-source-properties.sslmode=disable",
+                        "--app.sqs.enabled=false",
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        messageService = context.getBean(MessageService.class);
+        userRepository = context.getBean(UserRepository.class);
+        sessionRepository = context.getBean(InterviewSessionRepository.class);
+        sharedUser = newUser();
+        sharedSession = newSession(sharedUser);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    private User newUser() {
+        String name = "bench-" + UUID.randomUUID();
+        return userRepository.save(User.builder()
+                .email(name + "@example.com")
+                .password("x")
+                .username(name)
+                .firstName("Bench")
+                .lastName("User")
+                .messageLimit(Integer.MAX_VALUE)
+                .build());
+    }
+
+    private InterviewSession newSession(User user) {
+        return sessionRepository.save(InterviewSession.builder()
+                .title("Benchmark")
+                .interviewType("SYSTEM_DESIGN")
+                .userId(user.getId())
+                .build());
+    }
+
+    /**
+     * Replaces {@code NoOpSQSService} after component scanning with a queue that accepts every job and runs
+     * none, so AI turns do not compete with the sends for connections.
+     */
+    public static class AcceptingQueue implements BeanDefinitionRegistryPostProcessor {
+
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            registry.removeBeanDefinition("noOpSQSService");
+            registry.registerBeanDefinition("noOpSQSService", new RootBeanDefinition(SQSService.class,
+                    () -> (interviewerMessageId, sessionId, userContent) -> CompletableFuture.completedFuture(null)));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+
+        UUID userId;
+        UUID sessionId;
+
+        @Setup(Level.Trial)
+        public void setUp(MessageAppendBenchmark benchmark) {
+            if ("shared".equals(benchmark.sessions)) {
+                userId = benchmark.sharedUser.getId();
+                sessionId = benchmark.sharedSession.getId();
+            } else {
+                User user = benchmark.newUser();
+                userId = user.getId();
+                sessionId = benchmark.newSession(user).getId();
+            }
+        }
+    }
+
+    @Benchmark
+    public MessageCreationResult send(Sender sender) {
+        return messageService.createUserMessageAndEnqueue(sender.sessionId, sender.userId,
+                "How would you shard the messages table?", null);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.AimockApplication;
+import com.example.aimock.auth.user.User;
+import com.example.aimock.auth.user.UserRepository;
+import com.example.aimock.messages.MessageRepository;
+import com.example.aimock.messages.dto.HistoryMessage;
+import com.example.aimock.messages.model.Message;
+import com.example.aimock.session.InterviewSession;
+import com.example.aimock.session.InterviewSessionRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The history read of one AI turn for sessions of 50 / 200 / 1,000 messages against PostgreSQL: every
+ * message loaded as entities ({@code findBySessionIdOrderBySeqAsc}, as before the keyset query) vs. the
+ * newest 20 as read-only projections ({@code findRecentHistory}). Each call runs without a transaction, so
+ * it starts with an empty persistence context like a new turn. Use {@code -prof gc} for bytes per turn.
+ *
+ * PostgreSQL is an embedded server unless {@code -Dbench.jdbc-url} (with {@code bench.jdbc-user} /
+ * {@code bench.jdbc-password}) points elsewhere.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageHistoryQueryBenchmark {
+
+    private static final int HISTORY_LIMIT = 20;
+    private static final String CONTENT = "I would put a write-through cache in front of the session store, "
+            + "keyed by session id, and invalidate it when the interview completes or is aborted. ";
+
+    @Param({"50", "200", "1000"})
+    public int messages;
+
+    private EmbeddedPostgres embeddedPostgres;
+    private ConfigurableApplicationContext context;
+    private MessageRepository messageRepository;
+    private UUID sessionId;
+
+    @Setup
+    public void setUp() throws IOException {
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+        context = new SpringApplicationBuilder(AimockApplication.class)
+                .profiles("stub-ai")
+                // As command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + System.getProperty("bench.jdbc-user", "postgres"),
+                        "--spring.datasource.password=" + System.getProperty("bench.jdbc-password", "postgres"),
+                        "--spring.datasource.hikari.data-source-properties.sslmode=disable",
+                        "--app.sqs.enabled=false",
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        messageRepository = context.getBean(MessageRepository.class);
+        sessionId = seedSession();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    private UUID seedSession() {
+        String name = "bench-" + UUID.randomUUID();
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .email(name + "@example.com")
+                .password("x")
+                .username(name)
+                .firstName("Bench")
+                .lastName("User")
+                .build());
+        UUID id = context.getBean(InterviewSessionRepository.class).save(InterviewSession.builder()
+                .title("Benchmark")
+                .interviewType("SYSTEM_DESIGN")
+                .userId(user.getId())
+                .build()).getId();
+        List<Message> turns = new ArrayList<>(messages);
+        for (long seq = 1; seq <= messages; seq++) {
+            Message message = seq % 2 == 1
+                    ? Message.user(CONTENT, id, seq)
+                    : Message.interviewer(CONTENT, id, seq);
+            message.markComplete();
+            turns.add(message);
+        }
+        messageRepository.saveAll(turns);
+        return id;
+    }
+
+    @Benchmark
+    public List<Message> fullLoad() {
+        return messageRepository.findBySessionIdOrderBySeqAsc(sessionId);
+    }
+
+    @Benchmark
+    public List<HistoryMessage> keysetProjection() {
+        return messageRepository.findRecentHistory(sessionId, 0L, Long.MAX_VALUE, PageRequest.of(0, HISTORY_LIMIT));
+    }
+}
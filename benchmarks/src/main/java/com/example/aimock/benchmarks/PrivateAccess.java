@@ -0,0 +1,39 @@
+package com.example.aimock.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Reaches private backend methods and {@code @Value} fields, the way the backend's unit tests do, so hot
+ * paths can be measured without widening production visibility. Keep the returned handles in
+ * {@code static final} fields: only then does the JIT treat a handle as a constant and inline its target
+ * like a direct call. A handle read from an instance field is invoked through the generic
+ * {@code MethodHandle} machinery on every call, which can cost more than the method being measured.
+ */
+final class PrivateAccess {
+
+    private PrivateAccess() {
+    }
+
+    static MethodHandle method(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No method " + type.getSimpleName() + "." + name, e);
+        }
+    }
+
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No field " + target.getClass().getSimpleName() + "." + name, e);
+        }
+    }
+}
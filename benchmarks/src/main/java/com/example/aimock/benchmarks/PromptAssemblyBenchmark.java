@@ -0,0 +1,97 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.ai.prompt.SystemPromptAssembler;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.ai.strategy.BehavioralInterviewStrategy;
+import com.example.aimock.ai.strategy.DefaultInterviewStrategy;
+import com.example.aimock.ai.strategy.FullstackInterviewStrategy;
+import com.example.aimock.ai.strategy.InterviewStrategy;
+import com.example.aimock.ai.strategy.JavaScriptReactInterviewStrategy;
+import com.example.aimock.ai.strategy.OOPInterviewStrategy;
+import com.example.aimock.ai.strategy.SpringBootInterviewStrategy;
+import com.example.aimock.ai.strategy.SystemDesignInterviewStrategy;
+import com.example.aimock.benchmarks.baseline.LegacySystemPromptBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * System prompt build cost per turn: the old per-turn formatting vs. precompiled assembly
+ * (cache disabled) vs. a warm prompt cache hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptAssemblyBenchmark {
+
+    @Param({"SYSTEM_DESIGN", "behavioral"})
+    public String interviewType;
+
+    @Param({"0", "1500"})
+    public int jobDescriptionChars;
+
+    private String jobDescription;
+    private LegacySystemPromptBuilder legacy;
+    private SystemPromptAssembler precompiled;
+    private SystemPromptAssembler cached;
+
+    @Setup
+    public void setUp() {
+        DefaultInterviewStrategy defaultStrategy = new DefaultInterviewStrategy();
+        List<InterviewStrategy> strategies = List.of(
+                new BehavioralInterviewStrategy(),
+                defaultStrategy,
+                new FullstackInterviewStrategy(),
+                new JavaScriptReactInterviewStrategy(),
+                new OOPInterviewStrategy(),
+                new SpringBootInterviewStrategy(),
+                new SystemDesignInterviewStrategy()
+        );
+        Map<String, InterviewStrategy> beans = new LinkedHashMap<>();
+        strategies.forEach(s -> beans.put(s.getClass().getSimpleName(), s));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        legacy = new LegacySystemPromptBuilder(beans, defaultStrategy);
+        TokenCounter tokenCounter = new TokenCounter("gpt-4o-mini");
+        // max-entries=0: every call is a miss, so this measures the precompiled build (and its token count) alone
+        precompiled = new SystemPromptAssembler(strategies, defaultStrategy, tokenCounter,
+                registry.counter("hits.0"), registry.counter("misses.0"), 0);
+        cached = new SystemPromptAssembler(strategies, defaultStrategy, tokenCounter,
+                registry.counter("hits"), registry.counter("misses"), 1000);
+
+        jobDescription = jobDescriptionChars == 0 ? null : Fixtures.text(jobDescriptionChars);
+        cached.assemble(interviewType, 5, jobDescription);
+    }
+
+    @Benchmark
+    public String legacyPerTurnFormatting() {
+        return legacy.buildSystemPrompt(interviewType, 5, jobDescription);
+    }
+
+    @Benchmark
+    public String precompiledUncached() {
+        return precompiled.assemble(interviewType, 5, jobDescription);
+    }
+
+    @Benchmark
+    public String cacheHit() {
+        return cached.assemble(interviewType, 5, jobDescription);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.benchmarks.baseline.LegacyAppendDelta;
+import com.example.aimock.messages.model.StreamingContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulating one streamed response and materializing its content: the old per-delta concatenation
+ * vs. a default-sized StringBuilder vs. StreamingContent presized by a warmed-up SizeHint (steady state
+ * for responses of this length). Run with {@code -prof gc} for bytes/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamingContentBenchmark {
+
+    @Param({"500", "5000"})
+    public int tokens;
+
+    private String[] deltas;
+    private StreamingContent.SizeHint sizeHint;
+
+    @Setup
+    public void setUp() {
+        deltas = Fixtures.deltas(tokens);
+        sizeHint = new StreamingContent.SizeHint();
+        for (int i = 0; i < 100; i++) {
+            streamingContent();
+        }
+    }
+
+    @Benchmark
+    public String legacyAppendDelta() {
+        LegacyAppendDelta message = new LegacyAppendDelta("");
+        for (String delta : deltas) {
+            message.appendDelta(delta);
+        }
+        return message.getContent();
+    }
+
+    @Benchmark
+    public String stringBuilder() {
+        StringBuilder sb = new StringBuilder();
+        for (String delta : deltas) {
+            sb.append(delta);
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String streamingContent() {
+        StreamingContent content = sizeHint.newContent();
+        for (String delta : deltas) {
+            content.append(delta);
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.websocket.dto.SessionTopicEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the STOMP topic events: one {@code ai_delta} per flushed delta (the per-token path)
+ * and one {@code ai_complete} with a 2,000-character reply per turn. The mapper has the same modules
+ * as the application's.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopicEventSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private SessionTopicEvent delta;
+    private SessionTopicEvent complete;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        UUID sessionId = new UUID(1, 1);
+        UUID interviewerMessageId = new UUID(1, 2);
+        delta = SessionTopicEvent.aiDelta(sessionId, interviewerMessageId, Fixtures.text(16), 42L);
+        complete = SessionTopicEvent.aiComplete(sessionId, interviewerMessageId, Fixtures.text(2000));
+    }
+
+    @Benchmark
+    public byte[] aiDelta() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(delta);
+    }
+
+    @Benchmark
+    public byte[] aiComplete() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(complete);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.aimock.benchmarks;
+
+import com.example.aimock.ai.AIChatService;
+import com.example.aimock.ai.prompt.HistoryWindowSelector;
+import com.example.aimock.ai.prompt.SystemPromptAssembler;
+import com.example.aimock.ai.prompt.TokenCounter;
+import com.example.aimock.ai.strategy.DefaultInterviewStrategy;
+import com.example.aimock.ai.strategy.SystemDesignInterviewStrategy;
+import com.example.aimock.messages.dto.HistoryMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-turn prompt preparation in {@code AIChatService}: system prompt (cache hit), token-budgeted history
+ * window and Spring AI message conversion, before the model call. With {@code storedTokenCounts=false}
+ * every history message is tokenized on every turn, as for rows written before token counts were stored.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TurnPromptBenchmark {
+
+    private static final MethodHandle PREPARE_PROMPT = PrivateAccess.method(AIChatService.class, "preparePrompt",
+            String.class, List.class, String.class, int.class, String.class, String.class);
+
+    @Param({"4", "20", "40"})
+    public int historyMessages;
+
+    @Param({"true", "false"})
+    public boolean storedTokenCounts;
+
+    private AIChatService chatService;
+    private List<HistoryMessage> history;
+    private String latestUserMessage;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DefaultInterviewStrategy defaultStrategy = new DefaultInterviewStrategy();
+        TokenCounter tokenCounter = new TokenCounter("gpt-4o-mini");
+        SystemPromptAssembler assembler = new SystemPromptAssembler(
+                List.of(new SystemDesignInterviewStrategy(), defaultStrategy), defaultStrategy, tokenCounter,
+                registry.counter("hits"), registry.counter("misses"), 1000);
+        HistoryWindowSelector selector = new HistoryWindowSelector(tokenCounter, List.of("gpt-4o-mini"), "", 6000, 20);
+        // Only the prompt preparation path is exercised, so the model-call collaborators stay null
+        chatService = new AIChatService(null, assembler, selector, null, null, null,
+                registry.summary("estimated"), registry.summary("actual"),
+                registry.summary("summarized"), registry.summary("full"), 16);
+
+        String turn = Fixtures.text(600);
+        history = Fixtures.history(historyMessages, 600, storedTokenCounts ? tokenCounter.count(turn) : null);
+        latestUserMessage = Fixtures.text(300);
+    }
+
+    @Benchmark
+    public Object preparePrompt() throws Throwable {
+        return PREPARE_PROMPT.invoke(chatService, "SYSTEM_DESIGN", history, latestUserMessage, 5, null, null);
+    }
+}
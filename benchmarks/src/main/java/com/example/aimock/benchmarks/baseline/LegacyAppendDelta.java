@@ -0,0 +1,25 @@
+package com.example.aimock.benchmarks.baseline;
+
+/**
+ * Copy of Message.appendDelta as it was before StreamingContent (the whole content is re-copied
+ * per delta), kept as the "before" baseline for StreamingContentBenchmark.
+ */
+public class LegacyAppendDelta {
+
+    private String content;
+
+    public LegacyAppendDelta(String content) {
+        this.content = content;
+    }
+
+    public void appendDelta(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        this.content = (this.content == null ? "" : this.content) + delta;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -11,6 +11,7 @@ export type SessionTopicEvent =
       interviewerMessageId: string;
       delta: string;
       messageStatus?: string;
+      frameSeq?: number;
     }
   | {
       type: "ai_complete";
@@ -0,0 +1,73 @@
+package com.example.aimock.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The REST calls a virtual user makes before it starts talking over STOMP.
+ */
+class BackendApi {
+
+    record Account(UUID userId, String token) {
+    }
+
+    private final URI baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    BackendApi(URI baseUrl, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    /**
+     * {@code POST /api/auth/register} with a unique throwaway account.
+     */
+    Account register(String runId, int user) throws IOException, InterruptedException {
+        String name = "lt" + runId + "u" + user;
+        JsonNode response = post("/api/auth/register", null, Map.of(
+                "email", name + "@loadtest.invalid",
+                "username", name,
+                "password", "loadtest-" + runId,
+                "firstName", "Load",
+                "lastName", "Test " + user));
+        return new Account(UUID.fromString(response.get("userId").asText()), response.get("token").asText());
+    }
+
+    /**
+     * {@code POST /api/v1/interview-sessions}; returns the session id.
+     */
+    UUID createSession(Account account, String interviewType) throws IOException, InterruptedException {
+        JsonNode response = post("/api/v1/interview-sessions", account.token(), Map.of(
+                "userId", account.userId(),
+                "title", "Load test",
+                "interviewType", interviewType,
+                "experienceYears", 3));
+        return UUID.fromString(response.get("id").asText());
+    }
+
+    private JsonNode post(String path, String token, Map<String, Object> body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("POST " + path + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
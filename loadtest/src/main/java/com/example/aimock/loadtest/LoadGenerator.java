@@ -0,0 +1,88 @@
+package com.example.aimock.loadtest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.tomcat.websocket.WsWebSocketContainer;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@code --users} virtual users against a running backend and prints latency percentiles and error
+ * counts. Each user runs on its own virtual thread. See {@code loadtest/README.md}.
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+            System.out.print(LoadTestOptions.USAGE);
+            return;
+        }
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        BackendApi api = new BackendApi(options.baseUrl(), objectMapper);
+        WebSocketStompClient stompClient = stompClient(objectMapper);
+        LoadStats stats = new LoadStats();
+        String runId = Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36)
+                + Integer.toString(ThreadLocalRandom.current().nextInt(1296), 36);
+
+        System.out.printf("Load test %s: %d users x %d turns against %s (ramp-up %s)%n",
+                runId, options.users(), options.turns(), options.baseUrl(), options.rampUp());
+        long startedAt = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long interval = options.reportInterval().toMillis();
+        reporter.scheduleAtFixedRate(() -> stats.printProgress(System.out, System.nanoTime() - startedAt),
+                interval, interval, TimeUnit.MILLISECONDS);
+
+        long rampStepNanos = options.users() > 1 ? options.rampUp().toNanos() / (options.users() - 1) : 0;
+        List<Thread> users = new ArrayList<>(options.users());
+        for (int i = 0; i < options.users(); i++) {
+            long startAt = startedAt + i * rampStepNanos;
+            long wait = startAt - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            users.add(Thread.ofVirtual().name("user-" + i)
+                    .start(new VirtualUser(i, runId, options, api, stompClient, stats)));
+        }
+        for (Thread user : users) {
+            user.join();
+        }
+
+        reporter.shutdownNow();
+        stats.printSummary(System.out, System.nanoTime() - startedAt);
+        stompClient.stop();
+        System.exit(stats.errorRate() > options.maxErrorRate() ? 1 : 0);
+    }
+
+    private static WebSocketStompClient stompClient(ObjectMapper objectMapper) {
+        WsWebSocketContainer container = new WsWebSocketContainer();
+        // Completed replies arrive as one frame with the whole content
+        container.setDefaultMaxTextMessageBufferSize(512 * 1024);
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        stompClient.setMessageConverter(converter);
+        stompClient.setInboundMessageSizeLimit(512 * 1024);
+        return stompClient;
+    }
+}
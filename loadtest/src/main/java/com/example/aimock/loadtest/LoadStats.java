@@ -0,0 +1,87 @@
+package com.example.aimock.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counters shared by all virtual users. Latencies are recorded in
+ * microseconds and reported in milliseconds.
+ */
+class LoadStats {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    /** Send to first {@code ai_delta}. */
+    final Histogram timeToFirstToken = new ConcurrentHistogram(MAX_MICROS, 3);
+    /** Gap between consecutive {@code ai_delta} frames of one reply. */
+    final Histogram interDelta = new ConcurrentHistogram(MAX_MICROS, 3);
+    /** Send to {@code ai_complete}. */
+    final Histogram completion = new ConcurrentHistogram(MAX_MICROS, 3);
+
+    final LongAdder turnsStarted = new LongAdder();
+    final LongAdder turnsCompleted = new LongAdder();
+    final LongAdder turnsFailed = new LongAdder();
+    final LongAdder turnsTimedOut = new LongAdder();
+    final LongAdder turnsLimited = new LongAdder();
+    final LongAdder setupFailures = new LongAdder();
+    final LongAdder disconnects = new LongAdder();
+    final AtomicInteger activeUsers = new AtomicInteger();
+
+    static void record(Histogram histogram, long nanos) {
+        histogram.recordValue(Math.min(MAX_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+    }
+
+    long turnErrors() {
+        return turnsFailed.sum() + turnsTimedOut.sum() + turnsLimited.sum();
+    }
+
+    /**
+     * Failed turns plus users that never got to send, over everything attempted.
+     */
+    double errorRate() {
+        long attempted = turnsStarted.sum() + setupFailures.sum();
+        return attempted == 0 ? 0 : (double) (turnErrors() + setupFailures.sum()) / attempted;
+    }
+
+    void printProgress(PrintStream out, long elapsedNanos) {
+        out.printf(Locale.ROOT, "[%4ds] users=%d turns=%d ok=%d errors=%d ttft p50=%s p95=%s%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), activeUsers.get(), turnsStarted.sum(),
+                turnsCompleted.sum(), turnErrors() + setupFailures.sum(),
+                millis(timeToFirstToken, 50), millis(timeToFirstToken, 95));
+    }
+
+    void printSummary(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.printf(Locale.ROOT, "Duration %.1fs, %d turns completed (%.1f/s)%n", seconds, turnsCompleted.sum(),
+                turnsCompleted.sum() / seconds);
+        out.printf(Locale.ROOT, "%-22s %8s %8s %8s %8s %8s %8s%n", "latency (ms)", "count", "p50", "p90", "p95", "p99", "max");
+        row(out, "time to first token", timeToFirstToken);
+        row(out, "inter-delta", interDelta);
+        row(out, "completion", completion);
+        out.println();
+        out.printf(Locale.ROOT, "turns started %d, completed %d, ai_failed %d, timed out %d, message limit %d%n",
+                turnsStarted.sum(), turnsCompleted.sum(), turnsFailed.sum(), turnsTimedOut.sum(), turnsLimited.sum());
+        out.printf(Locale.ROOT, "users failed to set up %d, STOMP disconnects %d%n", setupFailures.sum(), disconnects.sum());
+        out.printf(Locale.ROOT, "error rate %.2f%%%n", errorRate() * 100);
+    }
+
+    private static void row(PrintStream out, String name, Histogram histogram) {
+        out.printf(Locale.ROOT, "%-22s %8d %8s %8s %8s %8s %8s%n", name, histogram.getTotalCount(),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 95), millis(histogram, 99),
+                millis(histogram, 100));
+    }
+
+    private static String millis(Histogram histogram, double percentile) {
+        if (histogram.getTotalCount() == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.1f", histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.aimock.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options, given as {@code --name=value}.
+ */
+record LoadTestOptions(
+        URI baseUrl,
+        int users,
+        int turns,
+        Duration rampUp,
+        Duration thinkTime,
+        Duration turnTimeout,
+        Duration reportInterval,
+        String interviewType,
+        double maxErrorRate) {
+
+    static final String USAGE = """
+            Usage: java -jar loadtest.jar [--name=value ...]
+              --base-url=http://localhost:8080   backend to load (REST and /ws)
+              --users=50                         concurrent virtual users, one interview session each
+              --turns=5                          messages per user (the default FREE tier allows 30)
+              --ramp-up=10s                      spread user start-up over this long
+              --think-time=1s                    pause between a reply completing and the next message
+              --turn-timeout=120s                give up on a reply after this long
+              --report-interval=10s              progress line interval
+              --interview-type=SYSTEM_DESIGN
+              --max-error-rate=0.01              exit 1 when more turns than this fail
+            """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                URI.create(stripTrailingSlash(take(values, "base-url", "http://localhost:8080"))),
+                Integer.parseInt(take(values, "users", "50")),
+                Integer.parseInt(take(values, "turns", "5")),
+                duration(take(values, "ramp-up", "10s")),
+                duration(take(values, "think-time", "1s")),
+                duration(take(values, "turn-timeout", "120s")),
+                duration(take(values, "report-interval", "10s")),
+                take(values, "interview-type", "SYSTEM_DESIGN"),
+                Double.parseDouble(take(values, "max-error-rate", "0.01")));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return options;
+    }
+
+    URI webSocketUrl() {
+        String scheme = "https".equals(baseUrl.getScheme()) ? "wss" : "ws";
+        return URI.create(scheme + "://" + baseUrl.getAuthority() + "/ws");
+    }
+
+    private static String take(Map<String, String> values, String name, String fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : value;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Accepts {@code 500ms}, {@code 10s}, {@code 2m} or ISO-8601 ({@code PT10S}).
+     */
+    static Duration duration(String value) {
+        String text = value.trim();
+        if (text.startsWith("P") || text.startsWith("p")) {
+            return Duration.parse(text);
+        }
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Unsupported duration: " + text);
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.aimock.loadtest;
+
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated candidate: registers, opens an interview session, connects to {@code /ws} and plays
+ * {@code turns} messages through {@code /app/interview/send}, timing each reply from the
+ * {@code /topic/session/{id}} events. Turns run one at a time, as in the UI.
+ */
+class VirtualUser implements Runnable {
+
+    /**
+     * The {@code SessionTopicEvent} fields the generator reads; the rest are ignored.
+     */
+    record TopicEvent(String type, UUID interviewerMessageId, String delta, String content, String error) {
+    }
+
+    private record Received(TopicEvent event, long atNanos) {
+    }
+
+    private static final String[] ANSWERS = {
+            "I would start with the requirements: read-heavy traffic, a few thousand writes per second.",
+            "For storage I'd use Postgres with a read replica, and cache hot keys in Redis.",
+            "To scale writes I'd partition by user id and keep cross-partition queries out of the hot path.",
+            "I'd add rate limiting at the gateway and make the workers idempotent so retries are safe.",
+            "For observability I'd track p99 latency and error budgets per endpoint."
+    };
+
+    private final int index;
+    private final String runId;
+    private final LoadTestOptions options;
+    private final BackendApi api;
+    private final WebSocketStompClient stompClient;
+    private final LoadStats stats;
+    private final BlockingQueue<Received> events = new LinkedBlockingQueue<>();
+
+    VirtualUser(int index, String runId, LoadTestOptions options, BackendApi api, WebSocketStompClient stompClient,
+                LoadStats stats) {
+        this.index = index;
+        this.runId = runId;
+        this.options = options;
+        this.api = api;
+        this.stompClient = stompClient;
+        this.stats = stats;
+    }
+
+    @Override
+    public void run() {
+        StompSession session;
+        UUID userId;
+        UUID sessionId;
+        try {
+            BackendApi.Account account = api.register(runId, index);
+            userId = account.userId();
+            sessionId = api.createSession(account, options.interviewType());
+            session = stompClient.connectAsync(options.webSocketUrl().toString(), new StompSessionHandlerAdapter() {
+                @Override
+                public void handleTransportError(StompSession stompSession, Throwable exception) {
+                    stats.disconnects.increment();
+                }
+            }).get(30, TimeUnit.SECONDS);
+            session.subscribe("/topic/session/" + sessionId, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return TopicEvent.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    events.add(new Received((TopicEvent) payload, System.nanoTime()));
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            stats.setupFailures.increment();
+            System.err.println("user " + index + " setup failed: " + e);
+            return;
+        }
+
+        stats.activeUsers.incrementAndGet();
+        try {
+            for (int turn = 0; turn < options.turns(); turn++) {
+                if (!session.isConnected() || !playTurn(session, sessionId, userId, turn)) {
+                    break;
+                }
+                Thread.sleep(options.thinkTime());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stats.activeUsers.decrementAndGet();
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Sends one message and waits for its reply to finish. Returns false when the user should stop.
+     */
+    private boolean playTurn(StompSession session, UUID sessionId, UUID userId, int turn) throws InterruptedException {
+        events.clear();
+        stats.turnsStarted.increment();
+        long sentAt = System.nanoTime();
+        session.send("/app/interview/send", Map.of(
+                "sessionId", sessionId,
+                "userId", userId,
+                "content", ANSWERS[(index + turn) % ANSWERS.length],
+                "idempotencyKey", runId + "-" + index + "-" + turn));
+
+        long deadline = sentAt + options.turnTimeout().toNanos();
+        // Reply events are matched to the interviewerMessageId in this send's "accepted" event, so late
+        // frames of an earlier turn are dropped; events that beat "accepted" are held until it arrives
+        UUID replyId = null;
+        List<Received> beforeAccepted = new ArrayList<>();
+        Deque<Received> replay = new ArrayDeque<>();
+        long lastDeltaAt = 0;
+        while (true) {
+            Received received = replay.isEmpty()
+                    ? events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    : replay.poll();
+            if (received == null) {
+                stats.turnsTimedOut.increment();
+                return true;
+            }
+            TopicEvent event = received.event();
+            switch (event.type()) {
+                case "accepted" -> {
+                    if (replyId == null) {
+                        replyId = event.interviewerMessageId();
+                        replay.addAll(beforeAccepted);
+                        beforeAccepted.clear();
+                    }
+                    continue;
+                }
+                case "message_limit_exceeded" -> {
+                    stats.turnsLimited.increment();
+                    return false;
+                }
+                default -> {
+                }
+            }
+            if (replyId == null) {
+                beforeAccepted.add(received);
+                continue;
+            }
+            if (!replyId.equals(event.interviewerMessageId())) {
+                continue;
+            }
+            switch (event.type()) {
+                case "ai_delta" -> {
+                    // The first ai_delta is the empty STREAMING marker sent before the model is called
+                    if (event.delta() == null || event.delta().isEmpty()) {
+                        continue;
+                    }
+                    if (lastDeltaAt == 0) {
+                        LoadStats.record(stats.timeToFirstToken, received.atNanos() - sentAt);
+                    } else {
+                        LoadStats.record(stats.interDelta, received.atNanos() - lastDeltaAt);
+                    }
+                    lastDeltaAt = received.atNanos();
+                }
+                case "ai_complete" -> {
+                    LoadStats.record(stats.completion, received.atNanos() - sentAt);
+                    stats.turnsCompleted.increment();
+                    return true;
+                }
+                case "ai_failed" -> {
+                    stats.turnsFailed.increment();
+                    return true;
+                }
+                default -> {
+                    // anything newer than this generator
+                }
+            }
+        }
+    }
+}